@@ -101,6 +101,11 @@ namespace jsimple.net
             {
                 return new DotNetTcpIpSocketListener(socketConnectionHandler, port);
             }
+
+            public SocketListener createAsyncTcpSocketListener(AsyncSocketHandler asyncSocketHandler, int port)
+            {
+                throw new jsimple.util.ProgrammerError("Non-blocking socket listeners aren't yet supported on .NET");
+            }
         };
 
     }
@@ -64,6 +64,10 @@ public class FileSystemFile extends File {
         }
     }
 
+    @Override public FileMapping openMapped() {
+        return new JavaFileMapping(javaFile);
+    }
+
     @Override public OutputStream openForCreate() {
         try {
             return new JSimpleOutputStreamOnJavaStream(new FileOutputStream(javaFile));
@@ -23,8 +23,11 @@
 package jsimple.io;
 
 import jsimple.net.HttpRequest;
+import jsimple.net.JavaHttpAsyncDispatcher;
 import jsimple.net.JavaHttpRequest;
+import jsimple.net.JavaSocket;
 import jsimple.net.JavaTcpSocketListener;
+import jsimple.net.Socket;
 import jsimple.net.SocketListener;
 
 /**
@@ -41,7 +44,9 @@ public class JSimpleIO {
     public static /* synchronized */ void init() {
         if (!initialized) {
             HttpRequest.setFactory(new JavaHttpRequest.JavaHttpRequestFactory());
+            HttpRequest.setAsyncDispatcher(new JavaHttpAsyncDispatcher());
             SocketListener.setFactory(new JavaTcpSocketListener.JavaSocketListenerFactory());
+            Socket.setFactory(new JavaSocket.JavaSocketFactory());
             Paths.setInstance(new JavaPaths());
 
             StdIO.init(new JSimpleOutputStreamOnJavaStream(System.out), new JSimpleOutputStreamOnJavaStream(System.err),
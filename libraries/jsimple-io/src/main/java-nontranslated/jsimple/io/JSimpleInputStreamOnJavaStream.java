@@ -22,7 +22,11 @@
 
 package jsimple.io;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * @author Bret Johnson
@@ -31,9 +35,10 @@ import java.io.IOException;
 public class JSimpleInputStreamOnJavaStream extends InputStream {
     private java.io.InputStream javaInputStream;
     private boolean ignoreClose = false;
+    private ReadableByteChannel channel;
 
     public JSimpleInputStreamOnJavaStream(java.io.InputStream javaInputStream) {
-        this.javaInputStream = javaInputStream;
+        this(javaInputStream, false);
     }
 
     /**
@@ -44,7 +49,25 @@ public class JSimpleInputStreamOnJavaStream extends InputStream {
      * @param ignoreClose     whether or not to close the underlying stream when this stream is closed
      */
     public JSimpleInputStreamOnJavaStream(java.io.InputStream javaInputStream, boolean ignoreClose) {
+        this(javaInputStream,
+                javaInputStream instanceof FileInputStream ? ((FileInputStream) javaInputStream).getChannel() : null,
+                ignoreClose);
+    }
+
+    /**
+     * Create a JSimple stream that wraps the specified Java InputStream, which reads from the specified channel.  When
+     * the channel is known, copyTo can use FileChannel.transferTo/transferFrom to have the OS do the copy.  The
+     * channel must be in blocking mode.  For a FileInputStream the channel is found automatically, so this constructor
+     * is mainly for socket streams.
+     *
+     * @param javaInputStream Java InputStream
+     * @param channel         channel underlying the stream, or null if unknown
+     * @param ignoreClose     whether or not to close the underlying stream when this stream is closed
+     */
+    public JSimpleInputStreamOnJavaStream(java.io.InputStream javaInputStream, ReadableByteChannel channel,
+                                          boolean ignoreClose) {
         this.javaInputStream = javaInputStream;
+        this.channel = channel;
         this.ignoreClose = ignoreClose;
     }
 
@@ -72,6 +95,71 @@ public class JSimpleInputStreamOnJavaStream extends InputStream {
         }
     }
 
+    /**
+     * If this is a file stream, use FileChannel.transferTo to copy to any output stream with a known channel (a file or
+     * socket), which lets the OS copy the data without it passing through user space.  Similarly, if the output is a
+     * file, use FileChannel.transferFrom to copy to it from a channel based stream.
+     */
+    @Override protected boolean copyToDirect(OutputStream outputStream) {
+        if (channel == null || !(outputStream instanceof JSimpleOutputStreamOnJavaStream))
+            return false;
+
+        WritableByteChannel outputChannel = ((JSimpleOutputStreamOnJavaStream) outputStream).getChannel();
+        if (outputChannel == null)
+            return false;
+
+        try {
+            if (channel instanceof FileChannel)
+                return transferFromFile((FileChannel) channel, outputChannel);
+            else if (outputChannel instanceof FileChannel)
+                return transferToFile(channel, (FileChannel) outputChannel);
+            else return false;
+        } catch (IOException e) {
+            throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
+        }
+    }
+
+    private static boolean transferFromFile(FileChannel fileChannel, WritableByteChannel outputChannel)
+            throws IOException {
+        long position = fileChannel.position();
+        long size = fileChannel.size();
+
+        try {
+            while (position < size) {
+                long amountTransferred = fileChannel.transferTo(position, size - position, outputChannel);
+
+                // If the OS stops making progress, the caller copies whatever's left the normal way
+                if (amountTransferred <= 0)
+                    return false;
+                position += amountTransferred;
+            }
+        } finally {
+            // transferTo doesn't update the channel's position, so update it here to reflect what was copied
+            fileChannel.position(position);
+        }
+
+        return true;
+    }
+
+    private static boolean transferToFile(ReadableByteChannel inputChannel, FileChannel fileChannel)
+            throws IOException {
+        long position = fileChannel.position();
+
+        try {
+            // transferFrom stops early only at the end of a blocking source, so loop until it returns 0
+            while (true) {
+                long amountTransferred = fileChannel.transferFrom(inputChannel, position, Long.MAX_VALUE);
+                if (amountTransferred <= 0)
+                    break;
+                position += amountTransferred;
+            }
+        } finally {
+            fileChannel.position(position);
+        }
+
+        return true;
+    }
+
     @Override public void close() {
         if (!ignoreClose) {
             try {
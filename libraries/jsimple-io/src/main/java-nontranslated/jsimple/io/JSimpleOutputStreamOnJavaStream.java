@@ -22,6 +22,9 @@
 
 package jsimple.io;
 
+import java.io.FileOutputStream;
+import java.nio.channels.WritableByteChannel;
+
 /**
  * This class turns a java.io.OutputStream into a JSimple OutputStream.  It's a straight pass through, except that
  * checked exceptions are turned into similar platform independent unchecked exceptions.
@@ -32,9 +35,10 @@ package jsimple.io;
 public class JSimpleOutputStreamOnJavaStream extends OutputStream {
     private java.io.OutputStream javaOutputStream;
     private boolean ignoreClose;
+    private WritableByteChannel channel;
 
     public JSimpleOutputStreamOnJavaStream(java.io.OutputStream javaOutputStream) {
-        this.javaOutputStream = javaOutputStream;
+        this(javaOutputStream, false);
     }
 
     /**
@@ -45,10 +49,36 @@ public class JSimpleOutputStreamOnJavaStream extends OutputStream {
      * @param ignoreClose      whether or not to close the underlying stream when this stream is closed
      */
     public JSimpleOutputStreamOnJavaStream(java.io.OutputStream javaOutputStream, boolean ignoreClose) {
+        this(javaOutputStream,
+                javaOutputStream instanceof FileOutputStream ? ((FileOutputStream) javaOutputStream).getChannel() : null,
+                ignoreClose);
+    }
+
+    /**
+     * Create a JSimple stream that wraps the specified Java OutputStream, which writes to the specified channel.  See
+     * the matching JSimpleInputStreamOnJavaStream constructor for details.
+     *
+     * @param javaOutputStream Java OutputStream
+     * @param channel          channel underlying the stream, or null if unknown
+     * @param ignoreClose      whether or not to close the underlying stream when this stream is closed
+     */
+    public JSimpleOutputStreamOnJavaStream(java.io.OutputStream javaOutputStream, WritableByteChannel channel,
+                                           boolean ignoreClose) {
         this.javaOutputStream = javaOutputStream;
+        this.channel = channel;
         this.ignoreClose = ignoreClose;
     }
 
+    /**
+     * Get the channel underlying this stream, if it's known.  Data can be written directly to the channel (e.g. via
+     * FileChannel.transferTo), since this class does no buffering of its own.
+     *
+     * @return channel for the stream or null if unknown
+     */
+    WritableByteChannel getChannel() {
+        return channel;
+    }
+
     @Override public void write(int oneByte) {
         try {
             javaOutputStream.write(oneByte);
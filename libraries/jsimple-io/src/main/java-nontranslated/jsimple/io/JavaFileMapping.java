@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.io;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * FileMapping implementation on top of Java NIO memory mapped files.  A single MappedByteBuffer can address at most
+ * 2GB, so the file is mapped as a series of 1GB chunks; a read that crosses a chunk boundary is split between them.
+ */
+public class JavaFileMapping extends FileMapping {
+    private static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    private final int chunkShift;
+    private final int chunkSize;
+    private final int chunkMask;
+    private MappedByteBuffer[] chunks;
+    private long length;
+
+    public JavaFileMapping(java.io.File javaFile) {
+        this(javaFile, DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * Map the file as chunks of the specified size.  Only tests use a size other than the default, to exercise reads
+     * that cross chunk boundaries without needing a file bigger than 1GB.
+     *
+     * @param javaFile   file to map
+     * @param chunkShift log2 of the chunk size
+     */
+    JavaFileMapping(java.io.File javaFile, int chunkShift) {
+        this.chunkShift = chunkShift;
+        chunkSize = 1 << chunkShift;
+        chunkMask = chunkSize - 1;
+
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(javaFile, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                length = channel.size();
+
+                int chunkCount = (int) ((length + chunkMask) >>> chunkShift);
+                chunks = new MappedByteBuffer[chunkCount];
+                for (int i = 0; i < chunkCount; ++i) {
+                    long chunkStart = (long) i << chunkShift;
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart,
+                            Math.min(chunkSize, length - chunkStart));
+                }
+            } finally {
+                // The mappings stay valid after the channel is closed
+                randomAccessFile.close();
+            }
+        } catch (java.io.IOException e) {
+            throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
+        }
+    }
+
+    @Override public long getLength() {
+        return length;
+    }
+
+    @Override public int getByte(long position) {
+        checkRange(position, 1);
+        return getChunks()[(int) (position >>> chunkShift)].get((int) (position & chunkMask)) & 0xFF;
+    }
+
+    @Override public void getBytes(long position, byte[] buffer, int offset, int length) {
+        checkRange(position, length);
+        MappedByteBuffer[] chunks = getChunks();
+
+        while (length > 0) {
+            int chunkPosition = (int) (position & chunkMask);
+            int amount = Math.min(length, chunkSize - chunkPosition);
+
+            // Use a duplicate so that concurrent readers don't disturb each other's buffer position
+            ByteBuffer chunk = chunks[(int) (position >>> chunkShift)].duplicate();
+            chunk.position(chunkPosition);
+            chunk.get(buffer, offset, amount);
+
+            position += amount;
+            offset += amount;
+            length -= amount;
+        }
+    }
+
+    /**
+     * Java doesn't provide a supported way to unmap a MappedByteBuffer, so close just drops the references to the
+     * buffers; the OS mapping is released when they're garbage collected.
+     */
+    @Override public void close() {
+        chunks = null;
+    }
+
+    private MappedByteBuffer[] getChunks() {
+        MappedByteBuffer[] currChunks = chunks;
+        if (currChunks == null)
+            throw new IOException("FileMapping has been closed");
+        return currChunks;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.util.ProgrammerError;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Java implementation of HttpRequest.AsyncDispatcher, which runs requests sent with sendAsync.  At most
+ * maxConcurrentRequests requests are in flight at once; others are queued until one finishes.
+ * <p/>
+ * On JVMs that support virtual threads (Java 21+) each request runs on a virtual thread, which gives up its carrier
+ * thread while blocked on the network, so hundreds of requests in flight share a handful of OS threads.  On older JVMs,
+ * requests run on a pool of up to maxConcurrentRequests platform threads, which exit after being idle for a minute.
+ */
+public class JavaHttpAsyncDispatcher implements HttpRequest.AsyncDispatcher {
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+    private final int maxConcurrentRequests;
+    private final Semaphore requestPermits;
+    private final ExecutorService executor;
+    private final boolean usingVirtualThreads;
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    public JavaHttpAsyncDispatcher() {
+        this(DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Create a dispatcher that allows at most maxConcurrentRequests requests in flight at once.
+     *
+     * @param maxConcurrentRequests maximum number of requests sent at once
+     */
+    public JavaHttpAsyncDispatcher(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests < 1 ? 1 : maxConcurrentRequests;
+        this.requestPermits = new Semaphore(this.maxConcurrentRequests);
+
+        ExecutorService virtualThreadExecutor = JavaTcpSocketListener.createVirtualThreadExecutor();
+        usingVirtualThreads = virtualThreadExecutor != null;
+        executor = virtualThreadExecutor != null ? virtualThreadExecutor : createThreadPoolExecutor();
+    }
+
+    @Override public void dispatch(HttpRequest request, HttpResponseHandler handler) {
+        queuedCount.incrementAndGet();
+        try {
+            executor.execute(createTask(request, handler));
+        } catch (RejectedExecutionException e) {
+            queuedCount.decrementAndGet();
+            throw new ProgrammerError("JavaHttpAsyncDispatcher is shut down");
+        }
+    }
+
+    private Runnable createTask(final HttpRequest request, final HttpResponseHandler handler) {
+        return new Runnable() {
+            @Override public void run() {
+                // With virtual threads, every request gets a thread right away, so requests over the limit wait here
+                requestPermits.acquireUninterruptibly();
+                queuedCount.decrementAndGet();
+                activeCount.incrementAndGet();
+                try {
+                    HttpResponse response;
+                    try {
+                        response = request.send();
+                    } catch (RuntimeException e) {
+                        handler.failed(e);
+                        return;
+                    }
+
+                    // Handlers shouldn't throw; if one does, close the response so its connection isn't lost, then
+                    // let the exception go to the thread's uncaught exception handler
+                    try {
+                        handler.completed(response);
+                    } catch (RuntimeException e) {
+                        try {
+                            response.close();
+                        } catch (RuntimeException e2) {
+                            // Ignore errors closing the response, so the handler's exception is the one reported
+                        }
+                        throw e;
+                    }
+                } finally {
+                    activeCount.decrementAndGet();
+                    requestPermits.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Stop accepting new requests.  Requests already dispatched still run to completion.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * @return number of requests currently being sent or having their handler called
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * @return number of requests waiting for one of the in flight requests to finish
+     */
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return true if requests run on virtual threads, false if on a pool of platform threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return usingVirtualThreads;
+    }
+
+    private ExecutorService createThreadPoolExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxConcurrentRequests, maxConcurrentRequests,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "JavaHttpAsyncDispatcher " +
+                                threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.io.JavaIOUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking TCP socket listener, built on NIO selectors.  A single accept thread hands new connections out, round
+ * robin, to a small pool of event loop threads (one per CPU by default).  Each event loop multiplexes its connections
+ * with a Selector, calling the AsyncSocketHandler as data arrives and writing queued data as the sockets become
+ * writable.  So the number of threads is fixed, no matter how many connections there are.
+ * <p/>
+ * stop() is graceful:  it stops accepting, closes each connection once the data queued for it has been written, and
+ * waits (up to a timeout) for that to finish before closing anything left.
+ */
+public class JavaNioSocketListener extends SocketListener {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private final int eventLoopCount;
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] eventLoops;
+    private Thread acceptThread;
+    private volatile boolean stopping = false;
+
+    public JavaNioSocketListener(AsyncSocketHandler asyncSocketHandler, int port) {
+        this(asyncSocketHandler, port, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a listener with the specified number of event loop threads.  If port is 0, an ephemeral port is used;
+     * getPort returns the actual port once the listener is started.
+     *
+     * @param asyncSocketHandler handler, to receive the connection events
+     * @param port               port number to listen on
+     * @param eventLoopCount     number of event loop threads
+     */
+    public JavaNioSocketListener(AsyncSocketHandler asyncSocketHandler, int port, int eventLoopCount) {
+        super(asyncSocketHandler, port);
+        this.eventLoopCount = eventLoopCount < 1 ? 1 : eventLoopCount;
+    }
+
+    @Override public void start() {
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(new InetSocketAddress(getPort()), ACCEPT_BACKLOG);
+            setPort(serverChannel.socket().getLocalPort());
+
+            eventLoops = new EventLoop[eventLoopCount];
+            for (int i = 0; i < eventLoopCount; ++i)
+                eventLoops[i] = new EventLoop(i);
+        } catch (IOException e) {
+            throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
+        }
+
+        for (EventLoop eventLoop : eventLoops)
+            eventLoop.start();
+
+        acceptThread = new AcceptThread();
+        acceptThread.start();
+    }
+
+    @Override public void stop() {
+        if (serverChannel == null || stopping)
+            return;
+        stopping = true;
+
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
+        }
+
+        // Wait for the accept thread first, so that any connection it accepted just before the close is queued to its
+        // event loop ahead of the stop, and so gets closed gracefully along with the rest
+        try {
+            acceptThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MILLIS;
+        for (EventLoop eventLoop : eventLoops)
+            eventLoop.beginStop(deadline);
+
+        try {
+            for (EventLoop eventLoop : eventLoops)
+                eventLoop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class AcceptThread extends Thread {
+        private AcceptThread() {
+            super("JavaNioSocketListener accept");
+            setDaemon(true);
+        }
+
+        @Override public void run() {
+            int nextEventLoop = 0;
+            while (!stopping) {
+                SocketChannel channel;
+                try {
+                    channel = serverChannel.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                } catch (IOException e) {
+                    // Typically out of file handles; back off a bit, giving existing connections a chance to close
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e2) {
+                        break;
+                    }
+                    continue;
+                }
+
+                eventLoops[nextEventLoop].register(channel);
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+            }
+        }
+    }
+
+    private class EventLoop extends Thread {
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private volatile long stopDeadline = 0;    // Set when stopping
+        private volatile boolean exited = false;
+
+        private EventLoop(int index) throws IOException {
+            super("JavaNioSocketListener event loop " + index);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        /**
+         * Run the task on this event loop's thread, after any events currently being processed.
+         */
+        private void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        private void register(SocketChannel channel) {
+            execute(new RegisterTask(channel));
+
+            // If the loop already exited (e.g. its selector failed), it won't run the task, so close the channel here
+            if (exited)
+                closeQueuedChannels();
+        }
+
+        /**
+         * Close the channels still waiting to be registered, once the loop has exited and won't run their tasks.
+         */
+        private void closeQueuedChannels() {
+            while (true) {
+                Runnable task = tasks.poll();
+                if (task == null)
+                    break;
+                if (task instanceof RegisterTask)
+                    ((RegisterTask) task).closeChannel();
+            }
+        }
+
+        private class RegisterTask implements Runnable {
+            private final SocketChannel channel;
+
+            private RegisterTask(SocketChannel channel) {
+                this.channel = channel;
+            }
+
+            @Override public void run() {
+                JavaAsyncSocket socket = new JavaAsyncSocket(EventLoop.this, channel);
+                try {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    socket.key = channel.register(selector, SelectionKey.OP_READ, socket);
+                } catch (IOException e) {
+                    closeChannel();
+                    return;
+                }
+
+                try {
+                    getAsyncSocketHandler().connected(socket);
+                } catch (RuntimeException e) {
+                    socket.closeNow();
+                }
+
+                // If stopping, close connections accepted just before the server socket was closed
+                if (stopDeadline != 0)
+                    socket.close();
+            }
+
+            private void closeChannel() {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Ignore errors closing a connection that already failed or was never handled
+                }
+            }
+        }
+
+        private void beginStop(long deadline) {
+            stopDeadline = deadline;
+            execute(new Runnable() {
+                @Override public void run() {
+                    for (SelectionKey key : selector.keys())
+                        ((JavaAsyncSocket) key.attachment()).close();
+                }
+            });
+        }
+
+        @Override public void run() {
+            try {
+                while (true) {
+                    long deadline = stopDeadline;
+                    if (deadline != 0 && tasks.isEmpty()
+                            && (selector.keys().isEmpty() || System.currentTimeMillis() >= deadline))
+                        break;
+
+                    selector.select(deadline != 0 ? 100 : 0);
+
+                    runTasks();
+
+                    Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                    while (selectedKeys.hasNext()) {
+                        SelectionKey key = selectedKeys.next();
+                        selectedKeys.remove();
+
+                        JavaAsyncSocket socket = (JavaAsyncSocket) key.attachment();
+                        if (key.isValid() && key.isReadable())
+                            socket.handleRead(readBuffer);
+                        if (key.isValid() && key.isWritable())
+                            socket.flushWrites();
+                    }
+
+                    runTasks();
+                }
+            } catch (IOException e) {
+                // The selector failed; just close everything below
+            } finally {
+                // Close any connections that didn't finish in time, along with the selector
+                for (SelectionKey key : new ArrayList<SelectionKey>(selector.keys()))
+                    ((JavaAsyncSocket) key.attachment()).closeNow();
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // Ignore errors closing the selector
+                }
+
+                // Along with any connections handed to the loop that it never got to
+                exited = true;
+                closeQueuedChannels();
+            }
+        }
+
+        private void runTasks() {
+            while (true) {
+                Runnable task = tasks.poll();
+                if (task == null)
+                    break;
+                task.run();
+            }
+        }
+    }
+
+    private class JavaAsyncSocket extends AsyncSocket {
+        private final EventLoop eventLoop;
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<ByteBuffer>();   // Guarded by this
+        private boolean flushScheduled = false;                                         // Guarded by this
+        private volatile boolean closeRequested = false;
+        private volatile boolean closed = false;
+        private boolean wroteSomething = false;
+
+        private final Runnable flushTask = new Runnable() {
+            @Override public void run() {
+                synchronized (JavaAsyncSocket.this) {
+                    flushScheduled = false;
+                }
+                flushWrites();
+            }
+        };
+
+        private JavaAsyncSocket(EventLoop eventLoop, SocketChannel channel) {
+            this.eventLoop = eventLoop;
+            this.channel = channel;
+        }
+
+        @Override public void write(byte[] buffer, int offset, int length) {
+            if (closed || closeRequested || length == 0)
+                return;
+
+            byte[] copy = new byte[length];
+            System.arraycopy(buffer, offset, copy, 0, length);
+
+            synchronized (this) {
+                writeQueue.add(ByteBuffer.wrap(copy));
+            }
+            scheduleFlush();
+        }
+
+        @Override public void close() {
+            if (closed || closeRequested)
+                return;
+            closeRequested = true;
+            scheduleFlush();
+        }
+
+        @Override public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Writes are always done from the event loop, after the current callback returns, so that a handler writing
+         * from a callback (including writesCompleted) doesn't recurse.
+         */
+        private void scheduleFlush() {
+            synchronized (this) {
+                if (flushScheduled)
+                    return;
+                flushScheduled = true;
+            }
+            eventLoop.execute(flushTask);
+        }
+
+        private void handleRead(ByteBuffer readBuffer) {
+            // Once closing, ignore further input; stop selecting for it too, so the loop doesn't spin on a socket that
+            // stays readable while its queued writes drain
+            if (closeRequested) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                return;
+            }
+
+            readBuffer.clear();
+            int amountRead;
+            try {
+                amountRead = channel.read(readBuffer);
+            } catch (IOException e) {
+                closeNow();
+                return;
+            }
+
+            if (amountRead < 0) {
+                // The peer shut down its side; finish writing anything queued, then close
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                close();
+            } else if (amountRead > 0) {
+                try {
+                    getAsyncSocketHandler().dataReceived(this, readBuffer.array(), 0, amountRead);
+                } catch (RuntimeException e) {
+                    closeNow();
+                }
+            }
+        }
+
+        private void flushWrites() {
+            if (closed)
+                return;
+
+            try {
+                while (true) {
+                    ByteBuffer data;
+                    synchronized (this) {
+                        data = writeQueue.peek();
+                    }
+                    if (data == null)
+                        break;
+
+                    channel.write(data);
+                    wroteSomething = true;
+
+                    // If the socket send buffer is full, wait for the socket to be writable again
+                    if (data.hasRemaining()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+
+                    synchronized (this) {
+                        writeQueue.poll();
+                    }
+                }
+            } catch (IOException e) {
+                closeNow();
+                return;
+            }
+
+            if ((key.interestOps() & SelectionKey.OP_WRITE) != 0)
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+
+            if (closeRequested) {
+                closeNow();
+                return;
+            }
+
+            if (wroteSomething) {
+                wroteSomething = false;
+                try {
+                    getAsyncSocketHandler().writesCompleted(this);
+                } catch (RuntimeException e) {
+                    closeNow();
+                }
+            }
+        }
+
+        private void closeNow() {
+            if (closed)
+                return;
+            closed = true;
+
+            if (key != null)
+                key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignore errors closing; the connection is gone either way
+            }
+
+            synchronized (this) {
+                writeQueue.clear();
+            }
+
+            try {
+                getAsyncSocketHandler().disconnected(this);
+            } catch (RuntimeException e) {
+                // Nothing more to do for the connection
+            }
+        }
+    }
+}
@@ -24,6 +24,11 @@ package jsimple.net;
 
 import jsimple.io.*;
 
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.net.InetSocketAddress;
+
 /**
  * @author Bret Johnson
  * @since 8/5/13 1:40 AM
@@ -35,9 +40,12 @@ public class JavaSocket extends Socket {
         this.socket = socket;
     }
 
+    // If the socket was created from a SocketChannel, its streams expose the channel so that copying a file to the
+    // socket, or the socket to a file, can be done via FileChannel.transferTo/transferFrom
+
     @Override public InputStream getInputStream() {
         try {
-            return new JSimpleInputStreamOnJavaStream(socket.getInputStream(), true);
+            return new JSimpleInputStreamOnJavaStream(socket.getInputStream(), socket.getChannel(), true);
         } catch (java.io.IOException e) {
             throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
         }
@@ -45,7 +53,7 @@ public class JavaSocket extends Socket {
 
     @Override public OutputStream getOutputStream() {
         try {
-            return new JSimpleOutputStreamOnJavaStream(socket.getOutputStream(), true);
+            return new JSimpleOutputStreamOnJavaStream(socket.getOutputStream(), socket.getChannel(), true);
         } catch (java.io.IOException e) {
             throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
         }
@@ -62,4 +70,55 @@ public class JavaSocket extends Socket {
             throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
         }
     }
+
+    @Override public void setTimeout(int timeoutInMillis) {
+        try {
+            socket.setSoTimeout(timeoutInMillis);
+        } catch (java.io.IOException e) {
+            throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
+        }
+    }
+
+    public static class JavaSocketFactory implements SocketFactory {
+        @Override public Socket connect(String host, int port, boolean secure, int timeoutInMillis) {
+            java.net.Socket socket = new java.net.Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), timeoutInMillis);
+                socket.setSoTimeout(timeoutInMillis);
+                socket.setTcpNoDelay(true);
+
+                if (secure) {
+                    SSLSocketFactory sslSocketFactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+                    SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, host, port, true);
+
+                    enableHostnameVerification(sslSocket);
+                    sslSocket.startHandshake();
+                    return new JavaSocket(sslSocket);
+                } else return new JavaSocket(socket);
+            } catch (java.io.IOException e) {
+                try {
+                    socket.close();
+                } catch (java.io.IOException e2) {
+                    // Ignore errors closing a connection that already failed
+                }
+                throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
+            }
+        }
+
+        /**
+         * Have the handshake check that the server's certificate is for the host, as HttpsURLConnection does.  That's
+         * done by setting the endpoint identification algorithm, which needs Java 7, so it's set via reflection, since
+         * we build for older versions.  On Java 6 the certificate chain is still validated, but not the host name.
+         */
+        private static void enableHostnameVerification(SSLSocket sslSocket) {
+            SSLParameters sslParameters = sslSocket.getSSLParameters();
+            try {
+                SSLParameters.class.getMethod("setEndpointIdentificationAlgorithm", String.class)
+                        .invoke(sslParameters, "HTTPS");
+            } catch (Exception e) {
+                return;
+            }
+            sslSocket.setSSLParameters(sslParameters);
+        }
+    }
 }
@@ -19,69 +19,263 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
  * THE SOFTWARE.
  */
-
 package jsimple.net;
 
 import jsimple.io.JavaIOUtils;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Blocking TCP socket listener, which calls the SocketConnectionHandler for each connection on its own thread.  On
+ * JVMs that support virtual threads (Java 21+) each connection gets a virtual thread, so blocking style handlers scale
+ * to many thousands of connections.  On older JVMs, connections run on a pool of platform threads, reused from one
+ * connection to the next.
+ * <p/>
+ * Either way, the number of live connections is bounded by maxConnections.  When the limit is reached the listener
+ * stops accepting until a connection finishes, so new clients wait in the OS accept backlog instead of the listener
+ * creating unbounded threads.
+ *
  * @author Bret Johnson
  * @since 8/5/13 12:29 AM
  */
 public class JavaTcpSocketListener extends SocketListener {
+    public static final int DEFAULT_MAX_CONNECTIONS = 10000;
+    private static final int ACCEPT_BACKLOG = 1024;
+
+    private final int maxConnections;
+    private final Semaphore connectionPermits;
+    private final AtomicInteger liveConnectionCount = new AtomicInteger();
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
     private ServerSocket serverSocket;
+    private ExecutorService executor;
+    private boolean usingVirtualThreads;
     private Thread serverThread;
+    private volatile boolean stopping = false;
 
     public JavaTcpSocketListener(SocketConnectionHandler socketConnectionHandler, int port) {
+        this(socketConnectionHandler, port, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Create a listener that allows at most maxConnections live connections at once.  If port is 0, an ephemeral port
+     * is used; getPort returns the actual port once the listener is started.
+     *
+     * @param socketConnectionHandler connection handler, to receive incoming connections
+     * @param port                    port number to listen on
+     * @param maxConnections          maximum number of connections handled at once
+     */
+    public JavaTcpSocketListener(SocketConnectionHandler socketConnectionHandler, int port, int maxConnections) {
         super(socketConnectionHandler, port);
+        this.maxConnections = maxConnections < 1 ? 1 : maxConnections;
+        this.connectionPermits = new Semaphore(this.maxConnections);
     }
 
     public void start() {
         try {
-            serverSocket = new ServerSocket(getPort());
+            serverSocket = new ServerSocket(getPort(), ACCEPT_BACKLOG);
+            setPort(serverSocket.getLocalPort());
         } catch (IOException e) {
             throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
         }
 
+        executor = createVirtualThreadExecutor();
+        usingVirtualThreads = executor != null;
+        if (executor == null)
+            executor = createThreadPoolExecutor();
+
         serverThread = new ServerListenerThread();
         serverThread.start();
     }
 
+    /**
+     * Stop accepting connections.  Connections already being handled are left to finish on their own; their handlers
+     * aren't interrupted.
+     */
     public void stop() {
-        // TODO: Implement this
+        if (serverSocket == null || stopping)
+            return;
+        stopping = true;
+
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            throw JavaIOUtils.jSimpleExceptionFromJavaIOException(e);
+        }
+
+        // Closing the socket only wakes the accept thread if it's in accept; at maxConnections it's waiting for a
+        // permit instead, so interrupt it too
+        serverThread.interrupt();
+        try {
+            serverThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Get the number of connections currently being handled.
+     *
+     * @return live connection count
+     */
+    public int getLiveConnectionCount() {
+        return liveConnectionCount.get();
+    }
+
+    /**
+     * Get the total number of connections accepted and handed to the handler since the listener was started.
+     *
+     * @return accepted connection count
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    /**
+     * Get the total number of connections that were accepted but then closed without being handled, because no thread
+     * could be started for them (e.g. because the listener was being stopped).
+     *
+     * @return rejected connection count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return true if connections are handled on virtual threads, false if on a pool of platform threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return usingVirtualThreads;
+    }
+
+    /**
+     * Create an executor that runs each task on a new virtual thread, if the JVM supports them.  It's looked up via
+     * reflection, since virtual threads need Java 21 and we build for older versions.
+     */
+    static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create an executor with platform threads, up to one per allowed connection.  Threads are created as needed and
+     * kept for a minute after their connection finishes, to be reused for the next one.
+     */
+    private ExecutorService createThreadPoolExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "JavaTcpSocketListener connection " +
+                                threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                },
+                new RejectedExecutionHandler() {
+                    /**
+                     * A connection's permit is released just before its thread goes back to wait for more work, so
+                     * with all maxConnections threads created a new connection can arrive a moment before any thread
+                     * is waiting.  In that case, hand the connection over to the thread, blocking until it's ready.
+                     */
+                    @Override public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+                        if (threadPoolExecutor.isShutdown())
+                            throw new RejectedExecutionException("JavaTcpSocketListener is stopped");
+
+                        try {
+                            threadPoolExecutor.getQueue().put(runnable);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted handing off connection", e);
+                        }
+                    }
+                });
     }
 
     private class ServerListenerThread extends Thread {
-        private boolean stop = false;
+        private ServerListenerThread() {
+            super("JavaTcpSocketListener accept");
+            setDaemon(true);
+        }
 
         @Override public void run() {
-            while (!stop) {
+            while (!stopping) {
+                // Wait for a connection slot before accepting, so excess clients wait in the OS backlog
                 try {
-                    java.net.Socket clientSocket = serverSocket.accept();
+                    connectionPermits.acquire();
+                } catch (InterruptedException e) {
+                    break;
+                }
 
-                    SocketConnectionThread socketConnectionThread =
-                            new SocketConnectionThread(new JavaSocket(clientSocket));
-                    socketConnectionThread.start();
+                java.net.Socket clientSocket;
+                try {
+                    clientSocket = serverSocket.accept();
                 } catch (IOException e) {
-                    // TODO: Handle error better
-                    System.out.println("Accept failed: 8000");
+                    connectionPermits.release();
+                    if (stopping)
+                        break;
+
+                    // Typically out of file handles; back off a bit, giving existing connections a chance to close
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e2) {
+                        break;
+                    }
+                    continue;
+                }
+
+                liveConnectionCount.incrementAndGet();
+                try {
+                    executor.execute(new SocketConnectionTask(new JavaSocket(clientSocket)));
+                    acceptedCount.incrementAndGet();
+                } catch (RejectedExecutionException e) {
+                    liveConnectionCount.decrementAndGet();
+                    connectionPermits.release();
+                    rejectedCount.incrementAndGet();
+                    try {
+                        clientSocket.close();
+                    } catch (IOException e2) {
+                        // Ignore errors closing a connection we're dropping anyway
+                    }
                 }
             }
         }
     }
 
-    private class SocketConnectionThread extends Thread {
+    private class SocketConnectionTask implements Runnable {
         private Socket socket;
 
-        private SocketConnectionThread(Socket socket) {
+        private SocketConnectionTask(Socket socket) {
             this.socket = socket;
         }
 
         @Override public void run() {
-            getSocketConnectionHandler().sockedConnected(socket);
+            try {
+                getSocketConnectionHandler().sockedConnected(socket);
+            } finally {
+                liveConnectionCount.decrementAndGet();
+                connectionPermits.release();
+            }
         }
     }
 
@@ -90,5 +284,10 @@ public class JavaTcpSocketListener extends SocketListener {
         public SocketListener createTcpSocketListener(SocketConnectionHandler socketConnectionHandler, int port) {
             return new JavaTcpSocketListener(socketConnectionHandler, port);
         }
+
+        @Override
+        public SocketListener createAsyncTcpSocketListener(AsyncSocketHandler asyncSocketHandler, int port) {
+            return new JavaNioSocketListener(asyncSocketHandler, port);
+        }
     }
 }
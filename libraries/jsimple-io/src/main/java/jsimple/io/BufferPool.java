@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.io;
+
+import jsimple.util.HashSet;
+import jsimple.util.ProgrammerError;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * BufferPool is a shared pool of scratch byte and char arrays, used by the stream readers & writers, copyTo, and the
+ * like, so that code that repeatedly opens streams (e.g. handling one request after another) doesn't allocate new
+ * buffers each time.  Buffers are grouped in power of two size classes, from 256 to 64K elements; an acquired buffer
+ * is the smallest size class that's big enough, so may be longer than requested.  Bigger requests are just allocated,
+ * and not retained when released.
+ * <p/>
+ * A class that borrows a buffer should release it when it's done with it--typically on close--and must not touch it
+ * after that.  Failing to release a buffer isn't a problem in itself--it's just garbage collected--but it defeats the
+ * pooling.  Releasing a buffer twice, though, would let two later acquirers share it, so it throws an exception when
+ * the buffer is still in the pool; a pool holds at most a few buffers per size class, so that check is cheap.  To find
+ * leaks, turn on leak detection, which tracks the buffers acquired while it's on; getOutstandingCount then tells how
+ * many of those haven't been released.  Buffers acquired before leak detection was turned on can still be released
+ * normally.  Leak detection is intended for tests and debugging only.
+ * <p/>
+ * All methods are thread safe.
+ */
+public final class BufferPool {
+    private static final int MIN_SIZE_SHIFT = 8;
+    private static final int MAX_SIZE_SHIFT = 16;
+    private static final int SIZE_CLASS_COUNT = MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1;
+    private static final int MAX_RETAINED_PER_SIZE_CLASS = 16;
+
+    private static final Object lock = new Object();
+    private static final byte[][][] byteBuffers = new byte[SIZE_CLASS_COUNT][MAX_RETAINED_PER_SIZE_CLASS][];
+    private static final int[] byteBufferCounts = new int[SIZE_CLASS_COUNT];
+    private static final char[][][] charBuffers = new char[SIZE_CLASS_COUNT][MAX_RETAINED_PER_SIZE_CLASS][];
+    private static final int[] charBufferCounts = new int[SIZE_CLASS_COUNT];
+
+    private static boolean leakDetection = false;
+    private static HashSet<Object> outstandingBuffers = new HashSet<Object>();    // Arrays hash by identity
+
+    /**
+     * Get a byte buffer of at least the specified length, reusing a pooled one if available.
+     *
+     * @param minLength minimum length needed
+     * @return byte buffer
+     */
+    public static byte[] acquireBytes(int minLength) {
+        int sizeClass = getSizeClass(minLength);
+        @Nullable byte[] buffer = null;
+
+        synchronized (lock) {
+            if (sizeClass != -1 && byteBufferCounts[sizeClass] > 0) {
+                int index = --byteBufferCounts[sizeClass];
+                buffer = byteBuffers[sizeClass][index];
+                byteBuffers[sizeClass][index] = null;
+            }
+
+            if (buffer == null)
+                buffer = new byte[sizeClass == -1 ? minLength : 1 << (sizeClass + MIN_SIZE_SHIFT)];
+
+            if (leakDetection)
+                outstandingBuffers.add(buffer);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Return a byte buffer, obtained from acquireBytes, to the pool.  The caller must not use it after that.
+     *
+     * @param buffer buffer to release
+     */
+    public static void releaseBytes(byte[] buffer) {
+        int sizeClass = getSizeClassForRelease(buffer.length);
+
+        synchronized (lock) {
+            if (leakDetection)
+                outstandingBuffers.remove(buffer);
+
+            if (sizeClass != -1) {
+                byte[][] pooled = byteBuffers[sizeClass];
+                int count = byteBufferCounts[sizeClass];
+                for (int i = 0; i < count; ++i) {
+                    if (pooled[i] == buffer)
+                        throw new ProgrammerError("Buffer released to BufferPool twice");
+                }
+
+                if (count < MAX_RETAINED_PER_SIZE_CLASS) {
+                    pooled[count] = buffer;
+                    byteBufferCounts[sizeClass] = count + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a char buffer of at least the specified length, reusing a pooled one if available.
+     *
+     * @param minLength minimum length needed
+     * @return char buffer
+     */
+    public static char[] acquireChars(int minLength) {
+        int sizeClass = getSizeClass(minLength);
+        @Nullable char[] buffer = null;
+
+        synchronized (lock) {
+            if (sizeClass != -1 && charBufferCounts[sizeClass] > 0) {
+                int index = --charBufferCounts[sizeClass];
+                buffer = charBuffers[sizeClass][index];
+                charBuffers[sizeClass][index] = null;
+            }
+
+            if (buffer == null)
+                buffer = new char[sizeClass == -1 ? minLength : 1 << (sizeClass + MIN_SIZE_SHIFT)];
+
+            if (leakDetection)
+                outstandingBuffers.add(buffer);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Return a char buffer, obtained from acquireChars, to the pool.  The caller must not use it after that.
+     *
+     * @param buffer buffer to release
+     */
+    public static void releaseChars(char[] buffer) {
+        int sizeClass = getSizeClassForRelease(buffer.length);
+
+        synchronized (lock) {
+            if (leakDetection)
+                outstandingBuffers.remove(buffer);
+
+            if (sizeClass != -1) {
+                char[][] pooled = charBuffers[sizeClass];
+                int count = charBufferCounts[sizeClass];
+                for (int i = 0; i < count; ++i) {
+                    if (pooled[i] == buffer)
+                        throw new ProgrammerError("Buffer released to BufferPool twice");
+                }
+
+                if (count < MAX_RETAINED_PER_SIZE_CLASS) {
+                    pooled[count] = buffer;
+                    charBufferCounts[sizeClass] = count + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Turn leak detection on or off.  Turning it on (or off) forgets any buffers currently being tracked; releasing
+     * them later is fine.
+     *
+     * @param enabled true to track outstanding buffers
+     */
+    public static void setLeakDetection(boolean enabled) {
+        synchronized (lock) {
+            leakDetection = enabled;
+            outstandingBuffers.clear();
+        }
+    }
+
+    /**
+     * Get the number of buffers acquired, since leak detection was turned on, that haven't been released.  This is
+     * always 0 if leak detection is off.
+     *
+     * @return outstanding buffer count
+     */
+    public static int getOutstandingCount() {
+        synchronized (lock) {
+            return outstandingBuffers.size();
+        }
+    }
+
+    /**
+     * Drop all the pooled buffers, freeing their memory.
+     */
+    public static void clear() {
+        synchronized (lock) {
+            for (int i = 0; i < SIZE_CLASS_COUNT; ++i) {
+                for (int j = 0; j < MAX_RETAINED_PER_SIZE_CLASS; ++j) {
+                    byteBuffers[i][j] = null;
+                    charBuffers[i][j] = null;
+                }
+                byteBufferCounts[i] = 0;
+                charBufferCounts[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Get the smallest size class that holds minLength elements, or -1 if minLength is too big to be pooled.
+     */
+    private static int getSizeClass(int minLength) {
+        int sizeClass = 0;
+        while ((1 << (sizeClass + MIN_SIZE_SHIFT)) < minLength) {
+            ++sizeClass;
+            if (sizeClass >= SIZE_CLASS_COUNT)
+                return -1;
+        }
+        return sizeClass;
+    }
+
+    /**
+     * Get the size class for a buffer of exactly the specified length, or -1 if its length isn't a size class (in
+     * which case it isn't retained).
+     */
+    private static int getSizeClassForRelease(int length) {
+        int sizeClass = getSizeClass(length);
+        if (sizeClass == -1 || (1 << (sizeClass + MIN_SIZE_SHIFT)) != length)
+            return -1;
+        return sizeClass;
+    }
+}
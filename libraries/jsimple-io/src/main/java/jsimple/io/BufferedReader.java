@@ -97,7 +97,7 @@ public class BufferedReader extends Reader {
      */
     public BufferedReader(Reader reader) {
         this.reader = reader;
-        buf = new char[8192];
+        buf = BufferPool.acquireChars(8192);
     }
 
     /**
@@ -110,16 +110,17 @@ public class BufferedReader extends Reader {
      */
     public BufferedReader(Reader reader, int size) {
         this.reader = reader;
-        buf = new char[size];
+        buf = BufferPool.acquireChars(size);
     }
 
     /**
-     * Closes this reader. This implementation closes the buffered source reader and releases the buffer. Nothing is
-     * done if this reader has already been closed.
+     * Closes this reader. This implementation closes the buffered source reader and returns the buffer to the
+     * BufferPool. Nothing is done if this reader has already been closed.
      */
     @Override public void close() {
         if (!isClosed()) {
             reader.close();
+            BufferPool.releaseChars(buf);
             buf = null;
         }
     }
@@ -150,8 +151,9 @@ public class BufferedReader extends Reader {
             if (newLength > markLimit) {
                 newLength = markLimit;
             }
-            char[] newbuf = new char[newLength];
+            char[] newbuf = BufferPool.acquireChars(newLength);
             SystemUtils.copyChars(buf, 0, newbuf, 0, buf.length);
+            BufferPool.releaseChars(buf);
             buf = newbuf;
         } else if (markPos > 0) {
             /* make room by shifting the buffered data to left mark positions */
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.io;
+
+import jsimple.util.ByteArrayRange;
+import jsimple.util.SystemUtils;
+
+/**
+ * A FileMapping over a byte array held in memory.  This is what {@link File#openMapped()} returns on platforms that
+ * don't support memory mapped files; it can also be used directly to present in-memory data through the FileMapping
+ * interface.
+ */
+public class ByteArrayFileMapping extends FileMapping {
+    private byte[] bytes;
+    private int start;
+    private int length;
+
+    public ByteArrayFileMapping(ByteArrayRange byteArrayRange) {
+        this.bytes = byteArrayRange.getBytes();
+        this.start = byteArrayRange.getPosition();
+        this.length = byteArrayRange.getLength();
+    }
+
+    /**
+     * Get the mapped data as a ByteArrayRange.  No copy is made, so the caller shouldn't modify the bytes.
+     *
+     * @return ByteArrayRange for the mapped data
+     */
+    public ByteArrayRange getByteArrayRange() {
+        return new ByteArrayRange(bytes, start, length);
+    }
+
+    @Override public long getLength() {
+        return length;
+    }
+
+    @Override public int getByte(long position) {
+        checkRange(position, 1);
+        return bytes[start + (int) position] & 0xFF;
+    }
+
+    @Override public void getBytes(long position, byte[] buffer, int offset, int length) {
+        checkRange(position, length);
+        SystemUtils.copyBytes(bytes, start + (int) position, buffer, offset, length);
+    }
+
+    @Override public void close() {
+    }
+}
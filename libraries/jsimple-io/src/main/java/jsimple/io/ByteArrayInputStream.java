@@ -139,4 +139,18 @@ public class ByteArrayInputStream extends InputStream {
         pos += copyLength;
         return copyLength;
     }
+
+    /**
+     * Copies the remaining bytes straight from the source byte array, with no intermediate buffer.
+     *
+     * @param outputStream output stream to copy to
+     * @return true, always
+     */
+    @Override protected boolean copyToDirect(OutputStream outputStream) {
+        if (pos < count) {
+            outputStream.write(buf, pos, count - pos);
+            pos = count;
+        }
+        return true;
+    }
 }
@@ -22,6 +22,8 @@
 
 package jsimple.io;
 
+import jsimple.util.Integers;
+
 /**
  * @author Bret Johnson
  * @since 11/22/12 12:14 AM
@@ -54,6 +56,25 @@ public abstract class File extends Path {
         return new Utf8InputStreamReader(openForRead());
     }
 
+    /**
+     * Open a read-only, random access view of the file contents.  Platforms that support memory mapped files override
+     * this to map the file, which avoids read system calls and stream buffer copies and is the best way to read large
+     * files.  This default implementation just reads the whole file into memory.  The caller should close the mapping
+     * when done with it.
+     *
+     * @return FileMapping for the file contents
+     */
+    public FileMapping openMapped() {
+        long size = getSize();
+        if (size > Integers.MAX_VALUE)
+            throw new IOException("File {} is too big ({} bytes) to read into memory, as openMapped does on this platform",
+                    this, size);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) size);
+        copyTo(outputStream);
+        return new ByteArrayFileMapping(outputStream.closeAndGetByteArray());
+    }
+
     /**
      * Open the file for writing.  If the file already exists, it is truncated.  If the file doesn't exist, it is
      * created. Note that the current JSimple file I/O model is that files, when written, are completely rewritten.
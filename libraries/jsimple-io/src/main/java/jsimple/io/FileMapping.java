@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.io;
+
+/**
+ * A FileMapping is a read-only, random access view of a file's contents, returned by {@link File#openMapped()}.
+ * Platforms that support memory mapped files (e.g. FileSystemFile on Java) implement it on top of the OS mapping, so
+ * reads are served straight from the page cache with no read system call and no intermediate stream buffer.  Other
+ * File implementations fall back to reading the whole file into memory, via {@link ByteArrayFileMapping}.
+ * <p/>
+ * Positions are longs, so files larger than 2GB are supported; implementations map such files as several chunks
+ * under the covers.  The view is only valid until close is called.
+ */
+public abstract class FileMapping extends jsimple.lang.AutoCloseable {
+    /**
+     * Get the length of the mapped data, in bytes.
+     *
+     * @return mapping length
+     */
+    public abstract long getLength();
+
+    /**
+     * Get the byte at the specified position, returned as an integer in the range 0 to 255.
+     *
+     * @param position position in the mapping, from 0 to getLength() - 1
+     * @return the byte at that position
+     */
+    public abstract int getByte(long position);
+
+    /**
+     * Copy bytes from the mapping into the specified buffer.  The requested range must lie entirely within the
+     * mapping.
+     *
+     * @param position position in the mapping to start copying from
+     * @param buffer   buffer to copy into
+     * @param offset   offset in buffer at which to start storing bytes
+     * @param length   number of bytes to copy
+     */
+    public abstract void getBytes(long position, byte[] buffer, int offset, int length);
+
+    /**
+     * Open an input stream over the entire mapping.  The stream reads directly from the mapping, so no file I/O is
+     * done and closing the stream doesn't close the mapping.
+     *
+     * @return input stream over the mapping
+     */
+    public InputStream openInputStream() {
+        return openInputStream(0, getLength());
+    }
+
+    /**
+     * Open an input stream over part of the mapping.
+     *
+     * @param position position in the mapping to start reading from
+     * @param length   number of bytes that the stream should return
+     * @return input stream over the specified part of the mapping
+     */
+    public InputStream openInputStream(long position, long length) {
+        checkRange(position, length);
+        return new FileMappingInputStream(this, position, position + length);
+    }
+
+    /**
+     * Open a UTF-8 reader over the entire mapping.  It does the same thing as calling {@code new
+     * Utf8InputStreamReader(openInputStream())}.
+     *
+     * @return Utf8InputStreamReader for reading the mapping as UTF-8 text
+     */
+    public Utf8InputStreamReader openUtf8Reader() {
+        return new Utf8InputStreamReader(openInputStream());
+    }
+
+    protected void checkRange(long position, long length) {
+        if (position < 0 || length < 0 || position + length > getLength())
+            throw new IOException("Range starting at {} with length {} is outside the mapping, which has length {}",
+                    position, length, getLength());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.io;
+
+/**
+ * Input stream returned by FileMapping.openInputStream, reading straight from the mapping.
+ */
+class FileMappingInputStream extends InputStream {
+    private FileMapping fileMapping;
+    private long position;
+    private long end;
+
+    FileMappingInputStream(FileMapping fileMapping, long position, long end) {
+        this.fileMapping = fileMapping;
+        this.position = position;
+        this.end = end;
+    }
+
+    /**
+     * Closing the stream doesn't close the mapping, which can have other streams open on it.
+     */
+    @Override public void close() {
+    }
+
+    @Override public int read() {
+        if (position >= end)
+            return -1;
+        return fileMapping.getByte(position++);
+    }
+
+    @Override public int read(byte[] buffer, int offset, int length) {
+        // Return 0 if not asked to read anything, per the InputStream spec
+        if (length == 0)
+            return 0;
+
+        long remaining = end - position;
+        if (remaining <= 0)
+            return -1;
+
+        if (length > remaining)
+            length = (int) remaining;
+
+        fileMapping.getBytes(position, buffer, offset, length);
+        position += length;
+        return length;
+    }
+}
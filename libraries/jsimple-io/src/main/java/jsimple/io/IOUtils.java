@@ -23,6 +23,7 @@
 package jsimple.io;
 
 import jsimple.util.ByteArrayRange;
+import jsimple.util.InvalidFormatException;
 
 /**
  * @author Bret Johnson
@@ -30,24 +31,90 @@ import jsimple.util.ByteArrayRange;
  */
 public class IOUtils {
     /**
-     * Converts the string to a UTF-8 byte array.  The array is returned inside a ByteArrayRange.  The array can be
-     * bigger than needed; only the specified length should be used.
+     * Converts the string to a UTF-8 byte array.  The array is returned inside a ByteArrayRange.  The array is sized
+     * exactly, computed up front by getUtf8Length, and the string is encoded into it in a single pass, with ASCII
+     * characters handled in a tight loop.
+     * <p/>
+     * As with Utf8OutputStreamWriter, a lead surrogate at the very end of the string is skipped, producing no bytes.
      *
      * @param s string input
      * @return byte array, for the UTF-8 encoded string
+     * @throws InvalidFormatException if the string contains an invalid surrogate pair
      */
     public static ByteArrayRange toUtf8BytesFromString(String s) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(s.length());
+        byte[] bytes = new byte[getUtf8Length(s)];
 
-        Utf8OutputStreamWriter utf8OutputStreamWriter = new Utf8OutputStreamWriter(byteArrayOutputStream);
-        try {
-            utf8OutputStreamWriter.write(s);
-            utf8OutputStreamWriter.flush();
+        int length = s.length();
+        int destIndex = 0;
+        int i = 0;
+        while (i < length) {
+            char c = s.charAt(i++);
 
-            return byteArrayOutputStream.getByteArray();
-        } finally {
-            utf8OutputStreamWriter.close();
+            if (c <= 0x7F) {
+                bytes[destIndex++] = (byte) c;
+            } else if (c <= 0x7FF) {
+                bytes[destIndex++] = (byte) (0xC0 + ((c >> 6) & 0x1F));
+                bytes[destIndex++] = (byte) (0x80 + (c & 0x3F));
+            } else if (c >= 0xD800 && c <= 0xDFFF) {
+                // getUtf8Length validated the surrogates, so this is a lead surrogate, followed by a trail surrogate
+                // unless at the end
+                if (i == length)
+                    break;
+
+                int codePoint = ((c - 0xD800) << 10) + (s.charAt(i++) - 0xDC00) + 0x10000;
+                bytes[destIndex++] = (byte) (0xF0 + ((codePoint >> 18) & 0x07));
+                bytes[destIndex++] = (byte) (0x80 + ((codePoint >> 12) & 0x3F));
+                bytes[destIndex++] = (byte) (0x80 + ((codePoint >> 6) & 0x3F));
+                bytes[destIndex++] = (byte) (0x80 + (codePoint & 0x3F));
+            } else {
+                bytes[destIndex++] = (byte) (0xE0 + ((c >> 12) & 0x0F));
+                bytes[destIndex++] = (byte) (0x80 + ((c >> 6) & 0x3F));
+                bytes[destIndex++] = (byte) (0x80 + (c & 0x3F));
+            }
         }
+
+        return new ByteArrayRange(bytes);
+    }
+
+    /**
+     * Return the number of bytes in the UTF-8 encoding of the string, as produced by toUtf8BytesFromString or
+     * Utf8OutputStreamWriter.
+     *
+     * @param s string input
+     * @return length of the string encoded as UTF-8, in bytes
+     * @throws InvalidFormatException if the string contains an invalid surrogate pair
+     */
+    public static int getUtf8Length(String s) {
+        int length = s.length();
+        int utf8Length = length;    // One byte per char to start with, adding the extra bytes for non-ASCII below
+
+        for (int i = 0; i < length; ++i) {
+            char c = s.charAt(i);
+
+            if (c <= 0x7F)
+                continue;
+            else if (c <= 0x7FF)
+                utf8Length += 1;
+            else if (c >= 0xD800 && c <= 0xDFFF) {
+                if (c > 0xDBFF)
+                    throw new InvalidFormatException("Character " + (int) c +
+                            " unexpected; surrogate pair must start with a lead surrogate");
+
+                if (i + 1 == length) {
+                    --utf8Length;     // A lead surrogate at the end is skipped
+                    break;
+                }
+
+                int trailSurrogate = s.charAt(++i);
+                if (trailSurrogate < 0xDC00 || trailSurrogate > 0xDFFF)
+                    throw new InvalidFormatException("Character " + trailSurrogate +
+                            " unexpected; only a valid trail surrogate should come after a lead surrogate");
+
+                utf8Length += 2;      // 4 bytes for the 2 chars
+            } else utf8Length += 2;
+        }
+
+        return utf8Length;
     }
 
     /**
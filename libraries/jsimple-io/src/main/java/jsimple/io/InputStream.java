@@ -179,18 +179,40 @@ public abstract class InputStream extends jsimple.lang.AutoCloseable {
      * @param outputStream output stream to copy to
      */
     public void copyTo(OutputStream outputStream) {
-        byte[] buffer = new byte[8 * 1024];
+        if (copyToDirect(outputStream)) {
+            close();
+            return;
+        }
 
-        while (true) {
-            int bytesRead = read(buffer);
-            if (bytesRead < 0)
-                break;
-            outputStream.write(buffer, 0, bytesRead);
+        byte[] buffer = BufferPool.acquireBytes(8 * 1024);
+        try {
+            while (true) {
+                int bytesRead = read(buffer);
+                if (bytesRead < 0)
+                    break;
+                outputStream.write(buffer, 0, bytesRead);
+            }
+        } finally {
+            BufferPool.releaseBytes(buffer);
         }
 
         close();
     }
 
+    /**
+     * Copy the remaining contents of this stream to the specified output stream without going through an intermediate
+     * buffer, if this stream knows a faster way to do that for the output stream passed.  For instance, on Java a
+     * file stream can use FileChannel.transferTo to copy to another file or a socket, letting the OS do the copy.
+     * This is called by copyTo; it doesn't close this stream.  If it returns false, any data that wasn't copied remains
+     * in this stream, and copyTo copies it in the normal way.  This default implementation just returns false.
+     *
+     * @param outputStream output stream to copy to
+     * @return true if all the remaining data was copied, false if the caller should copy the rest itself
+     */
+    protected boolean copyToDirect(OutputStream outputStream) {
+        return false;
+    }
+
     /**
      * Write the remaining contents of this stream to a byte array, closing this input stream when done. The inputStream
      * is closed after it's completely read, though it won't be closed if an exception occurs in the middle of reading
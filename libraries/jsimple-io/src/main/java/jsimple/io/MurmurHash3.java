@@ -165,14 +165,17 @@ public class MurmurHash3 {
     }
 
     public void addStream(InputStream data) {
-        byte[] byteBuffer = new byte[4096];                  // Have a 4K read buffer for stream input
-
-        while (true) {
-            int bytesRead = data.readFully(byteBuffer);
-            if (bytesRead == -1)
-                break;
-
-            addBytes(byteBuffer, 0, bytesRead);
+        byte[] byteBuffer = BufferPool.acquireBytes(4096);   // Have a 4K read buffer for stream input
+        try {
+            while (true) {
+                int bytesRead = data.readFully(byteBuffer);
+                if (bytesRead == -1)
+                    break;
+
+                addBytes(byteBuffer, 0, bytesRead);
+            }
+        } finally {
+            BufferPool.releaseBytes(byteBuffer);
         }
     }
 
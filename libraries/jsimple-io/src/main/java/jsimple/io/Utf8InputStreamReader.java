@@ -36,13 +36,16 @@ import jsimple.util.ProgrammerError;
  */
 public class Utf8InputStreamReader extends Reader {
     private InputStream inputStream;
-    private byte[] srcBuffer = new byte[BUFFER_SIZE];          // src in original code
-    private int srcPosition = BUFFER_SIZE;                     // s in original code
-    private int srcEnd = BUFFER_SIZE;                          // src_actual_end in original code
+    private byte[] srcBuffer;                                  // src in original code
+    private final int srcBufferSize;                           // Bytes of srcBuffer used; the pooled one may be bigger
+    private int srcPosition = 0;                               // s in original code
+    private int srcEnd = 0;                                    // src_actual_end in original code
     private int state = UTF8_ACCEPT;                           // 'state' in original code
     private boolean queuedSurrogatePair = false;               // Only set when there's a surrogate pair that wouldn't fit previously
     private int codePoint = 0;                                 // 'codepoint' & 'codep' in original code
-    private static final int BUFFER_SIZE = 1024;
+    private char[] singleCharBuffer = new char[2];              // Used by read(), to avoid allocating
+    private int pendingLowSurrogate = -1;                      // Second half of a surrogate pair returned by read()
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
 
     /**
      * Constructs a new {@code InputStreamReader} on the {@link java.io.InputStream} {@code in}. This constructor sets
@@ -52,18 +55,40 @@ public class Utf8InputStreamReader extends Reader {
      * @param inputStream the input stream from which to read characters.
      */
     public Utf8InputStreamReader(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new reader on the specified stream, reading up to bufferSize bytes at a time from it.  A bigger
+     * buffer means fewer calls to the stream, which helps for big inputs and unbuffered streams.
+     *
+     * @param inputStream the input stream from which to read characters
+     * @param bufferSize  size of the byte buffer; must be at least 4, enough for any UTF-8 character.  The buffer comes
+     *                    from BufferPool, so may be bigger, but at most bufferSize bytes are read into it at once
+     */
+    public Utf8InputStreamReader(InputStream inputStream, int bufferSize) {
+        if (bufferSize < 4)
+            throw new ProgrammerError("Utf8InputStreamReader buffer size is {}, but must be at least 4", bufferSize);
+
         this.inputStream = inputStream;
+        this.srcBuffer = BufferPool.acquireBytes(bufferSize);
+        this.srcBufferSize = bufferSize;
     }
 
     public Utf8InputStreamReader(ByteArrayRange byteArrayRange) {
-        this.inputStream = new ByteArrayInputStream(byteArrayRange);
+        this(new ByteArrayInputStream(byteArrayRange));
     }
 
     /**
-     * Closes this reader. This implementation closes the source InputStream.
+     * Closes this reader. This implementation closes the source InputStream and returns the buffer to the BufferPool.
      */
     @Override public void close() {
         inputStream.close();
+
+        if (srcBuffer.length != 0) {
+            BufferPool.releaseBytes(srcBuffer);
+            srcBuffer = new byte[0];
+        }
     }
 
     /**
@@ -75,8 +100,29 @@ public class Utf8InputStreamReader extends Reader {
      * @return the character read or -1 if the end of the reader has been reached
      */
     @Override public int read() {
-        char[] buf = new char[1];
-        return read(buf, 0, 1) != -1 ? buf[0] : -1;
+        if (pendingLowSurrogate != -1) {
+            int c = pendingLowSurrogate;
+            pendingLowSurrogate = -1;
+            return c;
+        }
+
+        char[] buffer = singleCharBuffer;
+        while (true) {
+            int charsRead = read(buffer, 0, 1);
+            if (charsRead == 1)
+                return buffer[0];
+            else if (charsRead == -1)
+                return -1;
+
+            // Nothing was read, either because the next character is a surrogate pair, which needs room for two chars,
+            // or because the stream didn't return anything this time.  For the former, return the pair a half at a
+            // time
+            if (queuedSurrogatePair) {
+                read(buffer, 0, 2);
+                pendingLowSurrogate = buffer[1];
+                return buffer[0];
+            }
+        }
     }
 
 
@@ -135,6 +181,12 @@ public class Utf8InputStreamReader extends Reader {
         int destIndex = offset;             // 'd' in original code
         int destEnd = offset + length;      // 1 past the index of the last char that should be added (dstWords in original code)
 
+        // If read() returned just the first half of a surrogate pair, return the second half first
+        if (pendingLowSurrogate != -1 && destIndex < destEnd) {
+            dest[destIndex++] = (char) pendingLowSurrogate;
+            pendingLowSurrogate = -1;
+        }
+
         // If there's a queued up surrogate pair, add it first (assuming there's room)
         if (queuedSurrogatePair) {
             if (destEnd - destIndex < 2)          // Return if no room
@@ -154,7 +206,7 @@ public class Utf8InputStreamReader extends Reader {
 
             // If there's no more room in the buffer, then fill it up again
             if (srcPosition == srcEnd) {
-                int bytesRead = inputStream.read(srcBuffer);
+                int bytesRead = inputStream.read(srcBuffer, 0, srcBufferSize);
                 if (bytesRead < 1) {
                     if (bytesRead < 0) {                  // End of stream
                         if (state == UTF8_REJECT)
@@ -163,7 +215,7 @@ public class Utf8InputStreamReader extends Reader {
                     }
 
                     // If the stream for some reason returned 0 characters (not end of stream) when we asked to read
-                    // BUFFER_SIZE characters, just return & let the caller call us again.  Hopefully, the stream will
+                    // a buffer full of bytes, just return & let the caller call us again.  Hopefully, the stream will
                     // return something different in the future
                     return destIndex - offset;
                 }
@@ -179,9 +231,11 @@ public class Utf8InputStreamReader extends Reader {
             if (srcEnd < srcCurrentEnd)
                 srcCurrentEnd = srcEnd;
 
+            byte[] src = srcBuffer;
+
             // This inner loop is constructed to only need to do one bounds check, for performance
             while (srcPosition < srcCurrentEnd) {
-                int srcByte = (int) srcBuffer[srcPosition++] & 0xFF;    // 'byte' in original code; mask makes it unsigned
+                int srcByte = (int) src[srcPosition++] & 0xFF;    // 'byte' in original code; mask makes it unsigned
                 int type = utf8d[srcByte];                           // 'type' in original code
 
                 if (state != UTF8_ACCEPT) {
@@ -196,6 +250,30 @@ public class Utf8InputStreamReader extends Reader {
                     continue;
                 } else {
                     dest[destIndex++] = (char) srcByte;
+
+                    // ASCII usually comes in runs, so copy what follows 8 bytes at a time, checking the high bits of
+                    // all 8 at once, until reaching a block that has a non-ASCII byte.  The per byte loop handles that
+                    // block and any remainder too short for a full block
+                    int blockEnd = srcCurrentEnd - 8;
+                    while (srcPosition <= blockEnd) {
+                        int p = srcPosition;
+                        if (((src[p] | src[p + 1] | src[p + 2] | src[p + 3] | src[p + 4] | src[p + 5] | src[p + 6] |
+                              src[p + 7]) & 0x80) != 0)
+                            break;
+
+                        int d = destIndex;
+                        dest[d] = (char) src[p];
+                        dest[d + 1] = (char) src[p + 1];
+                        dest[d + 2] = (char) src[p + 2];
+                        dest[d + 3] = (char) src[p + 3];
+                        dest[d + 4] = (char) src[p + 4];
+                        dest[d + 5] = (char) src[p + 5];
+                        dest[d + 6] = (char) src[p + 6];
+                        dest[d + 7] = (char) src[p + 7];
+
+                        srcPosition = p + 8;
+                        destIndex = d + 8;
+                    }
                     continue;
                 }
 
@@ -210,6 +288,10 @@ public class Utf8InputStreamReader extends Reader {
                     // Decode Unicode supplementary characters
                     dest[destIndex++] = (char) (0xD7C0 + (codePoint >> 10));      // High surrogate
                     dest[destIndex++] = (char) (0xDC00 + (codePoint & 0x3FF));    // Low surrogate
+
+                    // srcCurrentEnd assumes at most one char per byte, but this byte produced two, so one less byte
+                    // can be consumed.  Otherwise the dest buffer can overflow
+                    --srcCurrentEnd;
                 } else dest[destIndex++] = (char) codePoint;
             }
         }
@@ -62,7 +62,7 @@ public class Utf8OutputStreamWriter extends Writer {
      */
     public Utf8OutputStreamWriter(OutputStream outputStream, boolean closeOuterStream) {
         this.outputStream = outputStream;
-        destBuffer = new byte[BUFFER_SIZE];
+        destBuffer = BufferPool.acquireBytes(BUFFER_SIZE);
         this.closeOuterStream = closeOuterStream;
     }
 
@@ -71,7 +71,7 @@ public class Utf8OutputStreamWriter extends Writer {
      * @Override protected void finalize() { close(); }
      * <p/>
      * /** Closes this writer. This implementation flushes the buffer as well as the target stream. The target stream is
-     * then closed and the resources for the buffer and converter are released.
+     * then closed and the buffer is returned to the BufferPool.
      * <p/>
      * Only the first invocation of this method has any effect. Subsequent calls do nothing.
      */
@@ -86,6 +86,9 @@ public class Utf8OutputStreamWriter extends Writer {
         if (closeOuterStream)
             outputStream.close();
         outputStream = null;
+
+        BufferPool.releaseBytes(destBuffer);
+        destBuffer = new byte[0];
     }
 
     /**
@@ -120,68 +123,143 @@ public class Utf8OutputStreamWriter extends Writer {
      * @throws IOException               if this writer has already been closed or another I/O error occurs.
      */
     @Override public void write(char[] buf, int offset, int count) {
-        if (outputStream == null)
-            throw new IOException("Can't call write on a Utf8OutputStreamWriter that's already closed");
-
         int srcPosition = offset;
         int srcEnd = offset + count;
         while (srcPosition < srcEnd) {
-            // If the buffer is approaching full (< 256 bytes left), then write it to the output stream.  In this way
-            // the inner loop runs from 256 character iterations down to 64 character iterations, but never goes below
-            // that when large chunks are being written.
-            if (destBuffer.length - destPosition < 256) {
-                assert outputStream != null : "@SuppressWarnings(nullness)";
-                outputStream.write(destBuffer, 0, destPosition);
-                destPosition = 0;
+            int srcCurrEnd = startChunk(srcPosition, srcEnd);
+            byte[] dest = destBuffer;
+            int destIndex = destPosition;
+
+            while (srcPosition < srcCurrEnd) {
+                // Copy runs of ASCII characters in a tight loop
+                if (queuedLeadSurrogate == -1) {
+                    while (srcPosition < srcCurrEnd) {
+                        char c = buf[srcPosition];
+                        if (c > 0x7F)
+                            break;
+                        dest[destIndex++] = (byte) c;
+                        ++srcPosition;
+                    }
+                    if (srcPosition == srcCurrEnd)
+                        break;
+                }
+
+                destIndex = encodeChar(buf[srcPosition++], dest, destIndex);
             }
 
-            // Don't process any more source characters in the inner loop than will possibly fit in the buffer, encoded.
-            // Worst case, each source character maps to 3 bytes, so only process floor(<bytes left in buffer> / 3).
-            int srcCurrEnd = srcPosition + (destBuffer.length - destPosition) / 3;
+            destPosition = destIndex;
+        }
+    }
 
-            // Don't process more source characters than actually available
-            if (srcCurrEnd > srcEnd)
-                srcCurrEnd = srcEnd;
+    /**
+     * Writes {@code count} characters from {@code str} starting at {@code offset}.  The characters are encoded straight
+     * from the string, without copying them to a char array first.
+     *
+     * @param str    the non-null string containing the characters to write
+     * @param offset the index of the first character in {@code str} to write
+     * @param count  the number of characters from {@code str} to write.
+     * @throws IOException if this writer has already been closed or another I/O error occurs
+     */
+    @Override public void write(String str, int offset, int count) {
+        int srcPosition = offset;
+        int srcEnd = offset + count;
+        while (srcPosition < srcEnd) {
+            int srcCurrEnd = startChunk(srcPosition, srcEnd);
+            byte[] dest = destBuffer;
+            int destIndex = destPosition;
 
             while (srcPosition < srcCurrEnd) {
-                char c = buf[srcPosition++];
-
-                if (queuedLeadSurrogate != -1) {
-                    int trailSurrogate = ((int) c) & 0xFFFF;
-
-                    if (trailSurrogate < 0xDC00 || trailSurrogate > 0xDFFF)
-                        throw new InvalidFormatException("Character " + trailSurrogate +
-                                " unexpected; only a valid trail surrogate should come after a lead surrogate");
-
-                    // Note, the Unicode scalar value n is defined as follows:
-                    // n = (jchar-0xD800)*0x400+(jchar2-0xDC00)+0x10000
-                    // Where jchar is a high-surrogate, jchar2 is a low-surrogate.
-                    int n = (queuedLeadSurrogate << 10) + trailSurrogate + -56613888 /* 0xFCA02400 */;
-
-                    destBuffer[destPosition++] = (byte) (0xF0 + ((n >> 18) & 0x07));
-                    destBuffer[destPosition++] = (byte) (0x80 + ((n >> 12) & 0x3F));
-                    destBuffer[destPosition++] = (byte) (0x80 + ((n >> 6) & 0x3F));
-                    destBuffer[destPosition++] = (byte) (0x80 + (n & 0x3F));
-
-                    queuedLeadSurrogate = -1;
-                } else if (c <= 0x7F) {
-                    destBuffer[destPosition++] = (byte) c;
-                } else if (c <= 0x7FF) {
-                    destBuffer[destPosition++] = (byte) (0xC0 + ((c >> 6) & 0x1F));
-                    destBuffer[destPosition++] = (byte) (0x80 + (c & 0x3F));
-                } else if (c >= 0xD800 && c <= 0xDFFF) {
-                    int firstSurrogate = ((int) c) & 0xFFFF;
-                    if (firstSurrogate > 0xDBFF)
-                        throw new InvalidFormatException("Character " + firstSurrogate +
-                                " unexpected; surrogate pair must start with a lead surrogate");
-
-                    queuedLeadSurrogate = firstSurrogate;
-                } else {
-                    destBuffer[destPosition++] = (byte) (0xE0 + ((c >> 12) & 0x0F));
-                    destBuffer[destPosition++] = (byte) (0x80 + ((c >> 6) & 0x3F));
-                    destBuffer[destPosition++] = (byte) (0x80 + (c & 0x3F));
+                // Copy runs of ASCII characters in a tight loop
+                if (queuedLeadSurrogate == -1) {
+                    while (srcPosition < srcCurrEnd) {
+                        char c = str.charAt(srcPosition);
+                        if (c > 0x7F)
+                            break;
+                        dest[destIndex++] = (byte) c;
+                        ++srcPosition;
+                    }
+                    if (srcPosition == srcCurrEnd)
+                        break;
                 }
+
+                destIndex = encodeChar(str.charAt(srcPosition++), dest, destIndex);
             }
+
+            destPosition = destIndex;
+        }
+    }
+
+    @Override public void write(int oneChar) {
+        startChunk(0, 1);
+        destPosition = encodeChar((char) oneChar, destBuffer, destPosition);
+    }
+
+    /**
+     * Get ready to encode more characters, making sure there's room in the buffer, and return the index just past the
+     * last source character that can be encoded before the buffer needs to be checked again.
+     */
+    private int startChunk(int srcPosition, int srcEnd) {
+        if (outputStream == null)
+            throw new IOException("Can't call write on a Utf8OutputStreamWriter that's already closed");
+
+        // If the buffer is approaching full (< 256 bytes left), then write it to the output stream.  In this way
+        // the inner loop runs from 256 character iterations down to 64 character iterations, but never goes below
+        // that when large chunks are being written.
+        if (destBuffer.length - destPosition < 256) {
+            assert outputStream != null : "@SuppressWarnings(nullness)";
+            outputStream.write(destBuffer, 0, destPosition);
+            destPosition = 0;
+        }
+
+        // Don't process any more source characters in the inner loop than will possibly fit in the buffer, encoded.
+        // Worst case, each source character maps to 3 bytes, so only process floor(<bytes left in buffer> / 3).
+        int srcCurrEnd = srcPosition + (destBuffer.length - destPosition) / 3;
+
+        // Don't process more source characters than actually available
+        if (srcCurrEnd > srcEnd)
+            srcCurrEnd = srcEnd;
+        return srcCurrEnd;
+    }
+
+    /**
+     * Encode one character, which may be half of a surrogate pair, returning the new dest index.
+     */
+    private int encodeChar(char c, byte[] dest, int destIndex) {
+        if (queuedLeadSurrogate != -1) {
+            int trailSurrogate = ((int) c) & 0xFFFF;
+
+            if (trailSurrogate < 0xDC00 || trailSurrogate > 0xDFFF)
+                throw new InvalidFormatException("Character " + trailSurrogate +
+                        " unexpected; only a valid trail surrogate should come after a lead surrogate");
+
+            // Note, the Unicode scalar value n is defined as follows:
+            // n = (jchar-0xD800)*0x400+(jchar2-0xDC00)+0x10000
+            // Where jchar is a high-surrogate, jchar2 is a low-surrogate.
+            int n = (queuedLeadSurrogate << 10) + trailSurrogate + -56613888 /* 0xFCA02400 */;
+
+            dest[destIndex++] = (byte) (0xF0 + ((n >> 18) & 0x07));
+            dest[destIndex++] = (byte) (0x80 + ((n >> 12) & 0x3F));
+            dest[destIndex++] = (byte) (0x80 + ((n >> 6) & 0x3F));
+            dest[destIndex++] = (byte) (0x80 + (n & 0x3F));
+
+            queuedLeadSurrogate = -1;
+        } else if (c <= 0x7F) {
+            dest[destIndex++] = (byte) c;
+        } else if (c <= 0x7FF) {
+            dest[destIndex++] = (byte) (0xC0 + ((c >> 6) & 0x1F));
+            dest[destIndex++] = (byte) (0x80 + (c & 0x3F));
+        } else if (c >= 0xD800 && c <= 0xDFFF) {
+            int firstSurrogate = ((int) c) & 0xFFFF;
+            if (firstSurrogate > 0xDBFF)
+                throw new InvalidFormatException("Character " + firstSurrogate +
+                        " unexpected; surrogate pair must start with a lead surrogate");
+
+            queuedLeadSurrogate = firstSurrogate;
+        } else {
+            dest[destIndex++] = (byte) (0xE0 + ((c >> 12) & 0x0F));
+            dest[destIndex++] = (byte) (0x80 + ((c >> 6) & 0x3F));
+            dest[destIndex++] = (byte) (0x80 + (c & 0x3F));
         }
+        return destIndex;
     }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A connection accepted by a non-blocking socket listener.  Incoming data is delivered to the AsyncSocketHandler as it
+ * arrives; outgoing data is queued with write, which never blocks.  The methods here can be called from any thread.
+ */
+public abstract class AsyncSocket extends jsimple.lang.AutoCloseable {
+    private @Nullable Object attachment = null;
+
+    /**
+     * Queue data to be written to the connection.  The data is copied, so the caller can reuse the buffer as soon as
+     * this returns.  If the connection is already closed, the data is silently dropped.
+     *
+     * @param buffer buffer holding the data
+     * @param offset offset of the data in buffer
+     * @param length number of bytes to write
+     */
+    public abstract void write(byte[] buffer, int offset, int length);
+
+    public void write(byte[] buffer) {
+        write(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Close the connection once all data queued so far has been written.  Nothing more is read after this is called.
+     * AsyncSocketHandler.disconnected is called when the close completes.  Calling close more than once does nothing.
+     */
+    @Override public abstract void close();
+
+    public abstract boolean isClosed();
+
+    /**
+     * Get the object attached to this socket, normally the handler's per connection state.
+     *
+     * @return attached object or null if none
+     */
+    public @Nullable Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Attach an arbitrary object to this socket, normally the handler's per connection state.
+     *
+     * @param attachment object to attach
+     */
+    public void setAttachment(@Nullable Object attachment) {
+        this.attachment = attachment;
+    }
+}
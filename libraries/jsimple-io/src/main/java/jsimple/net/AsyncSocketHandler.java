@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+/**
+ * Receives the events for connections accepted by a non-blocking socket listener (see
+ * SocketListener.createAsyncTcpSocketListener).  Unlike SocketConnectionHandler, which is given a thread per
+ * connection and can block reading & writing, these callbacks are made on one of the listener's small pool of event
+ * loop threads, shared by many connections.  So they must not block; anything slow should be handed off to another
+ * thread, which can then call AsyncSocket.write when done.
+ * <p/>
+ * All the callbacks for a given socket are made on the same thread, one at a time.
+ */
+public interface AsyncSocketHandler {
+    /**
+     * Called when a new connection is accepted.
+     *
+     * @param socket socket for the connection
+     */
+    void connected(AsyncSocket socket);
+
+    /**
+     * Called when data arrives on the connection.  The buffer is only valid for the duration of the call--it's reused
+     * for the next read--so copy any data that's needed after the call returns.
+     *
+     * @param socket socket the data arrived on
+     * @param buffer buffer holding the data
+     * @param offset offset of the data in buffer
+     * @param length number of bytes of data
+     */
+    void dataReceived(AsyncSocket socket, byte[] buffer, int offset, int length);
+
+    /**
+     * Called when all data queued by AsyncSocket.write has been sent, so the handler can queue more if it's streaming
+     * a large response.
+     *
+     * @param socket socket whose writes completed
+     */
+    void writesCompleted(AsyncSocket socket);
+
+    /**
+     * Called once the connection is closed, whether by the peer, by close(), by the listener being stopped, or because
+     * of an I/O error.  No more callbacks are made for the socket after this.
+     *
+     * @param socket socket that was closed
+     */
+    void disconnected(AsyncSocket socket);
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.util.ArrayList;
+import jsimple.util.HashMap;
+import jsimple.util.ProgrammerError;
+import jsimple.util.SystemUtils;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A pool of keep-alive HTTP connections, used by PooledHttpRequestFactory.  Connections are kept per host (scheme,
+ * host, and port), so a series of requests to the same server reuses one TCP (and, for https, TLS) connection rather
+ * than paying for a new handshake each time.
+ * <p/>
+ * At most maxConnectionsPerHost connections are open per host.  By default, when all of those are busy, a request
+ * waits for one to be released, up to the request's timeout or, if the request has no timeout, up to the pool's
+ * acquire timeout (a minute by default), and then fails with a SocketTimeoutException.  That way a response that's
+ * never closed shows up as an error rather than hanging later requests to the host forever.  So a burst of concurrent
+ * requests, say from HttpRequest.sendAsync, shares the pooled connections rather than opening and tearing down a
+ * connection per request.  Since requests wait for responses to be closed, a thread shouldn't hold
+ * maxConnectionsPerHost responses from a host open and then make another request to it.  Alternatively, the pool can be created with waitForFreeConnection false, in which case a
+ * request that finds all the connections busy opens an extra connection that's closed when the request is done.
+ * <p/>
+ * Connections idle for longer than the idle timeout are closed, both when the pool is next used and when
+ * evictIdleConnections is called; apps that make occasional requests can call that periodically so idle sockets don't
+ * linger.
+ * <p/>
+ * The hit, miss, and evicted counts can be used to check that connections are actually being reused--a hit is a
+ * request that got an idle pooled connection, while a miss is one that had to open a new connection.  The wait count
+ * is the number of requests that had to wait for a connection to be released, which, if high, suggests that
+ * maxConnectionsPerHost should be raised.
+ */
+public class HttpConnectionPool {
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    public static final int DEFAULT_IDLE_TIMEOUT_IN_MILLIS = 30 * 1000;
+    public static final int DEFAULT_ACQUIRE_TIMEOUT_IN_MILLIS = 60 * 1000;
+
+    private final int maxConnectionsPerHost;
+    private final int idleTimeoutInMillis;
+    private final boolean waitForFreeConnection;
+    private int acquireTimeoutInMillis = DEFAULT_ACQUIRE_TIMEOUT_IN_MILLIS;
+    private final HashMap<String, HostConnections> hosts = new HashMap<String, HostConnections>();
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictedCount = 0;
+    private long waitCount = 0;
+
+    public HttpConnectionPool() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_IDLE_TIMEOUT_IN_MILLIS);
+    }
+
+    /**
+     * Create a connection pool, where requests wait for a free connection when all of a host's connections are busy.
+     *
+     * @param maxConnectionsPerHost maximum number of connections open per host, idle or in use
+     * @param idleTimeoutInMillis   how long a connection can sit idle before it's closed
+     */
+    public HttpConnectionPool(int maxConnectionsPerHost, int idleTimeoutInMillis) {
+        this(maxConnectionsPerHost, idleTimeoutInMillis, true);
+    }
+
+    /**
+     * Create a connection pool.
+     *
+     * @param maxConnectionsPerHost maximum number of pooled connections open per host, idle or in use
+     * @param idleTimeoutInMillis   how long a connection can sit idle before it's closed
+     * @param waitForFreeConnection true (the default) to have requests wait for a connection when all of a host's
+     *                              connections are busy, false to have them open an extra, unpooled, connection
+     */
+    public HttpConnectionPool(int maxConnectionsPerHost, int idleTimeoutInMillis, boolean waitForFreeConnection) {
+        if (maxConnectionsPerHost < 1)
+            throw new ProgrammerError("maxConnectionsPerHost must be at least 1; it's {}",
+                    maxConnectionsPerHost);
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.idleTimeoutInMillis = idleTimeoutInMillis;
+        this.waitForFreeConnection = waitForFreeConnection;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public int getIdleTimeoutInMillis() {
+        return idleTimeoutInMillis;
+    }
+
+    public boolean getWaitForFreeConnection() {
+        return waitForFreeConnection;
+    }
+
+    public synchronized int getAcquireTimeoutInMillis() {
+        return acquireTimeoutInMillis;
+    }
+
+    /**
+     * Set how long a request with no timeout of its own waits for a free connection, when all of the host's
+     * connections are busy, before failing with a SocketTimeoutException.  Requests that have a timeout wait up to
+     * that instead.  The default is DEFAULT_ACQUIRE_TIMEOUT_IN_MILLIS.
+     *
+     * @param acquireTimeoutInMillis acquire timeout, in milliseconds; zero means wait as long as it takes
+     */
+    public synchronized void setAcquireTimeoutInMillis(int acquireTimeoutInMillis) {
+        this.acquireTimeoutInMillis = acquireTimeoutInMillis;
+    }
+
+    /**
+     * Get a connection to the specified host, reusing an idle one if available and otherwise opening a new one.  If the
+     * host already has maxConnectionsPerHost connections open, all busy, then either wait for one to be released or
+     * open an extra connection, depending on waitForFreeConnection.
+     *
+     * @throws SocketTimeoutException if no connection was released within the request timeout or, if that's 0, the
+     *                                acquire timeout
+     */
+    PooledHttpConnection acquire(String host, int port, boolean secure, int timeoutInMillis) {
+        String hostKey = (secure ? "https://" : "http://") + host + ":" + port;
+
+        @Nullable PooledHttpConnection connection = null;
+        ArrayList<PooledHttpConnection> expired = new ArrayList<PooledHttpConnection>();
+        boolean pooled = false;
+        boolean timedOut = false;
+        synchronized (this) {
+            HostConnections hostConnections = getHostConnections(hostKey);
+            boolean waited = false;
+            long waitUntil = 0;
+            // A timeout of 0 means no timeout, both for the request and for waitForNotify
+            int waitTimeout = timeoutInMillis != 0 ? timeoutInMillis : acquireTimeoutInMillis;
+
+            while (true) {
+                long now = SystemUtils.getCurrentTimeMillis();
+                removeExpired(hostConnections, now, expired);
+
+                // Take the most recently used connection, as it's the least likely to have been closed by the server
+                ArrayList<PooledHttpConnection> idle = hostConnections.idle;
+                if (!idle.isEmpty()) {
+                    connection = idle.remove(idle.size() - 1);
+                    ++hitCount;
+                    break;
+                }
+
+                if (hostConnections.openCount < maxConnectionsPerHost) {
+                    ++hostConnections.openCount;
+                    pooled = true;
+                    ++missCount;
+                    break;
+                }
+
+                if (!waitForFreeConnection) {
+                    ++missCount;
+                    break;
+                }
+
+                if (!waited) {
+                    waited = true;
+                    waitUntil = now + waitTimeout;
+                    ++waitCount;
+                } else if (waitTimeout != 0 && now >= waitUntil) {
+                    timedOut = true;
+                    break;
+                }
+
+                SystemUtils.waitForNotify(this, waitTimeout == 0 ? 0 : (int) (waitUntil - now));
+            }
+        }
+        closeAll(expired);
+
+        if (timedOut)
+            throw new SocketTimeoutException("Timed out waiting for a free connection to " + hostKey +
+                    "; all its connections are in use--are responses being closed?");
+        if (connection != null)
+            return connection;
+
+        boolean connected = false;
+        try {
+            connection = new PooledHttpConnection(hostKey, Socket.connect(host, port, secure, timeoutInMillis),
+                    pooled);
+            connected = true;
+            return connection;
+        } finally {
+            if (!connected && pooled) {
+                synchronized (this) {
+                    --getHostConnections(hostKey).openCount;
+                    SystemUtils.notifyWaiters(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Give a connection back to the pool when its request is done.  If reusable is false (because the server asked to
+     * close it, the response body wasn't fully read, or there was an error), the connection is closed instead of being
+     * kept.
+     */
+    void release(PooledHttpConnection connection, boolean reusable) {
+        boolean close = true;
+        if (connection.isPooled()) {
+            synchronized (this) {
+                HostConnections hostConnections = getHostConnections(connection.getHostKey());
+                if (reusable && !connection.isClosed()) {
+                    connection.setIdle();
+                    hostConnections.idle.add(connection);
+                    close = false;
+                } else --hostConnections.openCount;
+                SystemUtils.notifyWaiters(this);
+            }
+        }
+
+        if (close)
+            connection.close();
+    }
+
+    /**
+     * Close connections that have been idle for longer than the idle timeout.
+     *
+     * @return number of connections closed
+     */
+    public int evictIdleConnections() {
+        ArrayList<PooledHttpConnection> expired = new ArrayList<PooledHttpConnection>();
+        synchronized (this) {
+            long now = SystemUtils.getCurrentTimeMillis();
+            for (HostConnections hostConnections : hosts.values())
+                removeExpired(hostConnections, now, expired);
+            SystemUtils.notifyWaiters(this);
+        }
+        closeAll(expired);
+        return expired.size();
+    }
+
+    /**
+     * Close all idle connections, for instance when the app is shutting down or going into the background.
+     * Connections currently in use aren't affected.
+     */
+    public void closeIdleConnections() {
+        ArrayList<PooledHttpConnection> idle = new ArrayList<PooledHttpConnection>();
+        synchronized (this) {
+            for (HostConnections hostConnections : hosts.values()) {
+                idle.addAll(hostConnections.idle);
+                hostConnections.openCount -= hostConnections.idle.size();
+                hostConnections.idle.clear();
+            }
+            SystemUtils.notifyWaiters(this);
+        }
+        closeAll(idle);
+    }
+
+    /**
+     * @return number of requests that reused an idle connection
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of requests that had to open a new connection
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of requests that had to wait for a connection to be released
+     */
+    public synchronized long getWaitCount() {
+        return waitCount;
+    }
+
+    /**
+     * @return number of idle connections closed because they exceeded the idle timeout
+     */
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * @return number of connections currently idle in the pool, across all hosts
+     */
+    public synchronized int getIdleConnectionCount() {
+        int count = 0;
+        for (HostConnections hostConnections : hosts.values())
+            count += hostConnections.idle.size();
+        return count;
+    }
+
+    /**
+     * @return number of pooled connections currently open, idle or in use, across all hosts
+     */
+    public synchronized int getOpenConnectionCount() {
+        int count = 0;
+        for (HostConnections hostConnections : hosts.values())
+            count += hostConnections.openCount;
+        return count;
+    }
+
+    private HostConnections getHostConnections(String hostKey) {
+        @Nullable HostConnections hostConnections = hosts.get(hostKey);
+        if (hostConnections == null) {
+            hostConnections = new HostConnections();
+            hosts.put(hostKey, hostConnections);
+        }
+        return hostConnections;
+    }
+
+    /**
+     * Move expired connections from the idle list to the expired list, to be closed outside the lock.  The idle list is
+     * ordered least recently used first, so expired connections are all at the start.
+     */
+    private void removeExpired(HostConnections hostConnections, long now, ArrayList<PooledHttpConnection> expired) {
+        ArrayList<PooledHttpConnection> idle = hostConnections.idle;
+        while (!idle.isEmpty() && now - idle.get(0).getIdleSince() >= idleTimeoutInMillis) {
+            expired.add(idle.remove(0));
+            --hostConnections.openCount;
+            ++evictedCount;
+        }
+    }
+
+    private static void closeAll(ArrayList<PooledHttpConnection> connections) {
+        for (PooledHttpConnection connection : connections)
+            connection.close();
+    }
+
+    private static class HostConnections {
+        private final ArrayList<PooledHttpConnection> idle = new ArrayList<PooledHttpConnection>();
+        private int openCount = 0;     // Pooled connections, idle or in use
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.util.ArrayList;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An ordered list of HTTP headers, used by the pooled HTTP implementation.  Header names are compared ignoring case
+ * (ASCII only, which is all HTTP allows in header names).
+ */
+class HttpHeaderList {
+    private final ArrayList<String> names = new ArrayList<String>();
+    private final ArrayList<String> values = new ArrayList<String>();
+
+    public int size() {
+        return names.size();
+    }
+
+    public String getName(int index) {
+        return names.get(index);
+    }
+
+    public String getValue(int index) {
+        return values.get(index);
+    }
+
+    /**
+     * Get the value of the last header with the specified name (matching what HttpURLConnection does), or null if
+     * there's no such header.
+     *
+     * @param name header name
+     * @return header value or null if not present
+     */
+    public @Nullable String get(String name) {
+        for (int i = names.size() - 1; i >= 0; --i) {
+            if (equalsIgnoreCase(names.get(i), name))
+                return values.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * Set the specified header, replacing any existing headers with that name.
+     *
+     * @param name  header name
+     * @param value header value
+     */
+    public void set(String name, String value) {
+        remove(name);
+        add(name, value);
+    }
+
+    public void add(String name, String value) {
+        names.add(name);
+        values.add(value);
+    }
+
+    public void clear() {
+        names.clear();
+        values.clear();
+    }
+
+    public void remove(String name) {
+        for (int i = names.size() - 1; i >= 0; --i) {
+            if (equalsIgnoreCase(names.get(i), name)) {
+                names.remove(i);
+                values.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Return true if the specified header is present and its value, treated as a comma separated list, contains the
+     * specified token (e.g. "close" for the Connection header or "chunked" for Transfer-Encoding).
+     *
+     * @param name  header name
+     * @param token token to look for, which should be lower case
+     * @return true if the header contains the token
+     */
+    public boolean containsToken(String name, String token) {
+        @Nullable String value = get(name);
+        if (value == null)
+            return false;
+
+        int start = 0;
+        while (true) {
+            int comma = value.indexOf(',', start);
+            String element = (comma == -1 ? value.substring(start) : value.substring(start, comma)).trim();
+            if (equalsIgnoreCase(element, token))
+                return true;
+
+            if (comma == -1)
+                return false;
+            start = comma + 1;
+        }
+    }
+
+    static boolean equalsIgnoreCase(String s1, String s2) {
+        int length = s1.length();
+        if (s2.length() != length)
+            return false;
+
+        for (int i = 0; i < length; ++i) {
+            char c1 = s1.charAt(i);
+            char c2 = s2.charAt(i);
+            if (c1 != c2 && toLowerCase(c1) != toLowerCase(c2))
+                return false;
+        }
+        return true;
+    }
+
+    private static char toLowerCase(char c) {
+        if (c >= 'A' && c <= 'Z')
+            return (char) (c + ('a' - 'A'));
+        else return c;
+    }
+}
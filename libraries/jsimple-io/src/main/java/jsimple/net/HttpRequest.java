@@ -79,6 +79,7 @@ public abstract class HttpRequest {
     public static final String HEADER_ACCEPT = "Accept";
 
     private static volatile @Nullable HttpRequestFactory factory;
+    private static volatile @Nullable AsyncDispatcher asyncDispatcher;
 
     /**
      * Create an HttpRequest, using the global factory.  This method is the normal way to create an HttpRequest, using
@@ -104,6 +105,17 @@ public abstract class HttpRequest {
         factory = httpRequestFactory;
     }
 
+    /**
+     * Set the global dispatcher used to run requests sent with sendAsync.  JSimpleIO.init sets this to the default
+     * implementation for the current platform; apps can replace it, for instance with a dispatcher that allows more
+     * (or fewer) requests in flight at once.
+     *
+     * @param dispatcher async dispatcher
+     */
+    public static void setAsyncDispatcher(@Nullable AsyncDispatcher dispatcher) {
+        asyncDispatcher = dispatcher;
+    }
+
     /**
      * Set the method for the request, one of:
      * <p/>
@@ -191,7 +203,34 @@ public abstract class HttpRequest {
      */
     public abstract HttpResponse send();
 
+    /**
+     * Send the request without blocking the calling thread.  The request is handed to the global async dispatcher,
+     * which sends it and then calls the handler with the response or the error.  The request must be fully set up,
+     * including writing & closing any request body stream, before calling this method.
+     * <p/>
+     * The dispatcher limits how many requests are in flight at once; requests beyond that wait their turn.  This makes
+     * it practical to start many requests at once, e.g. fetching a page of results for each of a list of friends,
+     * without a thread per request in the app.
+     *
+     * @param handler handler called when the response is received or the request fails
+     */
+    public void sendAsync(HttpResponseHandler handler) {
+        if (asyncDispatcher == null)
+            throw new ProgrammerError("HttpRequest async dispatcher isn't set; did you call JSimpleIO.init()?");
+        else asyncDispatcher.dispatch(this, handler);
+    }
+
     public static interface HttpRequestFactory {
         HttpRequest createHttpRequest(String url);
     }
+
+    public static interface AsyncDispatcher {
+        /**
+         * Arrange for request.send() to be called on another thread, calling the handler with the result.
+         *
+         * @param request request to send
+         * @param handler handler for the result
+         */
+        void dispatch(HttpRequest request, HttpResponseHandler handler);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+/**
+ * Receives the result of HttpRequest.sendAsync.  Exactly one of the methods is called, on a thread owned by the async
+ * dispatcher, so they shouldn't do anything slow; in particular, UI apps need to switch to the UI thread to update the
+ * UI.
+ * <p/>
+ * The methods must not throw exceptions, as there's no caller to handle them; handlers should catch and report their
+ * own errors.  If completed does throw, the dispatcher closes the response, so its connection isn't leaked, but the
+ * exception only reaches the dispatcher thread's uncaught exception handler.
+ */
+public interface HttpResponseHandler {
+    /**
+     * Called when the response status line and headers have been received.  The body can then be read from the
+     * response, either here or on another thread.  The handler is responsible for closing the response.
+     *
+     * @param response HTTP response
+     */
+    void completed(HttpResponse response);
+
+    /**
+     * Called if the request couldn't be sent or no response was received, with the exception that HttpRequest.send
+     * would have thrown (e.g. an IOException or SocketTimeoutException).
+     *
+     * @param exception exception describing the error
+     */
+    void failed(RuntimeException exception);
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.io.IOException;
+import jsimple.io.InputStream;
+import jsimple.io.OutputStream;
+import jsimple.util.SystemUtils;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A keep-alive connection to an HTTP server, owned by an HttpConnectionPool.  Reads are buffered here, so the status
+ * line & headers can be parsed a line at a time and the body read from what's left in the buffer.
+ */
+class PooledHttpConnection {
+    private final String hostKey;
+    private final Socket socket;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    private final boolean pooled;
+    private final byte[] buffer = new byte[8 * 1024];
+    private int position = 0;
+    private int end = 0;
+    private boolean reused = false;
+    private boolean receivedData = false;
+    private long idleSince;
+    private boolean closed = false;
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    PooledHttpConnection(String hostKey, Socket socket, boolean pooled) {
+        this.hostKey = hostKey;
+        this.socket = socket;
+        this.inputStream = socket.getInputStream();
+        this.outputStream = socket.getOutputStream();
+        this.pooled = pooled;
+    }
+
+    String getHostKey() {
+        return hostKey;
+    }
+
+    /**
+     * @return true if the connection counts against the pool's per host limit & can be kept for reuse; false if it
+     * was opened beyond the limit and is closed once its request is done
+     */
+    boolean isPooled() {
+        return pooled;
+    }
+
+    /**
+     * @return true if the connection was taken from the pool's idle list, as opposed to newly opened
+     */
+    boolean isReused() {
+        return reused;
+    }
+
+    long getIdleSince() {
+        return idleSince;
+    }
+
+    /**
+     * Mark the connection idle, as it's returned to the pool.
+     */
+    void setIdle() {
+        idleSince = SystemUtils.getCurrentTimeMillis();
+        reused = true;
+    }
+
+    /**
+     * Prepare the connection to send a new request.
+     *
+     * @param timeoutInMillis read timeout for the request
+     */
+    void startRequest(int timeoutInMillis) {
+        receivedData = false;
+        if (reused)
+            socket.setTimeout(timeoutInMillis);
+    }
+
+    /**
+     * @return true if any response data has been received since startRequest was called
+     */
+    boolean hasReceivedData() {
+        return receivedData;
+    }
+
+    void write(byte[] data, int offset, int length) {
+        outputStream.write(data, offset, length);
+    }
+
+    void flush() {
+        outputStream.flush();
+    }
+
+    /**
+     * Read a line, terminated by CRLF (or a lone LF, which is tolerated as the HTTP spec recommends), returning it
+     * without the terminator.  Bytes are treated as ISO-8859-1.  Returns null if the connection is closed before any
+     * data for the line is read.
+     *
+     * @return line or null if at end of stream
+     */
+    @Nullable String readLine() {
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            if (position >= end && !fill()) {
+                if (line.length() == 0)
+                    return null;
+                throw new IOException("Connection closed in the middle of a line of the HTTP response");
+            }
+
+            int b = buffer[position++] & 0xFF;
+            if (b == '\n') {
+                String lineString = line.toString();
+                int length = lineString.length();
+                if (length > 0 && lineString.charAt(length - 1) == '\r')
+                    return lineString.substring(0, length - 1);
+                else return lineString;
+            }
+
+            if (line.length() >= MAX_LINE_LENGTH)
+                throw new IOException("HTTP response line is longer than {} characters", MAX_LINE_LENGTH);
+            line.append((char) b);
+        }
+    }
+
+    /**
+     * Read up to length bytes, returning the number of bytes read or -1 if at end of stream.
+     */
+    int read(byte[] data, int offset, int length) {
+        if (length == 0)
+            return 0;
+
+        if (position >= end) {
+            // Large reads bypass the buffer
+            if (length >= buffer.length) {
+                int bytesRead = inputStream.read(data, offset, length);
+                if (bytesRead > 0)
+                    receivedData = true;
+                return bytesRead;
+            }
+
+            if (!fill())
+                return -1;
+        }
+
+        int bytesToCopy = end - position;
+        if (bytesToCopy > length)
+            bytesToCopy = length;
+
+        SystemUtils.copyBytes(buffer, position, data, offset, bytesToCopy);
+        position += bytesToCopy;
+        return bytesToCopy;
+    }
+
+    private boolean fill() {
+        int bytesRead = inputStream.read(buffer, 0, buffer.length);
+        if (bytesRead <= 0) {
+            position = end = 0;
+            return false;
+        }
+
+        receivedData = true;
+        position = 0;
+        end = bytesRead;
+        return true;
+    }
+
+    boolean isClosed() {
+        return closed || socket.isClosed();
+    }
+
+    void close() {
+        if (!closed) {
+            closed = true;
+            socket.close();
+        }
+    }
+}
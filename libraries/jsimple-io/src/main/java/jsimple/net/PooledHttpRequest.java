@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.io.ByteArrayOutputStream;
+import jsimple.io.IOException;
+import jsimple.io.OutputStream;
+import jsimple.util.ByteArrayRange;
+import jsimple.util.Integers;
+import jsimple.util.InvalidFormatException;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * HttpRequest implementation that speaks HTTP/1.1 directly over a Socket, using connections from an
+ * HttpConnectionPool.  The request body is buffered in memory, so Content-Length is always set from the actual body
+ * length (any Content-Length header set by the caller is ignored) and the request can be resent if a pooled
+ * connection turns out to have been closed by the server while it was idle.  Only idempotent requests (GET, HEAD, PUT,
+ * DELETE, and OPTIONS) are resent, as the server may have acted on the request before closing the connection; for
+ * others, like POST, the error is thrown so the caller can decide whether it's safe to try again.
+ */
+class PooledHttpRequest extends HttpRequest {
+    private final HttpConnectionPool pool;
+    private final boolean secure;
+    private final String host;
+    private final int port;
+    private final String hostHeader;
+    private final String pathAndQuery;
+    private String method = METHOD_GET;
+    private int timeoutInMillis = 0;
+    private final HttpHeaderList headers = new HttpHeaderList();
+    private @Nullable ByteArrayOutputStream requestBodyStream = null;
+
+    PooledHttpRequest(String url, HttpConnectionPool pool) {
+        this.pool = pool;
+
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd == -1)
+            throw new IOException("URL {} doesn't contain a scheme", url);
+        String scheme = url.substring(0, schemeEnd);
+        if (HttpHeaderList.equalsIgnoreCase(scheme, "http"))
+            secure = false;
+        else if (HttpHeaderList.equalsIgnoreCase(scheme, "https"))
+            secure = true;
+        else throw new IOException("URL scheme {} isn't supported; only http and https are", scheme);
+
+        // The authority (host & optional port) ends at the path, query, or fragment, whichever comes first
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = url.length();
+        for (int i = authorityStart; i < url.length(); ++i) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                authorityEnd = i;
+                break;
+            }
+        }
+        String authority = url.substring(authorityStart, authorityEnd);
+        hostHeader = authority;
+
+        // Find the port separator, skipping past any IPv6 literal like [::1]
+        int portSeparator = authority.lastIndexOf(':');
+        if (portSeparator != -1 && portSeparator < authority.lastIndexOf(']'))
+            portSeparator = -1;
+
+        String hostPart = portSeparator == -1 ? authority : authority.substring(0, portSeparator);
+        if (hostPart.startsWith("[") && hostPart.length() > 2)
+            hostPart = hostPart.substring(1, hostPart.length() - 1);
+        if (hostPart.length() == 0)
+            throw new IOException("URL {} doesn't contain a host", url);
+        host = hostPart;
+
+        if (portSeparator == -1)
+            port = secure ? 443 : 80;
+        else {
+            try {
+                port = Integers.parseInt(authority.substring(portSeparator + 1));
+            } catch (InvalidFormatException e) {
+                throw new IOException("URL {} has an invalid port", url);
+            }
+        }
+
+        String path = url.substring(authorityEnd);
+        int fragmentStart = path.indexOf('#');
+        if (fragmentStart != -1)
+            path = path.substring(0, fragmentStart);
+        if (!path.startsWith("/"))
+            path = "/" + path;
+        pathAndQuery = path;
+    }
+
+    @Override public void setMethod(String method) {
+        this.method = method;
+    }
+
+    @Override public void setTimeout(int timeoutInMillis) {
+        this.timeoutInMillis = timeoutInMillis;
+    }
+
+    @Override public void setHeader(String name, String value) {
+        headers.set(name, value);
+    }
+
+    @Override public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    @Override public OutputStream createRequestBodyStream() {
+        if (requestBodyStream == null)
+            requestBodyStream = new ByteArrayOutputStream(256);
+        return requestBodyStream;
+    }
+
+    @Override public HttpResponse send() {
+        @Nullable ByteArrayRange body = null;
+        if (requestBodyStream != null)
+            body = requestBodyStream.getByteArray();
+
+        ByteArrayRange head = createRequestHead(body);
+        boolean headRequest = HttpHeaderList.equalsIgnoreCase(method, "HEAD");
+        boolean idempotent = isIdempotent(method);
+
+        while (true) {
+            PooledHttpConnection connection = pool.acquire(host, port, secure, timeoutInMillis);
+            boolean reused = connection.isReused();
+
+            boolean succeeded = false;
+            try {
+                connection.startRequest(timeoutInMillis);
+                connection.write(head.getBytes(), head.getPosition(), head.getLength());
+                if (body != null && body.getLength() > 0)
+                    connection.write(body.getBytes(), body.getPosition(), body.getLength());
+                connection.flush();
+
+                HttpResponse response = new PooledHttpResponse(pool, connection, headRequest);
+                succeeded = true;
+                return response;
+            } catch (IOException e) {
+                // A reused connection may have been closed by the server while idle; when that happens nothing comes
+                // back, so an idempotent request can be retried on another connection.  New connections, connections
+                // that returned part of a response, and non-idempotent requests get the error
+                if (!reused || connection.hasReceivedData() || !idempotent)
+                    throw e;
+            } finally {
+                if (!succeeded)
+                    pool.release(connection, false);
+            }
+        }
+    }
+
+    private static boolean isIdempotent(String method) {
+        return HttpHeaderList.equalsIgnoreCase(method, METHOD_GET) || HttpHeaderList.equalsIgnoreCase(method, "HEAD") ||
+               HttpHeaderList.equalsIgnoreCase(method, METHOD_PUT) ||
+               HttpHeaderList.equalsIgnoreCase(method, METHOD_DELETE) ||
+               HttpHeaderList.equalsIgnoreCase(method, "OPTIONS");
+    }
+
+    private ByteArrayRange createRequestHead(@Nullable ByteArrayRange body) {
+        StringBuilder head = new StringBuilder();
+        head.append(method).append(" ").append(pathAndQuery).append(" HTTP/1.1\r\n");
+
+        if (headers.get("Host") == null)
+            head.append("Host: ").append(hostHeader).append("\r\n");
+
+        int size = headers.size();
+        for (int i = 0; i < size; ++i) {
+            String name = headers.getName(i);
+            if (!HttpHeaderList.equalsIgnoreCase(name, HEADER_CONTENT_LENGTH))
+                head.append(name).append(": ").append(headers.getValue(i)).append("\r\n");
+        }
+
+        if (body != null)
+            head.append(HEADER_CONTENT_LENGTH).append(": ").append(body.getLength()).append("\r\n");
+        else if (method.equals(METHOD_POST) || method.equals(METHOD_PUT))
+            head.append(HEADER_CONTENT_LENGTH).append(": 0\r\n");
+
+        head.append("\r\n");
+
+        ByteArrayOutputStream headStream = new ByteArrayOutputStream(head.length());
+        headStream.writeLatin1EncodedString(head.toString());
+        return headStream.closeAndGetByteArray();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+/**
+ * HttpRequestFactory that creates requests using a platform independent HTTP/1.1 client, which keeps connections
+ * open in an HttpConnectionPool and reuses them for later requests to the same host.  To use it for all requests, call
+ * HttpRequest.setFactory(new PooledHttpRequestFactory()) after JSimpleIO.init.  It needs Socket.connect, which is
+ * currently supported on the Java platform.
+ * <p/>
+ * The pool allows a limited number of connections per host (HttpConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST by
+ * default).  Once they're all in use, further requests to the host wait for one to be released, failing with a
+ * SocketTimeoutException if none is within the request's timeout or, for requests with no timeout, the pool's acquire
+ * timeout (HttpConnectionPool.DEFAULT_ACQUIRE_TIMEOUT_IN_MILLIS by default).  A connection is released when its
+ * response is closed, so always close responses.
+ */
+public class PooledHttpRequestFactory implements HttpRequest.HttpRequestFactory {
+    private final HttpConnectionPool connectionPool;
+
+    public PooledHttpRequestFactory() {
+        this(new HttpConnectionPool());
+    }
+
+    public PooledHttpRequestFactory(HttpConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public HttpConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    @Override public HttpRequest createHttpRequest(String url) {
+        return new PooledHttpRequest(url, connectionPool);
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.io.IOException;
+import jsimple.io.InputStream;
+import jsimple.util.Integers;
+import jsimple.util.InvalidFormatException;
+import jsimple.util.Longs;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * HttpResponse read from a pooled connection.  The status line and headers are read when the response is created; the
+ * body is read on demand through getBodyStream.  Once the body has been read to the end, the connection goes back to
+ * the pool (unless the server asked to close it).  Closing the response before then closes the connection, since
+ * whatever's left of the body would otherwise be read as the next response.
+ */
+class PooledHttpResponse extends HttpResponse {
+    private final int statusCode;
+    private final String statusMessage;
+    private final HttpHeaderList headers = new HttpHeaderList();
+    private final BodyStream bodyStream;
+
+    private static final int BODY_FIXED_LENGTH = 0;
+    private static final int BODY_CHUNKED = 1;
+    private static final int BODY_UNTIL_CLOSE = 2;
+
+    PooledHttpResponse(HttpConnectionPool pool, PooledHttpConnection connection, boolean headRequest) {
+        String statusLine;
+        int code;
+        // Skip any interim (1xx) responses, like 100 Continue, other than 101 Switching Protocols
+        while (true) {
+            statusLine = connection.readLine();
+            if (statusLine == null)
+                throw new IOException("Connection closed before HTTP response was received");
+
+            code = parseStatusCode(statusLine);
+            readHeaders(connection);
+
+            if (code >= 200 || code == 101)
+                break;
+            headers.clear();
+        }
+
+        statusCode = code;
+        int messageStart = statusLine.indexOf(' ', statusLine.indexOf(' ') + 1);
+        statusMessage = messageStart == -1 ? "" : statusLine.substring(messageStart + 1);
+
+        boolean http11 = statusLine.startsWith("HTTP/1.1");
+        boolean keepAlive = http11 ? !headers.containsToken("Connection", "close") :
+                headers.containsToken("Connection", "keep-alive");
+
+        if (headRequest || code == 204 || code == 304)
+            bodyStream = new BodyStream(pool, connection, BODY_FIXED_LENGTH, 0, keepAlive);
+        else if (headers.containsToken("Transfer-Encoding", "chunked"))
+            bodyStream = new BodyStream(pool, connection, BODY_CHUNKED, 0, keepAlive);
+        else {
+            @Nullable String contentLength = headers.get(HttpRequest.HEADER_CONTENT_LENGTH);
+            if (contentLength != null) {
+                long length;
+                try {
+                    length = Longs.parseLong(contentLength.trim());
+                } catch (InvalidFormatException e) {
+                    throw new IOException("Invalid Content-Length in HTTP response: {}", contentLength);
+                }
+                bodyStream = new BodyStream(pool, connection, BODY_FIXED_LENGTH, length, keepAlive);
+            } else bodyStream = new BodyStream(pool, connection, BODY_UNTIL_CLOSE, 0, false);
+        }
+    }
+
+    private static int parseStatusCode(String statusLine) {
+        if (!statusLine.startsWith("HTTP/"))
+            throw new IOException("Invalid HTTP response status line: {}", statusLine);
+
+        int codeStart = statusLine.indexOf(' ') + 1;
+        if (codeStart == 0 || statusLine.length() < codeStart + 3)
+            throw new IOException("Invalid HTTP response status line: {}", statusLine);
+
+        try {
+            return Integers.parseInt(statusLine.substring(codeStart, codeStart + 3));
+        } catch (InvalidFormatException e) {
+            throw new IOException("Invalid HTTP response status line: {}", statusLine);
+        }
+    }
+
+    private void readHeaders(PooledHttpConnection connection) {
+        while (true) {
+            String line = connection.readLine();
+            if (line == null)
+                throw new IOException("Connection closed in the middle of HTTP response headers");
+            if (line.length() == 0)
+                return;
+
+            int colon = line.indexOf(':');
+            if (colon > 0)
+                headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+        }
+    }
+
+    @Override public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    @Override public InputStream getBodyStream() {
+        return bodyStream;
+    }
+
+    @Override public @Nullable String getHeader(String headerName) {
+        return headers.get(headerName);
+    }
+
+    @Override public void close() {
+        bodyStream.close();
+    }
+
+    /**
+     * Stream for the response body, which knows where the body ends (from Content-Length, the chunked encoding, or the
+     * connection closing) and gives the connection back to the pool when it gets there.
+     */
+    private static class BodyStream extends InputStream {
+        private final HttpConnectionPool pool;
+        private final PooledHttpConnection connection;
+        private final int bodyType;
+        private final boolean keepAlive;
+        private long remaining;           // Bytes left in the body, for fixed length, or in the current chunk
+        private boolean firstChunk = true;
+        private boolean done = false;
+        private final byte[] oneByte = new byte[1];
+
+        BodyStream(HttpConnectionPool pool, PooledHttpConnection connection, int bodyType, long length,
+                   boolean keepAlive) {
+            this.pool = pool;
+            this.connection = connection;
+            this.bodyType = bodyType;
+            this.remaining = length;
+            this.keepAlive = keepAlive;
+
+            if (bodyType == BODY_FIXED_LENGTH && length == 0)
+                finish(keepAlive);
+        }
+
+        @Override public int read() {
+            int bytesRead = read(oneByte, 0, 1);
+            if (bytesRead <= 0)
+                return -1;
+            return oneByte[0] & 0xFF;
+        }
+
+        @Override public int read(byte[] buffer, int offset, int length) {
+            if (done)
+                return -1;
+            if (length == 0)
+                return 0;
+
+            boolean succeeded = false;
+            try {
+                int bytesRead;
+                if (bodyType == BODY_UNTIL_CLOSE) {
+                    bytesRead = connection.read(buffer, offset, length);
+                    if (bytesRead == -1)
+                        finish(false);
+                } else {
+                    if (bodyType == BODY_CHUNKED && remaining == 0 && !startChunk()) {
+                        succeeded = true;
+                        return -1;
+                    }
+
+                    if (length > remaining)
+                        length = (int) remaining;
+
+                    bytesRead = connection.read(buffer, offset, length);
+                    if (bytesRead == -1)
+                        throw new IOException("Connection closed before the end of the HTTP response body");
+
+                    remaining -= bytesRead;
+                    if (bodyType == BODY_FIXED_LENGTH && remaining == 0)
+                        finish(keepAlive);
+                }
+
+                succeeded = true;
+                return bytesRead;
+            } finally {
+                if (!succeeded)
+                    finish(false);
+            }
+        }
+
+        /**
+         * Read the next chunk header, returning false (and finishing the body) if it's the terminating zero length
+         * chunk.
+         */
+        private boolean startChunk() {
+            // Each chunk's data is followed by a CRLF
+            if (!firstChunk) {
+                String separator = connection.readLine();
+                if (separator == null || separator.length() != 0)
+                    throw new IOException("Invalid HTTP chunked encoding");
+            }
+            firstChunk = false;
+
+            String chunkHeader = connection.readLine();
+            if (chunkHeader == null)
+                throw new IOException("Connection closed before the end of the HTTP response body");
+
+            // Ignore any chunk extensions
+            int extensionStart = chunkHeader.indexOf(';');
+            if (extensionStart != -1)
+                chunkHeader = chunkHeader.substring(0, extensionStart);
+
+            int chunkSize;
+            try {
+                chunkSize = Integers.parseInt(chunkHeader.trim(), 16);
+            } catch (InvalidFormatException e) {
+                throw new IOException("Invalid HTTP chunk size: {}", chunkHeader);
+            }
+
+            if (chunkSize > 0) {
+                remaining = chunkSize;
+                return true;
+            }
+
+            // Skip any trailers, up through the final blank line
+            while (true) {
+                String trailer = connection.readLine();
+                if (trailer == null)
+                    throw new IOException("Connection closed before the end of the HTTP response body");
+                if (trailer.length() == 0)
+                    break;
+            }
+
+            finish(keepAlive);
+            return false;
+        }
+
+        private void finish(boolean reusable) {
+            if (!done) {
+                done = true;
+                pool.release(connection, reusable);
+            }
+        }
+
+        /**
+         * Closing before the body has been read to the end closes the connection, as the unread part of the body
+         * would otherwise be taken as the start of the next response.
+         */
+        @Override public void close() {
+            finish(false);
+        }
+    }
+}
@@ -24,15 +24,60 @@ package jsimple.net;
 
 import jsimple.io.InputStream;
 import jsimple.io.OutputStream;
+import jsimple.util.ProgrammerError;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * @author Bret Johnson
  * @since 7/24/13 11:07 PM
  */
 public abstract class Socket extends jsimple.lang.AutoCloseable {
+    private static volatile @Nullable SocketFactory factory;
+
+    /**
+     * Open a TCP connection to the specified host & port, using the global factory.  If secure is true, the connection
+     * uses TLS, with the server certificate validated for host.
+     *
+     * @param host            host name or IP address
+     * @param port            port number
+     * @param secure          true for a TLS connection
+     * @param timeoutInMillis timeout for connecting and, after that, for each read; zero means no timeout
+     * @return Socket for the connection
+     */
+    public static Socket connect(String host, int port, boolean secure, int timeoutInMillis) {
+        if (factory == null)
+            throw new ProgrammerError("Socket factory isn't set; did you forget to call JSimpleIO.init()?");
+        return factory.connect(host, port, secure, timeoutInMillis);
+    }
+
+    /**
+     * Set the global (default) factory used to open client sockets.  Clients normally don't call this method directly
+     * and just call JSimpleIO.init at app startup instead, which sets the factory to the default implementation
+     * appropriate for the current platform.
+     *
+     * @param socketFactory socket factory
+     */
+    public static void setFactory(@Nullable SocketFactory socketFactory) {
+        factory = socketFactory;
+    }
+
     public abstract InputStream getInputStream();
 
     public abstract OutputStream getOutputStream();
 
     public abstract boolean isClosed();
+
+    /**
+     * Set the timeout for reads on the socket.  If a read doesn't return within the timeout, a SocketTimeoutException
+     * is thrown.  Platform implementations that support client sockets override this; by default it's unsupported.
+     *
+     * @param timeoutInMillis timeout, in milliseconds; zero means no timeout
+     */
+    public void setTimeout(int timeoutInMillis) {
+        throw new ProgrammerError("setTimeout isn't supported for this Socket");
+    }
+
+    public static interface SocketFactory {
+        Socket connect(String host, int port, boolean secure, int timeoutInMillis);
+    }
 }
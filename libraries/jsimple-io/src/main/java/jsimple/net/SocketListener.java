@@ -31,7 +31,8 @@ import org.jetbrains.annotations.Nullable;
  */
 public abstract class SocketListener {
     private int port;
-    private SocketConnectionHandler socketConnectionHandler;
+    private @Nullable SocketConnectionHandler socketConnectionHandler;
+    private @Nullable AsyncSocketHandler asyncSocketHandler;
     private static volatile @Nullable SocketListenerFactory factory;
 
     /**
@@ -48,6 +49,23 @@ public abstract class SocketListener {
         return factory.createTcpSocketListener(socketConnectionHandler, port);
     }
 
+    /**
+     * Create a non-blocking TCP SocketListener, using the global factory.  Connections are handled by a small pool of
+     * event loop threads, calling the specified handler as data arrives, instead of a thread per connection, so this
+     * scales to many more concurrent connections than createTcpSocketListener does.
+     * <p/>
+     * This is currently only supported on Java; on .NET it throws a ProgrammerError.
+     *
+     * @param asyncSocketHandler handler, to receive the connection events
+     * @param port               port number to listen on
+     * @return SocketListener
+     */
+    public static SocketListener createAsyncTcpSocketListener(AsyncSocketHandler asyncSocketHandler, int port) {
+        if (factory == null)
+            throw new ProgrammerError("SocketListener factory isn't set; did you forget to call JSimpleIO.init()?");
+        return factory.createAsyncTcpSocketListener(asyncSocketHandler, port);
+    }
+
     /**
      * Set the global (default) factory used to create SocketListeners.  Clients normally don't call this method
      * directly and just call JSimpleIO.init at app startup instead, which sets the factory to the default
@@ -64,10 +82,23 @@ public abstract class SocketListener {
         this.port = port;
     }
 
+    protected SocketListener(AsyncSocketHandler asyncSocketHandler, int port) {
+        this.asyncSocketHandler = asyncSocketHandler;
+        this.port = port;
+    }
+
     public SocketConnectionHandler getSocketConnectionHandler() {
+        if (socketConnectionHandler == null)
+            throw new ProgrammerError("SocketListener has an AsyncSocketHandler, not a SocketConnectionHandler");
         return socketConnectionHandler;
     }
 
+    public AsyncSocketHandler getAsyncSocketHandler() {
+        if (asyncSocketHandler == null)
+            throw new ProgrammerError("SocketListener has a SocketConnectionHandler, not an AsyncSocketHandler");
+        return asyncSocketHandler;
+    }
+
     /**
      * Get the port.  The port only applies to TCP sockets.
      *
@@ -94,5 +125,7 @@ public abstract class SocketListener {
 
     public static interface SocketListenerFactory {
         SocketListener createTcpSocketListener(SocketConnectionHandler socketConnectionHandler1, int port);
+
+        SocketListener createAsyncTcpSocketListener(AsyncSocketHandler asyncSocketHandler, int port);
     }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.io;
+
+import jsimple.unit.UnitTest;
+import jsimple.util.ProgrammerError;
+import org.junit.Test;
+
+public class BufferPoolTest extends UnitTest {
+    @Test public void testAcquireAndRelease() {
+        BufferPool.clear();
+
+        byte[] bytes = BufferPool.acquireBytes(1000);
+        assertEquals(1024, bytes.length);
+        BufferPool.releaseBytes(bytes);
+        assertTrue(BufferPool.acquireBytes(600) == bytes);
+
+        char[] chars = BufferPool.acquireChars(10);
+        assertEquals(256, chars.length);
+        BufferPool.releaseChars(chars);
+        assertTrue(BufferPool.acquireChars(256) == chars);
+
+        // Buffers bigger than the largest size class aren't pooled
+        byte[] bigBytes = BufferPool.acquireBytes(100 * 1000);
+        assertEquals(100 * 1000, bigBytes.length);
+        BufferPool.releaseBytes(bigBytes);
+        assertTrue(BufferPool.acquireBytes(100 * 1000) != bigBytes);
+    }
+
+    @Test public void testDoubleRelease() {
+        BufferPool.clear();
+
+        // Even without leak detection, releasing a buffer that's still in the pool is caught, so two later acquirers
+        // don't end up sharing it
+        byte[] bytes = BufferPool.acquireBytes(512);
+        BufferPool.releaseBytes(bytes);
+        try {
+            BufferPool.releaseBytes(bytes);
+            fail();
+        } catch (ProgrammerError e) {
+        }
+        assertTrue(BufferPool.acquireBytes(512) == bytes);
+        assertTrue(BufferPool.acquireBytes(512) != bytes);
+
+        char[] chars = BufferPool.acquireChars(512);
+        BufferPool.releaseChars(chars);
+        try {
+            BufferPool.releaseChars(chars);
+            fail();
+        } catch (ProgrammerError e) {
+        }
+        assertTrue(BufferPool.acquireChars(512) == chars);
+        assertTrue(BufferPool.acquireChars(512) != chars);
+    }
+
+    @Test public void testLeakDetection() {
+        BufferPool.clear();
+
+        // Buffers acquired before leak detection is turned on aren't tracked, but can still be released
+        byte[] earlierBytes = BufferPool.acquireBytes(4096);
+        char[] earlierChars = BufferPool.acquireChars(4096);
+
+        BufferPool.setLeakDetection(true);
+        try {
+            BufferPool.releaseBytes(earlierBytes);
+            BufferPool.releaseChars(earlierChars);
+            assertEquals(0, BufferPool.getOutstandingCount());
+
+            byte[] bytes = BufferPool.acquireBytes(4096);
+            assertEquals(1, BufferPool.getOutstandingCount());
+            BufferPool.releaseBytes(bytes);
+            assertEquals(0, BufferPool.getOutstandingCount());
+
+            try {
+                BufferPool.releaseBytes(bytes);
+                fail();
+            } catch (ProgrammerError e) {
+            }
+
+            // Streams return their buffers on close
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            Utf8OutputStreamWriter writer = new Utf8OutputStreamWriter(byteArrayOutputStream);
+            writer.write("abc\ndef\n");
+            writer.close();
+
+            BufferedReader reader = new BufferedReader(
+                    new Utf8InputStreamReader(new ByteArrayInputStream(byteArrayOutputStream.toByteArray())));
+            assertEquals("abc", reader.readLine());
+            assertEquals(2, BufferPool.getOutstandingCount());
+            reader.close();
+            reader.close();
+
+            MurmurHash3 murmurHash3 = new MurmurHash3(0);
+            murmurHash3.addStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+
+            new ByteArrayInputStream(new byte[10]).copyTo(new ByteArrayOutputStream());
+            new SubstreamInputStream(new ByteArrayInputStream(new byte[10]), 5).copyTo(new ByteArrayOutputStream());
+
+            assertEquals(0, BufferPool.getOutstandingCount());
+        } finally {
+            BufferPool.setLeakDetection(false);
+        }
+    }
+}
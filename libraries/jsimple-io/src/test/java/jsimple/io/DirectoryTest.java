@@ -43,6 +43,37 @@ public class DirectoryTest extends UnitTest {
         validateTestContents(file);
     }
 
+    @Test public void testCopyFile() {
+        Directory testOutputDirectory = Paths.getInstance().getTestOutputDirectory("testCopyFile");
+
+        byte[] data = new byte[100 * 1000];
+        for (int i = 0; i < data.length; ++i)
+            data[i] = (byte) (i * 31);
+
+        File file = testOutputDirectory.getFile("source.bin");
+        OutputStream outputStream = file.openForCreate();
+        outputStream.write(data);
+        outputStream.close();
+
+        File copy = testOutputDirectory.getFile("copy.bin");
+        OutputStream copyOutputStream = copy.openForCreate();
+        file.copyTo(copyOutputStream);
+        copyOutputStream.close();
+        assertArrayEquals(data, copy.openForRead().copyToByteArray().toByteArray());
+
+        // Copy the remainder of a partially read stream, appending after data already written
+        InputStream inputStream = file.openForRead();
+        byte[] start = new byte[1000];
+        assertEquals(1000, inputStream.readFully(start));
+
+        File partialCopy = testOutputDirectory.getFile("partialcopy.bin");
+        OutputStream partialCopyOutputStream = partialCopy.openForCreate();
+        partialCopyOutputStream.write(start);
+        inputStream.copyTo(partialCopyOutputStream);
+        partialCopyOutputStream.close();
+        assertArrayEquals(data, partialCopy.openForRead().copyToByteArray().toByteArray());
+    }
+
     @Test public void testGetOrCreateDirectory() throws Exception {
         Directory testOutputDirectory = Paths.getInstance().getTestOutputDirectory("testGetOrCreateDirectory");
 
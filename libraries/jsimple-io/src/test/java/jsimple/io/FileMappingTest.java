@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.io;
+
+import jsimple.unit.UnitTest;
+import jsimple.util.ByteArrayRange;
+import org.junit.Test;
+
+public class FileMappingTest extends UnitTest {
+    public FileMappingTest() {
+        JSimpleIO.init();
+    }
+
+    @Test public void testOpenMapped() {
+        Directory testOutputDirectory = Paths.getInstance().getTestOutputDirectory("testOpenMapped");
+        File file = testOutputDirectory.getFile("mapped.txt");
+
+        String contents = createTestContents();
+        Writer writer = file.openUtf8ForCreate();
+        writer.write(contents);
+        writer.close();
+
+        FileMapping fileMapping = file.openMapped();
+        try {
+            validateMapping(fileMapping, contents);
+        } finally {
+            fileMapping.close();
+        }
+
+        try {
+            fileMapping.getByte(0);
+            fail();
+        } catch (IOException e) {
+        }
+    }
+
+    @Test public void testReadsAcrossChunks() {
+        Directory testOutputDirectory = Paths.getInstance().getTestOutputDirectory("testReadsAcrossChunks");
+        File file = testOutputDirectory.getFile("chunked.txt");
+
+        String contents = createTestContents();
+        Writer writer = file.openUtf8ForCreate();
+        writer.write(contents);
+        writer.close();
+        byte[] expected = IOUtils.toUtf8BytesFromString(contents).toByteArray();
+
+        // Map the file as 1K chunks, so the ~25K of test contents spans many of them
+        int chunkSize = 1024;
+        FileMapping fileMapping = new JavaFileMapping(new java.io.File(file.getPathString()), 10);
+        try {
+            validateMapping(fileMapping, contents);
+
+            // Single bytes on either side of each chunk boundary
+            for (int chunkStart = chunkSize; chunkStart < expected.length; chunkStart += chunkSize) {
+                assertEquals(expected[chunkStart - 1] & 0xFF, fileMapping.getByte(chunkStart - 1));
+                assertEquals(expected[chunkStart] & 0xFF, fileMapping.getByte(chunkStart));
+            }
+
+            // Ranges that end right at, start right at, straddle, and span several chunk boundaries
+            validateRange(fileMapping, expected, 0, chunkSize);
+            validateRange(fileMapping, expected, chunkSize, chunkSize);
+            validateRange(fileMapping, expected, chunkSize - 1, 2);
+            validateRange(fileMapping, expected, chunkSize - 10, 3 * chunkSize + 20);
+
+            // Streams starting partway through a chunk, i.e. skipping ahead, read with a buffer size that doesn't
+            // divide the chunk size, so reads straddle boundaries at varying offsets
+            long[] starts = new long[]{chunkSize - 1, chunkSize + 1, 5 * chunkSize - 333};
+            for (long start : starts) {
+                InputStream inputStream = fileMapping.openInputStream(start, expected.length - start);
+                byte[] buffer = new byte[300];
+                long position = start;
+                while (true) {
+                    int amountRead = inputStream.read(buffer, 0, buffer.length);
+                    if (amountRead == -1)
+                        break;
+                    for (int i = 0; i < amountRead; ++i)
+                        assertEquals(expected[(int) position + i], buffer[i]);
+                    position += amountRead;
+                }
+                assertEquals(expected.length, position);
+            }
+        } finally {
+            fileMapping.close();
+        }
+    }
+
+    @Test public void testOpenMappedEmptyFile() {
+        Directory testOutputDirectory = Paths.getInstance().getTestOutputDirectory("testOpenMappedEmptyFile");
+        File file = testOutputDirectory.getFile("empty.txt");
+        file.openForCreate().close();
+
+        FileMapping fileMapping = file.openMapped();
+        assertEquals(0, fileMapping.getLength());
+        assertEquals(-1, fileMapping.openInputStream().read());
+        fileMapping.close();
+    }
+
+    @Test public void testByteArrayFileMapping() {
+        String contents = createTestContents();
+        ByteArrayRange utf8Bytes = IOUtils.toUtf8BytesFromString(contents);
+
+        FileMapping fileMapping = new ByteArrayFileMapping(utf8Bytes);
+        validateMapping(fileMapping, contents);
+    }
+
+    private String createTestContents() {
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < 1000; ++i)
+            buffer.append("line ").append(i).append(" \u00e9\u4e2d\ud83d\ude00\n");
+        return buffer.toString();
+    }
+
+    private void validateRange(FileMapping fileMapping, byte[] expected, int position, int length) {
+        byte[] buffer = new byte[length + 2];
+        fileMapping.getBytes(position, buffer, 1, length);
+        for (int i = 0; i < length; ++i)
+            assertEquals(expected[position + i], buffer[1 + i]);
+        assertEquals(0, buffer[0]);
+        assertEquals(0, buffer[length + 1]);
+    }
+
+    private void validateMapping(FileMapping fileMapping, String contents) {
+        byte[] expected = IOUtils.toUtf8BytesFromString(contents).toByteArray();
+        assertEquals(expected.length, fileMapping.getLength());
+
+        assertEquals('l', fileMapping.getByte(0));
+        assertEquals(expected[expected.length - 5] & 0xFF, fileMapping.getByte(expected.length - 5));
+
+        byte[] middle = new byte[100];
+        fileMapping.getBytes(1000, middle, 0, 100);
+        for (int i = 0; i < 100; ++i)
+            assertEquals(expected[1000 + i], middle[i]);
+
+        byte[] streamed = new byte[expected.length];
+        InputStream inputStream = fileMapping.openInputStream();
+        assertEquals(expected.length, inputStream.readFully(streamed));
+        assertEquals(-1, inputStream.read());
+        assertArrayEquals(expected, streamed);
+
+        InputStream partialStream = fileMapping.openInputStream(10, 3);
+        assertEquals(expected[10], (byte) partialStream.read());
+        assertEquals(expected[11], (byte) partialStream.read());
+        assertEquals(expected[12], (byte) partialStream.read());
+        assertEquals(-1, partialStream.read());
+
+        assertEquals(contents, IOUtils.toStringFromReader(fileMapping.openUtf8Reader()));
+
+        try {
+            fileMapping.getBytes(expected.length - 2, middle, 0, 3);
+            fail();
+        } catch (IOException e) {
+        }
+    }
+}
@@ -23,6 +23,7 @@
 package jsimple.io;
 
 import jsimple.unit.UnitTest;
+import jsimple.util.ByteArrayRange;
 import jsimple.util.InvalidFormatException;
 import jsimple.util.Utils;
 import org.junit.Test;
@@ -160,6 +161,59 @@ public class Utf8InputStreamReaderTest extends UnitTest {
                 "Invalid UTF-8 encoding--stream ends with a partially defined UTF-8 character");
     }
 
+    @Test public void testReadSingleChars() {
+        byte[] utf8Input = Utils.byteArrayFromBytes('a', 0xf0, 0x9f, 0xBF, 0xBD, 0xc3, 0xa9, 'b');
+        Utf8InputStreamReader reader = new Utf8InputStreamReader(new ByteArrayInputStream(utf8Input));
+
+        assertEquals('a', reader.read());
+        assertEquals(0xd83f, reader.read());
+        assertEquals(0xdffd, reader.read());
+        assertEquals(0xe9, reader.read());
+        assertEquals('b', reader.read());
+        assertEquals(-1, reader.read());
+
+        // Mixing read() with bulk reads, the second half of a surrogate pair comes first
+        reader = new Utf8InputStreamReader(new ByteArrayInputStream(utf8Input));
+        char[] buffer = new char[10];
+        assertEquals('a', reader.read());
+        assertEquals(0xd83f, reader.read());
+        assertEquals(3, reader.read(buffer));
+        assertEquals(0xdffd, buffer[0]);
+        assertEquals(0xe9, buffer[1]);
+        assertEquals('b', buffer[2]);
+    }
+
+    @Test public void testReadAcrossBuffers() {
+        // A mix of ASCII runs, long enough for the 8 byte at a time path, and multibyte characters, read with a small
+        // byte buffer and a char buffer that's exactly the requested size, so any overrun would be caught
+        StringBuilder expected = new StringBuilder();
+        ByteArrayOutputStream utf8Output = new ByteArrayOutputStream();
+        Utf8OutputStreamWriter writer = new Utf8OutputStreamWriter(utf8Output);
+        for (int i = 0; i < 200; ++i) {
+            String text = "abcdefghijklmnopqrstuvwxyz".substring(0, i % 20) + "\u00e9\u4e2d\ud83d\ude00";
+            expected.append(text);
+            writer.write(text);
+        }
+        writer.flush();
+        ByteArrayRange utf8Bytes = utf8Output.closeAndGetByteArray();
+
+        for (int bufferSize = 4; bufferSize < 40; bufferSize += 7) {
+            for (int readSize = 2; readSize < 20; readSize += 3) {
+                Utf8InputStreamReader reader = new Utf8InputStreamReader(new ByteArrayInputStream(utf8Bytes),
+                        bufferSize);
+                StringBuilder decoded = new StringBuilder();
+                char[] buffer = new char[readSize];
+                while (true) {
+                    int charsRead = reader.read(buffer, 0, readSize);
+                    if (charsRead == -1)
+                        break;
+                    decoded.append(buffer, 0, charsRead);
+                }
+                assertEquals(expected.toString(), decoded.toString());
+            }
+        }
+    }
+
     private void testReadExpectError(byte[] utf8Data, String expectedMessage) {
         Utf8InputStreamReader reader;
         reader = new Utf8InputStreamReader(new ByteArrayInputStream(utf8Data));
@@ -70,8 +70,23 @@ public class Utf8OutputStreamWriterTest extends UnitTest {
 
     private void testRoundTripping(String input) {
         ByteArrayRange utf8Bytes = IOUtils.toUtf8BytesFromString(input);
+        assertEquals(utf8Bytes.getBytes().length, utf8Bytes.getLength());
+        assertEquals(IOUtils.getUtf8Length(input), utf8Bytes.getLength());
         String output = IOUtils.toStringFromUtf8Bytes(utf8Bytes);
         assertEquals(input, output);
+
+        // The writer should produce the same bytes, whether given a String or a char array
+        ByteArrayOutputStream stringOutput = new ByteArrayOutputStream();
+        Utf8OutputStreamWriter stringWriter = new Utf8OutputStreamWriter(stringOutput);
+        stringWriter.write(input);
+        stringWriter.close();
+        assertArrayEquals(utf8Bytes.toByteArray(), stringOutput.closeAndGetByteArray().toByteArray());
+
+        ByteArrayOutputStream charsOutput = new ByteArrayOutputStream();
+        Utf8OutputStreamWriter charsWriter = new Utf8OutputStreamWriter(charsOutput);
+        charsWriter.write(input.toCharArray());
+        charsWriter.close();
+        assertArrayEquals(utf8Bytes.toByteArray(), charsOutput.closeAndGetByteArray().toByteArray());
     }
 
     @Test public void testErrors() {
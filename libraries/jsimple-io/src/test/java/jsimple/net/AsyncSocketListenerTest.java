@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.io.InputStream;
+import jsimple.io.JSimpleIO;
+import jsimple.io.OutputStream;
+import jsimple.unit.UnitTest;
+import jsimple.util.ArrayList;
+import jsimple.util.ByteArrayRange;
+import jsimple.util.SystemUtils;
+import org.junit.Test;
+
+/**
+ * Tests for the non-blocking socket listener returned by SocketListener.createAsyncTcpSocketListener.
+ */
+public class AsyncSocketListenerTest extends UnitTest {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private int connectedCount = 0;
+    private int disconnectedCount = 0;
+    private int writesCompletedCount = 0;
+
+    public AsyncSocketListenerTest() {
+        JSimpleIO.init();
+    }
+
+    @Test public void testEcho() {
+        SocketListener server = SocketListener.createAsyncTcpSocketListener(new CountingHandler() {
+            @Override public void dataReceived(AsyncSocket socket, byte[] buffer, int offset, int length) {
+                socket.write(buffer, offset, length);
+            }
+        }, 0);
+        server.start();
+
+        ArrayList<Socket> clients = new ArrayList<Socket>();
+        try {
+            assertTrue(server.getPort() > 0);
+            for (int i = 0; i < 5; ++i)
+                clients.add(Socket.connect("localhost", server.getPort(), false, 10 * 1000));
+
+            for (int round = 0; round < 3; ++round) {
+                for (int i = 0; i < clients.size(); ++i) {
+                    OutputStream outputStream = clients.get(i).getOutputStream();
+                    outputStream.writeLatin1EncodedString("hello " + i + " " + round + "\n");
+                    outputStream.flush();
+                }
+                for (int i = 0; i < clients.size(); ++i) {
+                    String expected = "hello " + i + " " + round + "\n";
+                    byte[] echoed = new byte[expected.length()];
+                    clients.get(i).getInputStream().readFully(echoed);
+                    assertEquals(expected, latin1String(echoed, echoed.length));
+                }
+            }
+
+            // When the clients close, the server side sockets are closed too
+            for (int i = 0; i < clients.size(); ++i)
+                clients.get(i).close();
+            assertTrue(waitForDisconnected(5));
+            assertEquals(5, getConnectedCount());
+        } finally {
+            for (int i = 0; i < clients.size(); ++i)
+                clients.get(i).close();
+            server.stop();
+        }
+    }
+
+    @Test public void testWriteBackpressure() {
+        // Stream a response much bigger than the socket buffers, a chunk at a time as each write completes, then close
+        final int totalSize = 8 * 1024 * 1024;
+        SocketListener server = SocketListener.createAsyncTcpSocketListener(new CountingHandler() {
+            private int written = 0;
+
+            @Override public void connected(AsyncSocket socket) {
+                super.connected(socket);
+                writesCompleted(socket);
+            }
+
+            @Override public void writesCompleted(AsyncSocket socket) {
+                super.writesCompleted(socket);
+                if (written == totalSize)
+                    socket.close();
+                else {
+                    socket.write(createData(written, CHUNK_SIZE));
+                    written += CHUNK_SIZE;
+                }
+            }
+        }, 0);
+        server.start();
+
+        Socket client = Socket.connect("localhost", server.getPort(), false, 10 * 1000);
+        try {
+            // Don't read for a bit, so the server's socket fills up and it has to wait for it to be writable
+            SystemUtils.sleep(200);
+
+            ByteArrayRange received = client.getInputStream().copyToByteArray();
+            assertEquals(totalSize, received.getLength());
+            assertTrue(isData(received, 0));
+
+            assertTrue(waitForDisconnected(1));
+            assertEquals(totalSize / CHUNK_SIZE + 1, getWritesCompletedCount());
+        } finally {
+            client.close();
+            server.stop();
+        }
+    }
+
+    @Test public void testGracefulStop() {
+        // Each connection gets a big response, queued all at once; stop should let it all be written before closing
+        final int totalSize = 4 * 1024 * 1024;
+        final SocketListener server = SocketListener.createAsyncTcpSocketListener(new CountingHandler() {
+            @Override public void connected(AsyncSocket socket) {
+                super.connected(socket);
+                socket.write(createData(0, totalSize));
+            }
+        }, 0);
+        server.start();
+
+        Socket client = Socket.connect("localhost", server.getPort(), false, 10 * 1000);
+        try {
+            assertTrue(waitForConnected(1));
+
+            Thread stopThread = new Thread(new Runnable() {
+                @Override public void run() {
+                    server.stop();
+                }
+            });
+            stopThread.start();
+
+            InputStream inputStream = client.getInputStream();
+            ByteArrayRange received = inputStream.copyToByteArray();
+            assertEquals(totalSize, received.getLength());
+            assertTrue(isData(received, 0));
+
+            try {
+                stopThread.join(10 * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue(!stopThread.isAlive());
+            assertEquals(1, getDisconnectedCount());
+
+            // Once stopped, no more connections are accepted
+            try {
+                Socket.connect("localhost", server.getPort(), false, 10 * 1000).close();
+                fail("should fail to connect to a stopped listener");
+            } catch (jsimple.io.IOException e) {
+                // expected
+            }
+        } finally {
+            client.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Handler that counts the connection events and otherwise does nothing.
+     */
+    private class CountingHandler implements AsyncSocketHandler {
+        @Override public void connected(AsyncSocket socket) {
+            incrementConnectedCount();
+        }
+
+        @Override public void dataReceived(AsyncSocket socket, byte[] buffer, int offset, int length) {
+        }
+
+        @Override public void writesCompleted(AsyncSocket socket) {
+            incrementWritesCompletedCount();
+        }
+
+        @Override public void disconnected(AsyncSocket socket) {
+            incrementDisconnectedCount();
+        }
+    }
+
+    /**
+     * Create test data, starting at the specified position in an endless repeating sequence, so that data written in
+     * chunks can be checked for order.
+     */
+    private static byte[] createData(int position, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; ++i)
+            data[i] = (byte) ((position + i) % 251);
+        return data;
+    }
+
+    private static boolean isData(ByteArrayRange bytes, int position) {
+        byte[] buffer = bytes.getBytes();
+        int start = bytes.getPosition();
+        for (int i = 0; i < bytes.getLength(); ++i) {
+            if (buffer[start + i] != (byte) ((position + i) % 251))
+                return false;
+        }
+        return true;
+    }
+
+    private static String latin1String(byte[] bytes, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            s.append((char) (bytes[i] & 0xFF));
+        return s.toString();
+    }
+
+    private boolean waitForConnected(int count) {
+        long timeout = SystemUtils.getCurrentTimeMillis() + 10 * 1000;
+        while (getConnectedCount() < count) {
+            if (SystemUtils.getCurrentTimeMillis() > timeout)
+                return false;
+            SystemUtils.sleep(10);
+        }
+        return true;
+    }
+
+    private boolean waitForDisconnected(int count) {
+        long timeout = SystemUtils.getCurrentTimeMillis() + 10 * 1000;
+        while (getDisconnectedCount() < count) {
+            if (SystemUtils.getCurrentTimeMillis() > timeout)
+                return false;
+            SystemUtils.sleep(10);
+        }
+        return true;
+    }
+
+    private synchronized int getConnectedCount() {
+        return connectedCount;
+    }
+
+    private synchronized void incrementConnectedCount() {
+        ++connectedCount;
+    }
+
+    private synchronized int getDisconnectedCount() {
+        return disconnectedCount;
+    }
+
+    private synchronized void incrementDisconnectedCount() {
+        ++disconnectedCount;
+    }
+
+    private synchronized int getWritesCompletedCount() {
+        return writesCompletedCount;
+    }
+
+    private synchronized void incrementWritesCompletedCount() {
+        ++writesCompletedCount;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.io.JSimpleIO;
+import jsimple.unit.UnitTest;
+import jsimple.util.ArrayList;
+import jsimple.util.SystemUtils;
+import org.junit.Test;
+
+/**
+ * Tests for JavaTcpSocketListener's connection limit, counters, and stop.
+ */
+public class JavaTcpSocketListenerTest extends UnitTest {
+    private int handlerCount = 0;
+    private boolean releaseHandlers = false;
+
+    public JavaTcpSocketListenerTest() {
+        JSimpleIO.init();
+    }
+
+    @Test public void testEphemeralPort() {
+        JavaTcpSocketListener server = startServer(4);
+        try {
+            assertTrue(server.getPort() > 0);
+
+            setReleaseHandlers(true);
+            assertEquals('x', connectAndRead(server));
+            assertTrue(waitFor(server, 1, 0));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test public void testMaxConnections() {
+        JavaTcpSocketListener server = startServer(2);
+        ArrayList<Socket> clients = new ArrayList<Socket>();
+        try {
+            assertEquals(2, server.getMaxConnections());
+            for (int i = 0; i < 3; ++i)
+                clients.add(Socket.connect("localhost", server.getPort(), false, 10 * 1000));
+
+            // Only two connections are handled at once; the third waits in the accept backlog
+            assertTrue(waitFor(server, 2, 2));
+            SystemUtils.sleep(200);
+            assertEquals(2, getHandlerCount());
+            assertEquals(2, server.getLiveConnectionCount());
+            assertEquals(2L, server.getAcceptedCount());
+
+            // Once the handlers finish, the third connection is accepted and handled too
+            setReleaseHandlers(true);
+            for (int i = 0; i < clients.size(); ++i)
+                assertEquals('x', clients.get(i).getInputStream().read());
+            assertTrue(waitFor(server, 3, 0));
+            assertEquals(3, getHandlerCount());
+            assertEquals(0L, server.getRejectedCount());
+        } finally {
+            setReleaseHandlers(true);
+            for (int i = 0; i < clients.size(); ++i)
+                clients.get(i).close();
+            server.stop();
+        }
+    }
+
+    @Test public void testStopAtMaxConnections() {
+        final JavaTcpSocketListener server = startServer(1);
+        Socket client = Socket.connect("localhost", server.getPort(), false, 10 * 1000);
+        try {
+            assertTrue(waitFor(server, 1, 1));
+
+            // The accept thread is waiting for a connection slot, but stop should still return promptly
+            Thread stopThread = new Thread(new Runnable() {
+                @Override public void run() {
+                    server.stop();
+                }
+            });
+            stopThread.start();
+            try {
+                stopThread.join(10 * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue(!stopThread.isAlive());
+
+            // The connection already being handled is left to finish
+            assertEquals(1, server.getLiveConnectionCount());
+            setReleaseHandlers(true);
+            assertEquals('x', client.getInputStream().read());
+            assertTrue(waitFor(server, 1, 0));
+        } finally {
+            setReleaseHandlers(true);
+            client.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Start a listener on an ephemeral port whose handler, once releaseHandlers is set, writes an "x" and closes the
+     * connection.
+     */
+    private JavaTcpSocketListener startServer(int maxConnections) {
+        JavaTcpSocketListener server = new JavaTcpSocketListener(new SocketConnectionHandler() {
+            @Override public void sockedConnected(Socket socket) {
+                incrementHandlerCount();
+                try {
+                    while (!getReleaseHandlers())
+                        SystemUtils.sleep(10);
+                    socket.getOutputStream().write('x');
+                    socket.getOutputStream().flush();
+                } finally {
+                    socket.close();
+                }
+            }
+        }, 0, maxConnections);
+        server.start();
+        return server;
+    }
+
+    private int connectAndRead(SocketListener server) {
+        Socket client = Socket.connect("localhost", server.getPort(), false, 10 * 1000);
+        try {
+            return client.getInputStream().read();
+        } finally {
+            client.close();
+        }
+    }
+
+    /**
+     * Wait up to 10 seconds for the listener to reach the specified accepted and live connection counts, returning
+     * false if it didn't in that time.
+     */
+    private static boolean waitFor(JavaTcpSocketListener server, long acceptedCount, int liveConnectionCount) {
+        long timeout = SystemUtils.getCurrentTimeMillis() + 10 * 1000;
+        while (server.getAcceptedCount() != acceptedCount ||
+               server.getLiveConnectionCount() != liveConnectionCount) {
+            if (SystemUtils.getCurrentTimeMillis() > timeout)
+                return false;
+            SystemUtils.sleep(10);
+        }
+        return true;
+    }
+
+    private synchronized int getHandlerCount() {
+        return handlerCount;
+    }
+
+    private synchronized void incrementHandlerCount() {
+        ++handlerCount;
+    }
+
+    private synchronized boolean getReleaseHandlers() {
+        return releaseHandlers;
+    }
+
+    private synchronized void setReleaseHandlers(boolean releaseHandlers) {
+        this.releaseHandlers = releaseHandlers;
+    }
+}
@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.net;
+
+import jsimple.io.ByteArrayOutputStream;
+import jsimple.io.IOException;
+import jsimple.io.InputStream;
+import jsimple.io.JSimpleIO;
+import jsimple.io.OutputStream;
+import jsimple.unit.UnitTest;
+import jsimple.util.ArrayList;
+import jsimple.util.BasicException;
+import jsimple.util.ByteArrayRange;
+import jsimple.util.DateTime;
+import jsimple.util.Integers;
+import jsimple.util.SystemUtils;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+/**
+ * Tests for PooledHttpRequestFactory, HttpConnectionPool & HttpRequest.sendAsync, run against a minimal local HTTP
+ * server.
+ */
+public class PooledHttpRequestTest extends UnitTest {
+    private int serverConnectionCount = 0;
+    private int swallowedRequestCount = 0;
+
+    public PooledHttpRequestTest() {
+        JSimpleIO.init();
+    }
+
+    @Override public void tearDown() {
+        SystemUtils.setCurrentTimeOverride(DateTime.NULL_DATE);
+        super.tearDown();
+    }
+
+    @Test public void testConnectionReused() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory();
+        try {
+            String url = "http://localhost:" + server.getPort() + "/hello";
+            assertEquals("hello 1", get(factory, url));
+            assertEquals("hello 2", get(factory, url));
+            assertEquals("hello 3", get(factory, url));
+
+            HttpConnectionPool pool = factory.getConnectionPool();
+            assertEquals(1, getServerConnectionCount());
+            assertEquals(1L, pool.getMissCount());
+            assertEquals(2L, pool.getHitCount());
+            assertEquals(1, pool.getIdleConnectionCount());
+            assertEquals(1, pool.getOpenConnectionCount());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testPostAndChunkedResponse() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory();
+        try {
+            HttpRequest request = factory.createHttpRequest("http://localhost:" + server.getPort() + "/echo?x=1");
+            request.setMethod(HttpRequest.METHOD_POST);
+            request.setHeader(HttpRequest.HEADER_CONTENT_TYPE, "text/plain");
+            OutputStream requestBody = request.createRequestBodyStream();
+            requestBody.writeLatin1EncodedString("posted body");
+            requestBody.close();
+
+            HttpResponse response = request.send();
+            assertEquals(200, response.getStatusCode());
+            assertEquals("OK", response.getStatusMessage());
+            assertEquals("text/plain", response.getHeader("content-type"));
+            assertEquals("/echo?x=1 posted body", readBody(response));
+
+            String chunkedUrl = "http://localhost:" + server.getPort() + "/chunked";
+            assertEquals("hello, world", get(factory, chunkedUrl));
+            assertEquals("hello, world", get(factory, chunkedUrl));
+
+            assertEquals(1, getServerConnectionCount());
+            assertEquals(2L, factory.getConnectionPool().getHitCount());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testConnectionCloseNotPooled() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory();
+        try {
+            assertEquals("bye", get(factory, "http://localhost:" + server.getPort() + "/close"));
+
+            HttpConnectionPool pool = factory.getConnectionPool();
+            assertEquals(0, pool.getIdleConnectionCount());
+            assertEquals(0, pool.getOpenConnectionCount());
+
+            assertEquals("hello 1", get(factory, "http://localhost:" + server.getPort() + "/hello"));
+            assertEquals(2L, pool.getMissCount());
+            assertEquals(0L, pool.getHitCount());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testStaleConnectionRetried() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory();
+        try {
+            // The server closes the connection after responding, without saying so, like a server timing out an idle
+            // connection; the next request gets the closed connection from the pool and should be retried
+            assertEquals("dropped", get(factory, "http://localhost:" + server.getPort() + "/drop"));
+            assertEquals("hello 1", get(factory, "http://localhost:" + server.getPort() + "/hello"));
+
+            assertEquals(2, getServerConnectionCount());
+            assertEquals(1L, factory.getConnectionPool().getHitCount());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testOnlyIdempotentRequestsRetried() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory();
+        try {
+            // "/swallow" reads the request then closes the connection without responding, as a server might if it
+            // crashed or timed out the connection while handling the request.  On a reused connection that looks the
+            // same as a stale connection, so a GET is resent, on a new connection, which fails the same way
+            String url = "http://localhost:" + server.getPort();
+            assertEquals("hello 1", get(factory, url + "/hello"));
+            try {
+                factory.createHttpRequest(url + "/swallow").send();
+                fail("should fail when no response comes back");
+            } catch (IOException e) {
+                // expected
+            }
+            assertEquals(2, getSwallowedRequestCount());
+
+            // A POST isn't resent, as the server may already have acted on it
+            assertEquals("hello 1", get(factory, url + "/hello"));
+            HttpRequest request = factory.createHttpRequest(url + "/swallow");
+            request.setMethod(HttpRequest.METHOD_POST);
+            request.createRequestBodyStream().writeLatin1EncodedString("order 1");
+            try {
+                request.send();
+                fail("should fail when no response comes back");
+            } catch (IOException e) {
+                // expected
+            }
+            assertEquals(3, getSwallowedRequestCount());
+            assertEquals(3, getServerConnectionCount());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testMaxConnectionsPerHost() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory(new HttpConnectionPool(1, 60 * 1000, false));
+        try {
+            String url = "http://localhost:" + server.getPort() + "/hello";
+            HttpResponse response1 = factory.createHttpRequest(url).send();
+            HttpResponse response2 = factory.createHttpRequest(url).send();
+
+            // The second connection is over the limit, so it's closed rather than pooled when done
+            HttpConnectionPool pool = factory.getConnectionPool();
+            assertEquals("hello 1", readBody(response2));
+            assertEquals(0, pool.getIdleConnectionCount());
+            assertEquals("hello 1", readBody(response1));
+            assertEquals(1, pool.getIdleConnectionCount());
+            assertEquals(1, pool.getOpenConnectionCount());
+
+            assertEquals("hello 2", get(factory, url));
+            assertEquals(1L, pool.getHitCount());
+            assertEquals(0L, pool.getWaitCount());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testWaitForFreeConnection() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory(new HttpConnectionPool(1, 60 * 1000));
+        final AsyncResults results = new AsyncResults();
+        try {
+            String url = "http://localhost:" + server.getPort() + "/hello";
+            HttpConnectionPool pool = factory.getConnectionPool();
+            HttpResponse response1 = factory.createHttpRequest(url).send();
+
+            // The only connection is busy, so the second request waits for it rather than opening another
+            factory.createHttpRequest(url).sendAsync(new HttpResponseHandler() {
+                @Override public void completed(HttpResponse response) {
+                    results.add(readBody(response));
+                }
+
+                @Override public void failed(RuntimeException exception) {
+                    results.add("failed");
+                }
+            });
+            long timeout = SystemUtils.getCurrentTimeMillis() + 10 * 1000;
+            while (pool.getWaitCount() == 0 && SystemUtils.getCurrentTimeMillis() < timeout)
+                SystemUtils.sleep(10);
+            assertEquals(1L, pool.getWaitCount());
+            assertEquals(0, results.size());
+
+            assertEquals("hello 1", readBody(response1));
+            assertTrue(results.waitFor(1));
+            assertTrue(results.contains("hello 2"));
+            assertEquals(1, getServerConnectionCount());
+            assertEquals(1L, pool.getHitCount());
+
+            // If the connection isn't released within the request timeout, the request fails
+            HttpResponse response3 = factory.createHttpRequest(url).send();
+            try {
+                HttpRequest request = factory.createHttpRequest(url);
+                request.setTimeout(100);
+                request.send();
+                fail("should time out waiting for a connection");
+            } catch (SocketTimeoutException e) {
+                // expected
+            }
+            assertEquals("hello 3", readBody(response3));
+            assertEquals(2L, pool.getWaitCount());
+            assertEquals(1, pool.getOpenConnectionCount());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testAcquireTimeout() {
+        SocketListener server = startServer();
+        HttpConnectionPool pool = new HttpConnectionPool(1, 60 * 1000);
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory(pool);
+        try {
+            assertEquals(HttpConnectionPool.DEFAULT_ACQUIRE_TIMEOUT_IN_MILLIS, pool.getAcquireTimeoutInMillis());
+            pool.setAcquireTimeoutInMillis(100);
+
+            // A response that isn't closed holds on to the only connection; a request with no timeout of its own still
+            // gives up waiting for it after the acquire timeout
+            String url = "http://localhost:" + server.getPort() + "/hello";
+            HttpResponse response1 = factory.createHttpRequest(url).send();
+            try {
+                factory.createHttpRequest(url).send();
+                fail("should time out waiting for a connection");
+            } catch (SocketTimeoutException e) {
+                // expected
+            }
+            assertEquals(1L, pool.getWaitCount());
+
+            assertEquals("hello 1", readBody(response1));
+            assertEquals("hello 2", get(factory, url));
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testIdleConnectionsEvicted() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory(new HttpConnectionPool(4, 1000));
+        try {
+            String url = "http://localhost:" + server.getPort() + "/hello";
+            HttpConnectionPool pool = factory.getConnectionPool();
+
+            SystemUtils.setCurrentTimeOverride(100000);
+            assertEquals("hello 1", get(factory, url));
+
+            SystemUtils.setCurrentTimeOverride(100500);
+            assertEquals(0, pool.evictIdleConnections());
+            assertEquals(1, pool.getIdleConnectionCount());
+
+            SystemUtils.setCurrentTimeOverride(101500);
+            assertEquals(1, pool.evictIdleConnections());
+            assertEquals(0, pool.getIdleConnectionCount());
+            assertEquals(0, pool.getOpenConnectionCount());
+            assertEquals(1L, pool.getEvictedCount());
+
+            // Expired connections are also evicted when a request is made
+            assertEquals("hello 1", get(factory, url));
+            SystemUtils.setCurrentTimeOverride(103000);
+            assertEquals("hello 1", get(factory, url));
+            assertEquals(2L, pool.getEvictedCount());
+            assertEquals(3L, pool.getMissCount());
+            assertEquals(0L, pool.getHitCount());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testSendAsync() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory();
+        final AsyncResults results = new AsyncResults();
+        try {
+            int requestCount = 20;
+            for (int i = 0; i < requestCount; ++i) {
+                factory.createHttpRequest("http://localhost:" + server.getPort() + "/echo/" + i).sendAsync(
+                        new HttpResponseHandler() {
+                            @Override public void completed(HttpResponse response) {
+                                results.add(readBody(response));
+                            }
+
+                            @Override public void failed(RuntimeException exception) {
+                                results.add("failed");
+                            }
+                        });
+            }
+
+            assertTrue(results.waitFor(requestCount));
+            for (int i = 0; i < requestCount; ++i)
+                assertTrue(results.contains("/echo/" + i + " "));
+
+            // The responses were read, so their connections are all back in the pool for reuse; requests beyond the
+            // per host limit waited for a connection, rather than opening more
+            HttpConnectionPool pool = factory.getConnectionPool();
+            assertEquals(pool.getOpenConnectionCount(), pool.getIdleConnectionCount());
+            assertTrue(getServerConnectionCount() <= pool.getMaxConnectionsPerHost());
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testSendAsyncHandlerThrows() {
+        SocketListener server = startServer();
+        PooledHttpRequestFactory factory = new PooledHttpRequestFactory(new HttpConnectionPool(1, 60 * 1000));
+        final AsyncResults results = new AsyncResults();
+        try {
+            String url = "http://localhost:" + server.getPort() + "/hello";
+            factory.createHttpRequest(url).sendAsync(new HttpResponseHandler() {
+                @Override public void completed(HttpResponse response) {
+                    results.add("completed");
+                    throw new BasicException("Handler error");
+                }
+
+                @Override public void failed(RuntimeException exception) {
+                    results.add("failed");
+                }
+            });
+            assertTrue(results.waitFor(1));
+            assertTrue(results.contains("completed"));
+
+            // The dispatcher closed the response, so the pool's only connection was given back rather than lost
+            HttpRequest request = factory.createHttpRequest(url);
+            request.setTimeout(10 * 1000);
+            assertEquals("hello 1", readBody(request.send()));
+        } finally {
+            factory.getConnectionPool().closeIdleConnections();
+            server.stop();
+        }
+    }
+
+    @Test public void testSendAsyncFailure() {
+        // Get a port that nothing is listening on
+        SocketListener server = startServer();
+        int port = server.getPort();
+        server.stop();
+
+        final AsyncResults results = new AsyncResults();
+        new PooledHttpRequestFactory().createHttpRequest("http://localhost:" + port + "/hello").sendAsync(
+                new HttpResponseHandler() {
+                    @Override public void completed(HttpResponse response) {
+                        response.close();
+                        results.add("completed");
+                    }
+
+                    @Override public void failed(RuntimeException exception) {
+                        results.add("failed");
+                    }
+                });
+
+        assertTrue(results.waitFor(1));
+        assertTrue(results.contains("failed"));
+    }
+
+    private static class AsyncResults {
+        private final ArrayList<String> results = new ArrayList<String>();
+
+        synchronized void add(String result) {
+            results.add(result);
+        }
+
+        synchronized boolean contains(String result) {
+            return results.contains(result);
+        }
+
+        synchronized int size() {
+            return results.size();
+        }
+
+        /**
+         * Wait up to 10 seconds for count results, returning false if they didn't all arrive in that time.
+         */
+        boolean waitFor(int count) {
+            long timeout = SystemUtils.getCurrentTimeMillis() + 10 * 1000;
+            while (size() < count) {
+                if (SystemUtils.getCurrentTimeMillis() > timeout)
+                    return false;
+                SystemUtils.sleep(10);
+            }
+            return true;
+        }
+    }
+
+    private String get(PooledHttpRequestFactory factory, String url) {
+        HttpResponse response = factory.createHttpRequest(url).send();
+        assertEquals(200, response.getStatusCode());
+        return readBody(response);
+    }
+
+    private static String readBody(HttpResponse response) {
+        try {
+            return latin1String(response.getBodyStream().copyToByteArray());
+        } finally {
+            response.close();
+        }
+    }
+
+    private static String latin1String(ByteArrayRange bytes) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < bytes.getLength(); ++i)
+            s.append((char) (bytes.getBytes()[bytes.getPosition() + i] & 0xFF));
+        return s.toString();
+    }
+
+    private synchronized int getServerConnectionCount() {
+        return serverConnectionCount;
+    }
+
+    private synchronized void incrementServerConnectionCount() {
+        ++serverConnectionCount;
+    }
+
+    private synchronized int getSwallowedRequestCount() {
+        return swallowedRequestCount;
+    }
+
+    private synchronized void incrementSwallowedRequestCount() {
+        ++swallowedRequestCount;
+    }
+
+    private SocketListener startServer() {
+        SocketListener server = SocketListener.createTcpSocketListener(new SocketConnectionHandler() {
+            @Override public void sockedConnected(Socket socket) {
+                incrementServerConnectionCount();
+                try {
+                    serveRequests(socket);
+                } finally {
+                    socket.close();
+                }
+            }
+        }, 0);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Serve the requests on a connection, until the client closes it.  Each path gives a different kind of response:
+     * "/hello" returns a count of requests on the connection, "/echo" returns the path and request body, "/chunked"
+     * uses the chunked encoding, "/close" asks the client to close the connection, "/drop" closes it without telling
+     * the client, and "/swallow" closes it without responding at all.
+     */
+    private void serveRequests(Socket socket) {
+        InputStream inputStream = socket.getInputStream();
+        OutputStream outputStream = socket.getOutputStream();
+        int requestCount = 0;
+
+        while (true) {
+            @Nullable String requestLine = readLine(inputStream);
+            if (requestLine == null)
+                return;
+            ++requestCount;
+
+            int contentLength = 0;
+            while (true) {
+                @Nullable String header = readLine(inputStream);
+                if (header == null || header.length() == 0)
+                    break;
+                if (header.startsWith("Content-Length:"))
+                    contentLength = Integers.parseInt(header.substring("Content-Length:".length()).trim());
+            }
+
+            byte[] requestBody = new byte[contentLength];
+            inputStream.readFully(requestBody);
+
+            String target = requestLine.substring(requestLine.indexOf(' ') + 1, requestLine.lastIndexOf(' '));
+            if (target.equals("/swallow")) {
+                incrementSwallowedRequestCount();
+                return;
+            }
+
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            if (target.equals("/chunked")) {
+                response.writeLatin1EncodedString("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                        "5\r\nhello\r\n7;ext=1\r\n, world\r\n0\r\nTrailer: x\r\n\r\n");
+            } else if (target.equals("/close")) {
+                response.writeLatin1EncodedString("HTTP/1.1 200 OK\r\nConnection: close\r\n\r\nbye");
+            } else {
+                String body;
+                if (target.equals("/drop"))
+                    body = "dropped";
+                else if (target.startsWith("/echo"))
+                    body = target + " " + latin1String(new ByteArrayRange(requestBody));
+                else body = "hello " + requestCount;
+
+                response.writeLatin1EncodedString("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " +
+                        body.length() + "\r\n\r\n" + body);
+            }
+
+            outputStream.write(response.getByteArray());
+            outputStream.flush();
+
+            if (target.equals("/close") || target.equals("/drop"))
+                return;
+        }
+    }
+
+    private static @Nullable String readLine(InputStream inputStream) {
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            int b = inputStream.read();
+            if (b == -1)
+                return line.length() == 0 ? null : line.toString();
+            if (b == '\n')
+                return line.toString();
+            if (b != '\r')
+                line.append((char) b);
+        }
+    }
+}
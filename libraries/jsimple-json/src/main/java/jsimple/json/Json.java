@@ -27,6 +27,8 @@ package jsimple.json;
  * @since 5/24/13 12:37 AM
  */
 
+import jsimple.io.InputStream;
+import jsimple.io.OutputStream;
 import jsimple.io.Reader;
 import jsimple.io.Writer;
 import jsimple.json.objectmodel.JsonArray;
@@ -40,8 +42,12 @@ import jsimple.json.readerwriter.JsonObjectWriter;
 import jsimple.json.text.Serializer;
 import jsimple.json.text.Token;
 import jsimple.json.text.TokenType;
+import jsimple.util.ByteArrayRange;
 
 public final class Json {
+    // Streams are typically unbuffered, so use a bigger buffer when writing to them
+    static final int UTF8_BUFFER_SIZE = 4096;
+
     /**
      * Parse the specified JSON text, returning a JsonObject or JsonArray, depending on what the outermost container
      * type is in the JSON.  Per JSON spec, the root element in a JSON text is either an array or an object.
@@ -50,7 +56,71 @@ public final class Json {
      * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
      */
     public static JsonObjectOrArray parse(Reader reader) {
-        return new ObjectModelParser(reader).parseRoot();
+        return parseAndClose(new ObjectModelParser(reader));
+    }
+
+    /**
+     * Parse the specified UTF-8 JSON text, returning a JsonObject or JsonArray.  This tokenizes the bytes directly,
+     * which is faster than wrapping the stream in a Utf8InputStreamReader.
+     *
+     * @param inputStream UTF-8 JSON text
+     * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
+     */
+    public static JsonObjectOrArray parse(InputStream inputStream) {
+        return parseAndClose(new ObjectModelParser(new Token(inputStream)));
+    }
+
+    /**
+     * Parse the specified UTF-8 JSON text, returning a JsonObject or JsonArray.
+     *
+     * @param bytes UTF-8 JSON text
+     * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
+     */
+    public static JsonObjectOrArray parse(ByteArrayRange bytes) {
+        return new ObjectModelParser(new Token(bytes)).parseRoot();
+    }
+
+    /**
+     * Lazily parse the specified UTF-8 JSON text, returning a JsonObject or JsonArray.  Nested objects and arrays are
+     * only parsed when they're accessed, so this is much faster when just a few values are needed from a big document.
+     * The bytes are referenced, not copied, so they shouldn't be changed while the result is in use.   Syntax errors
+     * inside nested objects and arrays are only reported when they're accessed.  Like a fully parsed tree, a lazy tree
+     * can be read from multiple threads at once; each nested value is parsed just once.
+     *
+     * @param bytes UTF-8 JSON text
+     * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
+     */
+    public static JsonObjectOrArray parseLazy(ByteArrayRange bytes) {
+        return new ObjectModelParser(bytes, true).parseRoot();
+    }
+
+    /**
+     * Parse the specified CBOR data, returning a JsonObject or JsonArray.  CBOR maps become JsonObjects and CBOR arrays
+     * become JsonArrays, with the same value types as for the equivalent JSON text.
+     *
+     * @param inputStream CBOR data
+     * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
+     */
+    public static JsonObjectOrArray parseCbor(InputStream inputStream) {
+        return parseAndClose(new ObjectModelParser(Token.createCborToken(inputStream)));
+    }
+
+    /**
+     * Parse the specified CBOR data, returning a JsonObject or JsonArray.
+     *
+     * @param bytes CBOR data
+     * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
+     */
+    public static JsonObjectOrArray parseCbor(ByteArrayRange bytes) {
+        return new ObjectModelParser(Token.createCborToken(bytes)).parseRoot();
+    }
+
+    private static JsonObjectOrArray parseAndClose(ObjectModelParser parser) {
+        try {
+            return parser.parseRoot();
+        } finally {
+            parser.close();
+        }
     }
 
     /**
@@ -61,7 +131,7 @@ public final class Json {
      * @return JsonObject object tree
      */
     public static JsonObject parseObject(Reader reader) {
-        return (JsonObject) new ObjectModelParser(reader).parseRoot();
+        return (JsonObject) parseAndClose(new ObjectModelParser(reader));
     }
 
     /**
@@ -72,21 +142,69 @@ public final class Json {
      * @return JsonArray object tree
      */
     public static JsonArray parseArray(Reader reader) {
-        return (JsonArray) new ObjectModelParser(reader).parseRoot();
+        return (JsonArray) parseAndClose(new ObjectModelParser(reader));
     }
 
     /**
      * Return a JsonObjectReader or a JsonArrayReader for the specified JSON text, depending on what the outermost
-     * container type is in the JSON.  The caller can use instanceof to determine which it is.
+     * container type is in the JSON.  The caller can use instanceof to determine which it is.  Close the reader when
+     * done with it, to return its buffers to the BufferPool.
      *
      * @param reader JSON text
      * @return JsonObjectReader or JsonArrayReader
      */
     public static Object read(Reader reader) {
-        Token token = new Token(reader);
+        return read(new Token(reader));
+    }
+
+    /**
+     * Return a JsonObjectReader or a JsonArrayReader for the specified UTF-8 JSON text, depending on what the outermost
+     * container type is in the JSON.  The bytes are tokenized directly, with strings only decoded when their values
+     * are requested.
+     *
+     * @param inputStream UTF-8 JSON text
+     * @return JsonObjectReader or JsonArrayReader
+     */
+    public static Object read(InputStream inputStream) {
+        return read(new Token(inputStream));
+    }
+
+    /**
+     * Return a JsonObjectReader or a JsonArrayReader for the specified UTF-8 JSON text.
+     *
+     * @param bytes UTF-8 JSON text
+     * @return JsonObjectReader or JsonArrayReader
+     */
+    public static Object read(ByteArrayRange bytes) {
+        return read(new Token(bytes));
+    }
+
+    /**
+     * Return a JsonObjectReader or a JsonArrayReader for the specified CBOR data, depending on whether the outermost
+     * data item is a map or an array.  The readers, and the JsonObjectType schemas used with them, work just as they do
+     * for JSON text.
+     *
+     * @param inputStream CBOR data
+     * @return JsonObjectReader or JsonArrayReader
+     */
+    public static Object readCbor(InputStream inputStream) {
+        return read(Token.createCborToken(inputStream));
+    }
+
+    /**
+     * Return a JsonObjectReader or a JsonArrayReader for the specified CBOR data.
+     *
+     * @param bytes CBOR data
+     * @return JsonObjectReader or JsonArrayReader
+     */
+    public static Object readCbor(ByteArrayRange bytes) {
+        return read(Token.createCborToken(bytes));
+    }
+
+    private static Object read(Token token) {
         if (token.getType() == TokenType.LEFT_BRACKET)
-            return new JsonArrayReader(token);
-        else return new JsonObjectReader(token);
+            return new JsonArrayReader(token, true);
+        else return new JsonObjectReader(token, true);
     }
 
     /**
@@ -115,6 +233,26 @@ public final class Json {
         return (JsonArrayReader) read(reader);
     }
 
+    /**
+     * Assuming the UTF-8 JSON text is an object, return a JsonObjectReader for it.  See readObject(Reader).
+     *
+     * @param inputStream UTF-8 JSON text, which should be a JSON object
+     * @return object reader, to read through the object
+     */
+    public static JsonObjectReader readObject(InputStream inputStream) {
+        return (JsonObjectReader) read(inputStream);
+    }
+
+    /**
+     * Assuming the UTF-8 JSON text is an array, return a JsonArrayReader for it.  See readArray(Reader).
+     *
+     * @param inputStream UTF-8 JSON text, which should be a JSON array
+     * @return array reader, to read through the array
+     */
+    public static JsonArrayReader readArray(InputStream inputStream) {
+        return (JsonArrayReader) read(inputStream);
+    }
+
     /**
      * Serialize a JSON array, item by item.  When an array is large and the root of a JSON text, this method is more
      * memory efficient than creating a single JsonArray (including all items inside of it) in memory all at once and
@@ -137,6 +275,79 @@ public final class Json {
         return new JsonArrayWriter(new Serializer(writer), true);
     }
 
+    /**
+     * Serialize a JSON object, property by property, optionally in compact form, with no whitespace.
+     *
+     * @param writer  writer to write to
+     * @param compact true for compact output, false to pretty print
+     * @return JsonObjectWriter, to serialize each property
+     */
+    public static JsonObjectWriter writeObject(Writer writer, boolean compact) {
+        Serializer serializer = new Serializer(writer);
+        serializer.setCompact(compact);
+        return new JsonObjectWriter(serializer, true);
+    }
+
+    /**
+     * Serialize a JSON array, item by item, optionally in compact form, with no whitespace.
+     *
+     * @param writer  writer to write to
+     * @param compact true for compact output, false to pretty print
+     * @return JsonArrayWriter, to serialize each item
+     */
+    public static JsonArrayWriter writeArray(Writer writer, boolean compact) {
+        Serializer serializer = new Serializer(writer);
+        serializer.setCompact(compact);
+        return new JsonArrayWriter(serializer, true);
+    }
+
+    /**
+     * Serialize a JSON object, property by property, as UTF-8 written directly to the stream, optionally in compact
+     * form.  This is faster than wrapping the stream in a Utf8OutputStreamWriter.
+     *
+     * @param outputStream stream to write to
+     * @param compact      true for compact output, false to pretty print
+     * @return JsonObjectWriter, to serialize each property
+     */
+    public static JsonObjectWriter writeObject(OutputStream outputStream, boolean compact) {
+        Serializer serializer = new Serializer(outputStream, UTF8_BUFFER_SIZE);
+        serializer.setCompact(compact);
+        return new JsonObjectWriter(serializer, true);
+    }
+
+    /**
+     * Serialize a JSON array, item by item, as UTF-8 written directly to the stream, optionally in compact form.
+     *
+     * @param outputStream stream to write to
+     * @param compact      true for compact output, false to pretty print
+     * @return JsonArrayWriter, to serialize each item
+     */
+    public static JsonArrayWriter writeArray(OutputStream outputStream, boolean compact) {
+        Serializer serializer = new Serializer(outputStream, UTF8_BUFFER_SIZE);
+        serializer.setCompact(compact);
+        return new JsonArrayWriter(serializer, true);
+    }
+
+    /**
+     * Serialize an object, property by property, as CBOR written to the stream.
+     *
+     * @param outputStream stream to write to
+     * @return JsonObjectWriter, to serialize each property
+     */
+    public static JsonObjectWriter writeObjectCbor(OutputStream outputStream) {
+        return new JsonObjectWriter(Serializer.createCborSerializer(outputStream, UTF8_BUFFER_SIZE), true);
+    }
+
+    /**
+     * Serialize an array, item by item, as CBOR written to the stream.
+     *
+     * @param outputStream stream to write to
+     * @return JsonArrayWriter, to serialize each item
+     */
+    public static JsonArrayWriter writeArrayCbor(OutputStream outputStream) {
+        return new JsonArrayWriter(Serializer.createCborSerializer(outputStream, UTF8_BUFFER_SIZE), true);
+    }
+
     public static long toLong(Object value) {
         if (value instanceof Integer)
             return (long) (Integer) value;
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json;
+
+import jsimple.io.InputStream;
+import jsimple.io.OutputStream;
+import jsimple.io.Reader;
+import jsimple.io.Writer;
+import jsimple.json.objectmodel.JsonObjectOrArray;
+import jsimple.json.objectmodel.ObjectModelParser;
+import jsimple.json.text.Serializer;
+import jsimple.json.text.Token;
+import jsimple.util.ArrayList;
+import jsimple.util.ByteArrayRange;
+
+/**
+ * JsonPool keeps parsers, tokenizers, and serializers, with their buffers, for reuse.  Parsing or serializing through
+ * the pool, instead of through the Json static methods, avoids allocating a new tokenizer or serializer (and its
+ * buffers) per document, which adds up at high request rates.  After warming up, only the object model itself is
+ * allocated.
+ * <p/>
+ * The parse and write methods acquire and release what they need themselves.  For the streaming reader & writer API,
+ * acquire a Token or Serializer explicitly, then release it when done with the readers or writers using it.  Releasing
+ * something still in use, or using it after it's released, isn't detected and corrupts the output.
+ * <p/>
+ * A JsonPool can be shared between threads.  At most maxPooled of each kind of object are kept; beyond that, released
+ * objects are left for the garbage collector.  getCreatedCount reports how many objects the pool has had to create,
+ * which should level off once the pool is warm.
+ */
+public final class JsonPool {
+    private final int maxPooled;
+    private final ArrayList<ObjectModelParser> parsers = new ArrayList<ObjectModelParser>();
+    private final ArrayList<Token> tokens = new ArrayList<Token>();
+    private final ArrayList<Serializer> writerSerializers = new ArrayList<Serializer>();
+    private final ArrayList<Serializer> streamSerializers = new ArrayList<Serializer>();
+    private long createdCount = 0;
+
+    private static final int DEFAULT_MAX_POOLED = 16;
+    private static final byte[] emptyBytes = new byte[0];
+    private static final ByteArrayRange emptyByteArrayRange = new ByteArrayRange(emptyBytes, 0, 0);
+
+    public JsonPool() {
+        this(DEFAULT_MAX_POOLED);
+    }
+
+    /**
+     * Create a pool that keeps up to maxPooled of each kind of object.  That's normally the number of threads expected
+     * to use the pool at once.
+     *
+     * @param maxPooled maximum number of each kind of object to keep
+     */
+    public JsonPool(int maxPooled) {
+        if (maxPooled < 1)
+            throw new JsonException("JsonPool maxPooled is {}, but must be at least 1", maxPooled);
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Parse the specified JSON text, returning a JsonObject or JsonArray.  See Json.parse(Reader).
+     *
+     * @param reader JSON text
+     * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
+     */
+    public JsonObjectOrArray parse(Reader reader) {
+        ObjectModelParser parser = acquireParser();
+        try {
+            parser.reset(reader);
+            return parser.parseRoot();
+        } finally {
+            releaseParser(parser);
+        }
+    }
+
+    /**
+     * Parse the specified UTF-8 JSON text, returning a JsonObject or JsonArray.  See Json.parse(InputStream).
+     *
+     * @param inputStream UTF-8 JSON text
+     * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
+     */
+    public JsonObjectOrArray parse(InputStream inputStream) {
+        ObjectModelParser parser = acquireParser();
+        try {
+            parser.reset(inputStream);
+            return parser.parseRoot();
+        } finally {
+            releaseParser(parser);
+        }
+    }
+
+    /**
+     * Parse the specified UTF-8 JSON text, returning a JsonObject or JsonArray.  See Json.parse(ByteArrayRange).
+     *
+     * @param bytes UTF-8 JSON text
+     * @return JSON object tree, either a JsonObject or JsonArray object; use instanceof to distinguish
+     */
+    public JsonObjectOrArray parse(ByteArrayRange bytes) {
+        ObjectModelParser parser = acquireParser();
+        try {
+            parser.reset(bytes, false);
+            return parser.parseRoot();
+        } finally {
+            releaseParser(parser);
+        }
+    }
+
+    /**
+     * Write the JSON object or array, optionally in compact form.  See JsonObjectOrArray.write(Writer, boolean).
+     *
+     * @param value   object or array to write
+     * @param writer  writer to write to
+     * @param compact true for compact output, false to pretty print
+     */
+    public void write(JsonObjectOrArray value, Writer writer, boolean compact) {
+        Serializer serializer = acquireSerializer(writer);
+        try {
+            write(value, serializer, compact);
+        } finally {
+            releaseSerializer(serializer);
+        }
+    }
+
+    /**
+     * Write the JSON object or array as UTF-8, optionally in compact form.  See
+     * JsonObjectOrArray.write(OutputStream, boolean).
+     *
+     * @param value        object or array to write
+     * @param outputStream stream to write to
+     * @param compact      true for compact output, false to pretty print
+     */
+    public void write(JsonObjectOrArray value, OutputStream outputStream, boolean compact) {
+        Serializer serializer = acquireSerializer(outputStream);
+        try {
+            write(value, serializer, compact);
+        } finally {
+            releaseSerializer(serializer);
+        }
+    }
+
+    private static void write(JsonObjectOrArray value, Serializer serializer, boolean compact) {
+        serializer.setCompact(compact);
+        serializer.writeValue(value);
+        if (!compact)
+            serializer.write("\n");    // Terminate the last line
+        serializer.flush();
+    }
+
+    /**
+     * Get a tokenizer for the specified JSON text, to use with JsonObjectReader or JsonArrayReader.  Release it with
+     * releaseToken when done reading.
+     *
+     * @param reader JSON text
+     * @return tokenizer, positioned at the first token
+     */
+    public Token acquireToken(Reader reader) {
+        Token token = acquireToken();
+        token.reset(reader);
+        return token;
+    }
+
+    /**
+     * Get a tokenizer for the specified UTF-8 JSON text.  See acquireToken(Reader).
+     *
+     * @param inputStream UTF-8 JSON text
+     * @return tokenizer, positioned at the first token
+     */
+    public Token acquireToken(InputStream inputStream) {
+        Token token = acquireToken();
+        token.reset(inputStream);
+        return token;
+    }
+
+    /**
+     * Get a tokenizer for the specified UTF-8 JSON text.  See acquireToken(Reader).
+     *
+     * @param bytes UTF-8 JSON text
+     * @return tokenizer, positioned at the first token
+     */
+    public Token acquireToken(ByteArrayRange bytes) {
+        Token token = acquireToken();
+        token.reset(bytes);
+        return token;
+    }
+
+    private Token acquireToken() {
+        synchronized (this) {
+            int size = tokens.size();
+            if (size > 0)
+                return tokens.remove(size - 1);
+            ++createdCount;
+        }
+        return new Token(emptyBytes, 0, 0);
+    }
+
+    /**
+     * Return a tokenizer to the pool.  Its input is dropped, so the pool doesn't keep it alive.
+     *
+     * @param token tokenizer, from acquireToken
+     */
+    public void releaseToken(Token token) {
+        token.reset(emptyBytes, 0, 0);
+        synchronized (this) {
+            if (tokens.size() < maxPooled)
+                tokens.add(token);
+        }
+    }
+
+    /**
+     * Get a serializer writing to the specified writer, to use with JsonObjectWriter or JsonArrayWriter.  Release it
+     * with releaseSerializer when done writing, after flushing it.  The serializer pretty prints, unless set to compact.
+     *
+     * @param writer writer to write to
+     * @return serializer
+     */
+    public Serializer acquireSerializer(Writer writer) {
+        synchronized (this) {
+            int size = writerSerializers.size();
+            if (size > 0) {
+                Serializer serializer = writerSerializers.remove(size - 1);
+                serializer.reset(writer);
+                return serializer;
+            }
+            ++createdCount;
+        }
+        return new Serializer(writer);
+    }
+
+    /**
+     * Get a serializer writing UTF-8 to the specified stream.  See acquireSerializer(Writer).
+     *
+     * @param outputStream stream to write to
+     * @return serializer
+     */
+    public Serializer acquireSerializer(OutputStream outputStream) {
+        synchronized (this) {
+            int size = streamSerializers.size();
+            if (size > 0) {
+                Serializer serializer = streamSerializers.remove(size - 1);
+                serializer.reset(outputStream);
+                return serializer;
+            }
+            ++createdCount;
+        }
+        return new Serializer(outputStream, Json.UTF8_BUFFER_SIZE);
+    }
+
+    /**
+     * Return a serializer to the pool.  Anything not yet flushed is discarded.  CBOR serializers aren't pooled.
+     *
+     * @param serializer serializer, from acquireSerializer
+     */
+    public void releaseSerializer(Serializer serializer) {
+        if (serializer.isCbor())
+            return;
+
+        serializer.setCompact(false);
+        synchronized (this) {
+            ArrayList<Serializer> serializers = serializer.isUtf8Output() ? streamSerializers : writerSerializers;
+            if (serializers.size() < maxPooled)
+                serializers.add(serializer);
+        }
+    }
+
+    private ObjectModelParser acquireParser() {
+        synchronized (this) {
+            int size = parsers.size();
+            if (size > 0)
+                return parsers.remove(size - 1);
+            ++createdCount;
+        }
+        return new ObjectModelParser(new Token(emptyBytes, 0, 0));
+    }
+
+    private void releaseParser(ObjectModelParser parser) {
+        parser.reset(emptyByteArrayRange, false);
+        synchronized (this) {
+            if (parsers.size() < maxPooled)
+                parsers.add(parser);
+        }
+    }
+
+    /**
+     * Return the number of parsers, tokenizers, and serializers the pool has created, because none were available for
+     * reuse.  Once the pool is warm this should stop growing, meaning documents are processed without allocating any.
+     *
+     * @return number of objects created
+     */
+    public long getCreatedCount() {
+        synchronized (this) {
+            return createdCount;
+        }
+    }
+}
@@ -47,7 +47,10 @@ public final class JsonArray extends JsonObjectOrArray {
      * @return value at specified index
      */
     public Object get(int index) {
-        return values.get(index);
+        Object value = values.get(index);
+        if (value instanceof LazyJsonValue)
+            return ((LazyJsonValue) value).getValue();
+        return value;
     }
 
     public boolean getBoolean(int index) {
@@ -25,12 +25,14 @@ package jsimple.json.objectmodel;
 import jsimple.json.Json;
 import jsimple.json.JsonException;
 import jsimple.util.ArrayList;
+import jsimple.util.OpenHashMap;
 import org.jetbrains.annotations.Nullable;
 
 /**
  * A JsonObject represents an ordered list of name/value pairs.  Note that unlike a HashMap, the list is ordered, so
- * that the order in the serialized text can be controlled.  For now, queries just do a linear search, but we might
- * create a HashMap later, say if there are > 5 items in the object, for performance.  There's currently no prohibition
+ * that the order in the serialized text can be controlled.  Queries on small objects just do a linear search; once an
+ * object has more than INDEX_THRESHOLD items, the first query builds a hash index from name to position, which is
+ * then kept up to date as items are added, so lookups stay constant time.  There's currently no prohibition
  * against a name being duplicated in the object; if that happens the value of the first occurrence is returned
  * currently but future implementations may change that.
  *
@@ -40,6 +42,11 @@ import org.jetbrains.annotations.Nullable;
 public final class JsonObject extends JsonObjectOrArray {
     private ArrayList<String> names = new ArrayList<String>();
     private ArrayList<Object> values = new ArrayList<Object>();
+    // Built lazily, for big objects.  It's volatile so that concurrent readers, which may each build it, only ever see
+    // a complete index
+    private volatile @Nullable OpenHashMap<String, Integer> nameIndex = null;
+
+    private static final int INDEX_THRESHOLD = 8;
 
     /**
      * Get number of name/value pairs in the object.
@@ -67,7 +74,10 @@ public final class JsonObject extends JsonObjectOrArray {
      * @return value at that index
      */
     public Object getValue(int index) {
-        return values.get(index);
+        Object value = values.get(index);
+        if (value instanceof LazyJsonValue)
+            return ((LazyJsonValue) value).getValue();
+        return value;
     }
 
     /**
@@ -79,12 +89,9 @@ public final class JsonObject extends JsonObjectOrArray {
      * @return value of key
      */
     public Object get(String name) {
-        int length = names.size();
-
-        for (int i = 0; i < length; ++i) {
-            if (names.get(i).equals(name))
-                return values.get(i);
-        }
+        int index = indexOf(name);
+        if (index != -1)
+            return getValue(index);
 
         throw new JsonException("JSON object is expected to have a value for {} but doesn't", name);
     }
@@ -98,14 +105,43 @@ public final class JsonObject extends JsonObjectOrArray {
      * @return value of key
      */
     public @Nullable Object getOrNull(String name) {
+        int index = indexOf(name);
+        if (index != -1)
+            return getValue(index);
+
+        return null;
+    }
+
+    /**
+     * Return the index of the first occurrence of the specified name, or -1 if it isn't present.
+     *
+     * @param name key name
+     * @return index of name, or -1 if not found
+     */
+    public int indexOf(String name) {
         int length = names.size();
 
-        for (int i = 0; i < length; ++i) {
-            if (names.get(i).equals(name))
-                return values.get(i);
+        if (length <= INDEX_THRESHOLD) {
+            for (int i = 0; i < length; ++i) {
+                if (names.get(i).equals(name))
+                    return i;
+            }
+            return -1;
         }
 
-        return null;
+        OpenHashMap<String, Integer> nameIndex = this.nameIndex;
+        if (nameIndex == null) {
+            nameIndex = new OpenHashMap<String, Integer>(length * 2);
+            for (int i = 0; i < length; ++i) {
+                String currName = names.get(i);
+                if (!nameIndex.containsKey(currName))
+                    nameIndex.put(currName, i);
+            }
+            this.nameIndex = nameIndex;
+        }
+
+        @Nullable Integer index = nameIndex.get(name);
+        return index == null ? -1 : (int) index;
     }
 
     public boolean getBoolean(String name) {
@@ -188,13 +224,14 @@ public final class JsonObject extends JsonObjectOrArray {
      * @return true iff the object contains the key (even if its value is null)
      */
     public boolean containsKey(String keyName) {
-        for (String name : names)
-            if (name.equals(keyName))
-                return true;
-        return false;
+        return indexOf(keyName) != -1;
     }
 
     public JsonObject add(String name, Object value) {
+        @Nullable OpenHashMap<String, Integer> nameIndex = this.nameIndex;
+        if (nameIndex != null && !nameIndex.containsKey(name))
+            nameIndex.put(name, names.size());
+
         names.add(name);
         values.add(value);
         return this;
@@ -202,15 +239,13 @@ public final class JsonObject extends JsonObjectOrArray {
 
     public JsonObject addChildObject(String name) {
         JsonObject childObject = new JsonObject();
-        names.add(name);
-        values.add(childObject);
+        add(name, childObject);
         return childObject;
     }
 
     public JsonArray addChildArray(String name) {
         JsonArray childArray = new JsonArray();
-        names.add(name);
-        values.add(childArray);
+        add(name, childArray);
         return childArray;
     }
 }
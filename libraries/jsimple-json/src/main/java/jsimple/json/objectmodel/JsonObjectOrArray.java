@@ -23,8 +23,8 @@
 package jsimple.json.objectmodel;
 
 import jsimple.io.ByteArrayOutputStream;
+import jsimple.io.OutputStream;
 import jsimple.io.StringWriter;
-import jsimple.io.Utf8OutputStreamWriter;
 import jsimple.io.Writer;
 import jsimple.json.text.Serializer;
 import jsimple.util.ByteArrayRange;
@@ -37,11 +37,53 @@ import jsimple.util.ByteArrayRange;
  * @since 7/8/12 1:56 PM
  */
 abstract public class JsonObjectOrArray {
+    private static final int UTF8_BUFFER_SIZE = 4096;
+
     public void write(Writer writer) {
+        write(new Serializer(writer));
+    }
+
+    /**
+     * Write the JSON, optionally in compact form, with no whitespace.  Pretty printed output ends with a newline,
+     * while compact output doesn't.
+     *
+     * @param writer  writer to write to
+     * @param compact true for compact output, false to pretty print
+     */
+    public void write(Writer writer, boolean compact) {
         Serializer serializer = new Serializer(writer);
+        serializer.setCompact(compact);
+        write(serializer);
+    }
+
+    /**
+     * Write the JSON as UTF-8 directly to the stream, optionally in compact form.
+     *
+     * @param outputStream stream to write to
+     * @param compact      true for compact output, false to pretty print
+     */
+    public void write(OutputStream outputStream, boolean compact) {
+        Serializer serializer = new Serializer(outputStream, UTF8_BUFFER_SIZE);
+        serializer.setCompact(compact);
+        write(serializer);
+    }
+
+    /**
+     * Write the object or array as CBOR, the binary equivalent of the JSON.  The stream isn't closed here.
+     *
+     * @param outputStream stream to write to
+     */
+    public void writeCbor(OutputStream outputStream) {
+        Serializer serializer = Serializer.createCborSerializer(outputStream, UTF8_BUFFER_SIZE);
         serializer.writeValue(this);
-        serializer.write("\n");    // Terminate the last line
-        serializer.flush();
+        serializer.close();
+    }
+
+    private void write(Serializer serializer) {
+        serializer.writeValue(this);
+        if (!serializer.isCompact())
+            serializer.write("\n");    // Terminate the last line
+        serializer.close();
     }
 
     @Override public String toString() {
@@ -53,13 +95,18 @@ abstract public class JsonObjectOrArray {
     public ByteArrayRange toUtf8Bytes() {
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         try {
-            Utf8OutputStreamWriter writer = new Utf8OutputStreamWriter(byteArrayOutputStream);
-            try {
-                write(writer);
-                return byteArrayOutputStream.closeAndGetByteArray();
-            } finally {
-                writer.close();
-            }
+            write(byteArrayOutputStream, false);
+            return byteArrayOutputStream.closeAndGetByteArray();
+        } finally {
+            byteArrayOutputStream.close();
+        }
+    }
+
+    public ByteArrayRange toCborBytes() {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try {
+            writeCbor(byteArrayOutputStream);
+            return byteArrayOutputStream.closeAndGetByteArray();
         } finally {
             byteArrayOutputStream.close();
         }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json.objectmodel;
+
+import jsimple.json.text.TokenType;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A nested object or array that may not have been parsed yet, as created by lazy parsing.  It records where the value
+ * starts in the JSON text, and parses it when it's first accessed, keeping the result.  The JsonObject or JsonArray
+ * containing it keeps the LazyJsonValue, rather than replacing it with the parsed value, so that a lazy tree can be read
+ * from multiple threads at once, same as a fully parsed one:  the parse is done once, under a lock, and the result is
+ * published via a volatile field.  It's never returned to callers.
+ */
+final class LazyJsonValue {
+    private final byte[] bytes;
+    private final int start;
+    private final int end;
+    private volatile @Nullable JsonObjectOrArray value = null;
+
+    LazyJsonValue(byte[] bytes, int start, int end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Get the value, returning a JsonObject or JsonArray.  The first call parses it, itself lazily; later calls return
+     * the same object.
+     *
+     * @return parsed value
+     */
+    JsonObjectOrArray getValue() {
+        @Nullable JsonObjectOrArray value = this.value;
+        if (value == null) {
+            synchronized (this) {
+                value = this.value;
+                if (value == null) {
+                    value = parse();
+                    this.value = value;
+                }
+            }
+        }
+        return value;
+    }
+
+    private JsonObjectOrArray parse() {
+        ObjectModelParser parser = new ObjectModelParser(bytes, start, end, true);
+        if (parser.getTokenType() == TokenType.LEFT_BRACE)
+            return parser.parseObject();
+        else return parser.parseArray();
+    }
+}
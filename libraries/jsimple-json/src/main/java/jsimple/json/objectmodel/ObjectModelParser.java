@@ -22,17 +22,30 @@
 
 package jsimple.json.objectmodel;
 
+import jsimple.io.InputStream;
 import jsimple.io.Reader;
 import jsimple.json.text.JsonParsingException;
 import jsimple.json.text.Token;
 import jsimple.json.text.TokenType;
+import jsimple.util.ByteArrayRange;
+import org.jetbrains.annotations.Nullable;
 
 /**
+ * ObjectModelParser parses JSON text into a tree of JsonObject and JsonArray objects.
+ * <p/>
+ * For JSON in a byte array, the parser can also be lazy.  Then nested objects and arrays aren't parsed up front;
+ * they're skipped over with a quick bracket matching scan, just recording where they start.  Each is parsed (lazily
+ * again, one level at a time) when first accessed through its parent.  That makes reading a few values from a big
+ * document much cheaper.  Note that syntax errors inside nested objects and arrays are only reported when they're
+ * accessed.
+ *
  * @author Bret Johnson
  * @since 5/6/12 12:17 AM
  */
 public final class ObjectModelParser {
-    private Token token;
+    private final Token token;
+    private @Nullable byte[] lazyBytes = null;    // JSON text, for lazy parsing; null if not lazy
+    private int lazyEnd = 0;
 
     /**
      * Parse the specified JSON text.  getResult() can then be used to get the resulting JSON result tree.
@@ -43,6 +56,77 @@ public final class ObjectModelParser {
         this.token = new Token(reader);
     }
 
+    /**
+     * Parse the JSON text returned by the specified tokenizer, which may be reading either characters or UTF-8 bytes.
+     *
+     * @param token tokenizer, positioned at the first token
+     */
+    public ObjectModelParser(Token token) {
+        this.token = token;
+    }
+
+    /**
+     * Parse the specified UTF-8 JSON text, lazily if requested.  For lazy parsing, the bytes are referenced, not
+     * copied, so they shouldn't be changed while the resulting object tree is in use.  A lazy tree is safe to read from
+     * multiple threads at once, same as a fully parsed one.
+     *
+     * @param bytes UTF-8 JSON text
+     * @param lazy  true to parse nested objects and arrays only when they're accessed
+     */
+    public ObjectModelParser(ByteArrayRange bytes, boolean lazy) {
+        this(bytes.getBytes(), bytes.getPosition(), bytes.getPosition() + bytes.getLength(), lazy);
+    }
+
+    ObjectModelParser(byte[] bytes, int start, int end, boolean lazy) {
+        this.token = new Token(bytes, start, end);
+        if (lazy) {
+            lazyBytes = bytes;
+            lazyEnd = end;
+        }
+    }
+
+    /**
+     * Return the tokenizer's buffers to the BufferPool, once parsing is done.  See Token.close().
+     */
+    public void close() {
+        token.close();
+    }
+
+    /**
+     * Reset the parser, and its tokenizer, to parse the specified JSON text, reusing the tokenizer's buffers.
+     *
+     * @param reader JSON text to parse
+     */
+    public void reset(Reader reader) {
+        token.reset(reader);
+        lazyBytes = null;
+    }
+
+    /**
+     * Reset the parser to parse the specified UTF-8 JSON text.  See reset(Reader).
+     *
+     * @param inputStream UTF-8 JSON text
+     */
+    public void reset(InputStream inputStream) {
+        token.reset(inputStream);
+        lazyBytes = null;
+    }
+
+    /**
+     * Reset the parser to parse the specified UTF-8 JSON text, lazily if requested.  See reset(Reader) and
+     * ObjectModelParser(ByteArrayRange, boolean).
+     *
+     * @param bytes UTF-8 JSON text
+     * @param lazy  true to parse nested objects and arrays only when they're accessed
+     */
+    public void reset(ByteArrayRange bytes, boolean lazy) {
+        token.reset(bytes);
+        if (lazy) {
+            lazyBytes = bytes.getBytes();
+            lazyEnd = bytes.getPosition() + bytes.getLength();
+        } else lazyBytes = null;
+    }
+
     public JsonObjectOrArray parseRoot() {
         TokenType lookahead = token.getType();
 
@@ -58,7 +142,7 @@ public final class ObjectModelParser {
         return result;
     }
 
-    private JsonObject parseObject() {
+    JsonObject parseObject() {
         JsonObject jsonObject = new JsonObject();
 
         token.checkAndAdvance(TokenType.LEFT_BRACE);
@@ -70,7 +154,7 @@ public final class ObjectModelParser {
         }
 
         while (true) {
-            Object nameObject = token.getPrimitiveValue();
+            Object nameObject = token.getType() == TokenType.PRIMITIVE ? token.getPrimitiveValue() : null;
 
             if (!(nameObject instanceof String))
                 throw new JsonParsingException("string for object key", token);
@@ -99,9 +183,13 @@ public final class ObjectModelParser {
         Object value;
 
         TokenType lookahead = token.getType();
-        if (lookahead == TokenType.PRIMITIVE) {
+        if (token.isPrimitive()) {
             value = token.getPrimitiveValue();
             advance();
+        } else if (lazyBytes != null && (lookahead == TokenType.LEFT_BRACE || lookahead == TokenType.LEFT_BRACKET)) {
+            int start = token.getPosition() - 1;    // Back up to the '{' or '['
+            token.skipValue();
+            value = new LazyJsonValue(lazyBytes, start, lazyEnd);
         } else if (lookahead == TokenType.LEFT_BRACE)
             value = parseObject();
         else if (lookahead == TokenType.LEFT_BRACKET)
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json.path;
+
+import jsimple.io.InputStream;
+import jsimple.io.Reader;
+import jsimple.json.JsonException;
+import jsimple.json.objectmodel.JsonArray;
+import jsimple.json.objectmodel.JsonObject;
+import jsimple.json.objectmodel.ObjectModelParser;
+import jsimple.json.readerwriter.JsonProperty;
+import jsimple.json.text.JsonParsingException;
+import jsimple.json.text.Token;
+import jsimple.json.text.TokenType;
+import jsimple.util.ByteArrayRange;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * JsonProjection extracts the values at a set of paths from a JSON document, in a single streaming pass, without
+ * building an object tree for the whole document.  Subtrees that can't match any path are skipped with a quick
+ * bracket matching scan, allocating nothing; property names are matched straight from the tokenizer buffer.  Only the
+ * matched values themselves are materialized.
+ * <p/>
+ * Paths are made of property names separated by dots, with [n] selecting an array element by index and [*] selecting
+ * every element.  * selects every property of an object.  For instance "data[*].picture.data.url" gets the picture
+ * URL of every item in the "data" array, and "[0].id" gets the id of the first item in a root array.  The empty path
+ * matches the whole document.
+ * <p/>
+ * Compile the paths once, with addPath, then call project for each document.  A JsonProjection can be used from
+ * multiple threads once all paths are added.
+ */
+public class JsonProjection {
+    private final ProjectionNode root = new ProjectionNode();
+    private int pathCount = 0;
+
+    /**
+     * Add a path to extract, returning its id.  Ids are assigned sequentially, starting at 0.
+     *
+     * @param path path, for instance "data[*].picture.data.url"
+     * @return path id, passed to the listener for values matching the path
+     */
+    public int addPath(String path) {
+        ProjectionNode node = root;
+
+        int length = path.length();
+        int i = 0;
+        while (i < length) {
+            char c = path.charAt(i);
+
+            if (c == '[') {
+                int close = path.indexOf(']', i + 1);
+                if (close == -1)
+                    throw new JsonException("Invalid JSON path '{}': '[' at position {} isn't closed", path, i);
+
+                String index = path.substring(i + 1, close);
+                if (index.equals("*"))
+                    node = node.getOrAddAnyIndexChild();
+                else node = node.getOrAddIndexChild(parseIndex(path, index));
+
+                i = close + 1;
+            } else {
+                if (c == '.') {
+                    if (i == 0)
+                        throw new JsonException("Invalid JSON path '{}': it can't start with '.'", path);
+                    ++i;
+                }
+
+                int nameStart = i;
+                while (i < length && path.charAt(i) != '.' && path.charAt(i) != '[')
+                    ++i;
+                if (i == nameStart)
+                    throw new JsonException("Invalid JSON path '{}': property name expected at position {}", path, i);
+
+                String name = path.substring(nameStart, i);
+                if (name.equals("*"))
+                    node = node.getOrAddAnyPropertyChild();
+                else node = node.getOrAddNamedChild(name);
+            }
+        }
+
+        int pathId = pathCount++;
+        node.pathIds.add(pathId);
+        return pathId;
+    }
+
+    private static int parseIndex(String path, String index) {
+        int length = index.length();
+        if (length == 0 || length > 9)
+            throw new JsonException("Invalid JSON path '{}': invalid array index '{}'", path, index);
+
+        int value = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = index.charAt(i);
+            if (c < '0' || c > '9')
+                throw new JsonException("Invalid JSON path '{}': invalid array index '{}'", path, index);
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Get the number of paths added.
+     *
+     * @return number of paths
+     */
+    public int getPathCount() {
+        return pathCount;
+    }
+
+    public void project(Reader reader, JsonProjectionListener listener) {
+        projectAndClose(new Token(reader), listener);
+    }
+
+    public void project(InputStream inputStream, JsonProjectionListener listener) {
+        projectAndClose(new Token(inputStream), listener);
+    }
+
+    public void project(ByteArrayRange bytes, JsonProjectionListener listener) {
+        projectAndClose(new Token(bytes), listener);
+    }
+
+    private void projectAndClose(Token token, JsonProjectionListener listener) {
+        try {
+            project(token, listener);
+        } finally {
+            token.close();
+        }
+    }
+
+    /**
+     * Read a JSON value from the tokenizer, passing values matching the paths to the listener as they're found.
+     *
+     * The tokenizer is left open, for the caller to read anything that follows; the other project methods close the
+     * tokenizer they create, but not their input.
+     *
+     * @param token    tokenizer, positioned at the start of the value
+     * @param listener listener for matched values
+     */
+    public void project(Token token, JsonProjectionListener listener) {
+        projectValue(root, token, listener);
+    }
+
+    private void projectValue(ProjectionNode node, Token token, JsonProjectionListener listener) {
+        if (node.isTerminal()) {
+            Object value = new ObjectModelParser(token).parseValue();
+            matchValue(node, value, listener);
+            return;
+        }
+
+        TokenType type = token.getType();
+        if (type == TokenType.LEFT_BRACE && node.hasPropertyChildren())
+            projectObject(node, token, listener);
+        else if (type == TokenType.LEFT_BRACKET && node.hasIndexChildren())
+            projectArray(node, token, listener);
+        else token.skipValue();
+    }
+
+    private void projectObject(ProjectionNode node, Token token, JsonProjectionListener listener) {
+        token.checkAndAdvance(TokenType.LEFT_BRACE);
+
+        // Handle the empty object case here (which makes the code below simpler)
+        if (token.getType() == TokenType.RIGHT_BRACE) {
+            token.advance();
+            return;
+        }
+
+        @Nullable ProjectionNode anyPropertyChild = node.anyPropertyChild;
+        while (true) {
+            if (!token.isString())
+                throw new JsonParsingException("string for object key", token);
+
+            @Nullable JsonProperty property = token.getStringAsProperty(node.propertyNames);
+            @Nullable ProjectionNode namedChild = property == null ? null : node.getNamedChild(property);
+            token.advance();
+            token.checkAndAdvance(TokenType.COLON);
+
+            projectChild(namedChild, anyPropertyChild, token, listener);
+
+            if (token.getType() == TokenType.RIGHT_BRACE) {
+                token.advance();
+                break;
+            } else if (token.getType() == TokenType.COMMA)
+                token.advance();
+            else throw new JsonParsingException(", or }", token);
+        }
+    }
+
+    private void projectArray(ProjectionNode node, Token token, JsonProjectionListener listener) {
+        token.checkAndAdvance(TokenType.LEFT_BRACKET);
+
+        // Handle the empty array case here (which makes the code below simpler)
+        if (token.getType() == TokenType.RIGHT_BRACKET) {
+            token.advance();
+            return;
+        }
+
+        @Nullable ProjectionNode anyIndexChild = node.anyIndexChild;
+        boolean hasIndexChildren = node.indexChildren.size() > 0;
+        int index = 0;
+        while (true) {
+            @Nullable ProjectionNode indexChild = hasIndexChildren ? node.indexChildren.get(index) : null;
+            projectChild(indexChild, anyIndexChild, token, listener);
+            ++index;
+
+            if (token.getType() == TokenType.RIGHT_BRACKET) {
+                token.advance();
+                break;
+            } else if (token.getType() == TokenType.COMMA)
+                token.advance();
+            else throw new JsonParsingException(", or ]", token);
+        }
+    }
+
+    /**
+     * Project a property value or array element, which can match a specific child node, a wildcard child node, both,
+     * or neither.
+     */
+    private void projectChild(@Nullable ProjectionNode child, @Nullable ProjectionNode wildcardChild, Token token,
+                              JsonProjectionListener listener) {
+        if (child != null && wildcardChild != null) {
+            // The value can only be streamed once, so materialize it to match both
+            Object value = new ObjectModelParser(token).parseValue();
+            matchValue(child, value, listener);
+            matchValue(wildcardChild, value, listener);
+        } else if (child != null)
+            projectValue(child, token, listener);
+        else if (wildcardChild != null)
+            projectValue(wildcardChild, token, listener);
+        else token.skipValue();
+    }
+
+    /**
+     * Match an already materialized value against the node and its descendants.
+     */
+    private void matchValue(ProjectionNode node, Object value, JsonProjectionListener listener) {
+        int pathIdsSize = node.pathIds.size();
+        for (int i = 0; i < pathIdsSize; ++i)
+            listener.onMatch(node.pathIds.get(i), value);
+
+        if (value instanceof JsonObject && node.hasPropertyChildren()) {
+            JsonObject jsonObject = (JsonObject) value;
+            int size = jsonObject.size();
+            for (int i = 0; i < size; ++i) {
+                @Nullable ProjectionNode namedChild = node.getNamedChild(jsonObject.getName(i));
+                if (namedChild != null)
+                    matchValue(namedChild, jsonObject.getValue(i), listener);
+                if (node.anyPropertyChild != null)
+                    matchValue(node.anyPropertyChild, jsonObject.getValue(i), listener);
+            }
+        } else if (value instanceof JsonArray && node.hasIndexChildren()) {
+            JsonArray jsonArray = (JsonArray) value;
+            int size = jsonArray.size();
+            for (int i = 0; i < size; ++i) {
+                @Nullable ProjectionNode indexChild = node.indexChildren.get(i);
+                if (indexChild != null)
+                    matchValue(indexChild, jsonArray.get(i), listener);
+                if (node.anyIndexChild != null)
+                    matchValue(node.anyIndexChild, jsonArray.get(i), listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json.path;
+
+import jsimple.util.ArrayList;
+import jsimple.util.List;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A JsonProjectionListener that just collects the matched values for each path, for when a callback isn't needed.
+ */
+public class JsonProjectionResult implements JsonProjectionListener {
+    private final ArrayList<ArrayList<Object>> values;
+
+    public JsonProjectionResult(JsonProjection projection) {
+        int pathCount = projection.getPathCount();
+        values = new ArrayList<ArrayList<Object>>(pathCount);
+        for (int i = 0; i < pathCount; ++i)
+            values.add(new ArrayList<Object>());
+    }
+
+    @Override public void onMatch(int pathId, Object value) {
+        values.get(pathId).add(value);
+    }
+
+    /**
+     * Get all values matching the path, in document order.
+     *
+     * @param pathId path id
+     * @return matching values; the list is empty if there are none
+     */
+    public List<Object> getValues(int pathId) {
+        return values.get(pathId);
+    }
+
+    /**
+     * Get the first value matching the path, or null if there's none.
+     *
+     * @param pathId path id
+     * @return first matching value, or null
+     */
+    public @Nullable Object getFirstValue(int pathId) {
+        ArrayList<Object> pathValues = values.get(pathId);
+        return pathValues.isEmpty() ? null : pathValues.get(0);
+    }
+
+    /**
+     * Clear the collected values, so this result can be reused for another document.
+     */
+    public void clear() {
+        int size = values.size();
+        for (int i = 0; i < size; ++i)
+            values.get(i).clear();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json.path;
+
+import jsimple.json.readerwriter.JsonObjectType;
+import jsimple.json.readerwriter.JsonProperty;
+import jsimple.util.ArrayList;
+import jsimple.util.IntArrayList;
+import jsimple.util.IntObjectHashMap;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A node in the trie of compiled paths for a JsonProjection.  Each node corresponds to a path prefix; its children
+ * are the possible next steps, a property name, any property, an array index, or any array element.
+ */
+final class ProjectionNode {
+    // Named children; the id of each property in propertyNames is the index of its node in namedChildren
+    final JsonObjectType propertyNames = new JsonObjectType();
+    final ArrayList<ProjectionNode> namedChildren = new ArrayList<ProjectionNode>();
+    @Nullable ProjectionNode anyPropertyChild = null;
+
+    final IntObjectHashMap<ProjectionNode> indexChildren = new IntObjectHashMap<ProjectionNode>();
+    @Nullable ProjectionNode anyIndexChild = null;
+
+    // Ids of the paths that end at this node
+    final IntArrayList pathIds = new IntArrayList();
+
+    ProjectionNode getOrAddNamedChild(String name) {
+        @Nullable JsonProperty property = propertyNames.getProperty(name);
+        if (property != null)
+            return namedChildren.get(property.getId());
+
+        ProjectionNode child = new ProjectionNode();
+        propertyNames.createProperty(name, namedChildren.size());
+        namedChildren.add(child);
+        return child;
+    }
+
+    ProjectionNode getOrAddAnyPropertyChild() {
+        ProjectionNode child = anyPropertyChild;
+        if (child == null) {
+            child = new ProjectionNode();
+            anyPropertyChild = child;
+        }
+        return child;
+    }
+
+    ProjectionNode getOrAddIndexChild(int index) {
+        @Nullable ProjectionNode child = indexChildren.get(index);
+        if (child == null) {
+            child = new ProjectionNode();
+            indexChildren.put(index, child);
+        }
+        return child;
+    }
+
+    ProjectionNode getOrAddAnyIndexChild() {
+        ProjectionNode child = anyIndexChild;
+        if (child == null) {
+            child = new ProjectionNode();
+            anyIndexChild = child;
+        }
+        return child;
+    }
+
+    @Nullable ProjectionNode getNamedChild(JsonProperty property) {
+        return namedChildren.get(property.getId());
+    }
+
+    @Nullable ProjectionNode getNamedChild(String name) {
+        @Nullable JsonProperty property = propertyNames.getProperty(name);
+        return property == null ? null : namedChildren.get(property.getId());
+    }
+
+    boolean isTerminal() {
+        return pathIds.size() > 0;
+    }
+
+    boolean hasPropertyChildren() {
+        return namedChildren.size() > 0 || anyPropertyChild != null;
+    }
+
+    boolean hasIndexChildren() {
+        return indexChildren.size() > 0 || anyIndexChild != null;
+    }
+}
@@ -35,13 +35,26 @@ import jsimple.json.text.TokenType;
  * @author Bret Johnson
  * @since 7/28/12 11:09 PM
  */
-public class JsonArrayReader {
+public class JsonArrayReader extends jsimple.lang.AutoCloseable {
     protected Token token;
+    private final boolean ownsToken;
     private boolean beginningPosition = true;
     private boolean endPosition = false;
 
     public JsonArrayReader(Token token) {
+        this(token, false);
+    }
+
+    /**
+     * Create a reader for the array at the tokenizer's current position.
+     *
+     * @param token     tokenizer, positioned at the array's [
+     * @param ownsToken true if the reader has the tokenizer to itself, as for the readers returned by Json.read, so
+     *                  closing the reader should close the tokenizer too
+     */
+    public JsonArrayReader(Token token, boolean ownsToken) {
         this.token = token;
+        this.ownsToken = ownsToken;
         token.checkAndAdvance(TokenType.LEFT_BRACKET);
     }
 
@@ -80,16 +93,27 @@ public class JsonArrayReader {
     }
 
     public int readInt() {
-        return (Integer) readPrimitive();
+        readElementPrefix();
+
+        int value = token.getIntValue();
+        token.advance();
+        return value;
     }
 
-    // TODO: Automatically convert int to long
     public long readLong() {
-        return (Long) readPrimitive();
+        readElementPrefix();
+
+        long value = token.getLongValue();
+        token.advance();
+        return value;
     }
 
     public double readDouble() {
-        return (Double) readPrimitive();
+        readElementPrefix();
+
+        double value = token.getDoubleValue();
+        token.advance();
+        return value;
     }
 
     public JsonObjectReader readObject() {
@@ -109,4 +133,13 @@ public class JsonArrayReader {
 
         return new JsonArrayReader(token);
     }
+
+    /**
+     * If the reader owns its tokenizer, close the tokenizer, returning its buffers to the BufferPool; readers for
+     * nested values share their parent's tokenizer, so closing them does nothing.  The input itself isn't closed.
+     */
+    @Override public void close() {
+        if (ownsToken)
+            token.close();
+    }
 }
@@ -47,6 +47,14 @@ public class JsonArrayWriter extends jsimple.lang.AutoCloseable {
         this.serializer = serializer;
     }
 
+    /**
+     * Create a writer using the specified serializer.  If flushWhenDone is true, the writer owns the serializer:  when
+     * the writer is closed, the serializer is flushed and closed, returning its buffer to the BufferPool, so it can only
+     * be used again after it's reset.
+     *
+     * @param serializer    serializer to write to
+     * @param flushWhenDone true to flush and close the serializer when this writer is closed
+     */
     public JsonArrayWriter(Serializer serializer, boolean flushWhenDone) {
         this.serializer = serializer;
         this.flushWhenDone = flushWhenDone;
@@ -82,7 +90,17 @@ public class JsonArrayWriter extends jsimple.lang.AutoCloseable {
     }
 
     private void writeElementPrefix() {
-        if (singleLine) {
+        if (serializer.isCbor()) {
+            if (!outputSomething) {
+                serializer.writeCborIndefiniteLengthStart(false);
+                outputSomething = true;
+            }
+        } else if (serializer.isCompact()) {
+            if (!outputSomething) {
+                serializer.write("[");
+                outputSomething = true;
+            } else serializer.write(",");
+        } else if (singleLine) {
             if (!outputSomething) {
                 serializer.write("[");
                 outputSomething = true;
@@ -104,10 +122,14 @@ public class JsonArrayWriter extends jsimple.lang.AutoCloseable {
      * @return string containing JSON text for entire serialized array
      */
     @Override public void close() {
-        if (!outputSomething)
+        if (serializer.isCbor()) {
+            if (!outputSomething)
+                serializer.writeCborIndefiniteLengthStart(false);
+            serializer.writeCborBreak();
+        } else if (!outputSomething)
             serializer.write("[]");
         else {
-            if (singleLine) {
+            if (serializer.isCompact() || singleLine) {
                 serializer.write("]");
             } else {
                 serializer.write("\n");
@@ -118,6 +140,6 @@ public class JsonArrayWriter extends jsimple.lang.AutoCloseable {
         }
 
         if (flushWhenDone)
-            serializer.flush();
+            serializer.close();
     }
 }
@@ -32,7 +32,7 @@ public class JsonDoubleProperty extends JsonProperty {
     }
 
     public double readValue(JsonObjectReader objectReader) {
-        return (double) (Double) objectReader.readPropertyValue();
+        return objectReader.readDoublePropertyValue();
     }
 
     @Override public Object readValueUntyped(JsonObjectReader objectReader) {
@@ -32,7 +32,7 @@ public class JsonIntProperty extends JsonProperty {
     }
 
     public int readValue(JsonObjectReader objectReader) {
-        return (int) (Integer) objectReader.readPropertyValue();
+        return objectReader.readIntPropertyValue();
     }
 
     @Override public Object readValueUntyped(JsonObjectReader objectReader) {
@@ -31,12 +31,8 @@ public class JsonLongProperty extends JsonProperty {
         super(name, id);
     }
 
-    // TODO: Automatically convert int to long
     public long readValue(JsonObjectReader objectReader) {
-        Object value = objectReader.readPropertyValue();
-        if (value instanceof Integer)
-            return (long) (int) (Integer) value;
-        else return (long) (Long) value;
+        return objectReader.readLongPropertyValue();
     }
 
     @Override public Object readValueUntyped(JsonObjectReader objectReader) {
@@ -26,6 +26,7 @@ import jsimple.json.JsonException;
 import jsimple.json.text.JsonParsingException;
 import jsimple.json.text.Token;
 import jsimple.json.text.TokenType;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * JsonObjectReader lets the caller parse the items in an array one by one, iterating through them & processing them as
@@ -35,8 +36,9 @@ import jsimple.json.text.TokenType;
  * @author Bret Johnson
  * @since 7/28/12 11:09 PM
  */
-public class JsonObjectReader {
+public class JsonObjectReader extends jsimple.lang.AutoCloseable {
     protected Token token;
+    private final boolean ownsToken;
     private JsonObjectType objectType = emptyObjectType;   // This is the default, if no explicit ObjectType is set
     private boolean beginningPosition = true;
     private boolean endPosition = false;
@@ -44,41 +46,73 @@ public class JsonObjectReader {
     private static final JsonObjectType emptyObjectType = new JsonObjectType();
 
     public JsonObjectReader(Token token) {
+        this(token, false);
+    }
+
+    /**
+     * Create a reader for the object at the tokenizer's current position.
+     *
+     * @param token     tokenizer, positioned at the object's {
+     * @param ownsToken true if the reader has the tokenizer to itself, as for the readers returned by Json.read, so
+     *                  closing the reader should close the tokenizer too
+     */
+    public JsonObjectReader(Token token, boolean ownsToken) {
         this.token = token;
+        this.ownsToken = ownsToken;
         token.checkAndAdvance(TokenType.LEFT_BRACE);
     }
 
     public String readPropertyName() {
-        if (endPosition)
-            throw new JsonException("JSON Object has no more name/value pairs");
-
-        if (beginningPosition)
-            beginningPosition = false;
-        else token.checkAndAdvance(TokenType.COMMA);
+        readPropertyNamePrefix();
 
-        token.check(TokenType.PRIMITIVE);
-        Object nameObject = token.getPrimitiveValue();
-        if (!(nameObject instanceof String))
-            throw new JsonParsingException("string for object key", token);
+        String name = (String) token.getPrimitiveValue();
         token.advance();
 
         token.checkAndAdvance(TokenType.COLON);
 
-        return (String) nameObject;
+        return name;
     }
 
+    /**
+     * Read the next property name, returning the matching property from the object type (set via setObjectType) or,
+     * if the object type has no such property, a new JsonProperty for the name.  Known names are matched directly from
+     * the tokenizer's buffer when possible, without allocating a String for them.
+     *
+     * @return property
+     */
     public JsonProperty readProperty() {
-        String name = readPropertyName();
-        JsonProperty property = objectType.getProperty(name);
+        readPropertyNamePrefix();
+
+        @Nullable JsonProperty property = token.getStringAsProperty(objectType);
         if (property == null)
-            property = new JsonProperty(name);
+            property = new JsonProperty((String) token.getPrimitiveValue());
+        token.advance();
+
+        token.checkAndAdvance(TokenType.COLON);
+
         return property;
     }
 
+    private void readPropertyNamePrefix() {
+        if (endPosition)
+            throw new JsonException("JSON Object has no more name/value pairs");
+
+        if (beginningPosition)
+            beginningPosition = false;
+        else token.checkAndAdvance(TokenType.COMMA);
+
+        token.check(TokenType.PRIMITIVE);
+        if (!token.isString())
+            throw new JsonParsingException("string for object key", token);
+    }
+
     public Object readPropertyValue() {
         TokenType type = token.getType();
         switch (type) {
             case PRIMITIVE:
+            case INT:
+            case LONG:
+            case DOUBLE:
                 Object value = token.getPrimitiveValue();
                 token.advance();
                 return value;
@@ -93,6 +127,39 @@ public class JsonObjectReader {
         }
     }
 
+    /**
+     * Read a property value that's an int, without boxing it.
+     *
+     * @return int value
+     */
+    public int readIntPropertyValue() {
+        int value = token.getIntValue();
+        token.advance();
+        return value;
+    }
+
+    /**
+     * Read a property value that's an int or long, without boxing it.
+     *
+     * @return long value
+     */
+    public long readLongPropertyValue() {
+        long value = token.getLongValue();
+        token.advance();
+        return value;
+    }
+
+    /**
+     * Read a property value that's a number, as a double, without boxing it.
+     *
+     * @return double value
+     */
+    public double readDoublePropertyValue() {
+        double value = token.getDoubleValue();
+        token.advance();
+        return value;
+    }
+
     public boolean atEnd() {
         if (!endPosition && token.getType() == TokenType.RIGHT_BRACE) {
             token.advance();
@@ -105,4 +172,13 @@ public class JsonObjectReader {
     public void setObjectType(JsonObjectType objectType) {
         this.objectType = objectType;
     }
+
+    /**
+     * If the reader owns its tokenizer, close the tokenizer, returning its buffers to the BufferPool; readers for
+     * nested values share their parent's tokenizer, so closing them does nothing.  The input itself isn't closed.
+     */
+    @Override public void close() {
+        if (ownsToken)
+            token.close();
+    }
 }
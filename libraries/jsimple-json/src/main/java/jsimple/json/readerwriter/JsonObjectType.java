@@ -23,17 +23,29 @@
 package jsimple.json.readerwriter;
 
 import jsimple.json.JsonException;
+import jsimple.json.text.PropertyNameTable;
 import jsimple.util.HashMap;
 import org.jetbrains.annotations.Nullable;
 
 /**
+ * JsonObjectType holds the known properties for a kind of JSON object, so a JsonObjectReader can map the names it reads
+ * to JsonProperty objects.  Besides the name to property map, the properties are kept in an open addressing hash table
+ * keyed on the characters of the name.  That lets the tokenizer look up a name straight from its buffer, with no
+ * String created for it.
+ *
  * @author Bret Johnson
  * @since 5/19/13 3:10 PM
  */
-public class JsonObjectType {
+public class JsonObjectType implements PropertyNameTable<JsonProperty> {
     private @Nullable JsonObjectType superclass;
     private HashMap<String, JsonProperty> properties = new HashMap<String, JsonProperty>();
 
+    // Table of properties, by name hash, using linear probing; the length is always a power of 2
+    private JsonProperty[] nameTable = new JsonProperty[INITIAL_NAME_TABLE_SIZE];
+    private int nameTableCount = 0;
+
+    private static final int INITIAL_NAME_TABLE_SIZE = 16;
+
     public JsonObjectType(@Nullable JsonObjectType superclass) {
         this.superclass = superclass;
     }
@@ -42,7 +54,7 @@ public class JsonObjectType {
         this(null);
     }
 
-    public @Nullable JsonProperty getProperty(String name) {
+    @Override public @Nullable JsonProperty getProperty(String name) {
         @Nullable JsonProperty value = properties.get(name);
         if (value != null)
             return value;
@@ -51,14 +63,101 @@ public class JsonObjectType {
         return null;
     }
 
-    public JsonProperty createProperty(String name, int id) {
-        JsonProperty property = properties.get(name);
-        if (property != null)
-            throw new JsonException("Property for '{}' has already been added to atoms list", name);
+    /**
+     * Get the property whose name is the specified characters, checking superclasses too, or return null if there's no
+     * such property.
+     *
+     * @param chars character buffer
+     * @param start start of the name in the buffer
+     * @param end   end of the name in the buffer (exclusive)
+     * @return property, or null if not found
+     */
+    @Override public @Nullable JsonProperty getProperty(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; ++i)
+            hash = 31 * hash + chars[i];
+
+        JsonProperty[] nameTable = this.nameTable;
+        int mask = nameTable.length - 1;
+        int length = end - start;
+        for (int index = mixHash(hash) & mask; ; index = (index + 1) & mask) {
+            @Nullable JsonProperty property = nameTable[index];
+            if (property == null)
+                break;
+
+            String name = property.name;
+            if (property.nameHash == hash && name.length() == length) {
+                int i = 0;
+                while (i < length && name.charAt(i) == chars[start + i])
+                    ++i;
+                if (i == length)
+                    return property;
+            }
+        }
 
-        property = new JsonProperty(name, id);
-        properties.put(name, property);
-        return property;
+        if (superclass != null)
+            return superclass.getProperty(chars, start, end);
+        return null;
+    }
+
+    /**
+     * Get the property whose name is the specified ASCII bytes, checking superclasses too, or return null if there's no
+     * such property.  The bytes must all be ASCII; they're compared as characters, without any decoding.
+     *
+     * @param bytes byte buffer
+     * @param start start of the name in the buffer
+     * @param end   end of the name in the buffer (exclusive)
+     * @return property, or null if not found
+     */
+    @Override public @Nullable JsonProperty getPropertyAscii(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; ++i)
+            hash = 31 * hash + bytes[i];
+
+        JsonProperty[] nameTable = this.nameTable;
+        int mask = nameTable.length - 1;
+        int length = end - start;
+        for (int index = mixHash(hash) & mask; ; index = (index + 1) & mask) {
+            @Nullable JsonProperty property = nameTable[index];
+            if (property == null)
+                break;
+
+            String name = property.name;
+            if (property.nameHash == hash && name.length() == length) {
+                int i = 0;
+                while (i < length && name.charAt(i) == bytes[start + i])
+                    ++i;
+                if (i == length)
+                    return property;
+            }
+        }
+
+        if (superclass != null)
+            return superclass.getPropertyAscii(bytes, start, end);
+        return null;
+    }
+
+    /**
+     * Hash a property name.  This is the same as Java's String.hashCode, but computed explicitly so that it's the same
+     * on all platforms and the same for names in char and byte buffers.
+     *
+     * @param name property name
+     * @return hash
+     */
+    static int hashName(String name) {
+        int hash = 0;
+        int length = name.length();
+        for (int i = 0; i < length; ++i)
+            hash = 31 * hash + name.charAt(i);
+        return hash;
+    }
+
+    private static int mixHash(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public JsonProperty createProperty(String name, int id) {
+        return addNewProperty(new JsonProperty(name, id));
     }
 
     private <T extends JsonProperty> T addNewProperty(T property) {
@@ -67,9 +166,33 @@ public class JsonObjectType {
             throw new JsonException("Property for '{}' has already been added to atoms list", name);
 
         properties.put(name, property);
+        addToNameTable(property);
         return property;
     }
 
+    private void addToNameTable(JsonProperty property) {
+        // Keep the table at most half full
+        if ((nameTableCount + 1) * 2 > nameTable.length) {
+            JsonProperty[] oldNameTable = nameTable;
+            nameTable = new JsonProperty[oldNameTable.length * 2];
+            for (JsonProperty oldProperty : oldNameTable) {
+                if (oldProperty != null)
+                    insertIntoNameTable(oldProperty);
+            }
+        }
+
+        insertIntoNameTable(property);
+        ++nameTableCount;
+    }
+
+    private void insertIntoNameTable(JsonProperty property) {
+        int mask = nameTable.length - 1;
+        int index = mixHash(property.nameHash) & mask;
+        while (nameTable[index] != null)
+            index = (index + 1) & mask;
+        nameTable[index] = property;
+    }
+
     public JsonStringProperty createStringProperty(String name, int id) {
         return addNewProperty(new JsonStringProperty(name, id));
     }
@@ -38,6 +38,14 @@ public class JsonObjectWriter extends jsimple.lang.AutoCloseable {
         this.serializer = serializer;
     }
 
+    /**
+     * Create a writer using the specified serializer.  If flushWhenDone is true, the writer owns the serializer:  when
+     * the writer is closed, the serializer is flushed and closed, returning its buffer to the BufferPool, so it can only
+     * be used again after it's reset.
+     *
+     * @param serializer    serializer to write to
+     * @param flushWhenDone true to flush and close the serializer when this writer is closed
+     */
     public JsonObjectWriter(Serializer serializer, boolean flushWhenDone) {
         this.serializer = serializer;
         this.flushWhenDone = flushWhenDone;
@@ -62,7 +70,22 @@ public class JsonObjectWriter extends jsimple.lang.AutoCloseable {
     }
 
     public void writePropertyName(String propertyName) {
-        if (singleLine) {
+        if (serializer.isCbor()) {
+            if (!outputSomething) {
+                serializer.writeCborIndefiniteLengthStart(true);
+                outputSomething = true;
+            }
+
+            serializer.writeString(propertyName);
+        } else if (serializer.isCompact()) {
+            if (!outputSomething) {
+                serializer.write("{");
+                outputSomething = true;
+            } else serializer.write(",");
+
+            serializer.writeString(propertyName);
+            serializer.write(":");
+        } else if (singleLine) {
             if (!outputSomething) {
                 serializer.write("{ ");
                 outputSomething = true;
@@ -94,10 +117,16 @@ public class JsonObjectWriter extends jsimple.lang.AutoCloseable {
     }
 
     @Override public void close() {
-        if (!outputSomething)
+        if (serializer.isCbor()) {
+            if (!outputSomething)
+                serializer.writeCborIndefiniteLengthStart(true);
+            serializer.writeCborBreak();
+        } else if (!outputSomething)
             serializer.write("{}");
         else {
-            if (singleLine) {
+            if (serializer.isCompact())
+                serializer.write("}");
+            else if (singleLine) {
                 serializer.write(" }");
             } else {
                 serializer.write("\n");
@@ -108,6 +137,6 @@ public class JsonObjectWriter extends jsimple.lang.AutoCloseable {
         }
 
         if (flushWhenDone)
-            serializer.flush();
+            serializer.close();
     }
 }
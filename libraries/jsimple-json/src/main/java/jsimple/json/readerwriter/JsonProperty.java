@@ -29,15 +29,18 @@ package jsimple.json.readerwriter;
 public class JsonProperty {
     protected String name;
     protected int id;
+    final int nameHash;       // Hash of the name, as computed by JsonObjectType.hashName
 
     public JsonProperty(String name) {
         this.name = name;
         this.id = -1;
+        this.nameHash = JsonObjectType.hashName(name);
     }
 
     public JsonProperty(String name, int id) {
         this.name = name;
         this.id = id;
+        this.nameHash = JsonObjectType.hashName(name);
     }
 
     public Object readValueUntyped(JsonObjectReader objectReader) {
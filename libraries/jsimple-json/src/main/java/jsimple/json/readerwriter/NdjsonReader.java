@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json.readerwriter;
+
+import jsimple.io.FileMapping;
+import jsimple.io.InputStream;
+import jsimple.io.Reader;
+import jsimple.json.objectmodel.JsonObject;
+import jsimple.json.objectmodel.JsonObjectOrArray;
+import jsimple.json.objectmodel.ObjectModelParser;
+import jsimple.json.text.JsonParsingException;
+import jsimple.json.text.Token;
+import jsimple.json.text.TokenType;
+import jsimple.util.ArrayList;
+import jsimple.util.ByteArrayRange;
+import jsimple.util.List;
+
+/**
+ * NdjsonReader reads newline delimited JSON (AKA JSON Lines), where the text is a series of JSON records, normally
+ * objects, one per line.  A single tokenizer, and so a single buffer, is used for all the records.  The reader is
+ * lenient in that records can be separated by any whitespace, not just a newline.
+ * <p/>
+ * For big files, the records can also be parsed in parallel:  use split to divide the bytes, or a memory mapped file,
+ * into chunks at line boundaries, then read each chunk with its own NdjsonReader.
+ * <p/>
+ * Close the reader when done with it, to return its tokenizer's buffers to the BufferPool.
+ */
+public class NdjsonReader extends jsimple.lang.AutoCloseable {
+    private final Token token;
+    private int recordCount = 0;
+
+    public NdjsonReader(Reader reader) {
+        this(new Token(reader));
+    }
+
+    public NdjsonReader(InputStream inputStream) {
+        this(new Token(inputStream));
+    }
+
+    public NdjsonReader(ByteArrayRange bytes) {
+        this(new Token(bytes));
+    }
+
+    public NdjsonReader(Token token) {
+        this.token = token;
+    }
+
+    /**
+     * Return true if there are no more records.
+     *
+     * @return whether at the end of the text
+     */
+    public boolean atEnd() {
+        return token.getType() == TokenType.EOF;
+    }
+
+    /**
+     * Read the next record, which must be an object.
+     *
+     * @return record object
+     */
+    public JsonObject readObject() {
+        if (token.getType() != TokenType.LEFT_BRACE)
+            throw new JsonParsingException("{, starting a record object", token);
+
+        ++recordCount;
+        return (JsonObject) new ObjectModelParser(token).parseValue();
+    }
+
+    /**
+     * Read the next record, which can be an object or an array.
+     *
+     * @return record object or array
+     */
+    public JsonObjectOrArray readRecord() {
+        TokenType type = token.getType();
+        if (type != TokenType.LEFT_BRACE && type != TokenType.LEFT_BRACKET)
+            throw new JsonParsingException("{ or [, starting a record object or array", token);
+
+        ++recordCount;
+        return (JsonObjectOrArray) new ObjectModelParser(token).parseValue();
+    }
+
+    /**
+     * Return a JsonObjectReader for the next record, which must be an object, to read it property by property.  The
+     * object must be read through to the end (until atEnd returns true) before reading the next record.
+     *
+     * @return object reader for the record
+     */
+    public JsonObjectReader readObjectReader() {
+        if (token.getType() != TokenType.LEFT_BRACE)
+            throw new JsonParsingException("{, starting a record object", token);
+
+        ++recordCount;
+        return new JsonObjectReader(token);
+    }
+
+    /**
+     * Skip the next record, without parsing it.
+     */
+    public void skipRecord() {
+        ++recordCount;
+        token.skipValue();
+    }
+
+    /**
+     * Get the number of records read (or skipped) so far.
+     *
+     * @return record count
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Close the tokenizer, returning its buffers to the BufferPool.  The input itself isn't closed.
+     */
+    @Override public void close() {
+        token.close();
+    }
+
+    /**
+     * Split newline delimited JSON text into at most maxChunks chunks of roughly equal size, dividing only at line
+     * boundaries, so that the chunks can be read in parallel, each with its own NdjsonReader.   Nothing is copied; the
+     * chunks reference the original bytes.
+     *
+     * @param bytes     UTF-8 newline delimited JSON text
+     * @param maxChunks maximum number of chunks to return
+     * @return chunks, in order; there are fewer than maxChunks if lines are long or the text is short
+     */
+    public static List<ByteArrayRange> split(ByteArrayRange bytes, int maxChunks) {
+        byte[] array = bytes.getBytes();
+        int start = bytes.getPosition();
+        int end = start + bytes.getLength();
+
+        ArrayList<ByteArrayRange> chunks = new ArrayList<ByteArrayRange>();
+        if (maxChunks < 1)
+            maxChunks = 1;
+        int targetChunkLength = bytes.getLength() / maxChunks;
+
+        int chunkStart = start;
+        while (chunkStart < end) {
+            int chunkEnd;
+            if (chunks.size() == maxChunks - 1)
+                chunkEnd = end;
+            else {
+                chunkEnd = chunkStart + targetChunkLength;
+                if (chunkEnd >= end)
+                    chunkEnd = end;
+                else {
+                    // Include the rest of the line, up to & including the newline
+                    while (chunkEnd < end && array[chunkEnd] != '\n')
+                        ++chunkEnd;
+                    if (chunkEnd < end)
+                        ++chunkEnd;
+                }
+            }
+
+            chunks.add(new ByteArrayRange(array, chunkStart, chunkEnd - chunkStart));
+            chunkStart = chunkEnd;
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Split newline delimited JSON text in a file mapping (see File.openMapped) into at most maxChunks chunks of
+     * roughly equal size, dividing only at line boundaries, so that the chunks can be read in parallel, each with its
+     * own NdjsonReader.  Each chunk is returned as an input stream reading straight from the mapping, so nothing is
+     * copied onto the heap; the mapping must stay open until the chunks are read.
+     *
+     * @param fileMapping UTF-8 newline delimited JSON text
+     * @param maxChunks   maximum number of chunks to return
+     * @return chunk streams, in order; there are fewer than maxChunks if lines are long or the text is short
+     */
+    public static List<InputStream> split(FileMapping fileMapping, int maxChunks) {
+        long end = fileMapping.getLength();
+
+        ArrayList<InputStream> chunks = new ArrayList<InputStream>();
+        if (maxChunks < 1)
+            maxChunks = 1;
+        long targetChunkLength = end / maxChunks;
+
+        long chunkStart = 0;
+        while (chunkStart < end) {
+            long chunkEnd;
+            if (chunks.size() == maxChunks - 1)
+                chunkEnd = end;
+            else {
+                chunkEnd = chunkStart + targetChunkLength;
+                if (chunkEnd >= end)
+                    chunkEnd = end;
+                else {
+                    // Include the rest of the line, up to & including the newline
+                    while (chunkEnd < end && fileMapping.getByte(chunkEnd) != '\n')
+                        ++chunkEnd;
+                    if (chunkEnd < end)
+                        ++chunkEnd;
+                }
+            }
+
+            chunks.add(fileMapping.openInputStream(chunkStart, chunkEnd - chunkStart));
+            chunkStart = chunkEnd;
+        }
+
+        return chunks;
+    }
+}
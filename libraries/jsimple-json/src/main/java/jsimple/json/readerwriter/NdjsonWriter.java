@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json.readerwriter;
+
+import jsimple.io.OutputStream;
+import jsimple.io.Writer;
+import jsimple.json.objectmodel.JsonObjectOrArray;
+import jsimple.json.text.Serializer;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * NdjsonWriter writes newline delimited JSON (AKA JSON Lines):  each record is written as compact JSON followed by a
+ * newline.  Output is buffered; by default it's only flushed when the buffer fills and on flush or close, but a
+ * flush interval can be set to flush after every so many records, so that readers see complete batches.
+ */
+public class NdjsonWriter extends jsimple.lang.AutoCloseable {
+    private final Serializer serializer;
+    private @Nullable Writer writer = null;
+    private @Nullable OutputStream outputStream = null;
+    private int flushInterval = 0;
+    private int recordCount = 0;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Create an NdjsonWriter that writes to the specified Writer.  The writer is closed when this object is closed.
+     *
+     * @param writer writer to write to
+     */
+    public NdjsonWriter(Writer writer) {
+        this.writer = writer;
+        serializer = new Serializer(writer, BUFFER_SIZE);
+        serializer.setCompact(true);
+    }
+
+    /**
+     * Create an NdjsonWriter that writes UTF-8 directly to the specified stream.  The stream is closed when this object
+     * is closed.
+     *
+     * @param outputStream stream to write to
+     */
+    public NdjsonWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+        serializer = new Serializer(outputStream, BUFFER_SIZE);
+        serializer.setCompact(true);
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Flush after every flushInterval records.  0, the default, means don't flush based on the number of records.
+     *
+     * @param flushInterval number of records between flushes
+     */
+    public void setFlushInterval(int flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Write a record, as a line of compact JSON.
+     *
+     * @param record record object or array
+     */
+    public void write(JsonObjectOrArray record) {
+        serializer.writeValue(record);
+        serializer.write("\n");
+
+        ++recordCount;
+        if (flushInterval > 0 && recordCount % flushInterval == 0)
+            flush();
+    }
+
+    /**
+     * Get the number of records written so far.
+     *
+     * @return record count
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Write out all buffered records, flushing the underlying writer or stream too.
+     */
+    public void flush() {
+        serializer.flush();
+        if (writer != null)
+            writer.flush();
+        else if (outputStream != null)
+            outputStream.flush();
+    }
+
+    /**
+     * Write out all buffered records, return the serializer's buffer to the BufferPool, and close the underlying writer
+     * or stream.
+     */
+    @Override public void close() {
+        serializer.close();
+        if (writer != null)
+            writer.close();
+        else if (outputStream != null)
+            outputStream.close();
+    }
+}
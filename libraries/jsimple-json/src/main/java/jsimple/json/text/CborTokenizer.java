@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json.text;
+
+import jsimple.json.objectmodel.JsonNull;
+import jsimple.util.Integers;
+import jsimple.util.SystemUtils;
+
+/**
+ * CborTokenizer decodes CBOR (RFC 7049) data items for a Token, turning them into the tokens the equivalent JSON text
+ * would have.  CBOR maps and arrays are length prefixed (or, for indefinite length ones, terminated with a break
+ * byte), so the tokenizer keeps a stack of the open containers, counting items to know when to produce the closing
+ * brace or bracket and synthesizing the COLON and COMMA tokens that go between the items.
+ * <p/>
+ * Only the parts of CBOR that correspond to JSON are supported:  text strings, integers, floating point numbers,
+ * true/false/null, arrays, and maps with string keys.  Tags are skipped over, ignoring their meaning, and undefined
+ * is treated as null.  Byte strings and indefinite length strings aren't supported.
+ */
+final class CborTokenizer {
+    private final Token token;
+    private int state = TOP_LEVEL;
+
+    // Stack of open maps and arrays.  For maps, the length counts keys and values separately, so is twice the number
+    // of entries; it's -1 for indefinite length containers.
+    private int depth = 0;
+    private boolean[] containerIsMap = new boolean[INITIAL_DEPTH];
+    private long[] containerLength = new long[INITIAL_DEPTH];
+    private long[] containerItemsRead = new long[INITIAL_DEPTH];
+
+    private static final int INITIAL_DEPTH = 16;
+
+    private static final int TOP_LEVEL = 0;          // Not in a container, before the first item
+    private static final int OPENED = 1;             // Just after the start of a container
+    private static final int AFTER_ITEM = 2;         // Just after a complete item
+    private static final int AFTER_SEPARATOR = 3;    // Just after a synthesized COLON or COMMA
+
+    private static final int MAJOR_UNSIGNED_INT = 0;
+    private static final int MAJOR_NEGATIVE_INT = 1;
+    private static final int MAJOR_BYTE_STRING = 2;
+    private static final int MAJOR_TEXT_STRING = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+
+    private static final long POSITIVE_INFINITY_BITS = 0x7FF0000000000000L;
+    private static final long NAN_BITS = 0x7FF8000000000000L;
+
+    private static final int INDEFINITE_LENGTH = 31;
+    private static final int BREAK = 0xFF;
+
+    CborTokenizer(Token token) {
+        this.token = token;
+    }
+
+    void advance() {
+        if (depth > 0 && (state == OPENED || state == AFTER_ITEM)) {
+            int top = depth - 1;
+            if (state == AFTER_ITEM)
+                ++containerItemsRead[top];
+
+            boolean atEnd;
+            if (containerLength[top] == -1) {
+                atEnd = token.lookaheadByte() == BREAK;
+                if (atEnd)
+                    token.readByte();
+            } else atEnd = containerItemsRead[top] == containerLength[top];
+
+            if (atEnd) {
+                token.setStructuralType(containerIsMap[top] ? TokenType.RIGHT_BRACE : TokenType.RIGHT_BRACKET);
+                --depth;
+                state = depth > 0 ? AFTER_ITEM : TOP_LEVEL;
+                return;
+            }
+
+            if (state == AFTER_ITEM) {
+                boolean afterKey = containerIsMap[top] && containerItemsRead[top] % 2 == 1;
+                token.setStructuralType(afterKey ? TokenType.COLON : TokenType.COMMA);
+                state = AFTER_SEPARATOR;
+                return;
+            }
+        }
+
+        readItem();
+    }
+
+    private void readItem() {
+        while (true) {
+            int initialByte = token.readByte();
+            if (initialByte == -1) {
+                if (depth > 0)
+                    throw new JsonParsingException(containerIsMap[depth - 1] ? "'}'" : "']'", "end of CBOR data");
+                token.setStructuralType(TokenType.EOF);
+                state = TOP_LEVEL;
+                return;
+            }
+
+            int majorType = initialByte >> 5;
+            int additionalInfo = initialByte & 0x1F;
+
+            switch (majorType) {
+                case MAJOR_UNSIGNED_INT: {
+                    long value = readArgument(additionalInfo);
+                    if (value < 0)
+                        throw new JsonParsingException("Number is too big, overflowing the size of a long");
+                    token.setLongValue(value);
+                    break;
+                }
+
+                case MAJOR_NEGATIVE_INT: {
+                    long value = readArgument(additionalInfo);
+                    if (value < 0)
+                        throw new JsonParsingException("Negative number is too big, overflowing the size of a long");
+                    token.setLongValue(-1 - value);
+                    break;
+                }
+
+                case MAJOR_BYTE_STRING:
+                    throw new JsonParsingException("CBOR byte strings aren't supported, as they have no JSON equivalent");
+
+                case MAJOR_TEXT_STRING:
+                    if (additionalInfo == INDEFINITE_LENGTH)
+                        throw new JsonParsingException("Indefinite length CBOR strings aren't currently supported");
+                    token.readUtf8StringToken(readLength(additionalInfo));
+                    break;
+
+                case MAJOR_ARRAY:
+                case MAJOR_MAP: {
+                    boolean isMap = majorType == MAJOR_MAP;
+                    long length = -1;
+                    if (additionalInfo != INDEFINITE_LENGTH) {
+                        length = readLength(additionalInfo);
+                        if (isMap)
+                            length *= 2;
+                    }
+                    checkMapKey();
+                    pushContainer(isMap, length);
+                    token.setStructuralType(isMap ? TokenType.LEFT_BRACE : TokenType.LEFT_BRACKET);
+                    state = OPENED;
+                    return;
+                }
+
+                case MAJOR_TAG:
+                    // Tags just annotate the item that follows, so skip them
+                    readArgument(additionalInfo);
+                    continue;
+
+                default:
+                    readSimpleOrFloat(initialByte, additionalInfo);
+                    break;
+            }
+
+            if (token.getType() != TokenType.PRIMITIVE || !token.isString())
+                checkMapKey();
+            state = AFTER_ITEM;
+            return;
+        }
+    }
+
+    private void readSimpleOrFloat(int initialByte, int additionalInfo) {
+        switch (additionalInfo) {
+            case 20:
+                token.setPrimitiveValue(false);
+                return;
+            case 21:
+                token.setPrimitiveValue(true);
+                return;
+            case 22:
+            case 23:    // undefined
+                token.setPrimitiveValue(JsonNull.singleton);
+                return;
+            case 25:
+                token.setDoubleValue(toDouble(readBigEndian(2), 5, 10));
+                return;
+            case 26:
+                token.setDoubleValue(toDouble(readBigEndian(4), 8, 23));
+                return;
+            case 27:
+                token.setDoubleValue(SystemUtils.rawLongBitsToDouble(readBigEndian(8)));
+                return;
+            case INDEFINITE_LENGTH:
+                throw new JsonParsingException("Unexpected CBOR break byte, outside of an indefinite length map or array");
+            default:
+                throw new JsonParsingException("Unsupported CBOR simple value, with initial byte " + initialByte);
+        }
+    }
+
+    /**
+     * Map keys must be strings, as in JSON; check that we aren't about to return something else for one.
+     */
+    private void checkMapKey() {
+        if (depth > 0 && containerIsMap[depth - 1] && containerItemsRead[depth - 1] % 2 == 0)
+            throw new JsonParsingException("string for CBOR map key", token);
+    }
+
+    private void pushContainer(boolean isMap, long length) {
+        if (depth == containerIsMap.length) {
+            int newLength = depth * 2;
+
+            boolean[] newIsMap = new boolean[newLength];
+            long[] newLengths = new long[newLength];
+            long[] newItemsRead = new long[newLength];
+            for (int i = 0; i < depth; ++i) {
+                newIsMap[i] = containerIsMap[i];
+                newLengths[i] = containerLength[i];
+                newItemsRead[i] = containerItemsRead[i];
+            }
+            containerIsMap = newIsMap;
+            containerLength = newLengths;
+            containerItemsRead = newItemsRead;
+        }
+
+        containerIsMap[depth] = isMap;
+        containerLength[depth] = length;
+        containerItemsRead[depth] = 0;
+        ++depth;
+    }
+
+    /**
+     * Read the argument that follows the initial byte.  Values that don't fit in a signed long come back negative.
+     */
+    private long readArgument(int additionalInfo) {
+        if (additionalInfo < 24)
+            return additionalInfo;
+        else if (additionalInfo == 24)
+            return readBigEndian(1);
+        else if (additionalInfo == 25)
+            return readBigEndian(2);
+        else if (additionalInfo == 26)
+            return readBigEndian(4);
+        else if (additionalInfo == 27)
+            return readBigEndian(8);
+        else throw new JsonParsingException("Invalid CBOR additional information value: " + additionalInfo);
+    }
+
+    private int readLength(int additionalInfo) {
+        long length = readArgument(additionalInfo);
+        if (length < 0 || length > Integers.MAX_VALUE / 2)
+            throw new JsonParsingException("CBOR length " + length + " is too big");
+        return (int) length;
+    }
+
+    private long readBigEndian(int byteCount) {
+        long value = 0;
+        for (int i = 0; i < byteCount; ++i) {
+            int b = token.readByte();
+            if (b == -1)
+                throw new JsonParsingException("rest of CBOR data item", "end of CBOR data");
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /**
+     * Convert a half or single precision floating point value to a double.  The conversion is exact, done by scaling
+     * the mantissa by a power of two.
+     *
+     * @param bits          raw bits of the value
+     * @param exponentBits  number of bits in the exponent
+     * @param mantissaBits  number of bits in the mantissa
+     * @return double value
+     */
+    private static double toDouble(long bits, int exponentBits, int mantissaBits) {
+        int maxExponent = (1 << exponentBits) - 1;
+        int bias = maxExponent >> 1;
+
+        boolean negative = (bits >> (exponentBits + mantissaBits)) != 0;
+        int exponent = (int) ((bits >> mantissaBits) & maxExponent);
+        long mantissa = bits & ((1L << mantissaBits) - 1);
+
+        double value;
+        if (exponent == maxExponent)
+            value = SystemUtils.rawLongBitsToDouble(mantissa == 0 ? POSITIVE_INFINITY_BITS : NAN_BITS);
+        else if (exponent == 0)
+            value = mantissa * powerOfTwo(1 - bias - mantissaBits);
+        else value = (mantissa | (1L << mantissaBits)) * powerOfTwo(exponent - bias - mantissaBits);
+
+        return negative ? -value : value;
+    }
+
+    private static double powerOfTwo(int exponent) {
+        return SystemUtils.rawLongBitsToDouble((long) (exponent + 1023) << 52);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jsimple.json.text;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * PropertyNameTable maps JSON property names to the objects that represent them.  Besides lookup by String, names can
+ * be looked up straight from a tokenizer buffer, so Token.getStringAsProperty can match a name without creating a
+ * String for it.  JsonObjectType is the main implementation.
+ *
+ * @param <T> type of the objects that names map to
+ */
+public interface PropertyNameTable<T> {
+    /**
+     * Get the object for the specified name, or return null if there's none.
+     *
+     * @param name name
+     * @return matching object, or null if not found
+     */
+    @Nullable T getProperty(String name);
+
+    /**
+     * Get the object whose name is the specified characters, or return null if there's none.
+     *
+     * @param chars character buffer
+     * @param start start of the name in the buffer
+     * @param end   end of the name in the buffer (exclusive)
+     * @return matching object, or null if not found
+     */
+    @Nullable T getProperty(char[] chars, int start, int end);
+
+    /**
+     * Get the object whose name is the specified ASCII bytes, or return null if there's none.  The bytes must all be
+     * ASCII; they're compared as characters, without any decoding.
+     *
+     * @param bytes byte buffer
+     * @param start start of the name in the buffer
+     * @param end   end of the name in the buffer (exclusive)
+     * @return matching object, or null if not found
+     */
+    @Nullable T getPropertyAscii(byte[] bytes, int start, int end);
+}
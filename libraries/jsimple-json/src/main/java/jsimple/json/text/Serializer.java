@@ -22,31 +22,186 @@
 
 package jsimple.json.text;
 
+import jsimple.io.BufferPool;
+import jsimple.io.OutputStream;
 import jsimple.io.Writer;
 import jsimple.json.JsonException;
 import jsimple.json.objectmodel.JsonArray;
 import jsimple.json.objectmodel.JsonNull;
 import jsimple.json.objectmodel.JsonObject;
+import jsimple.util.SystemUtils;
+import org.jetbrains.annotations.Nullable;
 
 /**
+ * Serializer writes JSON text, either as characters to a Writer or directly as UTF-8 bytes to an OutputStream, which
+ * avoids a separate encoding step.  Output is buffered; call flush when done.
+ * <p/>
+ * By default the output is pretty printed, with line breaks and two space indents.  In compact mode there's no
+ * whitespace at all, which is best for JSON sent over the wire.
+ * <p/>
+ * A serializer created with createCborSerializer writes CBOR (RFC 7049) instead, the binary equivalent of the JSON.
+ * JsonObject and JsonArray values are written as definite length maps and arrays, while JsonObjectWriter and
+ * JsonArrayWriter, which don't know the size up front, write indefinite length ones.  Integers use the smallest
+ * encoding that holds them; floating point numbers are always written as doubles.
+ *
  * @author Bret Johnson
  * @since 7/8/12 3:46 AM
  */
 public final class Serializer {
-    private Writer writer;
-    private char[] buffer = new char[BUFFER_SIZE];
+    private @Nullable Writer writer = null;
+    private @Nullable OutputStream outputStream = null;
+    private final boolean utf8Output;         // True if writing UTF-8 bytes (byteBuffer), false for chars (buffer)
+    private final boolean cbor;               // True if writing CBOR to byteBuffer, rather than JSON text
+    private char[] buffer;
+    private byte[] byteBuffer;
+    private final int bufferSize;
     private int currIndex;      // Next character to be processed
+    private boolean compact = false;
     int indent;
 
-    private static final int BUFFER_SIZE = 256;
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+    private static final int MIN_BUFFER_SIZE = 16;
+
+    // CBOR major types, shifted into place for the initial byte of a data item, and other special initial bytes
+    private static final int CBOR_UNSIGNED_INT = 0 << 5;
+    private static final int CBOR_NEGATIVE_INT = 1 << 5;
+    private static final int CBOR_TEXT_STRING = 3 << 5;
+    private static final int CBOR_ARRAY = 4 << 5;
+    private static final int CBOR_MAP = 5 << 5;
+    private static final int CBOR_FALSE = 0xF4;
+    private static final int CBOR_TRUE = 0xF5;
+    private static final int CBOR_NULL = 0xF6;
+    private static final int CBOR_DOUBLE = 0xFB;
+    private static final int CBOR_INDEFINITE_LENGTH = 31;
+    private static final int CBOR_BREAK = 0xFF;
 
     public Serializer(Writer writer) {
+        this(writer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a serializer writing to the specified Writer, buffering up to bufferSize characters between writes.
+     *
+     * @param writer     writer to write to
+     * @param bufferSize buffer size, in characters; must be at least 16
+     */
+    public Serializer(Writer writer, int bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE)
+            throw new JsonException("Serializer buffer size is {}, but must be at least {}", bufferSize, MIN_BUFFER_SIZE);
+
+        this.writer = writer;
+        utf8Output = false;
+        cbor = false;
+        buffer = BufferPool.acquireChars(bufferSize);
+        byteBuffer = new byte[0];
+        this.bufferSize = bufferSize;
+        currIndex = 0;
+        indent = 0;
+    }
+
+    public Serializer(OutputStream outputStream) {
+        this(outputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a serializer writing UTF-8 encoded JSON to the specified stream, buffering up to bufferSize bytes between
+     * writes.  The stream isn't closed here.
+     *
+     * @param outputStream stream to write to
+     * @param bufferSize   buffer size, in bytes; must be at least 16
+     */
+    public Serializer(OutputStream outputStream, int bufferSize) {
+        this(outputStream, bufferSize, false);
+    }
+
+    private Serializer(OutputStream outputStream, int bufferSize, boolean cbor) {
+        if (bufferSize < MIN_BUFFER_SIZE)
+            throw new JsonException("Serializer buffer size is {}, but must be at least {}", bufferSize, MIN_BUFFER_SIZE);
+
+        this.outputStream = outputStream;
+        utf8Output = true;
+        this.cbor = cbor;
+        buffer = new char[0];
+        byteBuffer = BufferPool.acquireBytes(bufferSize);
+        this.bufferSize = bufferSize;
+        currIndex = 0;
+        indent = 0;
+    }
+
+    /**
+     * Reset the serializer to write to the specified writer, discarding anything not yet flushed, so that it and its
+     * buffer can be reused for another document.  The compact setting is kept.  The serializer must be one that was
+     * created to write to a Writer.
+     *
+     * @param writer writer to write to
+     */
+    public void reset(Writer writer) {
+        if (utf8Output)
+            throw new JsonException("Serializer writes bytes to an OutputStream, so it can't be reset to use a Writer");
+
         this.writer = writer;
+        if (buffer.length == 0)
+            buffer = BufferPool.acquireChars(bufferSize);
+        currIndex = 0;
+        indent = 0;
+    }
+
+    /**
+     * Reset the serializer to write to the specified stream, as for reset(Writer).  The serializer must be one that was
+     * created to write to an OutputStream; a CBOR serializer stays a CBOR serializer.
+     *
+     * @param outputStream stream to write to
+     */
+    public void reset(OutputStream outputStream) {
+        if (!utf8Output)
+            throw new JsonException("Serializer writes characters to a Writer, so it can't be reset to use an OutputStream");
+
+        this.outputStream = outputStream;
+        if (byteBuffer.length == 0)
+            byteBuffer = BufferPool.acquireBytes(bufferSize);
         currIndex = 0;
         indent = 0;
     }
 
+    /**
+     * Create a serializer writing CBOR to the specified stream, buffering up to bufferSize bytes between writes.  The
+     * stream isn't closed here.
+     *
+     * @param outputStream stream to write to
+     * @param bufferSize   buffer size, in bytes; must be at least 16
+     * @return CBOR serializer
+     */
+    public static Serializer createCborSerializer(OutputStream outputStream, int bufferSize) {
+        return new Serializer(outputStream, bufferSize, true);
+    }
+
+    public boolean isUtf8Output() {
+        return utf8Output;
+    }
+
+    public boolean isCbor() {
+        return cbor;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Set whether to output compact JSON, with no whitespace between tokens, instead of pretty printing it.
+     *
+     * @param compact true for compact output
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
     public void writeValue(Object obj) {
+        if (cbor) {
+            writeCborValue(obj);
+            return;
+        }
+
         if (obj instanceof String)
             writeString((String) obj);
         else if (obj instanceof Integer || obj instanceof Long)
@@ -65,16 +220,32 @@ public final class Serializer {
     }
 
     /**
-     * Write a JSON object.  Each name/value pair is output on a separate line, indented by two spaces.  If the object
-     * is empty, just "{}" is appended.
+     * Write a JSON object.  Each name/value pair is output on a separate line, indented by two spaces, unless in compact
+     * mode.  If the object is empty, just "{}" is appended.
      *
      * @param jsonObject object to append
      */
     public void writeJsonObject(JsonObject jsonObject) {
         int size = jsonObject.size();
-        if (size == 0)
+        if (cbor) {
+            writeCborHeader(CBOR_MAP, size);
+            for (int i = 0; i < size; ++i) {
+                writeString(jsonObject.getName(i));
+                writeValue(jsonObject.getValue(i));
+            }
+        } else if (size == 0)
             write("{}");
-        else {
+        else if (compact) {
+            write('{');
+            for (int i = 0; i < size; ++i) {
+                if (i > 0)
+                    write(',');
+                writeString(jsonObject.getName(i));
+                write(':');
+                writeValue(jsonObject.getValue(i));
+            }
+            write('}');
+        } else {
             write("{\n");
             indent += 2;
 
@@ -99,15 +270,27 @@ public final class Serializer {
     /**
      * Append a JSON array.  If the array is empty or its elements are all simple objects (that is, literals or embedded
      * objects/arrays that are empty), then output it all on one line.  Otherwise, each array element is on a separate
-     * line.
+     * line.  In compact mode, it's always on one line, with no whitespace.
      *
      * @param array array to append
      */
     public void writeJsonArray(JsonArray array) {
         int size = array.size();
-        if (size == 0)
+        if (cbor) {
+            writeCborHeader(CBOR_ARRAY, size);
+            for (int i = 0; i < size; ++i)
+                writeValue(array.get(i));
+        } else if (size == 0)
             write("[]");
-        else {
+        else if (compact) {
+            write('[');
+            for (int i = 0; i < size; ++i) {
+                if (i > 0)
+                    write(',');
+                writeValue(array.get(i));
+            }
+            write(']');
+        } else {
             boolean allSimpleObjects = true;
 
             for (int i = 0; i < size; ++i) {
@@ -163,13 +346,35 @@ public final class Serializer {
             write(' ');
     }
 
+    /**
+     * Write a quoted, escaped JSON string.  Runs of characters that don't need escaping (or, for UTF-8 output,
+     * encoding) are copied to the buffer in bulk.
+     *
+     * @param string string to write
+     */
     public void writeString(String string) {
+        if (cbor) {
+            writeCborHeader(CBOR_TEXT_STRING, utf8Length(string));
+            writeUtf8(string);
+            return;
+        }
+
         write('\"');
 
         int length = string.length();
+        int runStart = 0;
         for (int i = 0; i < length; ++i) {
             char c = string.charAt(i);
 
+            // Most characters are written as is, as part of a run
+            if (c >= '\u0020' && c < '\u007F') {
+                if (c != '\"' && c != '\\')
+                    continue;
+            } else if (c > '\u009F' && !utf8Output)
+                continue;
+
+            writeRun(string, runStart, i);
+
             // Check for characters that need to be escaped
             switch (c) {
                 case '\"':
@@ -203,9 +408,12 @@ public final class Serializer {
                 default:
                     if (Token.isControlCharacter(c))
                         writeUnicodeEscape(c);
-                    else write(c);
+                    else i = writeUtf8Char(string, i);
             }
+
+            runStart = i + 1;
         }
+        writeRun(string, runStart, length);
 
         write("\"");
     }
@@ -228,22 +436,236 @@ public final class Serializer {
     }
 
     public void write(String s) {
+        if (cbor)
+            throw new JsonException("JSON text can't be written to a CBOR serializer: {}", s);
+
+        if (!utf8Output)
+            writeRun(s, 0, s.length());
+        else writeUtf8(s);
+    }
+
+    private void writeUtf8(String s) {
         int length = s.length();
-        for (int i = 0; i < length; i++)
-            write(s.charAt(i));
+        int runStart = 0;
+        for (int i = 0; i < length; ++i) {
+            if (s.charAt(i) >= '\u0080') {
+                writeRun(s, runStart, i);
+                i = writeUtf8Char(s, i);
+                runStart = i + 1;
+            }
+        }
+        writeRun(s, runStart, length);
+    }
+
+    /**
+     * Write the characters from start to end of the string as is.  For UTF-8 output, they must all be ASCII.
+     */
+    private void writeRun(String s, int start, int end) {
+        while (start < end) {
+            if (currIndex >= bufferSize)
+                flush();
+
+            int count = end - start;
+            int available = bufferSize - currIndex;
+            if (count > available)
+                count = available;
+
+            if (utf8Output) {
+                byte[] bytes = byteBuffer;
+                int index = currIndex;
+                for (int i = 0; i < count; ++i)
+                    bytes[index + i] = (byte) s.charAt(start + i);
+            } else SystemUtils.copyChars(s, start, buffer, currIndex, count);
+
+            currIndex += count;
+            start += count;
+        }
+    }
+
+    /**
+     * Write the non-ASCII character at the specified index as UTF-8.  If it's the high surrogate of a surrogate pair,
+     * the pair is encoded together.   An unpaired surrogate can't be encoded as UTF-8, so it's escaped or, for CBOR,
+     * replaced with U+FFFD.
+     *
+     * @return index of the last character consumed
+     */
+    private int writeUtf8Char(String s, int index) {
+        char c = s.charAt(index);
+
+        if (currIndex + 4 > bufferSize)
+            flush();
+        byte[] bytes = byteBuffer;
+
+        if (c < '\u0800') {
+            bytes[currIndex++] = (byte) (0xC0 | (c >> 6));
+            bytes[currIndex++] = (byte) (0x80 | (c & 0x3F));
+        } else if (c < '\uD800' || c > '\uDFFF') {
+            bytes[currIndex++] = (byte) (0xE0 | (c >> 12));
+            bytes[currIndex++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            bytes[currIndex++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+            char low = index + 1 < s.length() ? s.charAt(index + 1) : '\0';
+            if (c > '\uDBFF' || low < '\uDC00' || low > '\uDFFF') {
+                if (cbor) {
+                    bytes[currIndex++] = (byte) 0xEF;
+                    bytes[currIndex++] = (byte) 0xBF;
+                    bytes[currIndex++] = (byte) 0xBD;
+                } else writeUnicodeEscape(c);
+                return index;
+            }
+
+            int codePoint = 0x10000 + ((c - 0xD800) << 10) + (low - 0xDC00);
+            bytes[currIndex++] = (byte) (0xF0 | (codePoint >> 18));
+            bytes[currIndex++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            bytes[currIndex++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[currIndex++] = (byte) (0x80 | (codePoint & 0x3F));
+            return index + 1;
+        }
+
+        return index;
     }
 
+    /**
+     * Write a single character, which must be ASCII for UTF-8 output.
+     */
     private void write(char c) {
-        if (currIndex >= BUFFER_SIZE)
+        if (currIndex >= bufferSize)
             flush();
-        buffer[currIndex++] = c;
+        if (utf8Output)
+            byteBuffer[currIndex++] = (byte) c;
+        else buffer[currIndex++] = c;
+    }
+
+    /**
+     * Return the length of the string when encoded as UTF-8, counting an unpaired surrogate as the three byte U+FFFD
+     * that writeUtf8Char outputs for it in CBOR.
+     */
+    private static int utf8Length(String s) {
+        int length = s.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = s.charAt(i);
+            if (c < '\u0080')
+                ++utf8Length;
+            else if (c < '\u0800')
+                utf8Length += 2;
+            else if (c <= '\uDBFF' && c >= '\uD800' && i + 1 < length && s.charAt(i + 1) >= '\uDC00' &&
+                     s.charAt(i + 1) <= '\uDFFF') {
+                utf8Length += 4;
+                ++i;
+            } else utf8Length += 3;
+        }
+        return utf8Length;
+    }
+
+    private void writeCborValue(Object obj) {
+        if (obj instanceof String)
+            writeString((String) obj);
+        else if (obj instanceof Integer || obj instanceof Long) {
+            long value = obj instanceof Integer ? (long) (int) (Integer) obj : (long) (Long) obj;
+            if (value >= 0)
+                writeCborHeader(CBOR_UNSIGNED_INT, value);
+            else writeCborHeader(CBOR_NEGATIVE_INT, -1 - value);
+        } else if (obj instanceof Float || obj instanceof Double) {
+            double value = obj instanceof Float ? (double) (float) (Float) obj : (double) (Double) obj;
+            writeCborByte(CBOR_DOUBLE);
+            writeBigEndian(SystemUtils.doubleToRawLongBits(value), 8);
+        } else if (obj instanceof Boolean)
+            writeCborByte((boolean) (Boolean) obj ? CBOR_TRUE : CBOR_FALSE);
+        else if (obj instanceof JsonObject)
+            writeJsonObject((JsonObject) obj);
+        else if (obj instanceof JsonArray)
+            writeJsonArray((JsonArray) obj);
+        else if (obj instanceof JsonNull)
+            writeCborByte(CBOR_NULL);
+        else throw new JsonException("Unexpected JSON object type: {}", obj);
+    }
+
+    /**
+     * Write the start of a CBOR indefinite length map or array, which is ended with writeCborBreak.  This is for
+     * writing objects and arrays incrementally, when their size isn't known up front.
+     *
+     * @param map true for a map (JSON object), false for an array
+     */
+    public void writeCborIndefiniteLengthStart(boolean map) {
+        writeCborByte((map ? CBOR_MAP : CBOR_ARRAY) | CBOR_INDEFINITE_LENGTH);
+    }
+
+    /**
+     * Write the CBOR "break" byte, ending an indefinite length map or array.
+     */
+    public void writeCborBreak() {
+        writeCborByte(CBOR_BREAK);
+    }
+
+    private void writeCborByte(int b) {
+        if (currIndex >= bufferSize)
+            flush();
+        byteBuffer[currIndex++] = (byte) b;
+    }
+
+    /**
+     * Write a CBOR data item header, the initial byte followed by the argument (length or integer value) in the
+     * fewest bytes that hold it.
+     *
+     * @param majorType major type, shifted into the top three bits
+     * @param argument  non-negative argument
+     */
+    private void writeCborHeader(int majorType, long argument) {
+        if (argument < 24)
+            writeCborByte(majorType | (int) argument);
+        else if (argument < 0x100L) {
+            writeCborByte(majorType | 24);
+            writeBigEndian(argument, 1);
+        } else if (argument < 0x10000L) {
+            writeCborByte(majorType | 25);
+            writeBigEndian(argument, 2);
+        } else if (argument < 0x100000000L) {
+            writeCborByte(majorType | 26);
+            writeBigEndian(argument, 4);
+        } else {
+            writeCborByte(majorType | 27);
+            writeBigEndian(argument, 8);
+        }
+    }
+
+    private void writeBigEndian(long value, int byteCount) {
+        if (currIndex + byteCount > bufferSize)
+            flush();
+
+        byte[] bytes = byteBuffer;
+        for (int shift = (byteCount - 1) * 8; shift >= 0; shift -= 8)
+            bytes[currIndex++] = (byte) (value >>> shift);
     }
 
     public void flush() {
-        writer.write(buffer, 0, currIndex);
+        if (currIndex > 0) {
+            if (outputStream != null)
+                outputStream.write(byteBuffer, 0, currIndex);
+            else if (writer != null)
+                writer.write(buffer, 0, currIndex);
+        }
         currIndex = 0;
     }
 
+    /**
+     * Flush any buffered output, then return the buffer to the BufferPool.  The writer or stream isn't closed.  The
+     * serializer can't be used after that, unless it's reset.
+     */
+    public void close() {
+        flush();
+
+        if (utf8Output) {
+            if (byteBuffer.length != 0) {
+                BufferPool.releaseBytes(byteBuffer);
+                byteBuffer = new byte[0];
+            }
+        } else if (buffer.length != 0) {
+            BufferPool.releaseChars(buffer);
+            buffer = new char[0];
+        }
+    }
+
     /**
      * Increment (or decrement if negative) the prevailing indent by the specified amount.
      *
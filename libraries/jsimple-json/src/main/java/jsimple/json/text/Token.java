@@ -22,30 +22,73 @@
 
 package jsimple.json.text;
 
+import jsimple.io.BufferPool;
+import jsimple.io.InputStream;
 import jsimple.io.Reader;
 import jsimple.json.JsonException;
 import jsimple.json.objectmodel.JsonNull;
+import jsimple.util.ByteArrayRange;
 import jsimple.util.Characters;
 import jsimple.util.Integers;
 import jsimple.util.Longs;
+import jsimple.util.SystemUtils;
+import org.jetbrains.annotations.Nullable;
 
 
 /**
+ * Token is the JSON tokenizer.  It can read characters from a Reader or, more efficiently, UTF-8 bytes directly from
+ * an InputStream or byte array.   For byte input, the JSON syntax, numbers, and ASCII strings are scanned straight
+ * from the bytes; only strings containing non-ASCII characters go through UTF-8 decoding, so there's no separate
+ * decoding pass over the whole text.
+ * <p/>
+ * For either kind of input, a string without escapes that's wholly in the buffer is just remembered, and only turned
+ * into a String if getPrimitiveValue is called for it.
+ *
  * @author Bret Johnson
  * @since 5/6/12 12:18 AM
  */
 public final class Token {
-    private Reader reader;
-    private char[] buffer = new char[BUFFER_SIZE];
-    private int bufferLength;
+    private @Nullable Reader reader = null;
+    private @Nullable InputStream inputStream = null;
+    private boolean byteInput;                    // True if reading UTF-8 bytes (byteBuffer), false for chars (buffer)
+    private @Nullable CborTokenizer cbor = null;  // Set if the bytes are CBOR, rather than JSON text
+    private char[] buffer;
+    private byte[] byteBuffer;
+    private @Nullable byte[] streamBuffer = null; // Buffer for InputStream input, kept for reuse on reset
+    private int bufferLength;                     // End of the valid data in buffer or byteBuffer
     private int currIndex;      // Next character to be processed
     private TokenType type;
     private Object primitiveValue;
+    private long longValue;                       // Value for INT and LONG tokens
+    private double doubleValue;                   // Value for DOUBLE tokens
+
+    // A string token that hasn't been turned into a String yet; it's in the buffer, from start to end
+    private boolean stringPending = false;
+    private int pendingStringStart = 0;
+    private int pendingStringEnd = 0;
+
+    // Scratch space for strings that can't be created directly from the buffer
+    private char[] stringChars = new char[STRING_CHARS_INITIAL_SIZE];
+    private int stringLength = 0;
 
     private static final int BUFFER_SIZE = 256;
+    private static final int BYTE_BUFFER_SIZE = 8192;
+    private static final int STRING_CHARS_INITIAL_SIZE = 64;
+    private static final int MAX_RETAINED_STRING_CHARS = 64 * 1024;     // Bigger string buffers are dropped on reset
+
+    // Powers of ten that are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_LONG_POWER_OF_TEN = 18;        // Largest power of ten that fits in a long
+    private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
 
     public Token(Reader reader) {
         this.reader = reader;
+        byteInput = false;
+        buffer = BufferPool.acquireChars(BUFFER_SIZE);
+        byteBuffer = new byte[0];
         currIndex = 0;
         bufferLength = 0;
 
@@ -56,6 +99,182 @@ public final class Token {
         advance();
     }
 
+    /**
+     * Tokenize UTF-8 JSON text read from the stream.  This is faster than wrapping the stream in a
+     * Utf8InputStreamReader and tokenizing that.   The stream isn't closed here.
+     *
+     * @param inputStream UTF-8 JSON text
+     */
+    public Token(InputStream inputStream) {
+        this(inputStream, BufferPool.acquireBytes(BYTE_BUFFER_SIZE), 0, 0, false);
+    }
+
+    /**
+     * Tokenize UTF-8 JSON text in the specified part of the byte array.  The bytes are read in place, without copying,
+     * so they shouldn't be changed while the tokenizer is in use.
+     *
+     * @param bytes UTF-8 JSON text
+     * @param start index of the first byte of the text
+     * @param end   index just past the last byte of the text
+     */
+    public Token(byte[] bytes, int start, int end) {
+        this(null, bytes, start, end, false);
+    }
+
+    private Token(@Nullable InputStream inputStream, byte[] bytes, int start, int end, boolean cbor) {
+        this.inputStream = inputStream;
+        byteInput = true;
+        buffer = new char[0];
+        byteBuffer = bytes;
+        if (inputStream != null)
+            streamBuffer = bytes;
+        currIndex = start;
+        bufferLength = end;
+
+        // Initialize to avoid warnings
+        type = TokenType.PRIMITIVE;
+        primitiveValue = JsonNull.singleton;
+
+        if (cbor)
+            this.cbor = new CborTokenizer(this);
+        advance();
+    }
+
+    /**
+     * Tokenize UTF-8 JSON text in the specified byte array range.  The bytes are read in place, without copying.
+     *
+     * @param byteArrayRange UTF-8 JSON text
+     */
+    public Token(ByteArrayRange byteArrayRange) {
+        this(byteArrayRange.getBytes(), byteArrayRange.getPosition(),
+                byteArrayRange.getPosition() + byteArrayRange.getLength());
+    }
+
+    /**
+     * Reset the tokenizer to read JSON text from the specified reader, then advance to the first token.  The
+     * tokenizer's buffers are reused, so a Token can be kept (e.g. in a JsonPool) and used for document after document
+     * without allocating new ones.  Any kind of input can follow any other.
+     *
+     * @param reader JSON text
+     */
+    public void reset(Reader reader) {
+        this.reader = reader;
+        inputStream = null;
+        byteInput = false;
+        if (buffer.length == 0)
+            buffer = BufferPool.acquireChars(BUFFER_SIZE);
+        resetInput(0, 0);
+    }
+
+    /**
+     * Reset the tokenizer to read UTF-8 JSON text from the specified stream.  See reset(Reader).
+     *
+     * @param inputStream UTF-8 JSON text
+     */
+    public void reset(InputStream inputStream) {
+        reader = null;
+        this.inputStream = inputStream;
+        byteInput = true;
+
+        @Nullable byte[] currStreamBuffer = streamBuffer;
+        if (currStreamBuffer == null) {
+            currStreamBuffer = BufferPool.acquireBytes(BYTE_BUFFER_SIZE);
+            streamBuffer = currStreamBuffer;
+        }
+        byteBuffer = currStreamBuffer;
+        resetInput(0, 0);
+    }
+
+    /**
+     * Reset the tokenizer to read UTF-8 JSON text in the specified part of the byte array.  See reset(Reader).
+     *
+     * @param bytes UTF-8 JSON text
+     * @param start index of the first byte of the text
+     * @param end   index just past the last byte of the text
+     */
+    public void reset(byte[] bytes, int start, int end) {
+        reader = null;
+        inputStream = null;
+        byteInput = true;
+        byteBuffer = bytes;
+        resetInput(start, end);
+    }
+
+    /**
+     * Reset the tokenizer to read UTF-8 JSON text in the specified byte array range.  See reset(Reader).
+     *
+     * @param byteArrayRange UTF-8 JSON text
+     */
+    public void reset(ByteArrayRange byteArrayRange) {
+        reset(byteArrayRange.getBytes(), byteArrayRange.getPosition(),
+                byteArrayRange.getPosition() + byteArrayRange.getLength());
+    }
+
+    /**
+     * Return the tokenizer's input buffers to the BufferPool.  The tokenizer can't be used after that, unless it's
+     * reset, which gets new buffers as needed.  The input itself isn't closed.  Closing is optional--the buffers are
+     * just garbage collected otherwise--but it lets the next tokenizer reuse them.
+     */
+    public void close() {
+        reader = null;
+        inputStream = null;
+
+        if (buffer.length != 0) {
+            BufferPool.releaseChars(buffer);
+            buffer = new char[0];
+        }
+
+        @Nullable byte[] currStreamBuffer = streamBuffer;
+        if (currStreamBuffer != null) {
+            BufferPool.releaseBytes(currStreamBuffer);
+            streamBuffer = null;
+            byteBuffer = new byte[0];
+        }
+        currIndex = 0;
+        bufferLength = 0;
+    }
+
+    private void resetInput(int start, int end) {
+        cbor = null;
+        currIndex = start;
+        bufferLength = end;
+        stringPending = false;
+        stringLength = 0;
+        if (stringChars.length > MAX_RETAINED_STRING_CHARS)
+            stringChars = new char[STRING_CHARS_INITIAL_SIZE];
+
+        type = TokenType.PRIMITIVE;
+        primitiveValue = JsonNull.singleton;
+
+        advance();
+    }
+
+    /**
+     * Create a tokenizer for CBOR (RFC 7049) data read from the stream.  The binary data items are returned as the
+     * same sequence of tokens that the equivalent JSON text would produce--CBOR maps and arrays are bracketed by
+     * LEFT_BRACE/RIGHT_BRACE and LEFT_BRACKET/RIGHT_BRACKET tokens, with COLON and COMMA tokens synthesized between
+     * their items--so the parsers and readers built on Token, including JsonObjectReader with its JsonObjectType
+     * schemas, work on CBOR unchanged.  The stream isn't closed here.
+     *
+     * @param inputStream CBOR data
+     * @return tokenizer for the data
+     */
+    public static Token createCborToken(InputStream inputStream) {
+        return new Token(inputStream, BufferPool.acquireBytes(BYTE_BUFFER_SIZE), 0, 0, true);
+    }
+
+    /**
+     * Create a tokenizer for CBOR data in the specified byte array range, as above.  The bytes are read in place,
+     * without copying.
+     *
+     * @param byteArrayRange CBOR data
+     * @return tokenizer for the data
+     */
+    public static Token createCborToken(ByteArrayRange byteArrayRange) {
+        int start = byteArrayRange.getPosition();
+        return new Token(null, byteArrayRange.getBytes(), start, start + byteArrayRange.getLength(), true);
+    }
+
     /**
      * Return true if the particular character should be considered a control character and specified via Unicode escape
      * sequence in JSON.  The JSON spec is a bit ambiguous (as far as I can tell) on which exact Unicode characters are
@@ -75,10 +294,118 @@ public final class Token {
         return type;
     }
 
+    /**
+     * Return true if the token is a primitive--a string, number, true, false, or null.
+     *
+     * @return whether the token is a primitive
+     */
+    public boolean isPrimitive() {
+        return type == TokenType.PRIMITIVE || type == TokenType.INT || type == TokenType.LONG ||
+               type == TokenType.DOUBLE;
+    }
+
+    /**
+     * Get the value of a primitive token.  Numbers are returned boxed, as an Integer, Long, or Double; to avoid that
+     * use getIntValue, getLongValue, or getDoubleValue.
+     *
+     * @return primitive value
+     */
     public Object getPrimitiveValue() {
+        if (type == TokenType.INT)
+            return (Integer) ((int) longValue);
+        else if (type == TokenType.LONG)
+            return (Long) longValue;
+        else if (type == TokenType.DOUBLE)
+            return (Double) doubleValue;
+
+        if (stringPending) {
+            primitiveValue = createPendingString();
+            stringPending = false;
+        }
         return primitiveValue;
     }
 
+    /**
+     * Return true if the token is a string.
+     *
+     * @return whether the token is a string
+     */
+    public boolean isString() {
+        return type == TokenType.PRIMITIVE && (stringPending || primitiveValue instanceof String);
+    }
+
+    /**
+     * For a string token, return the property with that name in the specified name table (typically a JsonObjectType),
+     * or null if the table has no such name.  When the string is still in the buffer, it's matched from there, without
+     * creating a String.
+     *
+     * @param nameTable table of names to match against
+     * @param <T>       type of the objects that names map to
+     * @return matching property, or null if there's none
+     */
+    public @Nullable <T> T getStringAsProperty(PropertyNameTable<T> nameTable) {
+        if (stringPending) {
+            if (byteInput)
+                return nameTable.getPropertyAscii(byteBuffer, pendingStringStart, pendingStringEnd);
+            else return nameTable.getProperty(buffer, pendingStringStart, pendingStringEnd);
+        }
+
+        if (!isString())
+            throw new JsonParsingException("string", this);
+        return nameTable.getProperty((String) primitiveValue);
+    }
+
+    /**
+     * Get the value of an INT token, throwing an exception if the token is something else.
+     *
+     * @return int value
+     */
+    public int getIntValue() {
+        if (type != TokenType.INT)
+            throw new JsonParsingException("int", this);
+        return (int) longValue;
+    }
+
+    /**
+     * Get the value of an INT or LONG token, throwing an exception if the token is something else.
+     *
+     * @return long value
+     */
+    public long getLongValue() {
+        if (type != TokenType.INT && type != TokenType.LONG)
+            throw new JsonParsingException("long", this);
+        return longValue;
+    }
+
+    /**
+     * Get the value of a number token as a double, throwing an exception if the token isn't a number.  INT and LONG
+     * values are converted.
+     *
+     * @return double value
+     */
+    public double getDoubleValue() {
+        if (type == TokenType.DOUBLE)
+            return doubleValue;
+        else if (type == TokenType.INT || type == TokenType.LONG)
+            return (double) longValue;
+        else throw new JsonParsingException("number", this);
+    }
+
+    private String createPendingString() {
+        int length = pendingStringEnd - pendingStringStart;
+        if (!byteInput)
+            return new String(buffer, pendingStringStart, length);
+
+        // Pending strings in byte input are always ASCII
+        ensureStringCapacity(length);
+        byte[] bytes = byteBuffer;
+        char[] chars = stringChars;
+        int start = pendingStringStart;
+        for (int i = 0; i < length; ++i)
+            chars[i] = (char) bytes[start + i];
+        return new String(chars, 0, length);
+    }
+
     /**
      * Get a user friendly description of the token.  This is typically used for error messages, saying we encountered
      * such & such, which isn't what we expected.
@@ -86,22 +413,30 @@ public final class Token {
      * @return token description phrase
      */
     public String getDescription() {
-        if (type == TokenType.PRIMITIVE) {
-            if (primitiveValue instanceof Integer || primitiveValue instanceof Long)
-                return primitiveValue.toString();
-            else if (primitiveValue instanceof Double)
-                return primitiveValue.toString();
-            else if (primitiveValue instanceof Boolean)
-                return ((boolean) (Boolean) primitiveValue) ? "true" : "false";
-            else if (primitiveValue instanceof String)
-                return "\"" + primitiveValue.toString() + "\"";
-            else if (primitiveValue instanceof JsonNull)
+        if (isPrimitive()) {
+            Object value = getPrimitiveValue();
+            if (value instanceof Integer || value instanceof Long)
+                return value.toString();
+            else if (value instanceof Double)
+                return value.toString();
+            else if (value instanceof Boolean)
+                return ((boolean) (Boolean) value) ? "true" : "false";
+            else if (value instanceof String)
+                return "\"" + value.toString() + "\"";
+            else if (value instanceof JsonNull)
                 return "null";
             else throw new JsonException("Unknown token primitive type");
         } else return getTokenTypeDescription(type);
     }
 
     public void advance() {
+        stringPending = false;
+
+        if (cbor != null) {
+            cbor.advance();
+            return;
+        }
+
         while (true) {
             char lookahead = lookaheadChar();
 
@@ -145,7 +480,7 @@ public final class Token {
                     return;
 
                 case '"':
-                    primitiveValue = readStringToken();
+                    readStringToken();
                     type = TokenType.PRIMITIVE;
                     return;
 
@@ -173,8 +508,7 @@ public final class Token {
             }
 
             if (lookahead == '-' || (lookahead >= '0' && lookahead <= '9')) {
-                primitiveValue = readNumberToken(lookahead);
-                type = TokenType.PRIMITIVE;
+                readNumberToken(lookahead);
                 return;
             } else
                 throw new JsonParsingException("Unexpected character '" + lookahead +
@@ -182,6 +516,80 @@ public final class Token {
         }
     }
 
+    /**
+     * Skip the current value, advancing to the token after it.  For a primitive, that's just the same as advance.  For
+     * an object or array, its contents are skipped with a quick scan for the matching close bracket, tracking nesting
+     * and strings but not otherwise tokenizing or validating the contents.  Nothing is allocated.
+     */
+    public void skipValue() {
+        if (isPrimitive()) {
+            advance();
+            return;
+        }
+
+        if (type != TokenType.LEFT_BRACE && type != TokenType.LEFT_BRACKET)
+            throw new JsonParsingException("value to skip", this);
+
+        // CBOR has no brackets to scan for, so just step through the tokens; strings in the buffer aren't decoded
+        if (cbor != null) {
+            int depth = 0;
+            do {
+                if (type == TokenType.LEFT_BRACE || type == TokenType.LEFT_BRACKET)
+                    ++depth;
+                else if (type == TokenType.RIGHT_BRACE || type == TokenType.RIGHT_BRACKET)
+                    --depth;
+                advance();
+            } while (depth > 0);
+            return;
+        }
+
+        int depth = 1;
+        boolean inString = false;
+        boolean escaped = false;
+        while (true) {
+            int end = bufferLength;
+            for (int i = currIndex; i < end; ++i) {
+                char c = byteInput ? (char) byteBuffer[i] : buffer[i];
+
+                if (inString) {
+                    if (escaped)
+                        escaped = false;
+                    else if (c == '\\')
+                        escaped = true;
+                    else if (c == '"')
+                        inString = false;
+                } else if (c == '"')
+                    inString = true;
+                else if (c == '{' || c == '[')
+                    ++depth;
+                else if (c == '}' || c == ']') {
+                    --depth;
+                    if (depth == 0) {
+                        currIndex = i + 1;
+                        advance();
+                        return;
+                    }
+                }
+            }
+
+            currIndex = end;
+            lookaheadChar();    // Refill the buffer
+            if (bufferLength == 0)
+                throw new JsonParsingException("'}' or ']' to end the object or array", "end of JSON text");
+        }
+    }
+
+    /**
+     * Get the index of the next unread character.  For byte array input, this is the absolute index in the array, so
+     * for instance when the current token is a '{' or '[', getPosition() - 1 is its index.  For other kinds of input,
+     * it's relative to the current buffer, so not generally meaningful.
+     *
+     * @return index of next unread character or byte
+     */
+    public int getPosition() {
+        return currIndex;
+    }
+
     private void checkAndAdvancePast(String expected) {
         int length = expected.length();
 
@@ -208,32 +616,155 @@ public final class Token {
     }
 
     /**
-     * Validate that the token is the expected type (throwing an exception if it isn't).
+     * Validate that the token is the expected type (throwing an exception if it isn't).  Checking for PRIMITIVE accepts
+     * any primitive, including numbers.
      *
      * @param expectedType expected token type
      */
     public void check(TokenType expectedType) {
-        if (type != expectedType)
+        if (type != expectedType && !(expectedType == TokenType.PRIMITIVE && isPrimitive()))
             throw new JsonParsingException(Token.getTokenTypeDescription(expectedType), this);
     }
 
-    private String readStringToken() {
-        StringBuilder string = new StringBuilder();
-
+    /**
+     * Read a string token, setting primitiveValue to it or, if it's wholly in the buffer and has nothing that needs
+     * decoding, marking it as pending so the String is only created if asked for.
+     */
+    private void readStringToken() {
         ++currIndex;   // Skip past the leading "
 
+        int start = currIndex;
+        int end = bufferLength;
+        int i = start;
+        if (byteInput) {
+            byte[] bytes = byteBuffer;
+            while (i < end) {
+                int b = bytes[i];
+                if (b == '"') {
+                    setPendingString(start, i);
+                    return;
+                }
+                // Non-ASCII bytes are negative, so this catches them too
+                if (b == '\\' || b < 0x20 || b == 0x7F)
+                    break;
+                ++i;
+            }
+        } else {
+            char[] chars = buffer;
+            while (i < end) {
+                char c = chars[i];
+                if (c == '"') {
+                    setPendingString(start, i);
+                    return;
+                }
+                if (c == '\\' || isControlCharacter(c))
+                    break;
+                ++i;
+            }
+        }
+
+        // Slow path:  copy what's been scanned so far then go character by character, decoding as needed
+        stringLength = 0;
+        int scannedLength = i - start;
+        ensureStringCapacity(scannedLength);
+        if (byteInput) {
+            for (int j = 0; j < scannedLength; ++j)
+                stringChars[j] = (char) byteBuffer[start + j];
+        } else SystemUtils.copyChars(buffer, start, stringChars, 0, scannedLength);
+        stringLength = scannedLength;
+        currIndex = i;
+
         while (true) {
             char c = readChar();
 
-            if (c == '"')
-                return string.toString();
-            else if (c == '\\')
-                string.append(readEscapedChar());
+            if (c == '"') {
+                primitiveValue = new String(stringChars, 0, stringLength);
+                return;
+            } else if (c == '\\')
+                appendStringChar(readEscapedChar());
+            else if (byteInput && c >= 0x80)
+                appendUtf8Char(c);
             else if (isControlCharacter(c))
                 throw new JsonParsingException(charDescription('\"'), charDescription(c));
             else
-                string.append(c);
+                appendStringChar(c);
+        }
+    }
+
+    private void setPendingString(int start, int end) {
+        stringPending = true;
+        pendingStringStart = start;
+        pendingStringEnd = end;
+        currIndex = end + 1;    // Skip past the trailing "
+    }
+
+    private void ensureStringCapacity(int capacity) {
+        if (stringChars.length < capacity) {
+            int newLength = stringChars.length * 2;
+            if (newLength < capacity)
+                newLength = capacity;
+
+            char[] newStringChars = new char[newLength];
+            SystemUtils.copyChars(stringChars, 0, newStringChars, 0, stringLength);
+            stringChars = newStringChars;
+        }
+    }
+
+    private void appendStringChar(char c) {
+        if (stringLength == stringChars.length)
+            ensureStringCapacity(stringLength + 1);
+        stringChars[stringLength++] = c;
+    }
+
+    /**
+     * Decode a multi-byte UTF-8 character, given its first byte, reading the rest of its bytes, and append it to the
+     * string being built.  Characters outside the BMP are appended as a surrogate pair.
+     *
+     * @param firstByte first byte of the character, which is >= 0x80
+     */
+    private void appendUtf8Char(int firstByte) {
+        int codePoint = readUtf8CodePoint(firstByte);
+        // Only check BMP characters; casting a supplementary code point to char would check just its low 16 bits
+        if (codePoint <= 0xFFFF && isControlCharacter((char) codePoint))
+            throw new JsonParsingException(charDescription('"'), charDescription((char) codePoint));
+        appendCodePoint(codePoint);
+    }
+
+    private int readUtf8CodePoint(int firstByte) {
+        int codePoint;
+        int continuationBytes;
+        int minCodePoint;
+        if ((firstByte & 0xE0) == 0xC0) {
+            codePoint = firstByte & 0x1F;
+            continuationBytes = 1;
+            minCodePoint = 0x80;
+        } else if ((firstByte & 0xF0) == 0xE0) {
+            codePoint = firstByte & 0x0F;
+            continuationBytes = 2;
+            minCodePoint = 0x800;
+        } else if ((firstByte & 0xF8) == 0xF0) {
+            codePoint = firstByte & 0x07;
+            continuationBytes = 3;
+            minCodePoint = 0x10000;
+        } else throw new JsonParsingException("Invalid UTF-8 encoding--JSON text contains an invalid UTF-8 byte");
+
+        for (int i = 0; i < continuationBytes; ++i) {
+            int b = readChar();
+            if ((b & 0xC0) != 0x80)
+                throw new JsonParsingException("Invalid UTF-8 encoding--JSON text contains a truncated UTF-8 character");
+            codePoint = (codePoint << 6) | (b & 0x3F);
         }
+
+        if (codePoint < minCodePoint || codePoint > 0x10FFFF || (codePoint >= 0xD800 && codePoint <= 0xDFFF))
+            throw new JsonParsingException("Invalid UTF-8 encoding--JSON text contains an invalid UTF-8 character");
+        return codePoint;
+    }
+
+    private void appendCodePoint(int codePoint) {
+        if (codePoint > 0xFFFF) {
+            appendStringChar((char) (0xD7C0 + (codePoint >> 10)));      // High surrogate
+            appendStringChar((char) (0xDC00 + (codePoint & 0x3FF)));    // Low surrogate
+        } else appendStringChar((char) codePoint);
     }
 
     private char readEscapedChar() {
@@ -272,11 +803,20 @@ public final class Token {
         else throw new JsonParsingException("Invalid character escape: '\\" + c + "'");
     }
 
+    /**
+     * Return the next character, without consuming it, or '\0' at the end of the input.  For byte input, this returns
+     * the next byte; bytes >= 0x80 are only valid inside strings, where they're decoded as UTF-8.
+     */
     private char lookaheadChar() {
         if (currIndex < bufferLength)
-            return buffer[currIndex];
+            return byteInput ? (char) (byteBuffer[currIndex] & 0xFF) : buffer[currIndex];
         else {
-            int amountRead = reader.read(buffer);
+            int amountRead;
+            if (reader != null)
+                amountRead = reader.read(buffer);
+            else if (inputStream != null)
+                amountRead = inputStream.read(byteBuffer);
+            else amountRead = -1;    // A byte array has nothing more
 
             currIndex = 0;
             if (amountRead == -1 || amountRead == 0) {
@@ -284,14 +824,14 @@ public final class Token {
                 return '\0';
             } else {
                 bufferLength = amountRead;
-                return buffer[currIndex];
+                return byteInput ? (char) (byteBuffer[currIndex] & 0xFF) : buffer[currIndex];
             }
         }
     }
 
     private char readChar() {
         if (currIndex < bufferLength)
-            return buffer[currIndex++];
+            return byteInput ? (char) (byteBuffer[currIndex++] & 0xFF) : buffer[currIndex++];
         else {
             char c = lookaheadChar();
             ++currIndex;
@@ -373,7 +913,13 @@ public final class Token {
         else throw new JsonException("Digit {} should be < 16 (and > 0) in call to numToHexDigitChar", num);
     }
 
-    private Object readNumberToken(char lookahead) {
+    /**
+     * Read a number, setting the token type to INT, LONG, or DOUBLE and the corresponding value.  Nothing is boxed or
+     * allocated.
+     *
+     * @param lookahead first character of the number, a minus sign or digit
+     */
+    private void readNumberToken(char lookahead) {
         boolean negative = false;
         if (lookahead == '-') {
             negative = true;
@@ -400,10 +946,10 @@ public final class Token {
                 value = 10 * value + digit;
                 ++currIndex;
             } else if (lookahead == '.') {
-                double doubleValue = (double) value + readFractionalPartOfDouble();
-                if (negative)
-                    doubleValue = -doubleValue;
-                return doubleValue;
+                double doubleValue = readFractionalNumber(value);
+                this.doubleValue = negative ? -doubleValue : doubleValue;
+                type = TokenType.DOUBLE;
+                return;
             } else if (lookahead == 'e' || lookahead == 'E')
                 throw new JsonParsingException("Numbers in scientific notation aren't currently supported");
             else break;
@@ -412,26 +958,34 @@ public final class Token {
         if (negative)
             value = -1 * value;
 
+        longValue = value;
         if (value <= Integers.MAX_VALUE && value >= Integers.MIN_VALUE)
-            return (Integer) ((int) value);
-        else return (Long) value;
+            type = TokenType.INT;
+        else type = TokenType.LONG;
     }
 
     /**
-     * Parse and return the fractional part of a floating point number--the decimal point and what's after it.  Note
-     * that our implementation is somewhat more forgiving than the JSON standard in that "123." is treated as valid-- it
-     * doesn't require a digit to follow the decimal point.   Scientific notation is currently not supported--if that's
-     * ever needed, we can implement it.
+     * Parse the fractional part of a floating point number--the decimal point and what's after it--and return the
+     * (non-negative) value of the whole number.  The fraction digits are accumulated into a long.  When the integer
+     * and fraction digits together fit in the 53 bit mantissa of a double, as they do for all but very long numbers,
+     * a single division by an exactly representable power of ten gives the correctly rounded result, without going
+     * through a String.  Otherwise the fraction is added to the integer part, which can be off by an ulp in rare cases.
+     * Fraction digits beyond what a long can hold are past the precision of a double and ignored.
+     * <p/>
+     * Note that our implementation is somewhat more forgiving than the JSON standard in that "123." is treated as
+     * valid-- it doesn't require a digit to follow the decimal point.   Scientific notation is currently not
+     * supported--if that's ever needed, we can implement it.
      *
-     * @return double representing what follows the decimal point; the returned value is >= 0 and < 1
+     * @param integerPart non-negative value of the digits before the decimal point
+     * @return value of the number
      */
-    private double readFractionalPartOfDouble() {
+    private double readFractionalNumber(long integerPart) {
         if (lookaheadChar() != '.')
             throw new JsonParsingException("fraction to start with a '.'", Characters.toString(lookaheadChar()));
         ++currIndex;
 
-        double value = 0;
-        double place = 0.1;
+        long fraction = 0;
+        int fractionDigits = 0;
 
         while (true) {
             char lookahead = lookaheadChar();
@@ -439,14 +993,126 @@ public final class Token {
                 int digit = lookahead - '0';
                 ++currIndex;
 
-                value += digit * place;
-                place /= 10;
+                if (fraction <= (Longs.MAX_VALUE - digit) / 10) {
+                    fraction = 10 * fraction + digit;
+                    ++fractionDigits;
+                }
             } else if (lookahead == 'e' || lookahead == 'E')
                 throw new JsonParsingException("Numbers in scientific notation aren't currently supported");
             else break;
         }
 
-        return value;
+        if (fractionDigits <= MAX_LONG_POWER_OF_TEN) {
+            long scale = (long) POWERS_OF_TEN[fractionDigits];
+            if (integerPart <= (MAX_EXACT_DOUBLE_MANTISSA - fraction) / scale)
+                return (double) (integerPart * scale + fraction) / POWERS_OF_TEN[fractionDigits];
+        }
+
+        double fractionValue = (double) fraction;
+        while (fractionDigits >= POWERS_OF_TEN.length) {
+            fractionValue /= POWERS_OF_TEN[POWERS_OF_TEN.length - 1];
+            fractionDigits -= POWERS_OF_TEN.length - 1;
+        }
+        return (double) integerPart + fractionValue / POWERS_OF_TEN[fractionDigits];
+    }
+
+    // The methods below are used by CborTokenizer, which decodes the data items while Token manages the input
+
+    /**
+     * Read the next byte of byte input, returning -1 at the end of the input.
+     */
+    int readByte() {
+        if (currIndex >= bufferLength) {
+            lookaheadChar();    // Refill the buffer
+            if (bufferLength == 0)
+                return -1;
+        }
+        return byteBuffer[currIndex++] & 0xFF;
+    }
+
+    /**
+     * Return the next byte of byte input, without consuming it, or -1 at the end of the input.
+     */
+    int lookaheadByte() {
+        if (currIndex >= bufferLength) {
+            lookaheadChar();
+            if (bufferLength == 0)
+                return -1;
+        }
+        return byteBuffer[currIndex] & 0xFF;
+    }
+
+    /**
+     * Read a UTF-8 string of the specified length in bytes, making it the (PRIMITIVE) token.  Like JSON text strings,
+     * an ASCII string that's wholly in the buffer is just left pending there.  Unlike JSON text, control characters
+     * are allowed as is.
+     *
+     * @param length length of the string, in bytes
+     */
+    void readUtf8StringToken(int length) {
+        type = TokenType.PRIMITIVE;
+
+        int start = currIndex;
+        if (length <= bufferLength - start) {
+            byte[] bytes = byteBuffer;
+            int end = start + length;
+            int i = start;
+            while (i < end && bytes[i] >= 0)
+                ++i;
+            if (i == end) {
+                stringPending = true;
+                pendingStringStart = start;
+                pendingStringEnd = end;
+                currIndex = end;
+                return;
+            }
+        }
+
+        stringLength = 0;
+        int remaining = length;
+        while (remaining > 0) {
+            int b = readByte();
+            if (b == -1)
+                throw new JsonParsingException("string to be complete", "end of CBOR data");
+
+            if (b < 0x80) {
+                appendStringChar((char) b);
+                --remaining;
+            } else {
+                int codePoint = readUtf8CodePoint(b);
+                appendCodePoint(codePoint);
+                if (codePoint < 0x800)
+                    remaining -= 2;
+                else if (codePoint < 0x10000)
+                    remaining -= 3;
+                else remaining -= 4;
+            }
+        }
+        if (remaining < 0)
+            throw new JsonParsingException("Invalid UTF-8 encoding--CBOR string ends in the middle of a UTF-8 character");
+
+        primitiveValue = new String(stringChars, 0, stringLength);
+    }
+
+    void setStructuralType(TokenType type) {
+        this.type = type;
+    }
+
+    void setPrimitiveValue(Object primitiveValue) {
+        type = TokenType.PRIMITIVE;
+        this.primitiveValue = primitiveValue;
+    }
+
+    void setLongValue(long value) {
+        longValue = value;
+        if (value <= Integers.MAX_VALUE && value >= Integers.MIN_VALUE)
+            type = TokenType.INT;
+        else type = TokenType.LONG;
+    }
+
+    void setDoubleValue(double value) {
+        doubleValue = value;
+        type = TokenType.DOUBLE;
     }
 
     static String getTokenTypeDescription(TokenType type) {
@@ -465,6 +1131,12 @@ public final class Token {
                 return "':'";
             case PRIMITIVE:
                 return "primitive (string/number/true/false/null)";
+            case INT:
+                return "int";
+            case LONG:
+                return "long";
+            case DOUBLE:
+                return "floating point number";
             case EOF:
                 return "end of JSON text";
             default:
@@ -23,6 +23,10 @@
 package jsimple.json.text;
 
 /**
+ * The kinds of JSON tokens.  PRIMITIVE is used for strings, true, false, and null; numbers have their own types, INT,
+ * LONG, or DOUBLE, depending on the smallest type that holds them, so they can be read without boxing.  Use
+ * Token.isPrimitive to check for any primitive, including numbers.
+ *
  * @author Bret Johnson
  * @since 5/6/12 1:02 AM
  */
@@ -34,5 +38,8 @@ public enum TokenType {
     COMMA,
     COLON,
     PRIMITIVE,
+    INT,
+    LONG,
+    DOUBLE,
     EOF
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json;
+
+import jsimple.io.ByteArrayInputStream;
+import jsimple.io.ByteArrayOutputStream;
+import jsimple.io.StringWriter;
+import jsimple.json.objectmodel.JsonArray;
+import jsimple.json.objectmodel.JsonNull;
+import jsimple.json.objectmodel.JsonObject;
+import jsimple.json.objectmodel.JsonObjectOrArray;
+import jsimple.json.readerwriter.*;
+import jsimple.json.text.JsonParsingException;
+import jsimple.unit.UnitTest;
+import jsimple.util.ByteArrayRange;
+import jsimple.util.Integers;
+import org.junit.Test;
+
+public class CborTest extends UnitTest {
+    private static final JsonObjectType objectType = new JsonObjectType();
+    private static final JsonStringProperty nameProperty = objectType.createStringProperty("name", 1);
+    private static final JsonIntProperty countProperty = objectType.createIntProperty("count", 2);
+    private static final JsonLongProperty sizeProperty = objectType.createLongProperty("size", 3);
+    private static final JsonDoubleProperty ratioProperty = objectType.createDoubleProperty("ratio", 4);
+    private static final JsonBooleanProperty enabledProperty = objectType.createBooleanProperty("enabled", 5);
+    private static final JsonArrayProperty itemsProperty = objectType.createArrayProperty("items", 6);
+    private static final JsonObjectProperty childProperty = objectType.createObjectProperty("child", 7);
+
+    @Test public void testRoundTrip() {
+        JsonObject object = new JsonObject()
+                .add("string", "abc")
+                .add("escapes", "quote \" backslash \\ newline \n tab \t")
+                .add("unicode", "caf\u00e9 \u4e2d \uD83D\uDE00")
+                .add("int", 23)
+                .add("byteInt", 24)
+                .add("shortInt", 500)
+                .add("int32", 100000)
+                .add("negative", -1)
+                .add("negativeBig", Integers.MIN_VALUE)
+                .add("long", 5000000000L)
+                .add("longMax", 9223372036854775807L)
+                .add("longMin", -9223372036854775807L - 1)
+                .add("double", 123.25)
+                .add("negativeDouble", -0.1)
+                .add("true", true)
+                .add("false", false)
+                .add("null", JsonNull.singleton)
+                .add("emptyObject", new JsonObject())
+                .add("emptyArray", new JsonArray())
+                .add("array", new JsonArray().add(1).add("two").add(new JsonObject().add("three", 3.5)));
+
+        JsonArray bigArray = new JsonArray();
+        for (int i = 0; i < 1000; ++i)
+            bigArray.add("item" + i);
+        object.add("bigArray", bigArray);
+
+        ByteArrayRange cbor = object.toCborBytes();
+        JsonObjectOrArray parsed = Json.parseCbor(cbor);
+        assertEquals(object.toString(), parsed.toString());
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(cbor.getBytes(), cbor.getPosition(),
+                cbor.getLength());
+        assertEquals(object.toString(), Json.parseCbor(inputStream).toString());
+
+        // CBOR is smaller than the compact JSON for the same data
+        assertTrue(cbor.getLength() < object.toUtf8Bytes().getLength());
+    }
+
+    @Test public void testEncoding() {
+        assertEquals("a26161016162820203",
+                toHex(new JsonObject().add("a", 1).add("b", new JsonArray().add(2).add(3)).toCborBytes()));
+
+        // Integers use the smallest encoding that holds them
+        assertEquals("8c00171818" + "18ff190100" + "1901f41a000186a0" + "203901f3" + "f4f5f6",
+                toHex(new JsonArray().add(0).add(23).add(24).add(255).add(256).add(500).add(100000).add(-1).add(-500)
+                        .add(false).add(true).add(JsonNull.singleton).toCborBytes()));
+
+        assertEquals("81fb3ff8000000000000", toHex(new JsonArray().add(1.5).toCborBytes()));
+
+        // An unpaired surrogate can't be encoded as UTF-8, so is replaced
+        assertEquals("8164efbfbd61", toHex(new JsonArray().add("\uD800a").toCborBytes()));
+    }
+
+    @Test public void testDecoding() {
+        // Examples from RFC 7049, appendix A
+        assertTrue(((JsonArray) parseHex("81f93c00")).getDouble(0) == 1.0);
+        assertTrue(((JsonArray) parseHex("81f97bff")).getDouble(0) == 65504.0);
+        assertTrue(((JsonArray) parseHex("81f90001")).getDouble(0) == 5.960464477539063e-8);
+        assertTrue(((JsonArray) parseHex("81f9c400")).getDouble(0) == -4.0);
+        assertTrue(((JsonArray) parseHex("81fa47c35000")).getDouble(0) == 100000.0);
+        assertTrue(((JsonArray) parseHex("81fb3ff199999999999a")).getDouble(0) == 1.1);
+        assertEquals(1000000000000L, ((JsonArray) parseHex("811b000000e8d4a51000")).getLong(0));
+        assertEquals(-1000, ((JsonArray) parseHex("813903e7")).getInt(0));
+        assertEquals("\u00fc", ((JsonArray) parseHex("8162c3bc")).getString(0));
+        assertEquals("\uD800\uDD51", ((JsonArray) parseHex("8164f0908591")).getString(0));
+
+        // Indefinite length containers and tags (the tag here says the number is an epoch based date/time)
+        assertEquals("{\"a\":1,\"b\":[2,3]}", toCompactString(parseHex("bf61610161629f0203ffff")));
+        assertEquals("[[],{},1363896240]", toCompactString(parseHex("839fffa0c11a514b67b0")));
+
+        // Undefined is treated as null
+        assertTrue(((JsonArray) parseHex("81f7")).get(0) == JsonNull.singleton);
+    }
+
+    @Test public void testReaderWriter() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        JsonObjectWriter objectWriter = Json.writeObjectCbor(outputStream);
+        nameProperty.write(objectWriter, "first");
+        countProperty.write(objectWriter, 42);
+        sizeProperty.write(objectWriter, 5000000000L);
+        ratioProperty.write(objectWriter, 0.5);
+        enabledProperty.write(objectWriter, true);
+
+        JsonArrayWriter itemsWriter = objectWriter.writeArrayProperty(itemsProperty);
+        itemsWriter.writeValue(1);
+        itemsWriter.writeObject().close();
+        itemsWriter.writeArray().close();
+        itemsWriter.close();
+
+        JsonObjectWriter childWriter = objectWriter.writeObjectProperty(childProperty);
+        nameProperty.write(childWriter, "second");
+        childWriter.close();
+
+        objectWriter.writeProeprty("other", "unknown property");
+        objectWriter.close();
+
+        ByteArrayRange cbor = outputStream.closeAndGetByteArray();
+        assertEquals("{\"name\":\"first\",\"count\":42,\"size\":5000000000,\"ratio\":0.5,\"enabled\":true," +
+                     "\"items\":[1,{},[]],\"child\":{\"name\":\"second\"},\"other\":\"unknown property\"}",
+                toCompactString(Json.parseCbor(cbor)));
+
+        JsonObjectReader objectReader = (JsonObjectReader) Json.readCbor(cbor);
+        objectReader.setObjectType(objectType);
+
+        assertTrue(nameProperty == objectReader.readProperty());
+        assertEquals("first", nameProperty.readValue(objectReader));
+        assertTrue(countProperty == objectReader.readProperty());
+        assertEquals(42, countProperty.readValue(objectReader));
+        assertTrue(sizeProperty == objectReader.readProperty());
+        assertEquals(5000000000L, sizeProperty.readValue(objectReader));
+        assertTrue(ratioProperty == objectReader.readProperty());
+        assertTrue(ratioProperty.readValue(objectReader) == 0.5);
+        assertTrue(enabledProperty == objectReader.readProperty());
+        assertTrue(enabledProperty.readValue(objectReader));
+
+        assertTrue(itemsProperty == objectReader.readProperty());
+        JsonArrayReader itemsReader = itemsProperty.readValue(objectReader);
+        assertEquals(1, itemsReader.readInt());
+        assertTrue(itemsReader.readObject().atEnd());
+        assertTrue(itemsReader.readArray().atEnd());
+        assertTrue(itemsReader.atEnd());
+
+        assertTrue(childProperty == objectReader.readProperty());
+        JsonObjectReader childReader = childProperty.readValue(objectReader);
+        childReader.setObjectType(objectType);
+        assertTrue(nameProperty == childReader.readProperty());
+        assertEquals("second", nameProperty.readValue(childReader));
+        assertTrue(childReader.atEnd());
+
+        JsonProperty otherProperty = objectReader.readProperty();
+        assertEquals("other", otherProperty.getName());
+        assertEquals("unknown property", objectReader.readPropertyValue());
+        assertTrue(objectReader.atEnd());
+    }
+
+    @Test public void testInvalidCbor() {
+        validateParsingError("a2616101", "Expected '}' but encountered end of CBOR data");
+        validateParsingError("a10101", "Expected string for CBOR map key but encountered 1");
+        validateParsingError("8142ffff", "CBOR byte strings aren't supported, as they have no JSON equivalent");
+        validateParsingError("8164616263",
+                "Expected string to be complete but encountered end of CBOR data");
+        validateParsingError("811b8000000000000000", "Number is too big, overflowing the size of a long");
+        validateParsingError("81ff", "Unexpected CBOR break byte, outside of an indefinite length map or array");
+        validateParsingError("8162c328", "Invalid UTF-8 encoding--JSON text contains a truncated UTF-8 character");
+    }
+
+    private void validateParsingError(String hex, String expectedMessage) {
+        try {
+            parseHex(hex);
+            fail();
+        } catch (JsonParsingException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    private static JsonObjectOrArray parseHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; ++i)
+            bytes[i] = (byte) (hexDigitValue(hex.charAt(2 * i)) * 16 + hexDigitValue(hex.charAt(2 * i + 1)));
+        return Json.parseCbor(new ByteArrayRange(bytes, 0, bytes.length));
+    }
+
+    private static int hexDigitValue(char c) {
+        return c <= '9' ? c - '0' : c - 'a' + 10;
+    }
+
+    private static String toHex(ByteArrayRange bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < bytes.getLength(); ++i) {
+            int b = bytes.getBytes()[bytes.getPosition() + i] & 0xFF;
+            hex.append("0123456789abcdef".charAt(b >> 4));
+            hex.append("0123456789abcdef".charAt(b & 0xF));
+        }
+        return hex.toString();
+    }
+
+    private static String toCompactString(JsonObjectOrArray objectOrArray) {
+        StringWriter stringWriter = new StringWriter();
+        objectOrArray.write(stringWriter, true);
+        return stringWriter.toString();
+    }
+}
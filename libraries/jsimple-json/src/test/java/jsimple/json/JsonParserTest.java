@@ -22,12 +22,14 @@
 
 package jsimple.json;
 
+import jsimple.io.IOUtils;
 import jsimple.io.StringReader;
 import jsimple.json.objectmodel.JsonArray;
 import jsimple.json.objectmodel.JsonNull;
 import jsimple.json.objectmodel.JsonObject;
 import jsimple.json.text.JsonParsingException;
 import jsimple.unit.UnitTest;
+import jsimple.util.ByteArrayRange;
 import org.junit.Test;
 
 /**
@@ -71,6 +73,67 @@ public class JsonParserTest extends UnitTest {
         validateParsingException("Expected , or ] but encountered true", "[\"abc\", [\"def\", 42] true");
     }
 
+    @Test public void testLargeObjectLookup() {
+        JsonObject jsonObject = new JsonObject();
+        for (int i = 0; i < 1000; ++i)
+            jsonObject.add("key" + i, i);
+        jsonObject.add("key5", "duplicate");
+
+        for (int i = 0; i < 1000; ++i)
+            assertEquals(i, jsonObject.getInt("key" + i));
+        assertEquals(5, jsonObject.get("key5"));    // First occurrence wins
+        assertFalse(jsonObject.containsKey("key1000"));
+        assertEquals(null, jsonObject.getOrNull("missing"));
+
+        // Items added after the index is built are found too, with order preserved
+        jsonObject.add("key1000", 1000);
+        assertEquals(1000, jsonObject.getInt("key1000"));
+        assertEquals(1001, jsonObject.indexOf("key1000"));
+        assertEquals("key1000", jsonObject.getName(jsonObject.size() - 1));
+    }
+
+    @Test public void testParseLazy() {
+        String jsonText = "{\"data\": [{\"name\": \"a}]\\\"\", \"picture\": {\"url\": \"http://x/1\"}}, " +
+                          "{\"name\": \"caf\u00e9\", \"picture\": {\"url\": \"http://x/2\"}}], \"count\": 2, " +
+                          "\"empty\": {}}";
+        ByteArrayRange bytes = IOUtils.toUtf8BytesFromString(jsonText);
+
+        JsonObject root = (JsonObject) Json.parseLazy(bytes);
+        assertEquals(2, root.getInt("count"));
+
+        JsonArray data = root.getJsonArray("data");
+        assertEquals(2, data.size());
+        assertEquals("a}]\"", data.getJsonObject(0).getString("name"));
+        assertEquals("http://x/2", data.getJsonObject(1).getJsonObject("picture").getString("url"));
+        assertEquals("caf\u00e9", data.getJsonObject(1).getString("name"));
+        assertEquals(0, root.getJsonObject("empty").size());
+
+        // A nested value is parsed once; later accesses return the same object
+        assertTrue(data == root.getJsonArray("data"));
+        assertTrue(data.getJsonObject(1) == data.getJsonObject(1));
+
+        // Serializing a partially accessed lazy tree gives the same result as a fully parsed one
+        assertEquals(Json.parse(bytes).toString(), Json.parseLazy(bytes).toString());
+
+        // Errors in nested values are reported when the value is accessed
+        JsonObject badChild = (JsonObject) Json.parseLazy(IOUtils.toUtf8BytesFromString("{\"a\": 1, \"b\": [1 2]}"));
+        assertEquals(1, badChild.getInt("a"));
+        try {
+            badChild.getJsonArray("b");
+            fail();
+        } catch (JsonParsingException e) {
+            assertEquals("Expected , or ] but encountered 2", e.getMessage());
+        }
+
+        try {
+            Json.parseLazy(IOUtils.toUtf8BytesFromString("{\"a\": [1, [2]"));
+            fail();
+        } catch (JsonParsingException e) {
+            assertEquals("Expected '}' or ']' to end the object or array but encountered end of JSON text",
+                    e.getMessage());
+        }
+    }
+
     private JsonObject parseJsonObject(String jsonText) {
         return (JsonObject) Json.parse(new StringReader(jsonText));
     }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json;
+
+import jsimple.io.BufferPool;
+import jsimple.io.ByteArrayInputStream;
+import jsimple.io.ByteArrayOutputStream;
+import jsimple.io.StringReader;
+import jsimple.io.StringWriter;
+import jsimple.json.objectmodel.JsonArray;
+import jsimple.json.objectmodel.JsonObject;
+import jsimple.json.path.JsonProjection;
+import jsimple.json.path.JsonProjectionListener;
+import jsimple.json.readerwriter.JsonObjectReader;
+import jsimple.json.readerwriter.JsonObjectWriter;
+import jsimple.json.readerwriter.NdjsonReader;
+import jsimple.json.readerwriter.NdjsonWriter;
+import jsimple.json.text.Serializer;
+import jsimple.json.text.Token;
+import jsimple.json.text.TokenType;
+import jsimple.unit.UnitTest;
+import jsimple.util.ByteArrayRange;
+import org.junit.Test;
+
+public class JsonPoolTest extends UnitTest {
+    @Test public void testParseReusesParser() {
+        JsonPool pool = new JsonPool();
+
+        for (int i = 0; i < 10; ++i) {
+            JsonObject object = new JsonObject().add("index", i).add("name", "caf\u00e9 " + i)
+                    .add("items", new JsonArray().add(i).add("x"));
+            String text = object.toString();
+            ByteArrayRange bytes = object.toUtf8Bytes();
+
+            assertEquals(text, pool.parse(new StringReader(text)).toString());
+            assertEquals(text, pool.parse(bytes).toString());
+            assertEquals(text, pool.parse(new ByteArrayInputStream(bytes.toByteArray())).toString());
+        }
+
+        // Parsing sequentially, a single parser is used for everything
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test public void testWriteReusesSerializer() {
+        JsonPool pool = new JsonPool();
+        JsonObject object = new JsonObject().add("a", 1).add("b", new JsonArray().add("c"));
+
+        for (int i = 0; i < 5; ++i) {
+            StringWriter stringWriter = new StringWriter();
+            pool.write(object, stringWriter, i % 2 == 0);
+            assertEquals(i % 2 == 0 ? "{\"a\":1,\"b\":[\"c\"]}" : object.toString(), stringWriter.toString());
+
+            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+            pool.write(object, byteStream, true);
+            assertEquals("{\"a\":1,\"b\":[\"c\"]}".length(), byteStream.closeAndGetByteArray().getLength());
+        }
+
+        // One serializer for writers and one for streams
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test public void testAcquireAndRelease() {
+        JsonPool pool = new JsonPool(1);
+
+        Token token = pool.acquireToken(new StringReader("{\"a\": 1, \"b\": \"two\"}"));
+        JsonObjectReader objectReader = new JsonObjectReader(token);
+        assertEquals("a", objectReader.readPropertyName());
+        assertEquals(1, objectReader.readPropertyValue());
+        pool.releaseToken(token);
+
+        Token secondToken = pool.acquireToken(new ByteArrayRange(new byte[]{'[', '7', ']'}));
+        assertTrue(token == secondToken);
+        assertEquals(TokenType.LEFT_BRACKET, secondToken.getType());
+
+        // Only maxPooled are kept
+        Token thirdToken = pool.acquireToken(new StringReader("[]"));
+        assertTrue(thirdToken != secondToken);
+        pool.releaseToken(secondToken);
+        pool.releaseToken(thirdToken);
+        assertTrue(pool.acquireToken(new StringReader("[]")) == secondToken);
+
+        StringWriter stringWriter = new StringWriter();
+        Serializer serializer = pool.acquireSerializer(stringWriter);
+        serializer.setCompact(true);
+        JsonObjectWriter objectWriter = new JsonObjectWriter(serializer, true);
+        objectWriter.writeProeprty("x", "y");
+        objectWriter.close();
+        pool.releaseSerializer(serializer);
+        assertEquals("{\"x\":\"y\"}", stringWriter.toString());
+
+        // Released serializers go back to pretty printing
+        Serializer secondSerializer = pool.acquireSerializer(new StringWriter());
+        assertTrue(serializer == secondSerializer);
+        assertTrue(!secondSerializer.isCompact());
+    }
+
+    @Test public void testTokenReset() {
+        Token token = new Token(new StringReader("[1]"));
+        token.reset(new ByteArrayInputStream(new byte[]{'{', '}'}));
+        assertEquals(TokenType.LEFT_BRACE, token.getType());
+        token.advance();
+        assertEquals(TokenType.RIGHT_BRACE, token.getType());
+
+        token.reset(new StringReader("\"abc\""));
+        assertEquals("abc", token.getPrimitiveValue());
+        token.advance();
+        assertEquals(TokenType.EOF, token.getType());
+
+        token.reset(new ByteArrayRange(new byte[]{' ', '4', '2'}));
+        assertEquals(42, token.getIntValue());
+    }
+
+    @Test public void testSerializerResetMismatch() {
+        Serializer serializer = new Serializer(new StringWriter());
+        try {
+            serializer.reset(new ByteArrayOutputStream());
+            fail();
+        } catch (JsonException e) {
+            assertEquals("Serializer writes characters to a Writer, so it can't be reset to use an OutputStream",
+                    e.getMessage());
+        }
+    }
+
+    @Test public void testBuffersReturnedToBufferPool() {
+        BufferPool.setLeakDetection(true);
+        try {
+            JsonObject object = (JsonObject) Json.parse(new StringReader("{\"a\": [1, 2, \"three\"]}"));
+            Json.parse(new ByteArrayInputStream(object.toUtf8Bytes()));
+            Json.parseCbor(new ByteArrayInputStream(object.toCborBytes()));
+
+            StringWriter stringWriter = new StringWriter();
+            object.write(stringWriter, true);
+            assertEquals("{\"a\":[1,2,\"three\"]}", stringWriter.toString());
+
+            JsonObjectWriter objectWriter = Json.writeObject(new ByteArrayOutputStream(), true);
+            objectWriter.writeProeprty("x", "y");
+            objectWriter.close();
+
+            // Streaming readers, NDJSON and projections return their tokenizer's buffers once closed or done
+            JsonObjectReader objectReader = Json.readObject(new StringReader("{\"x\": \"y\"}"));
+            assertEquals("x", objectReader.readPropertyName());
+            assertEquals("y", objectReader.readPropertyValue());
+            objectReader.close();
+
+            ByteArrayOutputStream ndjsonBytes = new ByteArrayOutputStream();
+            NdjsonWriter ndjsonWriter = new NdjsonWriter(ndjsonBytes);
+            ndjsonWriter.write(object);
+            ndjsonWriter.write(object);
+            ndjsonWriter.close();
+
+            NdjsonReader ndjsonReader = new NdjsonReader(new ByteArrayInputStream(ndjsonBytes.toByteArray()));
+            assertEquals("three", ndjsonReader.readObject().getJsonArray("a").getString(2));
+            ndjsonReader.close();
+
+            JsonProjection projection = new JsonProjection();
+            projection.addPath("a");
+            final int[] matchCount = new int[1];
+            projection.project(new ByteArrayInputStream(ndjsonBytes.toByteArray()), new JsonProjectionListener() {
+                @Override public void onMatch(int pathId, Object value) {
+                    ++matchCount[0];
+                }
+            });
+            assertEquals(1, matchCount[0]);
+
+            assertEquals(0, BufferPool.getOutstandingCount());
+        } finally {
+            BufferPool.setLeakDetection(false);
+        }
+    }
+}
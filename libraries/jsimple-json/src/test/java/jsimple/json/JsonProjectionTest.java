@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json;
+
+import jsimple.io.IOUtils;
+import jsimple.io.StringReader;
+import jsimple.json.objectmodel.JsonObject;
+import jsimple.json.path.JsonProjection;
+import jsimple.json.path.JsonProjectionListener;
+import jsimple.json.path.JsonProjectionResult;
+import jsimple.unit.UnitTest;
+import jsimple.util.List;
+import org.junit.Test;
+
+public class JsonProjectionTest extends UnitTest {
+    private static final String FRIENDS_JSON =
+            "{\"data\": [" +
+            "{\"name\": \"Ann\", \"id\": 1, \"picture\": {\"data\": {\"url\": \"http://x/1\", \"is_silhouette\": false}}}," +
+            "{\"name\": \"Bob\", \"tags\": [\"a\", {\"b\": [1, 2]}], \"picture\": {\"data\": {\"url\": \"http://x/2\"}}}," +
+            "{\"name\": \"C\\u00e9\", \"picture\": null}" +
+            "], \"paging\": {\"next\": \"http://next\"}, \"count\": 3}";
+
+    @Test public void testProjection() {
+        JsonProjection projection = new JsonProjection();
+        int urlPath = projection.addPath("data[*].picture.data.url");
+        int namePath = projection.addPath("data[*].name");
+        int secondPath = projection.addPath("data[1]");
+        int nextPath = projection.addPath("paging.next");
+        int missingPath = projection.addPath("paging.previous");
+        int pagingPropertiesPath = projection.addPath("paging.*");
+
+        // Check both the char and byte tokenizer paths
+        for (int pass = 0; pass < 2; ++pass) {
+            JsonProjectionResult result = new JsonProjectionResult(projection);
+            if (pass == 0)
+                projection.project(new StringReader(FRIENDS_JSON), result);
+            else projection.project(IOUtils.toUtf8BytesFromString(FRIENDS_JSON), result);
+
+            List<Object> urls = result.getValues(urlPath);
+            assertEquals(2, urls.size());
+            assertEquals("http://x/1", urls.get(0));
+            assertEquals("http://x/2", urls.get(1));
+
+            List<Object> names = result.getValues(namePath);
+            assertEquals(3, names.size());
+            assertEquals("C\u00e9", names.get(2));
+
+            // data[1] overlaps data[*].name, so both get matched from the materialized value
+            assertEquals("Bob", ((JsonObject) result.getFirstValue(secondPath)).getString("name"));
+            assertEquals("Bob", names.get(1));
+
+            assertEquals("http://next", result.getFirstValue(nextPath));
+            assertEquals(null, result.getFirstValue(missingPath));
+            assertEquals(1, result.getValues(pagingPropertiesPath).size());
+        }
+    }
+
+    @Test public void testListenerOrderAndRoot() {
+        JsonProjection projection = new JsonProjection();
+        projection.addPath("[*].id");
+        projection.addPath("");
+
+        final StringBuilder matches = new StringBuilder();
+        projection.project(new StringReader("[{\"id\": 1}, {\"x\": {\"id\": 5}}, {\"id\": 3}]"),
+                new JsonProjectionListener() {
+                    @Override public void onMatch(int pathId, Object value) {
+                        if (pathId == 0)
+                            matches.append(' ').append(value);
+                        else matches.append("root");
+                    }
+                });
+
+        // A value containing other matches is delivered first, as its start comes first in the document
+        assertEquals("root 1 3", matches.toString());
+    }
+
+    @Test public void testInvalidPaths() {
+        validateInvalidPath("Invalid JSON path 'a[1': '[' at position 1 isn't closed", "a[1");
+        validateInvalidPath("Invalid JSON path 'a[x]': invalid array index 'x'", "a[x]");
+        validateInvalidPath("Invalid JSON path '.a': it can't start with '.'", ".a");
+        validateInvalidPath("Invalid JSON path 'a..b': property name expected at position 2", "a..b");
+    }
+
+    private void validateInvalidPath(String exceptionMessage, String path) {
+        try {
+            new JsonProjection().addPath(path);
+            fail();
+        } catch (JsonException e) {
+            assertEquals(exceptionMessage, e.getMessage());
+        }
+    }
+}
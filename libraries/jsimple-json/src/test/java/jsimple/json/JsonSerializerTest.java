@@ -22,10 +22,17 @@
 
 package jsimple.json;
 
+import jsimple.io.ByteArrayOutputStream;
+import jsimple.io.IOUtils;
+import jsimple.io.StringWriter;
 import jsimple.json.objectmodel.JsonArray;
 import jsimple.json.objectmodel.JsonNull;
 import jsimple.json.objectmodel.JsonObject;
 import jsimple.json.objectmodel.JsonObjectOrArray;
+import jsimple.json.readerwriter.JsonArrayProperty;
+import jsimple.json.readerwriter.JsonArrayWriter;
+import jsimple.json.readerwriter.JsonObjectWriter;
+import jsimple.json.text.Serializer;
 import jsimple.unit.UnitTest;
 import jsimple.util.Doubles;
 import jsimple.util.Longs;
@@ -98,6 +105,51 @@ public class JsonSerializerTest extends UnitTest {
         );
     }
 
+    @Test public void testSerializeCompact() {
+        JsonObject jsonObject = new JsonObject().
+                add("num", 3).
+                add("str", "a \"b\"\n").
+                add("arr", new JsonArray().add(1).add(new JsonObject().add("x", true)).add(new JsonArray())).
+                add("obj", new JsonObject());
+
+        StringWriter stringWriter = new StringWriter();
+        jsonObject.write(stringWriter, true);
+        assertEquals("{\"num\":3,\"str\":\"a \\\"b\\\"\\n\",\"arr\":[1,{\"x\":true},[]],\"obj\":{}}",
+                stringWriter.toString());
+
+        stringWriter = new StringWriter();
+        JsonObjectWriter objectWriter = Json.writeObject(stringWriter, true);
+        objectWriter.writeProeprty("num", 3);
+        JsonArrayWriter arrayWriter = objectWriter.writeArrayProperty(new JsonArrayProperty("arr", 1));
+        arrayWriter.writeValue(1);
+        arrayWriter.writeValue("two");
+        arrayWriter.close();
+        objectWriter.close();
+        assertEquals("{\"num\":3,\"arr\":[1,\"two\"]}", stringWriter.toString());
+    }
+
+    @Test public void testSerializeUtf8() {
+        JsonArray jsonArray = new JsonArray();
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 100; ++i)
+            longString.append("abc\u00e9\u20ac\ud83d\ude00 ");
+        jsonArray.add(longString.toString());
+        jsonArray.add("\u0001 \"quoted\" \\");
+        jsonArray.add(new JsonObject().add("caf\u00e9", "\u4e2d\u6587"));
+
+        // Direct UTF-8 output, with a small buffer so there are many flushes, should match encoding the char output
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        Serializer serializer = new Serializer(byteStream, 16);
+        serializer.writeValue(jsonArray);
+        serializer.flush();
+        assertEquals(jsonArray.toString(), IOUtils.toStringFromUtf8Bytes(byteStream.getByteArray()) + "\n");
+
+        // An unpaired surrogate can't be encoded as UTF-8, so it's escaped
+        byteStream = new ByteArrayOutputStream();
+        new JsonArray().add("a\ud83db").write(byteStream, true);
+        assertEquals("[\"a\\uD83Db\"]", IOUtils.toStringFromUtf8Bytes(byteStream.getByteArray()));
+    }
+
     void assertSerializedJsonIs(JsonObjectOrArray json, String... lines) {
         StringBuilder jsonTextBuilder = new StringBuilder();
         for (String line : lines)
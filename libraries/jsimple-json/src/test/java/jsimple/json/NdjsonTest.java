@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.json;
+
+import jsimple.io.ByteArrayFileMapping;
+import jsimple.io.ByteArrayOutputStream;
+import jsimple.io.InputStream;
+import jsimple.io.StringReader;
+import jsimple.io.StringWriter;
+import jsimple.json.objectmodel.JsonArray;
+import jsimple.json.objectmodel.JsonObject;
+import jsimple.json.readerwriter.JsonArrayReader;
+import jsimple.json.readerwriter.JsonObjectReader;
+import jsimple.json.readerwriter.NdjsonReader;
+import jsimple.json.readerwriter.NdjsonWriter;
+import jsimple.json.text.JsonParsingException;
+import jsimple.unit.UnitTest;
+import jsimple.util.ByteArrayRange;
+import jsimple.util.List;
+import org.junit.Test;
+
+public class NdjsonTest extends UnitTest {
+    @Test public void testWriteAndRead() {
+        StringWriter stringWriter = new StringWriter();
+        NdjsonWriter ndjsonWriter = new NdjsonWriter(stringWriter);
+        ndjsonWriter.write(new JsonObject().add("id", 1).add("name", "a b"));
+        ndjsonWriter.write(new JsonObject().add("id", 2).add("tags", new JsonArray().add("x")));
+        ndjsonWriter.write(new JsonArray().add(3));
+        ndjsonWriter.close();
+
+        String text = stringWriter.toString();
+        assertEquals("{\"id\":1,\"name\":\"a b\"}\n{\"id\":2,\"tags\":[\"x\"]}\n[3]\n", text);
+
+        NdjsonReader ndjsonReader = new NdjsonReader(new StringReader(text));
+        assertEquals(1, ndjsonReader.readObject().getInt("id"));
+
+        JsonObjectReader objectReader = ndjsonReader.readObjectReader();
+        assertEquals("id", objectReader.readPropertyName());
+        assertEquals(2, objectReader.readPropertyValue());
+        assertEquals("tags", objectReader.readPropertyName());
+        JsonArrayReader tagsReader = (JsonArrayReader) objectReader.readPropertyValue();
+        assertEquals("x", tagsReader.readString());
+        assertTrue(tagsReader.atEnd());
+        assertTrue(objectReader.atEnd());
+
+        try {
+            ndjsonReader.readObject();
+            fail();
+        } catch (JsonParsingException e) {
+            assertEquals("Expected {, starting a record object but encountered '['", e.getMessage());
+        }
+        assertEquals(3, ((JsonArray) ndjsonReader.readRecord()).getInt(0));
+        assertTrue(ndjsonReader.atEnd());
+        assertEquals(3, ndjsonReader.getRecordCount());
+    }
+
+    @Test public void testFlushInterval() {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        NdjsonWriter ndjsonWriter = new NdjsonWriter(byteStream);
+        ndjsonWriter.setFlushInterval(2);
+
+        ndjsonWriter.write(new JsonObject().add("id", 1));
+        assertEquals(0, byteStream.getByteArray().getLength());
+        ndjsonWriter.write(new JsonObject().add("id", 2));
+        assertEquals("{\"id\":1}\n{\"id\":2}\n".length(), byteStream.getByteArray().getLength());
+        ndjsonWriter.close();
+    }
+
+    @Test public void testSplit() {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        NdjsonWriter ndjsonWriter = new NdjsonWriter(byteStream);
+        for (int i = 0; i < 100; ++i)
+            ndjsonWriter.write(new JsonObject().add("id", i).add("text", "record " + i));
+        ndjsonWriter.flush();
+        ByteArrayRange bytes = byteStream.getByteArray();
+
+        List<ByteArrayRange> chunks = NdjsonReader.split(bytes, 3);
+        assertEquals(3, chunks.size());
+
+        int expectedId = 0;
+        for (ByteArrayRange chunk : chunks) {
+            NdjsonReader ndjsonReader = new NdjsonReader(chunk);
+            while (!ndjsonReader.atEnd())
+                assertEquals(expectedId++, ndjsonReader.readObject().getInt("id"));
+        }
+        assertEquals(100, expectedId);
+
+        assertEquals(1, NdjsonReader.split(new ByteArrayRange(new byte[]{'{', '}'}), 4).size());
+        assertEquals(0, NdjsonReader.split(new ByteArrayRange(new byte[0]), 4).size());
+
+        // A file mapping splits the same way, into streams over the mapping
+        List<InputStream> streamChunks = NdjsonReader.split(new ByteArrayFileMapping(bytes), 3);
+        assertEquals(3, streamChunks.size());
+
+        expectedId = 0;
+        for (InputStream chunk : streamChunks) {
+            NdjsonReader ndjsonReader = new NdjsonReader(chunk);
+            while (!ndjsonReader.atEnd())
+                assertEquals(expectedId++, ndjsonReader.readObject().getInt("id"));
+            ndjsonReader.close();
+        }
+        assertEquals(100, expectedId);
+
+        assertEquals(0, NdjsonReader.split(new ByteArrayFileMapping(new ByteArrayRange(new byte[0])), 4).size());
+    }
+}
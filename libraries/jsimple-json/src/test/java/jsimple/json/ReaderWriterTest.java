@@ -22,6 +22,8 @@
 
 package jsimple.json;
 
+import jsimple.io.ByteArrayInputStream;
+import jsimple.io.IOUtils;
 import jsimple.io.StringReader;
 import jsimple.json.readerwriter.*;
 import jsimple.json.text.JsonParsingException;
@@ -83,6 +85,47 @@ public class ReaderWriterTest extends UnitTest {
         assertTrue(subArrayReader.atEnd());
     }
 
+    @Test public void testReadPropertyMatching() {
+        JsonObjectType subtype = new JsonObjectType(jsonObjectType);
+        JsonProperty[] subtypeProperties = new JsonProperty[40];
+        for (int i = 0; i < subtypeProperties.length; ++i)
+            subtypeProperties[i] = subtype.createIntProperty("prop" + i, 100 + i);
+
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < subtypeProperties.length; ++i)
+            json.append("\"prop").append(i).append("\": ").append(i).append(", ");
+        json.append("\"stringVal\": \"abc\", \"unknown\": 1, \"caf\u00e9\": 2, \"esc\\u0061ped\": 3}");
+        String jsonText = json.toString();
+
+        // Check both the char and byte tokenizer paths
+        for (int pass = 0; pass < 2; ++pass) {
+            JsonObjectReader objectReader = pass == 0 ? Json.readObject(new StringReader(jsonText)) :
+                    Json.readObject(new ByteArrayInputStream(IOUtils.toUtf8BytesFromString(jsonText)));
+            objectReader.setObjectType(subtype);
+
+            for (int i = 0; i < subtypeProperties.length; ++i) {
+                assertTrue(subtypeProperties[i] == objectReader.readProperty());
+                assertEquals(i, ((JsonIntProperty) subtypeProperties[i]).readValue(objectReader));
+            }
+
+            assertTrue(jsonStringVal == objectReader.readProperty());    // From the superclass
+            assertEquals("abc", jsonStringVal.readValue(objectReader));
+
+            JsonProperty unknownProperty = objectReader.readProperty();
+            assertEquals("unknown", unknownProperty.getName());
+            assertEquals(-1, unknownProperty.getId());
+            objectReader.readPropertyValue();
+
+            assertEquals("caf\u00e9", objectReader.readProperty().getName());
+            objectReader.readPropertyValue();
+
+            assertEquals("escaped", objectReader.readProperty().getName());
+            objectReader.readPropertyValue();
+
+            assertTrue(objectReader.atEnd());
+        }
+    }
+
     @Test public void testParseArray() {
         String json = "[\"abc\", 1, -1, 5000000000, 123.45, true, false, [], {}]";
 
@@ -22,12 +22,16 @@
 
 package jsimple.json;
 
+import jsimple.io.ByteArrayInputStream;
+import jsimple.io.IOUtils;
+import jsimple.io.InputStream;
 import jsimple.io.StringReader;
 import jsimple.json.objectmodel.JsonNull;
 import jsimple.json.text.JsonParsingException;
 import jsimple.json.text.Token;
 import jsimple.json.text.TokenType;
 import jsimple.unit.UnitTest;
+import jsimple.util.ByteArrayRange;
 import org.junit.Test;
 
 /**
@@ -110,10 +114,111 @@ public class TokenTest extends UnitTest {
         validateParsingException("Invalid character escape: '\\\uabcd'", "\"abc\\\uaBcD\"");
     }
 
+    @Test public void testUtf8StringTokens() {
+        validateStringToken("caf\u00e9", "caf\u00e9");
+        validateStringToken("\u20ac 100", "\u20ac 100");
+        validateStringToken("\ud83d\ude00", "\ud83d\ude00");    // Outside the BMP, so a surrogate pair
+        validateStringToken("\ud800\udc90", "\ud800\udc90");    // U+10090, whose low 16 bits look like a control char
+        validateStringToken("\ud840\udc05", "\ud840\udc05");    // U+20005, likewise
+        validateStringToken("\ud87e\udc05", "\ud87e\udc05");    // U+2F805
+        validateStringToken("a\u00e9\n\u4e2d", "a\u00e9\\n\u4e2d");
+
+        validateInvalidUtf8("Invalid UTF-8 encoding--JSON text contains an invalid UTF-8 byte",
+                new byte[]{'"', 'a', (byte) 0x80, '"'});
+        validateInvalidUtf8("Invalid UTF-8 encoding--JSON text contains a truncated UTF-8 character",
+                new byte[]{'"', (byte) 0xE2, (byte) 0x82, '"'});
+        validateInvalidUtf8("Invalid UTF-8 encoding--JSON text contains an invalid UTF-8 character",
+                new byte[]{'"', (byte) 0xC0, (byte) 0xAF, '"'});    // Overlong encoding of '/'
+        validateInvalidUtf8("Invalid UTF-8 encoding--JSON text contains an invalid UTF-8 character",
+                new byte[]{'"', (byte) 0xED, (byte) 0xA0, (byte) 0x80, '"'});    // Encoded surrogate
+        validateInvalidUtf8("Expected '\"' but encountered \\u0085",
+                new byte[]{'"', (byte) 0xC2, (byte) 0x85, '"'});    // Control character
+    }
+
+    @Test public void testByteInputRefills() {
+        String json = "{\"name\": \"caf\u00e9\", \"values\": [123, -45.5, true, null, \"abc\"]}";
+        ByteArrayRange bytes = IOUtils.toUtf8BytesFromString(json);
+
+        // Return just one byte per read, so every token, and multi-byte character, spans buffer refills
+        final ByteArrayInputStream byteStream = new ByteArrayInputStream(bytes);
+        InputStream oneByteStream = new InputStream() {
+            @Override public void close() {
+            }
+
+            @Override public int read() {
+                return byteStream.read();
+            }
+
+            @Override public int read(byte[] buffer, int offset, int length) {
+                return byteStream.read(buffer, offset, length == 0 ? 0 : 1);
+            }
+        };
+
+        Token token = new Token(oneByteStream);
+        assertEquals(TokenType.LEFT_BRACE, token.getType());
+        token.advance();
+        assertEquals("name", token.getPrimitiveValue());
+        token.advance();
+        assertEquals(TokenType.COLON, token.getType());
+        token.advance();
+        assertEquals("caf\u00e9", token.getPrimitiveValue());
+        token.advance();
+        token.advance();
+        assertEquals("values", token.getPrimitiveValue());
+        token.advance();
+        token.advance();
+        assertEquals(TokenType.LEFT_BRACKET, token.getType());
+        token.advance();
+        assertEquals(123, token.getPrimitiveValue());
+        token.advance();
+        token.advance();
+        assertEquals(-45.5, token.getPrimitiveValue());
+        token.advance();
+        token.advance();
+        assertEquals(true, token.getPrimitiveValue());
+        token.advance();
+        token.advance();
+        assertEquals(JsonNull.singleton, token.getPrimitiveValue());
+        token.advance();
+        token.advance();
+        assertEquals("abc", token.getPrimitiveValue());
+        token.advance();
+        assertEquals(TokenType.RIGHT_BRACKET, token.getType());
+        token.advance();
+        assertEquals(TokenType.RIGHT_BRACE, token.getType());
+        token.advance();
+        assertEquals(TokenType.EOF, token.getType());
+    }
+
+    @Test public void testByteArraySubrange() {
+        byte[] bytes = new byte[]{'x', 'x', '"', 'a', 'b', '"', ' ', '1', '2', 'x'};
+        Token token = new Token(bytes, 2, 9);
+        assertEquals("ab", token.getPrimitiveValue());
+        token.advance();
+        assertEquals(12, token.getPrimitiveValue());
+        token.advance();
+        assertEquals(TokenType.EOF, token.getType());
+    }
+
     private void validateStringToken(String expectedPrimitiveValue, String stringToken) {
         String json = "\"" + stringToken + "\"";
         Token token = new Token(new StringReader(json));
         assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
+
+        token = new Token(IOUtils.toUtf8BytesFromString(json));
+        assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
+
+        token = new Token(new ByteArrayInputStream(IOUtils.toUtf8BytesFromString(json)));
+        assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
+    }
+
+    private void validateInvalidUtf8(String exceptionMessage, byte[] bytes) {
+        try {
+            new Token(bytes, 0, bytes.length);
+            fail();
+        } catch (JsonParsingException e) {
+            assertEquals(exceptionMessage, e.getMessage());
+        }
     }
 
     @Test public void testNumberTokens() {
@@ -172,19 +277,67 @@ public class TokenTest extends UnitTest {
         validateParsingException("Numbers in scientific notation aren't currently supported", "123.12E5");
     }
 
+    @Test public void testUnboxedNumberValues() {
+        Token token = new Token(new StringReader("12 -5000000000 2.5 \"abc\""));
+
+        assertEquals(TokenType.INT, token.getType());
+        assertTrue(token.isPrimitive());
+        assertEquals(12, token.getIntValue());
+        assertEquals(12L, token.getLongValue());
+        assertTrue(token.getDoubleValue() == 12.0);
+        token.advance();
+
+        assertEquals(TokenType.LONG, token.getType());
+        assertEquals(-5000000000L, token.getLongValue());
+        try {
+            token.getIntValue();
+            fail();
+        } catch (JsonParsingException e) {
+            assertEquals("Expected int but encountered -5000000000", e.getMessage());
+        }
+        token.advance();
+
+        assertEquals(TokenType.DOUBLE, token.getType());
+        assertTrue(token.getDoubleValue() == 2.5);
+        try {
+            token.getLongValue();
+            fail();
+        } catch (JsonParsingException e) {
+            assertEquals("Expected long but encountered 2.5", e.getMessage());
+        }
+        token.advance();
+
+        assertEquals(TokenType.PRIMITIVE, token.getType());
+        try {
+            token.getDoubleValue();
+            fail();
+        } catch (JsonParsingException e) {
+            assertEquals("Expected number but encountered \"abc\"", e.getMessage());
+        }
+    }
+
     private void validateNumberToken(int expectedPrimitiveValue, String numberToken) {
         Token token = new Token(new StringReader(numberToken));
         assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
+
+        token = new Token(IOUtils.toUtf8BytesFromString(numberToken));
+        assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
     }
 
     private void validateNumberToken(long expectedPrimitiveValue, String numberToken) {
         Token token = new Token(new StringReader(numberToken));
         assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
+
+        token = new Token(IOUtils.toUtf8BytesFromString(numberToken));
+        assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
     }
 
     private void validateFloatingPointNumberToken(double expectedPrimitiveValue, String doubleToken) {
         Token token = new Token(new StringReader(doubleToken));
         assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
+
+        token = new Token(IOUtils.toUtf8BytesFromString(doubleToken));
+        assertEquals(expectedPrimitiveValue, token.getPrimitiveValue());
     }
 
     private void validateParsingException(String exceptionExpected, String exceptionActual, String tokenString) {
@@ -198,6 +351,25 @@ public class TokenTest extends UnitTest {
         } catch (JsonParsingException e) {
             assertEquals(exceptionMessage, e.getMessage());
         }
+
+        // Errors on non-ASCII text are reported differently for bytes, as the bytes aren't decoded outside of strings
+        if (isAscii(tokenString)) {
+            try {
+                new Token(IOUtils.toUtf8BytesFromString(tokenString));
+                fail();
+            } catch (JsonParsingException e) {
+                assertEquals(exceptionMessage, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isAscii(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; ++i) {
+            if (s.charAt(i) >= 0x80)
+                return false;
+        }
+        return true;
     }
 
     private void assertParsingExceptionMatches(JsonParsingException e, String expectedMessage) {
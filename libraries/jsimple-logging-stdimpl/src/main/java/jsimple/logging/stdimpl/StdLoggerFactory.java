@@ -18,7 +18,7 @@ import jsimple.logging.Level;
 import jsimple.logging.Logger;
 import jsimple.logging.LoggerFactory;
 import jsimple.util.ArrayList;
-import jsimple.util.HashMap;
+import jsimple.util.ConcurrentHashMap;
 import jsimple.util.List;
 
 /**
@@ -26,7 +26,7 @@ import jsimple.util.List;
  * @since 4/8/13 12:57 AM
  */
 public class StdLoggerFactory implements ILoggerFactory {
-    private HashMap<String, StdLogger> loggers = new HashMap<String, StdLogger>();
+    private ConcurrentHashMap<String, StdLogger> loggers = new ConcurrentHashMap<String, StdLogger>();
     private Level defaultLevel = Level.DEBUG;
     private List<Appender> defaultAppenders = new ArrayList<Appender>();
 
@@ -61,8 +61,14 @@ public class StdLoggerFactory implements ILoggerFactory {
     }
 
     public StdLogger getStdLogger(String name) {
+        // Loggers are normally already there, so look without locking first.  Creation still synchronizes, so that it
+        // doesn't race with the level/appender updates below
+        StdLogger logger = loggers.get(name);
+        if (logger != null)
+            return logger;
+
         synchronized (this) {
-            StdLogger logger = loggers.get(name);
+            logger = loggers.get(name);
             if (logger == null) {
                 logger = new StdLogger(this, name);
                 loggers.put(name, logger);
@@ -116,6 +116,14 @@ namespace jsimple.util {
             manualResetEvent.WaitOne(sleepTimeInMilliseconds);
         }
 
+        public static void waitForNotify(Object lockObject, int timeoutInMillis) {
+            Monitor.Wait(lockObject, timeoutInMillis == 0 ? Timeout.Infinite : timeoutInMillis);
+        }
+
+        public static void notifyWaiters(Object lockObject) {
+            Monitor.PulseAll(lockObject);
+        }
+
         /// <summary>
         /// Copy data from source byte array to destination byte array.
         /// </summary>
@@ -205,5 +213,17 @@ namespace jsimple.util {
         {
             return EqualityComparer<T>.Default.Equals(obj, default(T));
         }
+
+        public static int getAvailableProcessors() {
+            return Environment.ProcessorCount;
+        }
+
+        /// <summary>
+        /// Stably sort the range [start, end) of the array.  There's no parallel implementation for .NET yet, so this
+        /// just sorts on the calling thread.
+        /// </summary>
+        public static void parallelSort<T>(T[] array, int start, int end, Comparator<T> comparator) {
+            Arrays.sort(array, start, end, comparator);
+        }
     }
 }
\ No newline at end of file
@@ -27,6 +27,12 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Bret Johnson
@@ -89,6 +95,32 @@ public class SystemUtils extends SystemUtilsBase {
         }
     }
 
+    /**
+     * Wait until another thread calls notifyWaiters for the lock, or the timeout expires.  The caller must hold the
+     * lock, via a synchronized block.  This can return early, so callers should wait in a loop that checks their
+     * condition.
+     *
+     * @param lock            object to wait on, locked by the caller
+     * @param timeoutInMillis maximum time to wait, in milliseconds, or 0 to wait without a timeout
+     */
+    public static void waitForNotify(Object lock, int timeoutInMillis) {
+        try {
+            lock.wait(timeoutInMillis);
+        } catch (InterruptedException e) {
+            throw new BasicException(e);
+        }
+    }
+
+    /**
+     * Wake up all threads waiting on the lock in waitForNotify.  The caller must hold the lock, via a synchronized
+     * block.
+     *
+     * @param lock object that threads are waiting on, locked by the caller
+     */
+    public static void notifyWaiters(Object lock) {
+        lock.notifyAll();
+    }
+
     /**
      * Copy data from source byte array to destination byte array.
      *
@@ -231,4 +263,121 @@ public class SystemUtils extends SystemUtilsBase {
     public static <T> boolean isNullOrTypeDefault(@Nullable T object) {
         return object == null;
     }
+
+    /**
+     * Get the number of processors available to run threads on.
+     *
+     * @return number of available processors, always at least 1
+     */
+    public static int getAvailableProcessors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static @Nullable ExecutorService sortExecutor = null;
+    private static final int MIN_PARALLEL_SORT_CHUNK = 1 << 13;
+
+    private static synchronized ExecutorService getSortExecutor() {
+        if (sortExecutor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            sortExecutor = Executors.newFixedThreadPool(getAvailableProcessors(), new ThreadFactory() {
+                @Override public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SystemUtils parallel sort " + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sortExecutor;
+    }
+
+    /**
+     * Stably sort the range [start, end) of the array, splitting the work across a fixed pool of threads, one per
+     * processor.  Chunks are sorted in parallel with Arrays' merge sort, then adjacent runs are merged pairwise, a level
+     * at a time, with the merges in each level also run in parallel.  A single scratch array, the size of the range, is
+     * shared by all the tasks (each uses only its own slice).  Callers should normally use Arrays.parallelSort instead,
+     * which checks the bounds and avoids the overhead for small ranges.
+     * <p/>
+     * This sticks to java.util.concurrent executors, rather than a fork/join pool, so it runs on Java 6.
+     *
+     * @param array      array to sort
+     * @param start      start index to sort
+     * @param end        last + 1 index to sort
+     * @param comparator comparator to order the elements; it may be called concurrently from multiple threads
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void parallelSort(final T[] array, final int start, final int end,
+                                        final Comparator<T> comparator) {
+        int length = end - start;
+        int chunkSize = length / (getAvailableProcessors() << 2);
+        if (chunkSize < MIN_PARALLEL_SORT_CHUNK)
+            chunkSize = MIN_PARALLEL_SORT_CHUNK;
+
+        final T[] scratch = (T[]) new Object[length];
+        ExecutorService executor = getSortExecutor();
+        Future<?>[] futures = new Future<?>[(length + chunkSize - 1) / chunkSize];
+
+        int taskCount = 0;
+        for (int chunkStart = start; chunkStart < end; chunkStart += Math.min(chunkSize, end - chunkStart)) {
+            final int runStart = chunkStart;
+            final int runEnd = chunkStart + Math.min(chunkSize, end - chunkStart);
+            futures[taskCount++] = executor.submit(new Runnable() {
+                @Override public void run() {
+                    Arrays.sortUsingScratch(array, runStart, runEnd, comparator, scratch, runStart - start);
+                }
+            });
+        }
+        waitForAll(futures, taskCount);
+
+        // Each level merges pairs of adjacent runs, doubling the run length; the last run may be shorter than the rest
+        for (long runLength = chunkSize; runLength < length; runLength <<= 1) {
+            taskCount = 0;
+            for (long pairStart = start; pairStart + runLength < end; pairStart += runLength << 1) {
+                final int mergeStart = (int) pairStart;
+                final int mergeMid = (int) (pairStart + runLength);
+                final int mergeEnd = (int) Math.min(pairStart + (runLength << 1), end);
+                futures[taskCount++] = executor.submit(new Runnable() {
+                    @Override public void run() {
+                        Arrays.mergeSortedRuns(array, mergeStart, mergeMid, mergeEnd, comparator, scratch,
+                                mergeStart - start);
+                    }
+                });
+            }
+            waitForAll(futures, taskCount);
+        }
+    }
+
+    /**
+     * Wait for the first count futures to complete, rethrowing the first exception thrown by any of the tasks.  All
+     * the tasks are waited for, even after a failure or an interrupt, since they share the array being sorted and its
+     * scratch space.
+     */
+    private static void waitForAll(Future<?>[] futures, int count) {
+        @Nullable Throwable failure = null;
+        boolean interrupted = false;
+        for (int i = 0; i < count; ++i) {
+            while (true) {
+                try {
+                    futures[i].get();
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = e.getCause();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    continue;
+                }
+                break;
+            }
+            futures[i] = null;
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        else if (failure instanceof Error)
+            throw (Error) failure;
+        else if (failure != null)
+            throw new BasicException(failure);
+    }
 }
@@ -643,8 +643,15 @@ public final class ArrayList<E> extends List<E> {
         }
     }
 
+    /**
+     * Stably sort the list, using the specified comparator.  Lists with at least Arrays.PARALLEL_SORT_THRESHOLD
+     * elements are sorted with Arrays.parallelSort, so for those the comparator may be called from multiple threads
+     * concurrently.
+     *
+     * @param comparator comparator used to order the elements
+     */
     public void sortInPlace(Comparator<E> comparator) {
-        Arrays.sort(array, firstIndex, firstIndex + itemCount, comparator);
+        Arrays.parallelSort(array, firstIndex, firstIndex + itemCount, comparator);
         modCount++;
     }
 
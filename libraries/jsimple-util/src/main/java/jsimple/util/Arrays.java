@@ -49,6 +49,12 @@ public class Arrays {
     /* Specifies when to switch to insertion sort */
     private static final int SIMPLE_LENGTH = 7;
 
+    /* Specifies when the primitive quicksort switches to insertion sort */
+    private static final int QUICKSORT_INSERTION_THRESHOLD = 27;
+
+    /* Ranges shorter than this aren't worth sorting in parallel */
+    public static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
     private Arrays() {
         /* empty */
     }
@@ -226,62 +232,69 @@ public class Arrays {
      * Performs a sort on the section of the array between the given indices using a mergesort with exponential search
      * algorithm (in which the merge is performed by exponential search). n*log(n) performance is guaranteed and in the
      * average case it will be faster then any mergesort in which the merge is performed by linear search.
+     * <p/>
+     * Indices are logical positions in the range being sorted; element i lives at in[i + inOffset] and out[i +
+     * outOffset].  That lets the scratch array be just big enough for the range instead of mirroring the whole source
+     * array.
      *
-     * @param in    - the array for sorting.
-     * @param out   - the result, sorted array.
-     * @param start the start index
-     * @param end   the end index + 1
-     * @param c     - the comparator to determine the order of the array.
+     * @param in        - the array for sorting.
+     * @param inOffset  - added to each logical index to get the position in {@code in}
+     * @param out       - the result, sorted array.
+     * @param outOffset - added to each logical index to get the position in {@code out}
+     * @param start     the start index
+     * @param end       the end index + 1
+     * @param c         - the comparator to determine the order of the array.
      */
-    private static <T> void mergeSort(T[] in, T[] out, int start, int end, Comparator<T> c) {
+    private static <T> void mergeSort(T[] in, int inOffset, T[] out, int outOffset, int start, int end,
+                                      Comparator<T> c) {
         int len = end - start;
         // use insertion sort for small arrays
         if (len <= SIMPLE_LENGTH) {
             for (int index = start + 1; index < end; index++) {
-                T current = out[index];
-                T prev = out[index - 1];
+                T current = out[index + outOffset];
+                T prev = out[index - 1 + outOffset];
                 if (c.compare(prev, current) > 0) {
                     int j = index;
                     do {
-                        out[j--] = prev;
+                        out[outOffset + j--] = prev;
                     } while (j > start
-                            && (c.compare(prev = out[j - 1], current) > 0));
-                    out[j] = current;
+                            && (c.compare(prev = out[outOffset + j - 1], current) > 0));
+                    out[outOffset + j] = current;
                 }
             }
             return;
         }
         int med = (end + start) >>> 1;
-        mergeSort(out, in, start, med, c);
-        mergeSort(out, in, med, end, c);
+        mergeSort(out, outOffset, in, inOffset, start, med, c);
+        mergeSort(out, outOffset, in, inOffset, med, end, c);
 
         // merging
 
         // if arrays are already sorted - no merge
-        if (c.compare(in[med - 1], in[med]) <= 0) {
-            SystemUtils.arraycopy(in, start, out, start, len);
+        if (c.compare(in[inOffset + med - 1], in[inOffset + med]) <= 0) {
+            SystemUtils.arraycopy(in, inOffset + start, out, outOffset + start, len);
             return;
         }
         int r = med, i = start;
 
         // use merging with exponential search
         do {
-            T fromVal = in[start];
-            T rVal = in[r];
+            T fromVal = in[inOffset + start];
+            T rVal = in[inOffset + r];
             if (c.compare(fromVal, rVal) <= 0) {
-                int l_1 = find(in, rVal, -1, start + 1, med - 1, c);
+                int l_1 = find(in, inOffset, rVal, -1, start + 1, med - 1, c);
                 int toCopy = l_1 - start + 1;
-                SystemUtils.arraycopy(in, start, out, i, toCopy);
+                SystemUtils.arraycopy(in, inOffset + start, out, outOffset + i, toCopy);
                 i += toCopy;
-                out[i++] = rVal;
+                out[outOffset + i++] = rVal;
                 r++;
                 start = l_1 + 1;
             } else {
-                int r_1 = find(in, fromVal, 0, r + 1, end - 1, c);
+                int r_1 = find(in, inOffset, fromVal, 0, r + 1, end - 1, c);
                 int toCopy = r_1 - r + 1;
-                SystemUtils.arraycopy(in, r, out, i, toCopy);
+                SystemUtils.arraycopy(in, inOffset + r, out, outOffset + i, toCopy);
                 i += toCopy;
-                out[i++] = fromVal;
+                out[outOffset + i++] = fromVal;
                 start++;
                 r = r_1 + 1;
             }
@@ -289,9 +302,9 @@ public class Arrays {
 
         // copy rest of array
         if ((end - r) <= 0) {
-            SystemUtils.arraycopy(in, start, out, i, med - start);
+            SystemUtils.arraycopy(in, inOffset + start, out, outOffset + i, med - start);
         } else {
-            SystemUtils.arraycopy(in, r, out, i, end - r);
+            SystemUtils.arraycopy(in, inOffset + r, out, outOffset + i, end - r);
         }
     }
 
@@ -299,19 +312,20 @@ public class Arrays {
      * Finds the place of specified range of specified sorted array, where the element should be inserted for getting
      * sorted array. Uses exponential search algorithm.
      *
-     * @param arr - the array with already sorted range
-     * @param val - object to be inserted
-     * @param l   - the start index
-     * @param r   - the end index
-     * @param bnd - possible values 0,-1. "-1" - val is located at index more then elements equals to val. "0" - val is
-     *            located at index less then elements equals to val.
-     * @param c   - the comparator used to compare Objects
+     * @param arr    - the array with already sorted range
+     * @param offset - added to each index to get the position in {@code arr}
+     * @param val    - object to be inserted
+     * @param l      - the start index
+     * @param r      - the end index
+     * @param bnd    - possible values 0,-1. "-1" - val is located at index more then elements equals to val. "0" - val
+     *               is located at index less then elements equals to val.
+     * @param c      - the comparator used to compare Objects
      */
-    private static <T> int find(T[] arr, T val, int bnd, int l, int r, Comparator<T> c) {
+    private static <T> int find(T[] arr, int offset, T val, int bnd, int l, int r, Comparator<T> c) {
         int m = l;
         int d = 1;
         while (m <= r) {
-            if (c.compare(val, arr[m]) > bnd) {
+            if (c.compare(val, arr[offset + m]) > bnd) {
                 l = m + 1;
             } else {
                 r = m - 1;
@@ -322,7 +336,7 @@ public class Arrays {
         }
         while (l <= r) {
             m = (l + r) >>> 1;
-            if (c.compare(val, arr[m]) > bnd) {
+            if (c.compare(val, arr[offset + m]) > bnd) {
                 l = m + 1;
             } else {
                 r = m - 1;
@@ -344,14 +358,30 @@ public class Arrays {
      */
     public static <T> void sort(T[] array, int start, int end, Comparator<T> comparator) {
         checkBounds(array.length, start, end);
-        sort(start, end, array, comparator);
+        int length = end - start;
+        if (length <= SIMPLE_LENGTH)
+            mergeSort(array, 0, array, 0, start, end, comparator);    // insertion sort, in place
+        else sortUsingScratch(array, start, end, comparator, (T[]) new Object[length], 0);
     }
 
-    private static <T> void sort(int start, int end, T[] array, Comparator<T> comparator) {
-        int length = end - start;
-        T[] out = (T[]) new Object[end];
-        SystemUtils.arraycopy(array, start, out, start, length);
-        mergeSort(out, array, start, end, comparator);
+    /**
+     * Sorts the specified array range like {@link #sort(Object[], int, int, Comparator)}, but uses the caller supplied
+     * scratch array instead of allocating one.  Code that sorts repeatedly can keep a scratch array around and reuse
+     * it.
+     *
+     * @param array      the array to be sorted
+     * @param start      the start index to sort
+     * @param end        the last + 1 index to sort
+     * @param comparator the {@code Comparator}
+     * @param scratch    temporary storage, at least {@code end - start} long; its contents are overwritten
+     * @throws ProgrammerError if the indices are out of bounds or scratch is too small
+     */
+    public static <T> void sort(T[] array, int start, int end, Comparator<T> comparator, T[] scratch) {
+        checkBounds(array.length, start, end);
+        if (scratch.length < end - start)
+            throw new ProgrammerError("Scratch array length {} is less than the sort range length {}", scratch.length,
+                    end - start);
+        sortUsingScratch(array, start, end, comparator, scratch, 0);
     }
 
     /**
@@ -361,7 +391,605 @@ public class Arrays {
      * @param comparator the {@code Comparator}
      */
     public static <T> void sort(T[] array, Comparator<T> comparator) {
-        sort(0, array.length, array, comparator);
+        sort(array, 0, array.length, comparator);
+    }
+
+    /**
+     * Sorts the range [start, end) of array, using scratch from scratchStart on as temporary storage.  No bounds
+     * checking is done.
+     */
+    static <T> void sortUsingScratch(T[] array, int start, int end, Comparator<T> comparator, T[] scratch,
+                                     int scratchStart) {
+        SystemUtils.arraycopy(array, start, scratch, scratchStart, end - start);
+        mergeSort(scratch, scratchStart - start, array, 0, start, end, comparator);
+    }
+
+    /**
+     * Merges the adjacent sorted runs [start, mid) and [mid, end) of array, copying the left run to scratch (from
+     * scratchStart on) first.  Equal elements keep their relative order.  Used to combine the results of a parallel
+     * sort.
+     */
+    static <T> void mergeSortedRuns(T[] array, int start, int mid, int end, Comparator<T> comparator, T[] scratch,
+                                    int scratchStart) {
+        if (start == mid || mid == end || comparator.compare(array[mid - 1], array[mid]) <= 0)
+            return;
+
+        int leftLength = mid - start;
+        SystemUtils.arraycopy(array, start, scratch, scratchStart, leftLength);
+
+        int left = scratchStart;
+        int leftEnd = scratchStart + leftLength;
+        int right = mid;
+        int dest = start;
+        while (left < leftEnd && right < end) {
+            if (comparator.compare(array[right], scratch[left]) < 0)
+                array[dest++] = array[right++];
+            else array[dest++] = scratch[left++];
+        }
+
+        // Anything left in the right run is already in place
+        if (left < leftEnd)
+            SystemUtils.arraycopy(scratch, left, array, dest, leftEnd - left);
+    }
+
+    /**
+     * Sorts the specified array using the specified {@code Comparator}, splitting the work across multiple threads when
+     * the array is large and the platform supports it.  The sort is stable, same as {@link #sort(Object[],
+     * Comparator)}.  As the comparator may be called concurrently from different threads, it must be thread safe (which
+     * normal stateless comparators are).
+     *
+     * @param array      the array to be sorted
+     * @param comparator the {@code Comparator}
+     */
+    public static <T> void parallelSort(T[] array, Comparator<T> comparator) {
+        parallelSort(array, 0, array.length, comparator);
+    }
+
+    /**
+     * Sorts the specified array range, from start (inclusive) to end (exclusive), using the specified {@code
+     * Comparator}, splitting the work across multiple threads when the range is at least PARALLEL_SORT_THRESHOLD
+     * elements long and more than one processor is available.  Smaller ranges are just sorted on the calling thread.
+     *
+     * @param array      the array to be sorted
+     * @param start      the start index to sort
+     * @param end        the last + 1 index to sort
+     * @param comparator the {@code Comparator}, which must be thread safe
+     * @throws ProgrammerError if {@code start > end}
+     * @throws ProgrammerError if {@code start < 0} or {@code end > array.length}
+     */
+    public static <T> void parallelSort(T[] array, int start, int end, Comparator<T> comparator) {
+        checkBounds(array.length, start, end);
+        if (end - start < PARALLEL_SORT_THRESHOLD || SystemUtils.getAvailableProcessors() <= 1)
+            sort(array, start, end, comparator);
+        else SystemUtils.parallelSort(array, start, end, comparator);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * @param array the array to be sorted
+     */
+    public static void sort(int[] array) {
+        dualPivotQuicksort(array, 0, array.length - 1);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * @param array the array to be sorted
+     */
+    public static void sort(long[] array) {
+        dualPivotQuicksort(array, 0, array.length - 1);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order, with the same ordering for NaN and -0.0 as {@link
+     * #sort(double[], int, int)}.
+     *
+     * @param array the array to be sorted
+     */
+    public static void sort(double[] array) {
+        sort(array, 0, array.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order, using a dual-pivot quicksort.   No
+     * comparator is involved and nothing is boxed.
+     *
+     * @param array the array to be sorted
+     * @param start the start index to sort
+     * @param end   the last + 1 index to sort
+     * @throws ProgrammerError if {@code start > end}
+     * @throws ProgrammerError if {@code start < 0} or {@code end > array.length}
+     */
+    public static void sort(int[] array, int start, int end) {
+        checkBounds(array.length, start, end);
+        dualPivotQuicksort(array, start, end - 1);
+    }
+
+    /**
+     * Sorts the inclusive range [left, right] with a dual-pivot quicksort.  Elements equal to a pivot are gathered next
+     * to it when the middle partition is large, so inputs with many duplicates stay n*log(n).  The two smaller
+     * partitions are sorted recursively and the largest one iteratively, bounding the stack depth.
+     */
+    private static void dualPivotQuicksort(int[] a, int left, int right) {
+        while (right - left >= QUICKSORT_INSERTION_THRESHOLD) {
+            int third = (right - left) / 3;
+            int m1 = left + third;
+            int m2 = right - third;
+            if (a[m1] > a[m2]) {
+                swap(a, m1, m2);
+            }
+            swap(a, m1, left);
+            swap(a, m2, right);
+
+            int pivot1 = a[left];
+            int pivot2 = a[right];
+            int less = left + 1;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                int ak = a[k];
+                if (ak < pivot1) {
+                    a[k] = a[less];
+                    a[less++] = ak;
+                } else if (ak > pivot2) {
+                    while (k < great && a[great] > pivot2) {
+                        great--;
+                    }
+                    a[k] = a[great];
+                    a[great--] = ak;
+                    ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    }
+                }
+            }
+
+            a[left] = a[less - 1];
+            a[less - 1] = pivot1;
+            a[right] = a[great + 1];
+            a[great + 1] = pivot2;
+
+            // Partitions are now [left, less - 2], [less, great], and [great + 2, right]
+            int lowLeft = left, lowRight = less - 2;
+            int highLeft = great + 2, highRight = right;
+
+            if (pivot1 == pivot2) {
+                // Everything in the middle equals the pivots, so it's already sorted
+                less = great + 1;
+            } else if (great - less > (right - left) / 2) {
+                for (int k = less; k <= great; k++) {
+                    int ak = a[k];
+                    if (ak == pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak == pivot2) {
+                        while (k < great && a[great] == pivot2) {
+                            great--;
+                        }
+                        a[k] = a[great];
+                        a[great--] = ak;
+                        ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        }
+                    }
+                }
+            }
+
+            int lowLength = lowRight - lowLeft, middleLength = great - less, highLength = highRight - highLeft;
+            if (middleLength >= lowLength && middleLength >= highLength) {
+                dualPivotQuicksort(a, lowLeft, lowRight);
+                dualPivotQuicksort(a, highLeft, highRight);
+                left = less;
+                right = great;
+            } else if (lowLength >= highLength) {
+                dualPivotQuicksort(a, less, great);
+                dualPivotQuicksort(a, highLeft, highRight);
+                left = lowLeft;
+                right = lowRight;
+            } else {
+                dualPivotQuicksort(a, lowLeft, lowRight);
+                dualPivotQuicksort(a, less, great);
+                left = highLeft;
+                right = highRight;
+            }
+        }
+
+        for (int i = left + 1; i <= right; i++) {
+            int current = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > current) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = current;
+        }
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    /**
+     * Performs a binary search for the specified value in a part of the specified sorted array.
+     *
+     * @param array      the sorted array to search
+     * @param startIndex the inclusive start index
+     * @param endIndex   the exclusive end index
+     * @param value      the value to find
+     * @return the non-negative index of the value, or a negative index which is the -index - 1 where the value would
+     * be inserted
+     * @throws ProgrammerError - if startIndex is bigger than endIndex
+     * @throws ProgrammerError - if startIndex is smaller than zero or or endIndex is bigger than length of array
+     */
+    public static int binarySearch(int[] array, int startIndex, int endIndex, int value) {
+        checkIndexForBinarySearch(array.length, startIndex, endIndex);
+
+        int low = startIndex, high = endIndex - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midValue = array[mid];
+            if (midValue < value) {
+                low = mid + 1;
+            } else if (midValue > value) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order, using a dual-pivot quicksort.   No
+     * comparator is involved and nothing is boxed.
+     *
+     * @param array the array to be sorted
+     * @param start the start index to sort
+     * @param end   the last + 1 index to sort
+     * @throws ProgrammerError if {@code start > end}
+     * @throws ProgrammerError if {@code start < 0} or {@code end > array.length}
+     */
+    public static void sort(long[] array, int start, int end) {
+        checkBounds(array.length, start, end);
+        dualPivotQuicksort(array, start, end - 1);
+    }
+
+    /**
+     * Sorts the inclusive range [left, right] with a dual-pivot quicksort.  Elements equal to a pivot are gathered next
+     * to it when the middle partition is large, so inputs with many duplicates stay n*log(n).  The two smaller
+     * partitions are sorted recursively and the largest one iteratively, bounding the stack depth.
+     */
+    private static void dualPivotQuicksort(long[] a, int left, int right) {
+        while (right - left >= QUICKSORT_INSERTION_THRESHOLD) {
+            int third = (right - left) / 3;
+            int m1 = left + third;
+            int m2 = right - third;
+            if (a[m1] > a[m2]) {
+                swap(a, m1, m2);
+            }
+            swap(a, m1, left);
+            swap(a, m2, right);
+
+            long pivot1 = a[left];
+            long pivot2 = a[right];
+            int less = left + 1;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                long ak = a[k];
+                if (ak < pivot1) {
+                    a[k] = a[less];
+                    a[less++] = ak;
+                } else if (ak > pivot2) {
+                    while (k < great && a[great] > pivot2) {
+                        great--;
+                    }
+                    a[k] = a[great];
+                    a[great--] = ak;
+                    ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    }
+                }
+            }
+
+            a[left] = a[less - 1];
+            a[less - 1] = pivot1;
+            a[right] = a[great + 1];
+            a[great + 1] = pivot2;
+
+            // Partitions are now [left, less - 2], [less, great], and [great + 2, right]
+            int lowLeft = left, lowRight = less - 2;
+            int highLeft = great + 2, highRight = right;
+
+            if (pivot1 == pivot2) {
+                // Everything in the middle equals the pivots, so it's already sorted
+                less = great + 1;
+            } else if (great - less > (right - left) / 2) {
+                for (int k = less; k <= great; k++) {
+                    long ak = a[k];
+                    if (ak == pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak == pivot2) {
+                        while (k < great && a[great] == pivot2) {
+                            great--;
+                        }
+                        a[k] = a[great];
+                        a[great--] = ak;
+                        ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        }
+                    }
+                }
+            }
+
+            int lowLength = lowRight - lowLeft, middleLength = great - less, highLength = highRight - highLeft;
+            if (middleLength >= lowLength && middleLength >= highLength) {
+                dualPivotQuicksort(a, lowLeft, lowRight);
+                dualPivotQuicksort(a, highLeft, highRight);
+                left = less;
+                right = great;
+            } else if (lowLength >= highLength) {
+                dualPivotQuicksort(a, less, great);
+                dualPivotQuicksort(a, highLeft, highRight);
+                left = lowLeft;
+                right = lowRight;
+            } else {
+                dualPivotQuicksort(a, lowLeft, lowRight);
+                dualPivotQuicksort(a, less, great);
+                left = highLeft;
+                right = highRight;
+            }
+        }
+
+        for (int i = left + 1; i <= right; i++) {
+            long current = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > current) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = current;
+        }
+    }
+
+    private static void swap(long[] a, int i, int j) {
+        long temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    /**
+     * Performs a binary search for the specified value in a part of the specified sorted array.
+     *
+     * @param array      the sorted array to search
+     * @param startIndex the inclusive start index
+     * @param endIndex   the exclusive end index
+     * @param value      the value to find
+     * @return the non-negative index of the value, or a negative index which is the -index - 1 where the value would
+     * be inserted
+     * @throws ProgrammerError - if startIndex is bigger than endIndex
+     * @throws ProgrammerError - if startIndex is smaller than zero or or endIndex is bigger than length of array
+     */
+    public static int binarySearch(long[] array, int startIndex, int endIndex, long value) {
+        checkIndexForBinarySearch(array.length, startIndex, endIndex);
+
+        int low = startIndex, high = endIndex - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midValue = array[mid];
+            if (midValue < value) {
+                low = mid + 1;
+            } else if (midValue > value) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order, using a dual-pivot quicksort.   No
+     * comparator is involved and nothing is boxed.  NaN values are sorted after all other values and -0.0 is
+     * sorted before 0.0.
+     *
+     * @param array the array to be sorted
+     * @param start the start index to sort
+     * @param end   the last + 1 index to sort
+     * @throws ProgrammerError if {@code start > end}
+     * @throws ProgrammerError if {@code start < 0} or {@code end > array.length}
+     */
+    public static void sort(double[] array, int start, int end) {
+        checkBounds(array.length, start, end);
+        // NaN isn't ordered by <, so move any NaNs to the end first, where they sort
+        for (int i = end - 1; i >= start; i--) {
+            double value = array[i];
+            if (value != value) {
+                array[i] = array[--end];
+                array[end] = value;
+            }
+        }
+
+        dualPivotQuicksort(array, start, end - 1);
+
+        // -0.0 and 0.0 compare as equal, so may be in any order; put the negative zeros first
+        int low = start, high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < 0.0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int zerosEnd = low;
+        int negativeZeroCount = 0;
+        while (zerosEnd < end && array[zerosEnd] == 0.0) {
+            if (SystemUtils.doubleToRawLongBits(array[zerosEnd]) < 0) {
+                negativeZeroCount++;
+            }
+            zerosEnd++;
+        }
+        for (int i = low; i < zerosEnd; i++) {
+            array[i] = i < low + negativeZeroCount ? -0.0 : 0.0;
+        }
+    }
+
+    /**
+     * Sorts the inclusive range [left, right] with a dual-pivot quicksort.  Elements equal to a pivot are gathered next
+     * to it when the middle partition is large, so inputs with many duplicates stay n*log(n).  The two smaller
+     * partitions are sorted recursively and the largest one iteratively, bounding the stack depth.
+     */
+    private static void dualPivotQuicksort(double[] a, int left, int right) {
+        while (right - left >= QUICKSORT_INSERTION_THRESHOLD) {
+            int third = (right - left) / 3;
+            int m1 = left + third;
+            int m2 = right - third;
+            if (a[m1] > a[m2]) {
+                swap(a, m1, m2);
+            }
+            swap(a, m1, left);
+            swap(a, m2, right);
+
+            double pivot1 = a[left];
+            double pivot2 = a[right];
+            int less = left + 1;
+            int great = right - 1;
+            for (int k = less; k <= great; k++) {
+                double ak = a[k];
+                if (ak < pivot1) {
+                    a[k] = a[less];
+                    a[less++] = ak;
+                } else if (ak > pivot2) {
+                    while (k < great && a[great] > pivot2) {
+                        great--;
+                    }
+                    a[k] = a[great];
+                    a[great--] = ak;
+                    ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    }
+                }
+            }
+
+            a[left] = a[less - 1];
+            a[less - 1] = pivot1;
+            a[right] = a[great + 1];
+            a[great + 1] = pivot2;
+
+            // Partitions are now [left, less - 2], [less, great], and [great + 2, right]
+            int lowLeft = left, lowRight = less - 2;
+            int highLeft = great + 2, highRight = right;
+
+            if (pivot1 == pivot2) {
+                // Everything in the middle equals the pivots, so it's already sorted
+                less = great + 1;
+            } else if (great - less > (right - left) / 2) {
+                for (int k = less; k <= great; k++) {
+                    double ak = a[k];
+                    if (ak == pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak == pivot2) {
+                        while (k < great && a[great] == pivot2) {
+                            great--;
+                        }
+                        a[k] = a[great];
+                        a[great--] = ak;
+                        ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        }
+                    }
+                }
+            }
+
+            int lowLength = lowRight - lowLeft, middleLength = great - less, highLength = highRight - highLeft;
+            if (middleLength >= lowLength && middleLength >= highLength) {
+                dualPivotQuicksort(a, lowLeft, lowRight);
+                dualPivotQuicksort(a, highLeft, highRight);
+                left = less;
+                right = great;
+            } else if (lowLength >= highLength) {
+                dualPivotQuicksort(a, less, great);
+                dualPivotQuicksort(a, highLeft, highRight);
+                left = lowLeft;
+                right = lowRight;
+            } else {
+                dualPivotQuicksort(a, lowLeft, lowRight);
+                dualPivotQuicksort(a, less, great);
+                left = highLeft;
+                right = highRight;
+            }
+        }
+
+        for (int i = left + 1; i <= right; i++) {
+            double current = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > current) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = current;
+        }
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    /**
+     * Performs a binary search for the specified value in a part of the specified sorted array.
+     *
+     * @param array      the sorted array to search
+     * @param startIndex the inclusive start index
+     * @param endIndex   the exclusive end index
+     * @param value      the value to find
+     * @return the non-negative index of the value, or a negative index which is the -index - 1 where the value would
+     * be inserted
+     * @throws ProgrammerError - if startIndex is bigger than endIndex
+     * @throws ProgrammerError - if startIndex is smaller than zero or or endIndex is bigger than length of array
+     */
+    public static int binarySearch(double[] array, int startIndex, int endIndex, double value) {
+        checkIndexForBinarySearch(array.length, startIndex, endIndex);
+
+        int low = startIndex, high = endIndex - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            double midValue = array[mid];
+            if (midValue < value) {
+                low = mid + 1;
+            } else if (midValue > value) {
+                high = mid - 1;
+            } else {
+                // Equal or unordered (NaN); break ties by bits, which order -0.0 before 0.0 and NaN last, like sort
+                long midBits = SystemUtils.doubleToRawLongBits(midValue);
+                long valueBits = SystemUtils.doubleToRawLongBits(value);
+                if (midBits == valueBits) {
+                    return mid;
+                } else if (midBits < valueBits) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+        }
+        return -low - 1;
     }
 
     /**
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.util.function.Function;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache is a bounded, thread safe key/value cache, built on an access ordered {@link LinkedHashMap}.   It can be
+ * bounded by any combination of:
+ * <ul>
+ * <li>maximum number of entries ({@link #setMaximumSize})</li>
+ * <li>maximum total weight, with the weight of each entry computed by a {@link Weigher} ({@link
+ * #setMaximumWeight})</li>
+ * <li>time since the entry was written ({@link #setExpireAfterWrite}) or last read ({@link
+ * #setExpireAfterAccess})</li>
+ * </ul>
+ * When over the size or weight bound, the least recently used entries are evicted.   Times come from {@link
+ * SystemUtils#getCurrentTimeMillis()}, so tests can control them with {@link SystemUtils#setCurrentTimeOverride}.
+ * <p/>
+ * Expired entries are never returned.   They're removed when read, when they reach the least recently used end of the
+ * cache during a write, or by {@link #cleanUp()}, which scans the whole cache.   So with expire after write, an entry
+ * that's still being read can keep taking up space after it expires until cleanUp is called.
+ * <p/>
+ * A {@link RemovalListener} can be set to find out about every entry that leaves the cache and why.   Listeners are
+ * called after the cache lock is released, so they can safely call back into the cache.   The cache also counts hits,
+ * misses, and evictions.
+ * <p/>
+ * All methods synchronize on the cache.   Configure the cache before sharing it between threads.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class Cache<K, V> {
+    private static final int UNSET = -1;
+
+    private final LinkedHashMap<K, CacheEntry<V>> map = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true);
+    private int maximumSize = UNSET;
+    private long maximumWeight = UNSET;
+    private @Nullable Weigher<K, V> weigher = null;
+    private long expireAfterWriteMillis = UNSET;
+    private long expireAfterAccessMillis = UNSET;
+    private @Nullable RemovalListener<K, V> removalListener = null;
+
+    private long totalWeight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    // Removals waiting to be passed to the listener once the lock is released
+    private @Nullable ArrayList<PendingRemoval<K, V>> pendingRemovals = null;
+
+    private static final class CacheEntry<V> {
+        final V value;
+        final int weight;
+        final long writeTime;
+        long accessTime;
+
+        CacheEntry(V value, int weight, long writeTime) {
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+            this.accessTime = writeTime;
+        }
+    }
+
+    private static final class PendingRemoval<K, V> {
+        final K key;
+        final V value;
+        final RemovalCause cause;
+
+        PendingRemoval(K key, V value, RemovalCause cause) {
+            this.key = key;
+            this.value = value;
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * Set the maximum number of entries.  Adding an entry beyond that evicts the least recently used one.
+     *
+     * @param maximumSize maximum number of entries; 0 means nothing is cached
+     */
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0)
+            throw new ProgrammerError("Cache maximumSize {} is negative", maximumSize);
+
+        ArrayList<PendingRemoval<K, V>> removals;
+        synchronized (this) {
+            this.maximumSize = maximumSize;
+            evictToBounds();
+            removals = takePendingRemovals();
+        }
+        notifyRemovals(removals);
+    }
+
+    /**
+     * Set the maximum total weight of the entries, along with the weigher used to compute the weight of each entry.
+     * Adding an entry that takes the total weight over the maximum evicts least recently used entries until it's back
+     * under.  This must be called before anything is added to the cache.
+     *
+     * @param maximumWeight maximum total weight
+     * @param weigher       computes the weight of each entry
+     */
+    public void setMaximumWeight(long maximumWeight, Weigher<K, V> weigher) {
+        if (maximumWeight < 0)
+            throw new ProgrammerError("Cache maximumWeight {} is negative", maximumWeight);
+
+        synchronized (this) {
+            if (!map.isEmpty())
+                throw new ProgrammerError("Cache weigher can't be changed once the cache has entries");
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+        }
+    }
+
+    /**
+     * Set entries to expire the specified amount of time after they're written (put or loaded).
+     *
+     * @param expireAfterWriteMillis time to live, in milliseconds
+     */
+    public void setExpireAfterWrite(long expireAfterWriteMillis) {
+        if (expireAfterWriteMillis < 0)
+            throw new ProgrammerError("Cache expireAfterWrite {} is negative", expireAfterWriteMillis);
+        synchronized (this) {
+            this.expireAfterWriteMillis = expireAfterWriteMillis;
+        }
+    }
+
+    /**
+     * Set entries to expire the specified amount of time after they're last read or written.
+     *
+     * @param expireAfterAccessMillis idle time, in milliseconds
+     */
+    public void setExpireAfterAccess(long expireAfterAccessMillis) {
+        if (expireAfterAccessMillis < 0)
+            throw new ProgrammerError("Cache expireAfterAccess {} is negative", expireAfterAccessMillis);
+        synchronized (this) {
+            this.expireAfterAccessMillis = expireAfterAccessMillis;
+        }
+    }
+
+    /**
+     * Set the listener that's notified when entries are removed, for any reason.
+     *
+     * @param removalListener listener, or null for none
+     */
+    public void setRemovalListener(@Nullable RemovalListener<K, V> removalListener) {
+        synchronized (this) {
+            this.removalListener = removalListener;
+        }
+    }
+
+    /**
+     * Returns the value cached for the key, or {@code null} / default value for non-nullable value type if there's
+     * none (or it's expired).  A hit makes the entry the most recently used.
+     *
+     * @param key key
+     * @return cached value or null / default
+     */
+    public V get(K key) {
+        V result;
+        ArrayList<PendingRemoval<K, V>> removals;
+        synchronized (this) {
+            CacheEntry<V> entry = getLiveEntry(key, SystemUtils.getCurrentTimeMillis());
+            if (entry == null) {
+                missCount++;
+                result = SystemUtils.<V>defaultValue();
+            } else {
+                hitCount++;
+                result = entry.value;
+            }
+            removals = takePendingRemovals();
+        }
+        notifyRemovals(removals);
+        return result;
+    }
+
+    /**
+     * Returns the value cached for the key.  If there's none, calls loader to get it, caches that, and returns it.  The
+     * loader runs with the cache locked, so concurrent requests for the same key load it once; it should be quick and
+     * must not call back into the cache.
+     *
+     * @param key    key
+     * @param loader computes the value for a key that isn't cached
+     * @return cached or newly loaded value
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V result;
+        ArrayList<PendingRemoval<K, V>> removals;
+        synchronized (this) {
+            long now = SystemUtils.getCurrentTimeMillis();
+            CacheEntry<V> entry = getLiveEntry(key, now);
+            if (entry != null) {
+                hitCount++;
+                result = entry.value;
+            } else {
+                missCount++;
+                result = loader.apply(key);
+                putImpl(key, result, now);
+            }
+            removals = takePendingRemovals();
+        }
+        notifyRemovals(removals);
+        return result;
+    }
+
+    /**
+     * Returns whether there's a live entry for the key.  This doesn't count as an access or as a hit or miss.
+     *
+     * @param key key
+     * @return true if the key is cached
+     */
+    public boolean containsKey(K key) {
+        synchronized (this) {
+            HashMapEntry<K, CacheEntry<V>> mapEntry = map.getEntry(key);
+            return mapEntry != null && !isExpired(mapEntry.value, SystemUtils.getCurrentTimeMillis());
+        }
+    }
+
+    /**
+     * Caches the value for the key, replacing any value already cached for it.  This may evict other entries.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(K key, V value) {
+        ArrayList<PendingRemoval<K, V>> removals;
+        synchronized (this) {
+            putImpl(key, value, SystemUtils.getCurrentTimeMillis());
+            removals = takePendingRemovals();
+        }
+        notifyRemovals(removals);
+    }
+
+    /**
+     * Removes the entry for the key, if there is one.
+     *
+     * @param key key
+     * @return the value that was removed, or {@code null} / default value for non-nullable value type if the key
+     * wasn't cached
+     */
+    public V remove(K key) {
+        V result = SystemUtils.<V>defaultValue();
+        ArrayList<PendingRemoval<K, V>> removals;
+        synchronized (this) {
+            HashMapEntry<K, CacheEntry<V>> mapEntry = map.getEntry(key);
+            if (mapEntry != null) {
+                CacheEntry<V> entry = mapEntry.value;
+                if (isExpired(entry, SystemUtils.getCurrentTimeMillis()))
+                    removeEntry(key, entry, RemovalCause.EXPIRED);
+                else {
+                    removeEntry(key, entry, RemovalCause.EXPLICIT);
+                    result = entry.value;
+                }
+            }
+            removals = takePendingRemovals();
+        }
+        notifyRemovals(removals);
+        return result;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        ArrayList<PendingRemoval<K, V>> removals;
+        synchronized (this) {
+            if (removalListener != null) {
+                for (MapEntry<K, CacheEntry<V>> mapEntry : map.entrySet())
+                    addPendingRemoval(mapEntry.getKey(), mapEntry.getValue().value, RemovalCause.EXPLICIT);
+            }
+            map.clear();
+            totalWeight = 0;
+            removals = takePendingRemovals();
+        }
+        notifyRemovals(removals);
+    }
+
+    /**
+     * Removes all expired entries.  Expired entries are otherwise only removed when touched or when they reach the
+     * least recently used end of the cache, so call this periodically to reclaim space if entries expire after write.
+     */
+    public void cleanUp() {
+        ArrayList<PendingRemoval<K, V>> removals;
+        synchronized (this) {
+            long now = SystemUtils.getCurrentTimeMillis();
+            ArrayList<K> expiredKeys = new ArrayList<K>();
+            for (MapEntry<K, CacheEntry<V>> mapEntry : map.entrySet()) {
+                if (isExpired(mapEntry.getValue(), now))
+                    expiredKeys.add(mapEntry.getKey());
+            }
+            for (K key : expiredKeys)
+                removeEntry(key, map.getEntry(key).value, RemovalCause.EXPIRED);
+            removals = takePendingRemovals();
+        }
+        notifyRemovals(removals);
+    }
+
+    /**
+     * Returns the number of entries in the cache.  That may include expired entries that haven't been removed yet.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        synchronized (this) {
+            return map.size();
+        }
+    }
+
+    /**
+     * Returns the total weight of the entries in the cache (the number of entries, if there's no weigher).
+     *
+     * @return total weight
+     */
+    public long getTotalWeight() {
+        synchronized (this) {
+            return totalWeight;
+        }
+    }
+
+    /**
+     * @return number of lookups that found a live entry
+     */
+    public long getHitCount() {
+        synchronized (this) {
+            return hitCount;
+        }
+    }
+
+    /**
+     * @return number of lookups that didn't find a live entry
+     */
+    public long getMissCount() {
+        synchronized (this) {
+            return missCount;
+        }
+    }
+
+    /**
+     * @return number of entries removed because of the size/weight bounds or expiration
+     */
+    public long getEvictionCount() {
+        synchronized (this) {
+            return evictionCount;
+        }
+    }
+
+    private @Nullable CacheEntry<V> getLiveEntry(K key, long now) {
+        CacheEntry<V> entry = map.get(key);
+        if (entry == null)
+            return null;
+        if (isExpired(entry, now)) {
+            removeEntry(key, entry, RemovalCause.EXPIRED);
+            return null;
+        }
+        entry.accessTime = now;
+        return entry;
+    }
+
+    private void putImpl(K key, V value, long now) {
+        int weight = 1;
+        if (weigher != null) {
+            weight = weigher.weigh(key, value);
+            if (weight < 0)
+                throw new ProgrammerError("Weigher returned negative weight {} for key {}", weight, key);
+        }
+
+        CacheEntry<V> oldEntry = map.put(key, new CacheEntry<V>(value, weight, now));
+        if (oldEntry != null) {
+            totalWeight -= oldEntry.weight;
+            addPendingRemoval(key, oldEntry.value, RemovalCause.REPLACED);
+        }
+        totalWeight += weight;
+
+        evictExpiredEldest(now);
+        evictToBounds();
+    }
+
+    private boolean isExpired(CacheEntry<V> entry, long now) {
+        return (expireAfterWriteMillis != UNSET && now - entry.writeTime >= expireAfterWriteMillis) ||
+               (expireAfterAccessMillis != UNSET && now - entry.accessTime >= expireAfterAccessMillis);
+    }
+
+    private void evictExpiredEldest(long now) {
+        if (expireAfterWriteMillis == UNSET && expireAfterAccessMillis == UNSET)
+            return;
+
+        while (true) {
+            MapEntry<K, CacheEntry<V>> eldest = map.getEldestEntry();
+            if (eldest == null || !isExpired(eldest.getValue(), now))
+                return;
+            removeEntry(eldest.getKey(), eldest.getValue(), RemovalCause.EXPIRED);
+        }
+    }
+
+    private void evictToBounds() {
+        while ((maximumSize != UNSET && map.size() > maximumSize) ||
+               (maximumWeight != UNSET && totalWeight > maximumWeight)) {
+            MapEntry<K, CacheEntry<V>> eldest = map.getEldestEntry();
+            if (eldest == null)
+                return;
+            removeEntry(eldest.getKey(), eldest.getValue(), RemovalCause.SIZE);
+        }
+    }
+
+    private void removeEntry(K key, CacheEntry<V> entry, RemovalCause cause) {
+        map.remove(key);
+        totalWeight -= entry.weight;
+        if (cause == RemovalCause.SIZE || cause == RemovalCause.EXPIRED)
+            evictionCount++;
+        addPendingRemoval(key, entry.value, cause);
+    }
+
+    private void addPendingRemoval(K key, V value, RemovalCause cause) {
+        if (removalListener == null)
+            return;
+        if (pendingRemovals == null)
+            pendingRemovals = new ArrayList<PendingRemoval<K, V>>();
+        pendingRemovals.add(new PendingRemoval<K, V>(key, value, cause));
+    }
+
+    private @Nullable ArrayList<PendingRemoval<K, V>> takePendingRemovals() {
+        ArrayList<PendingRemoval<K, V>> removals = pendingRemovals;
+        pendingRemovals = null;
+        return removals;
+    }
+
+    private void notifyRemovals(@Nullable ArrayList<PendingRemoval<K, V>> removals) {
+        if (removals == null)
+            return;
+
+        RemovalListener<K, V> listener;
+        synchronized (this) {
+            listener = removalListener;
+        }
+        if (listener != null) {
+            for (PendingRemoval<K, V> removal : removals)
+                listener.onRemoval(removal.key, removal.value, removal.cause);
+        }
+    }
+}
@@ -0,0 +1,762 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.util.function.Function;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * ConcurrentHashMap is a thread safe implementation of Map, meant for maps that are shared between threads, like
+ * caches and registries.   Unlike wrapping a {@link HashMap} in a synchronized block, reads don't take any lock, so
+ * lookups from multiple threads proceed in parallel.   The table is split into segments, each with its own lock, and
+ * writes only lock the segment the key hashes to, so writes to different segments don't contend either.
+ * <p/>
+ * Reads see the result of the most recently completed write for the key.   Nodes are never modified in place, so a
+ * read that runs concurrently with a write to the same bucket still sees a consistent chain.
+ * <p/>
+ * {@link #putIfAbsent} and {@link #computeIfAbsent} are atomic, which is what's usually needed to build a cache on
+ * top of the map without races.
+ * <p/>
+ * Iterators, and the sets/collections returned by {@link #entrySet()}, {@link #keySet()} and {@link #values()}, are
+ * weakly consistent:  they never throw because of concurrent modification and see each mapping at most once, but may
+ * or may not reflect changes made after they were created.   Likewise {@link #size()} and {@link #isEmpty()} are
+ * exact when the map isn't being modified but only approximate while it is.
+ * <p/>
+ * Null keys aren't supported, same as the other maps.
+ */
+public class ConcurrentHashMap<K, V> extends Map<K, V> {
+    // Lazily initialized key set & values collection; the race to create them is benign
+    @Nullable Set<K> keysSet;
+    @Nullable Collection<V> valuesCollection;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int MAXIMUM_SEGMENTS = 1 << 16;
+
+    /*
+     * The high bits of the hash pick the segment and the low bits the bucket within the segment
+     */
+    final int segmentMask;
+    final int segmentShift;
+    final Segment<K, V>[] segments;
+
+    /*
+     * Hash chain node.  Nodes are immutable, so a chain can be traversed without locking.  Replacing a value or removing
+     * a node copies the nodes ahead of it in the chain instead of modifying anything in place.
+     */
+    static final class Node<K, V> {
+        final K key;
+        final int hash;
+        final V value;
+        final @Nullable Node<K, V> next;
+
+        Node(K key, int hash, @Nullable Node<K, V> next, V value) {
+            this.key = key;
+            this.hash = hash;
+            this.next = next;
+            this.value = value;
+        }
+    }
+
+    /*
+     * A segment is a small chained hash table.  Writers synchronize on the segment and always finish by writing count
+     * (volatile), even when it doesn't change.  Readers don't lock; they read count first, which makes visible
+     * everything written by the writer that last set it, and then walk the table.
+     */
+    static final class Segment<K, V> {
+        volatile int count;
+        int modCount;
+        int threshold;
+        volatile Node<K, V>[] table;
+        final float loadFactor;
+
+        Segment(int capacity, float loadFactor) {
+            this.loadFactor = loadFactor;
+            setTable(Segment.<K, V>newNodeArray(capacity));
+        }
+
+        @SuppressWarnings("unchecked") static <K, V> Node<K, V>[] newNodeArray(int length) {
+            return (Node<K, V>[]) new Node<?, ?>[length];
+        }
+
+        void setTable(Node<K, V>[] newTable) {
+            threshold = (int) (newTable.length * loadFactor);
+            table = newTable;
+        }
+
+        @Nullable Node<K, V> getNode(K key, int hash) {
+            if (count != 0) {
+                Node<K, V>[] tab = table;
+                Node<K, V> node = tab[hash & (tab.length - 1)];
+                while (node != null) {
+                    if (node.hash == hash && key.equals(node.key))
+                        return node;
+                    node = node.next;
+                }
+            }
+            return null;
+        }
+
+        boolean containsValue(V value) {
+            if (count != 0) {
+                Node<K, V>[] tab = table;
+                for (int i = 0; i < tab.length; i++) {
+                    for (Node<K, V> node = tab[i]; node != null; node = node.next) {
+                        if (SystemUtils.equals(value, node.value))
+                            return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        V put(K key, int hash, V value, boolean onlyIfAbsent) {
+            synchronized (this) {
+                Node<K, V>[] tab = table;
+                int index = hash & (tab.length - 1);
+                Node<K, V> first = tab[index];
+                Node<K, V> node = first;
+                while (node != null && (node.hash != hash || !key.equals(node.key)))
+                    node = node.next;
+
+                if (node != null) {
+                    if (!onlyIfAbsent) {
+                        int unchangedCount = count;
+                        tab[index] = copyChain(first, node, new Node<K, V>(key, hash, node.next, value));
+                        count = unchangedCount;    // volatile write publishes the replacement
+                    }
+                    return node.value;
+                }
+
+                add(key, hash, value);
+                return SystemUtils.<V>defaultValue();
+            }
+        }
+
+        V computeIfAbsent(K key, int hash, Function<? super K, ? extends V> mappingFunction) {
+            synchronized (this) {
+                Node<K, V> node = getNodeLocked(key, hash);
+                if (node != null)
+                    return node.value;
+
+                V value = mappingFunction.apply(key);
+                add(key, hash, value);
+                return value;
+            }
+        }
+
+        /**
+         * Returns the node for the key.  Must be called with the segment lock held.
+         */
+        private @Nullable Node<K, V> getNodeLocked(K key, int hash) {
+            Node<K, V>[] tab = table;
+            Node<K, V> node = tab[hash & (tab.length - 1)];
+            while (node != null && (node.hash != hash || !key.equals(node.key)))
+                node = node.next;
+            return node;
+        }
+
+        /**
+         * Adds a new node for a key that isn't already present.  Must be called with the segment lock held.
+         */
+        private void add(K key, int hash, V value) {
+            int newCount = count + 1;
+            if (newCount > threshold)
+                rehash();
+
+            Node<K, V>[] tab = table;
+            int index = hash & (tab.length - 1);
+            ++modCount;
+            tab[index] = new Node<K, V>(key, hash, tab[index], value);
+            count = newCount;    // volatile write publishes the new node
+        }
+
+        /**
+         * Doubles the table.  Readers may still be walking the old table, so nodes are reused where they can be (the
+         * tail of a chain whose nodes all land in the same new bucket) and copied otherwise, never modified.
+         */
+        private void rehash() {
+            Node<K, V>[] oldTable = table;
+            int oldLength = oldTable.length;
+            if (oldLength >= MAXIMUM_CAPACITY)
+                return;
+
+            Node<K, V>[] newTable = newNodeArray(oldLength << 1);
+            int mask = newTable.length - 1;
+            for (int i = 0; i < oldLength; i++) {
+                Node<K, V> first = oldTable[i];
+                if (first == null)
+                    continue;
+
+                Node<K, V> lastRun = first;
+                int lastRunIndex = first.hash & mask;
+                for (Node<K, V> node = first.next; node != null; node = node.next) {
+                    int index = node.hash & mask;
+                    if (index != lastRunIndex) {
+                        lastRunIndex = index;
+                        lastRun = node;
+                    }
+                }
+                newTable[lastRunIndex] = lastRun;
+
+                for (Node<K, V> node = first; node != lastRun; node = node.next) {
+                    int index = node.hash & mask;
+                    newTable[index] = new Node<K, V>(node.key, node.hash, newTable[index], node.value);
+                }
+            }
+            setTable(newTable);
+        }
+
+        /**
+         * Returns a chain that's the same as the one starting at first, except that node (and everything after it) is
+         * replaced by tail.  The nodes ahead of node are copied, in reverse order.
+         */
+        private static @Nullable <K, V> Node<K, V> copyChain(Node<K, V> first, Node<K, V> node,
+                                                            @Nullable Node<K, V> tail) {
+            Node<K, V> newFirst = tail;
+            for (Node<K, V> p = first; p != node; p = p.next)
+                newFirst = new Node<K, V>(p.key, p.hash, newFirst, p.value);
+            return newFirst;
+        }
+
+        /**
+         * Removes the key.  If matchValue is true, it's only removed when currently mapped to value.  Returns the node
+         * that was removed, or null if nothing was.
+         */
+        @Nullable Node<K, V> remove(K key, int hash, boolean matchValue, @Nullable V value) {
+            synchronized (this) {
+                Node<K, V>[] tab = table;
+                int index = hash & (tab.length - 1);
+                Node<K, V> first = tab[index];
+                Node<K, V> node = first;
+                while (node != null && (node.hash != hash || !key.equals(node.key)))
+                    node = node.next;
+
+                if (node == null || (matchValue && !SystemUtils.equals(value, node.value)))
+                    return null;
+
+                ++modCount;
+                tab[index] = copyChain(first, node, node.next);
+                count = count - 1;
+                return node;
+            }
+        }
+
+        void clear() {
+            synchronized (this) {
+                if (count != 0) {
+                    Node<K, V>[] tab = table;
+                    for (int i = 0; i < tab.length; i++)
+                        tab[i] = null;
+                    ++modCount;
+                    count = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructs a new empty {@code ConcurrentHashMap}.
+     */
+    public ConcurrentHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new {@code ConcurrentHashMap} that can hold the specified number of mappings without rehashing.
+     *
+     * @param capacity the initial capacity
+     * @throws ProgrammerError when the capacity is less than zero
+     */
+    public ConcurrentHashMap(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new {@code ConcurrentHashMap} with the specified capacity, load factor, and concurrency level.
+     *
+     * @param capacity         the number of mappings the map can hold without rehashing
+     * @param loadFactor       the load factor for each segment, which must be greater than 0
+     * @param concurrencyLevel the estimated number of threads writing to the map at once; the number of segments is
+     *                         this, rounded up to a power of 2
+     * @throws ProgrammerError when any argument is out of range
+     */
+    public ConcurrentHashMap(int capacity, float loadFactor, int concurrencyLevel) {
+        if (capacity < 0 || !(loadFactor > 0) || concurrencyLevel <= 0)
+            throw new ProgrammerError("ConcurrentHashMap capacity, loadFactor, and/or concurrencyLevel is invalid");
+
+        if (concurrencyLevel > MAXIMUM_SEGMENTS)
+            concurrencyLevel = MAXIMUM_SEGMENTS;
+        if (capacity > MAXIMUM_CAPACITY)
+            capacity = MAXIMUM_CAPACITY;
+
+        int shift = 0;
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel) {
+            ++shift;
+            segmentCount <<= 1;
+        }
+        segmentShift = 32 - shift;
+        segmentMask = segmentCount - 1;
+
+        int perSegment = (int) ((capacity / segmentCount) / loadFactor) + 1;
+        int segmentCapacity = 1;
+        while (segmentCapacity < perSegment)
+            segmentCapacity <<= 1;
+
+        segments = newSegmentArray(segmentCount);
+        for (int i = 0; i < segmentCount; i++)
+            segments[i] = new Segment<K, V>(segmentCapacity, loadFactor);
+    }
+
+    /**
+     * Constructs a new {@code ConcurrentHashMap} containing the mappings from the specified map.
+     *
+     * @param map the mappings to add
+     */
+    public ConcurrentHashMap(Map<K, V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    @SuppressWarnings("unchecked") private static <K, V> Segment<K, V>[] newSegmentArray(int length) {
+        return (Segment<K, V>[]) new Segment<?, ?>[length];
+    }
+
+    static int hash(Object key) {
+        return OpenAddressing.mix(key.hashCode());
+    }
+
+    final Segment<K, V> segmentFor(int hash) {
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * Removes all mappings from this map.  Segments are cleared one at a time, so mappings added concurrently may
+     * survive.
+     */
+    @Override public void clear() {
+        for (Segment<K, V> segment : segments)
+            segment.clear();
+    }
+
+    /**
+     * Returns whether this map contains the specified key.
+     *
+     * @param key the key to search for
+     * @return {@code true} if this map contains the specified key, {@code false} otherwise
+     */
+    @Override public boolean containsKey(K key) {
+        int hash = hash(key);
+        return segmentFor(hash).getNode(key, hash) != null;
+    }
+
+    /**
+     * Returns whether this map contains the specified value.  This scans the whole map.
+     *
+     * @param value the value to search for
+     * @return {@code true} if this map contains the specified value, {@code false} otherwise
+     */
+    @Override public boolean containsValue(V value) {
+        for (Segment<K, V> segment : segments) {
+            if (segment.containsValue(value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a set containing all of the mappings in this map.  The set is backed by this map and its iterator is
+     * weakly consistent.
+     *
+     * @return a set of the mappings
+     */
+    @Override public Set<MapEntry<K, V>> entrySet() {
+        return new EntrySet<K, V>(this);
+    }
+
+    /**
+     * Returns the value of the mapping with the specified key.  This doesn't lock.
+     *
+     * @param key the key
+     * @return the value of the mapping with the specified key, or {@code null} / default value for non-nullable value
+     * type if no mapping for the specified key is found
+     */
+    @Override public V get(K key) {
+        int hash = hash(key);
+        Node<K, V> node = segmentFor(hash).getNode(key, hash);
+        if (node == null)
+            return SystemUtils.<V>defaultValue();
+        return node.value;
+    }
+
+    /**
+     * Returns whether this map is empty.
+     *
+     * @return {@code true} if this map has no mappings, {@code false} otherwise
+     */
+    @Override public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.count != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a set of the keys contained in this map.  The set is backed by this map and its iterator is weakly
+     * consistent.  The set does not support adding.
+     *
+     * @return a set of the keys
+     */
+    @Override public Set<K> keySet() {
+        if (keysSet == null)
+            keysSet = new KeySet<K, V>(this);
+        return keysSet;
+    }
+
+    /**
+     * Maps the specified key to the specified value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the value of any previous mapping with the specified key or {@code null} / default value for non-nullable
+     * value type if there was no such mapping
+     */
+    @Override public V put(K key, V value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * Maps the specified key to the specified value, but only if the key isn't already in the map.  The check and the
+     * add are atomic.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the value currently mapped to the key, if there is one (in which case the map isn't changed), otherwise
+     * {@code null} / default value for non-nullable value type
+     */
+    public V putIfAbsent(K key, V value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * Returns the value mapped to the key if there is one.  Otherwise, calls mappingFunction to compute a value, adds it
+     * to the map, and returns it.  The check, computation, and add are atomic, so the function is called at most once
+     * per absent key even when multiple threads ask for the same key at the same time.   When the key is present this
+     * doesn't lock.
+     * <p/>
+     * Other writes to the same segment wait while the function runs, so it should be quick, and it must not modify this
+     * map.
+     *
+     * @param key             the key
+     * @param mappingFunction function to compute the value for the key, if it's absent
+     * @return the current (existing or computed) value for the key
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        Node<K, V> node = segment.getNode(key, hash);
+        if (node != null)
+            return node.value;
+        return segment.computeIfAbsent(key, hash, mappingFunction);
+    }
+
+    /**
+     * Copies all the mappings in the specified map to this map.  The copy isn't atomic as a whole; each mapping is put
+     * separately.
+     *
+     * @param map the map to copy mappings from
+     */
+    @Override public void putAll(Map<? extends K, ? extends V> map) {
+        putAllImpl(map);
+    }
+
+    private <TOtherK extends K, TOtherV extends V> void putAllImpl(Map<TOtherK, TOtherV> map) {
+        for (MapEntry<TOtherK, TOtherV> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the mapping with the specified key from this map.
+     *
+     * @param key the key of the mapping to remove
+     * @return the value of the removed mapping or {@code null} / default value for non-nullable value type if no
+     * mapping for the specified key was found
+     */
+    @Override public V remove(K key) {
+        int hash = hash(key);
+        Node<K, V> node = segmentFor(hash).remove(key, hash, false, null);
+        if (node == null)
+            return SystemUtils.<V>defaultValue();
+        return node.value;
+    }
+
+    /**
+     * Removes the mapping for the key, but only if it's currently mapped to the specified value.  The check and the
+     * remove are atomic.
+     *
+     * @param key   the key of the mapping to remove
+     * @param value the value the key must be mapped to
+     * @return true if the mapping was removed
+     */
+    public boolean remove(K key, V value) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, true, value) != null;
+    }
+
+    /**
+     * Returns the number of mappings in this map.  While other threads are modifying the map, the result is only
+     * approximate.
+     *
+     * @return the number of mappings in this map
+     */
+    @Override public int size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments)
+            size += segment.count;
+        return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+    }
+
+    /**
+     * Returns a collection of the values contained in this map.  The collection is backed by this map and its iterator
+     * is weakly consistent.
+     *
+     * @return a collection of the values contained in this map
+     */
+    @Override public Collection<V> values() {
+        if (valuesCollection == null)
+            valuesCollection = new ValuesCollection<K, V>(this);
+        return valuesCollection;
+    }
+
+    /*
+     * Walks the segments and buckets from the end down, using whichever table each segment had when the iterator got
+     * to it.  Nothing is locked and nothing is checked for concurrent modification.
+     */
+    private static abstract class AbstractMapIterator<K, V, E> extends Iterator<E> {
+        final ConcurrentHashMap<K, V> associatedMap;
+        int nextSegmentIndex;
+        int nextBucketIndex = -1;
+        @Nullable Node<K, V>[] currentTable = null;
+        @Nullable Node<K, V> nextNode = null;
+        @Nullable Node<K, V> lastReturned = null;
+
+        AbstractMapIterator(ConcurrentHashMap<K, V> map) {
+            associatedMap = map;
+            nextSegmentIndex = map.segments.length - 1;
+            advance();
+        }
+
+        private void advance() {
+            if (nextNode != null && (nextNode = nextNode.next) != null)
+                return;
+
+            while (nextBucketIndex >= 0) {
+                if ((nextNode = currentTable[nextBucketIndex--]) != null)
+                    return;
+            }
+
+            while (nextSegmentIndex >= 0) {
+                Segment<K, V> segment = associatedMap.segments[nextSegmentIndex--];
+                if (segment.count != 0) {
+                    currentTable = segment.table;
+                    for (int i = currentTable.length - 1; i >= 0; --i) {
+                        if ((nextNode = currentTable[i]) != null) {
+                            nextBucketIndex = i - 1;
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        final Node<K, V> nextNode() {
+            if (nextNode == null)
+                throw new ProgrammerError("Iterator has no more elements");
+            lastReturned = nextNode;
+            advance();
+            return lastReturned;
+        }
+
+        @Override public final void remove() {
+            if (lastReturned == null)
+                throw new ProgrammerError("No current element to remove");
+            associatedMap.remove(lastReturned.key);
+            lastReturned = null;
+        }
+    }
+
+    private static final class EntryIterator<K, V> extends AbstractMapIterator<K, V, MapEntry<K, V>> {
+        EntryIterator(ConcurrentHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public MapEntry<K, V> next() {
+            Node<K, V> node = nextNode();
+            return new ConcurrentHashMapEntry<K, V>(associatedMap, node.key, node.value);
+        }
+    }
+
+    private static final class KeyIterator<K, V> extends AbstractMapIterator<K, V, K> {
+        KeyIterator(ConcurrentHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public K next() {
+            return nextNode().key;
+        }
+    }
+
+    private static final class ValueIterator<K, V> extends AbstractMapIterator<K, V, V> {
+        ValueIterator(ConcurrentHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public V next() {
+            return nextNode().value;
+        }
+    }
+
+    /*
+     * Entries are snapshots of a mapping; setValue writes through to the map.
+     */
+    private static final class ConcurrentHashMapEntry<K, V> extends MapEntryImpl<K, V> {
+        private final ConcurrentHashMap<K, V> associatedMap;
+
+        ConcurrentHashMapEntry(ConcurrentHashMap<K, V> map, K theKey, V theValue) {
+            super(theKey, theValue);
+            associatedMap = map;
+        }
+
+        @Override public V setValue(V object) {
+            V result = super.setValue(object);
+            associatedMap.put(key, object);
+            return result;
+        }
+    }
+
+    private static final class EntrySet<K, V> extends Set<MapEntry<K, V>> {
+        private final ConcurrentHashMap<K, V> associatedMap;
+
+        EntrySet(ConcurrentHashMap<K, V> map) {
+            associatedMap = map;
+        }
+
+        @Override public int size() {
+            return associatedMap.size();
+        }
+
+        @Override public void clear() {
+            associatedMap.clear();
+        }
+
+        @Override public boolean add(MapEntry<K, V> object) {
+            throw new ProgrammerError("add method not supported for ConcurrentHashMap entrySet");
+        }
+
+        @Override public boolean remove(MapEntry<K, V> object) {
+            return object != null && associatedMap.remove(object.getKey(), object.getValue());
+        }
+
+        @Override public boolean contains(MapEntry<K, V> object) {
+            if (object == null)
+                return false;
+            K key = object.getKey();
+            int hash = hash(key);
+            Node<K, V> node = associatedMap.segmentFor(hash).getNode(key, hash);
+            return node != null && SystemUtils.equals(node.value, object.getValue());
+        }
+
+        @Override public Iterator<MapEntry<K, V>> iterator() {
+            return new EntryIterator<K, V>(associatedMap);
+        }
+    }
+
+    private static final class KeySet<K, V> extends Set<K> {
+        private final ConcurrentHashMap<K, V> associatedMap;
+
+        KeySet(ConcurrentHashMap<K, V> map) {
+            associatedMap = map;
+        }
+
+        @Override public boolean contains(K key) {
+            return associatedMap.containsKey(key);
+        }
+
+        @Override public int size() {
+            return associatedMap.size();
+        }
+
+        @Override public void clear() {
+            associatedMap.clear();
+        }
+
+        @Override public boolean add(K object) {
+            throw new ProgrammerError("add method not supported for ConcurrentHashMap keySet");
+        }
+
+        @Override public boolean remove(K key) {
+            int hash = hash(key);
+            return associatedMap.segmentFor(hash).remove(key, hash, false, null) != null;
+        }
+
+        @Override public Iterator<K> iterator() {
+            return new KeyIterator<K, V>(associatedMap);
+        }
+    }
+
+    private static final class ValuesCollection<K, V> extends Collection<V> {
+        private final ConcurrentHashMap<K, V> associatedMap;
+
+        ValuesCollection(ConcurrentHashMap<K, V> map) {
+            associatedMap = map;
+        }
+
+        @Override public boolean contains(V object) {
+            return associatedMap.containsValue(object);
+        }
+
+        @Override public int size() {
+            return associatedMap.size();
+        }
+
+        @Override public void clear() {
+            associatedMap.clear();
+        }
+
+        @Override public Iterator<V> iterator() {
+            return new ValueIterator<K, V>(associatedMap);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+/**
+ * A growable list of primitive int values, backed by a int[].   Compared to an {@code ArrayList<Integer>}, there's no
+ * object per element and no boxing on add/get, so a large list uses a fraction of the heap (for 10M elements, roughly
+ * 40MB rather than 160MB).
+ * <p/>
+ * The growth policy is the same as {@link ArrayList}:  when full, the array grows by half its current size (at least
+ * 12 elements, and at least as many as needed).   Methods that take an index throw a ProgrammerError if it's out of
+ * bounds.
+ */
+public class IntArrayList implements Equatable<IntArrayList> {
+    /**
+     * A counter for changes to the list.
+     */
+    protected transient int modCount;
+
+    private transient int itemCount;
+    private transient int[] array;
+
+    private static class IntArrayListIterator extends IntIterator {
+        private IntArrayList list;
+        private int position = 0;
+        private int expectedModCount;
+        private int lastPosition = -1;
+
+        IntArrayListIterator(IntArrayList list) {
+            this.list = list;
+            this.expectedModCount = list.modCount;
+        }
+
+        @Override public boolean hasNext() {
+            return position < list.itemCount;
+        }
+
+        @Override public int next() {
+            if (expectedModCount != list.modCount) {
+                throw createConcurrentModificationException();
+            }
+            if (position >= list.itemCount) {
+                throw new ProgrammerError("Index out of bounds: index: {}, size: {}", position, list.itemCount);
+            }
+            lastPosition = position;
+            return list.array[position++];
+        }
+
+        @Override public void remove() {
+            if (lastPosition == -1) {
+                throw new ProgrammerError("No current element to remove");
+            }
+            if (expectedModCount != list.modCount) {
+                throw createConcurrentModificationException();
+            }
+
+            list.removeAt(lastPosition);
+            position = lastPosition;
+            expectedModCount = list.modCount;
+            lastPosition = -1;
+        }
+
+        private ProgrammerError createConcurrentModificationException() {
+            return new ProgrammerError("List modified outside of iterator: expected mod count is {}, actual mod count is {}", expectedModCount, list.modCount);
+        }
+    }
+
+    /**
+     * Constructs a new instance of {@code IntArrayList} with ten capacity.
+     */
+    public IntArrayList() {
+        this(10);
+    }
+
+    /**
+     * Constructs a new instance of {@code IntArrayList} with the specified capacity.
+     *
+     * @param capacity the initial capacity of this {@code IntArrayList}
+     */
+    public IntArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new ProgrammerError("IntArrayList capacity {} is negative", capacity);
+        }
+        itemCount = 0;
+        array = new int[capacity];
+    }
+
+    /**
+     * Constructs an IntArrayList, with the specified initial members.
+     *
+     * @param values elements to add initially to the list
+     */
+    public IntArrayList(int... values) {
+        this(values.length);
+        addAll(values);
+    }
+
+    /**
+     * Adds the specified value at the end of this list.
+     *
+     * @param value the value to add
+     */
+    public void add(int value) {
+        if (itemCount == array.length) {
+            grow(1);
+        }
+        array[itemCount++] = value;
+        modCount++;
+    }
+
+    /**
+     * Inserts the specified value into this list at the specified location. The value is inserted before any previous
+     * element at the specified location. If the location is equal to the size of this list, the value is added at the
+     * end.
+     *
+     * @param location the index at which to insert the value
+     * @param value    the value to add
+     */
+    public void add(int location, int value) {
+        if (location < 0 || location > itemCount) {
+            throw new ProgrammerError("Index out of bounds; index: {}, size: {}", location, itemCount);
+        }
+        if (itemCount == array.length) {
+            grow(1);
+        }
+        SystemUtils.arraycopy(array, location, array, location + 1, itemCount - location);
+        array[location] = value;
+        itemCount++;
+        modCount++;
+    }
+
+    /**
+     * Adds all the values in the specified array to the end of this list, with a single bulk copy.
+     *
+     * @param values values to add
+     */
+    public void addAll(int[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Adds the specified range of values from the array to the end of this list, with a single bulk copy.
+     *
+     * @param values   source array
+     * @param position index of the first value to add
+     * @param length   number of values to add
+     */
+    public void addAll(int[] values, int position, int length) {
+        if (position < 0 || length < 0 || position + length > values.length) {
+            throw new ProgrammerError("Range [{}, {}) is outside of array of length {}", position, position + length,
+                    values.length);
+        }
+        if (length == 0) {
+            return;
+        }
+        if (length > array.length - itemCount) {
+            grow(length);
+        }
+        SystemUtils.arraycopy(values, position, array, itemCount, length);
+        itemCount += length;
+        modCount++;
+    }
+
+    /**
+     * Adds all the values in the specified list to the end of this list.
+     *
+     * @param list values to add
+     */
+    public void addAll(IntArrayList list) {
+        addAll(list.array, 0, list.itemCount);
+    }
+
+    /**
+     * Removes all elements from this list, leaving it empty.  The capacity is unchanged.
+     */
+    public void clear() {
+        if (itemCount != 0) {
+            itemCount = 0;
+            modCount++;
+        }
+    }
+
+    /**
+     * Searches this list for the specified value.
+     *
+     * @param value the value to search for
+     * @return {@code true} if {@code value} is an element of this list, {@code false} otherwise
+     */
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Ensures that after this operation the list can hold the specified number of elements without further growing.
+     *
+     * @param minimumCapacity the minimum capacity asked for
+     */
+    public void ensureCapacity(int minimumCapacity) {
+        if (minimumCapacity > array.length) {
+            grow(minimumCapacity - itemCount);
+        }
+    }
+
+    /**
+     * Returns the element at the specified location.
+     *
+     * @param location index of the element
+     * @return the element at that location
+     */
+    public int get(int location) {
+        if (location < 0 || location >= itemCount) {
+            throw new ProgrammerError("Index out of bounds; index: {}, size: {}", location, itemCount);
+        }
+        return array[location];
+    }
+
+    /**
+     * Grow the array so it can hold at least required more elements, using the same policy as ArrayList.
+     */
+    private void grow(int required) {
+        int increment = itemCount / 2;
+        if (required > increment) {
+            increment = required;
+        }
+        if (increment < 12) {
+            increment = 12;
+        }
+        int[] newArray = new int[itemCount + increment];
+        SystemUtils.arraycopy(array, 0, newArray, 0, itemCount);
+        array = newArray;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the value in this list, or -1 if it isn't present.
+     *
+     * @param value the value to search for
+     * @return index of the value or -1 if not found
+     */
+    public int indexOf(int value) {
+        for (int i = 0; i < itemCount; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the value in this list, or -1 if it isn't present.
+     *
+     * @param value the value to search for
+     * @return index of the value or -1 if not found
+     */
+    public int lastIndexOf(int value) {
+        for (int i = itemCount - 1; i >= 0; i--) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether this list is empty.
+     *
+     * @return {@code true} if this list has no elements, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return itemCount == 0;
+    }
+
+    /**
+     * Returns an iterator on the elements of this list, in order.  The iterator supports remove.
+     *
+     * @return an iterator on the elements of this list
+     */
+    public IntIterator iterator() {
+        return new IntArrayListIterator(this);
+    }
+
+    /**
+     * Removes the element at the specified location from this list.
+     *
+     * @param location the index of the element to remove
+     * @return the removed element
+     */
+    public int removeAt(int location) {
+        if (location < 0 || location >= itemCount) {
+            throw new ProgrammerError("Index out of bounds; index: {}, size: {}", location, itemCount);
+        }
+        int result = array[location];
+        SystemUtils.arraycopy(array, location + 1, array, location, itemCount - location - 1);
+        itemCount--;
+        modCount++;
+        return result;
+    }
+
+    /**
+     * Removes the elements from the specified start (inclusive) to end (exclusive) index, shifting any later elements
+     * down with a single bulk copy.
+     *
+     * @param start the index of the first element to remove
+     * @param end   the index after the last element to remove
+     */
+    public void removeRange(int start, int end) {
+        if (start < 0 || start > end || end > itemCount) {
+            throw new ProgrammerError("Range [{}, {}) is invalid for list of size {}", start, end, itemCount);
+        }
+        if (start == end) {
+            return;
+        }
+        SystemUtils.arraycopy(array, end, array, start, itemCount - end);
+        itemCount -= end - start;
+        modCount++;
+    }
+
+    /**
+     * Replaces the element at the specified location in this list with the specified value.
+     *
+     * @param location the index at which to put the specified value
+     * @param value    the value to store
+     * @return the previous element at the index
+     */
+    public int set(int location, int value) {
+        if (location < 0 || location >= itemCount) {
+            throw new ProgrammerError("Index out of bounds; index: {}, size: {}", location, itemCount);
+        }
+        int result = array[location];
+        array[location] = value;
+        return result;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return itemCount;
+    }
+
+    /**
+     * Sorts this list into ascending numerical order.
+     */
+    public void sortInPlace() {
+        Arrays.sort(array, 0, itemCount);
+        modCount++;
+    }
+
+    /**
+     * Performs a binary search for the specified value.  The list must be sorted (e.g. with sortInPlace) first.
+     *
+     * @param value the value to find
+     * @return the non-negative index of the value, or a negative index which is the -index - 1 where the value would
+     * be inserted
+     */
+    public int binarySearch(int value) {
+        return Arrays.binarySearch(array, 0, itemCount, value);
+    }
+
+    /**
+     * Returns a new array containing all elements of this list.
+     *
+     * @return an array of the elements from this list
+     */
+    public int[] toArray() {
+        int[] result = new int[itemCount];
+        SystemUtils.arraycopy(array, 0, result, 0, itemCount);
+        return result;
+    }
+
+    /**
+     * Returns the array backing this list, without copying it.  Only the first size() elements contain list data--the
+     * remainder is just unused capacity.  The array is shared with the list, so it reflects changes to existing
+     * elements, but after the list grows it's no longer the backing array.  Use this for read-only bulk access (e.g.
+     * passing the data to an API taking an array, position, and length), where toArray would make an unneeded copy.
+     *
+     * @return the backing array
+     */
+    public int[] getBackingArray() {
+        return array;
+    }
+
+    /**
+     * Sets the capacity of this list to be the same as the current size.
+     */
+    public void trimToSize() {
+        if (array.length != itemCount) {
+            int[] newArray = new int[itemCount];
+            SystemUtils.arraycopy(array, 0, newArray, 0, itemCount);
+            array = newArray;
+        }
+    }
+
+    /**
+     * Two lists are equal if they have the same size and the same elements, in the same order.
+     *
+     * @param other list to compare against
+     * @return true if and only if the lists are equal
+     */
+    @Override public boolean equalTo(IntArrayList other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || itemCount != other.itemCount) {
+            return false;
+        }
+        for (int i = 0; i < itemCount; i++) {
+            if (array[i] != other.array[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The default Java equals(Object) method isn't supported, just like for the other JSimple collections.  Use
+     * equalTo instead.
+     *
+     * @param object the object to compare to this object
+     * @return always throws an exception
+     */
+    @Override public boolean equals(Object object) {
+        throw new ProgrammerError("equals isn't supported by default for collections;  use == for reference equality or equalTo for deep equality");
+    }
+
+    @Override public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < itemCount; i++) {
+            result = 31 * result + array[i];
+        }
+        return result;
+    }
+
+    @Override public String toString() {
+        if (itemCount == 0) {
+            return "[]";
+        }
+
+        StringBuilder buffer = new StringBuilder(itemCount * 8);
+        buffer.append('[');
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(array[i]);
+        }
+        buffer.append(']');
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A hash map from primitive int keys to primitive int values, handy for counters and id to index tables.   Nothing is
+ * boxed or allocated per lookup or per mapping:  keys and values are stored in parallel arrays using open addressing
+ * (linear probing), with backward shift deletion on remove.
+ * <p/>
+ * Key 0 marks an empty slot in the key array, so a mapping for key 0 is kept separately.   Methods that return a value
+ * return 0 when there's no mapping; use containsKey or getOrDefault to distinguish that case.   Iterators are
+ * fail-fast, throwing a ProgrammerError if the map is structurally modified outside of the iterator.
+ */
+public class IntIntHashMap {
+    transient int[] keys;
+    transient int[] values;
+    transient boolean hasZeroKey;
+    transient int zeroKeyValue;
+
+    /*
+     * Actual count of entries, including any mapping for key 0
+     */
+    transient int elementCount;
+
+    /*
+     * modification count, to keep track of structural modifications between the map and its iterators
+     */
+    transient int modCount = 0;
+
+    final float loadFactor;
+    int threshold;
+
+    private static final int DEFAULT_SIZE = 16;
+
+    /*
+     * Iteration state shared by the key & value iterators.  Slots are scanned from the end of the table down to 0;
+     * keys that get shifted from the unvisited part of the table to the visited part when the probe sequence wraps
+     * around, due to a remove during iteration, are saved in wrapped and returned after the scan.  Key 0 comes last.
+     */
+    private static final class Scan {
+        private static final int SOURCE_NONE = 0;
+        private static final int SOURCE_TABLE = 1;
+        private static final int SOURCE_WRAPPED = 2;
+        private static final int SOURCE_ZERO_KEY = 3;
+
+        final IntIntHashMap associatedMap;
+        int expectedModCount;
+        int position;
+        @Nullable int[] wrapped = null;
+        int wrappedCount = 0;
+        int wrappedPosition = 0;
+        boolean zeroKeyPending;
+
+        int currentSource = SOURCE_NONE;
+        int currentIndex = -1;
+        int currentKey = 0;
+
+        Scan(IntIntHashMap map) {
+            associatedMap = map;
+            expectedModCount = map.modCount;
+            position = map.keys.length;
+            zeroKeyPending = map.hasZeroKey;
+        }
+
+        boolean hasNext() {
+            int[] keys = associatedMap.keys;
+            while (position > 0 && keys[position - 1] == 0) {
+                position--;
+            }
+            return position > 0 || wrappedPosition < wrappedCount || zeroKeyPending;
+        }
+
+        void checkConcurrentMod() {
+            if (expectedModCount != associatedMap.modCount) {
+                throw new ProgrammerError(
+                        "IntIntHashMap modified outside of iterator: expected mod count is {}, actual mod count is {}",
+                        expectedModCount, associatedMap.modCount);
+            }
+        }
+
+        void advance() {
+            checkConcurrentMod();
+            if (!hasNext()) {
+                throw new ProgrammerError();
+            }
+            if (position > 0) {
+                currentIndex = --position;
+                currentKey = associatedMap.keys[currentIndex];
+                currentSource = SOURCE_TABLE;
+            } else if (wrappedPosition < wrappedCount) {
+                currentKey = wrapped[wrappedPosition++];
+                currentIndex = associatedMap.findIndex(currentKey);
+                currentSource = SOURCE_WRAPPED;
+            } else {
+                zeroKeyPending = false;
+                currentKey = 0;
+                currentIndex = -1;
+                currentSource = SOURCE_ZERO_KEY;
+            }
+        }
+
+        int currentValue() {
+            if (currentSource == SOURCE_ZERO_KEY)
+                return associatedMap.zeroKeyValue;
+            else return associatedMap.values[currentIndex];
+        }
+
+        void addWrapped(int key) {
+            if (wrapped == null) {
+                wrapped = new int[4];
+            } else if (wrappedCount == wrapped.length) {
+                wrapped = OpenAddressing.grow(wrapped);
+            }
+            wrapped[wrappedCount++] = key;
+        }
+
+        void remove() {
+            checkConcurrentMod();
+            if (currentSource == SOURCE_NONE) {
+                throw new ProgrammerError("No current element to remove");
+            }
+            if (currentSource == SOURCE_TABLE) {
+                associatedMap.removeAt(currentIndex, this);
+            } else if (currentSource == SOURCE_WRAPPED) {
+                associatedMap.removeAt(associatedMap.findIndex(currentKey), null);
+            } else {
+                associatedMap.removeZeroKey();
+            }
+            currentSource = SOURCE_NONE;
+            expectedModCount = associatedMap.modCount;
+        }
+    }
+
+    private static final class KeyIterator extends IntIterator {
+        private final Scan scan;
+
+        KeyIterator(IntIntHashMap map) {
+            scan = new Scan(map);
+        }
+
+        @Override public boolean hasNext() {
+            return scan.hasNext();
+        }
+
+        @Override public int next() {
+            scan.advance();
+            return scan.currentKey;
+        }
+
+        @Override public void remove() {
+            scan.remove();
+        }
+    }
+
+    private static final class ValueIterator extends IntIterator {
+        private final Scan scan;
+
+        ValueIterator(IntIntHashMap map) {
+            scan = new Scan(map);
+        }
+
+        @Override public boolean hasNext() {
+            return scan.hasNext();
+        }
+
+        @Override public int next() {
+            scan.advance();
+            return scan.currentValue();
+        }
+
+        @Override public void remove() {
+            scan.remove();
+        }
+    }
+
+    /**
+     * Constructs a new empty map.
+     */
+    public IntIntHashMap() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructs a new map that can hold the specified number of mappings without rehashing.
+     *
+     * @param capacity the initial capacity of this map
+     * @throws ProgrammerError when the capacity is less than zero
+     */
+    public IntIntHashMap(int capacity) {
+        this(capacity, 0.5f);
+    }
+
+    /**
+     * Constructs a new map with the specified capacity and load factor.
+     *
+     * @param capacity   the number of mappings the map can hold without rehashing
+     * @param loadFactor the load factor, which must be greater than 0 and less than 1
+     * @throws ProgrammerError when the capacity is less than zero or the load factor isn't in the range (0, 1)
+     */
+    public IntIntHashMap(int capacity, float loadFactor) {
+        if (capacity >= 0 && loadFactor > 0 && loadFactor < 1) {
+            this.loadFactor = loadFactor;
+            elementCount = 0;
+            allocateTable(OpenAddressing.tableLength(capacity, loadFactor));
+        } else {
+            throw new ProgrammerError("IntIntHashMap capacity and/or loadFactor is invalid (e.g. negative)");
+        }
+    }
+
+    private void allocateTable(int length) {
+        keys = new int[length];
+        values = new int[length];
+        threshold = OpenAddressing.threshold(length, loadFactor);
+    }
+
+    /**
+     * Return the slot index holding the specified (non-zero) key, or -1 if the key isn't in the table.
+     */
+    final int findIndex(int key) {
+        int[] keys = this.keys;
+        int mask = keys.length - 1;
+        int index = OpenAddressing.mix(key) & mask;
+        while (true) {
+            int currKey = keys[index];
+            if (currKey == key) {
+                return index;
+            }
+            if (currKey == 0) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings in this map
+     */
+    public int size() {
+        return elementCount;
+    }
+
+    /**
+     * Returns whether this map is empty.
+     *
+     * @return {@code true} if this map has no mappings, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return elementCount == 0;
+    }
+
+    /**
+     * Returns the value of the mapping with the specified key.
+     *
+     * @param key the key
+     * @return the value of the mapping with the specified key, or 0 if no mapping for the specified key is found
+     */
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value of the mapping with the specified key, or the specified default if there's no such mapping.
+     *
+     * @param key          the key
+     * @param defaultValue value to return if there's no mapping for key
+     * @return the value of the mapping with the specified key, or defaultValue if no mapping is found
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroKeyValue : defaultValue;
+        }
+        int index = findIndex(key);
+        if (index >= 0) {
+            return values[index];
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns whether this map contains the specified key.
+     *
+     * @param key the key to search for
+     * @return {@code true} if this map contains the specified key, {@code false} otherwise
+     */
+    public boolean containsKey(int key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return findIndex(key) >= 0;
+    }
+
+    /**
+     * Returns whether this map contains the specified value.
+     *
+     * @param value the value to search for
+     * @return {@code true} if this map contains the specified value, {@code false} otherwise
+     */
+    public boolean containsValue(int value) {
+        if (hasZeroKey && value == zeroKeyValue) {
+            return true;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && value == values[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the value of any previous mapping with the specified key or 0 if there was no such mapping
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            int result = zeroKeyValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                result = 0;
+                elementCount++;
+                modCount++;
+            }
+            zeroKeyValue = value;
+            return result;
+        }
+
+        int[] keys = this.keys;
+        int mask = keys.length - 1;
+        int index = OpenAddressing.mix(key) & mask;
+        while (true) {
+            int currKey = keys[index];
+            if (currKey == key) {
+                int result = values[index];
+                values[index] = value;
+                return result;
+            }
+            if (currKey == 0) {
+                break;
+            }
+            index = (index + 1) & mask;
+        }
+
+        modCount++;
+        keys[index] = key;
+        values[index] = value;
+        if (++elementCount > threshold) {
+            rehash(keys.length << 1);
+        }
+        return 0;
+    }
+
+    /**
+     * Adds the increment to the value mapped to the specified key, treating a missing mapping as 0.  This is the
+     * equivalent of put(key, get(key) + increment), but with a single lookup.
+     *
+     * @param key       the key
+     * @param increment amount to add
+     * @return the new value mapped to key
+     */
+    public int addTo(int key, int increment) {
+        if (key == 0) {
+            put(0, zeroKeyValue + increment);
+            return zeroKeyValue;
+        }
+
+        int index = findIndex(key);
+        if (index >= 0) {
+            values[index] += increment;
+            return values[index];
+        }
+        put(key, increment);
+        return increment;
+    }
+
+    void rehash(int newLength) {
+        if (newLength > OpenAddressing.MAXIMUM_TABLE_LENGTH) {
+            throw new ProgrammerError("IntIntHashMap can't grow beyond {} slots", OpenAddressing.MAXIMUM_TABLE_LENGTH);
+        }
+
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocateTable(newLength);
+
+        int mask = newLength - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int index = OpenAddressing.mix(key) & mask;
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping with the specified key from this map.
+     *
+     * @param key the key of the mapping to remove
+     * @return the value of the removed mapping or 0 if no mapping for the specified key was found
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return 0;
+            }
+            int result = zeroKeyValue;
+            removeZeroKey();
+            return result;
+        }
+
+        int index = findIndex(key);
+        if (index < 0) {
+            return 0;
+        }
+        int result = values[index];
+        removeAt(index, null);
+        return result;
+    }
+
+    final void removeZeroKey() {
+        hasZeroKey = false;
+        zeroKeyValue = 0;
+        elementCount--;
+        modCount++;
+    }
+
+    /*
+     * Remove the mapping at the given slot, then shift later keys in the same probe sequence back to fill the gap.
+     */
+    final void removeAt(int index, @Nullable Scan scan) {
+        int[] keys = this.keys;
+        int[] values = this.values;
+        int mask = keys.length - 1;
+
+        int gap = index;
+        int curr = index;
+        while (true) {
+            curr = (curr + 1) & mask;
+            int key = keys[curr];
+            if (key == 0) {
+                break;
+            }
+
+            if (OpenAddressing.canShift(gap, curr, OpenAddressing.mix(key) & mask)) {
+                if (scan != null && curr < scan.position && gap >= scan.position) {
+                    scan.addWrapped(key);
+                }
+
+                keys[gap] = key;
+                values[gap] = values[curr];
+                gap = curr;
+            }
+        }
+
+        keys[gap] = 0;
+        values[gap] = 0;
+        modCount++;
+        elementCount--;
+    }
+
+    /**
+     * Removes all mappings from this map, leaving it empty.
+     */
+    public void clear() {
+        if (elementCount > 0) {
+            elementCount = 0;
+            hasZeroKey = false;
+            zeroKeyValue = 0;
+
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = 0;
+                values[i] = 0;
+            }
+
+            modCount++;
+        }
+    }
+
+    /**
+     * Returns an iterator over the keys in this map.  The iterator supports remove.
+     *
+     * @return key iterator
+     */
+    public IntIterator keyIterator() {
+        return new KeyIterator(this);
+    }
+
+    /**
+     * Returns a new array containing the keys in this map, in iteration order.
+     *
+     * @return array of keys
+     */
+    public int[] keysToArray() {
+        int[] result = new int[elementCount];
+        int index = 0;
+        for (int i = keys.length - 1; i >= 0; i--) {
+            if (keys[i] != 0) {
+                result[index++] = keys[i];
+            }
+        }
+        if (hasZeroKey) {
+            result[index] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Returns an iterator over the values in this map, in the same order as the keys are returned by keyIterator.  The
+     * iterator supports remove.
+     *
+     * @return value iterator
+     */
+    public IntIterator valueIterator() {
+        return new ValueIterator(this);
+    }
+
+    /**
+     * Returns the string representation of this map, in the same format as {@link Map#toString()}.
+     *
+     * @return the string representation of this map
+     */
+    @Override public String toString() {
+        if (isEmpty()) {
+            return "{}";
+        }
+
+        StringBuilder buffer = new StringBuilder(size() * 28);
+        buffer.append('{');
+        Scan scan = new Scan(this);
+        while (scan.hasNext()) {
+            scan.advance();
+            buffer.append(scan.currentKey);
+            buffer.append('=');
+            buffer.append(scan.currentValue());
+            if (scan.hasNext()) {
+                buffer.append(", ");
+            }
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * LinkedHashMap is a HashMap that also keeps its entries in a doubly linked list, so it iterates in a predictable
+ * order.   By default that's insertion order (putting an existing key doesn't change its position).   When constructed
+ * with accessOrder true, it's access order instead:  get and put move the entry to the end, so iteration goes from
+ * least to most recently used.   That, together with {@link #removeEldestEntry}, makes it the natural building block
+ * for LRU caches (see {@link Cache}).
+ * <p/>
+ * In access ordered maps, get is a structural modification, so calling it while iterating makes the iterator throw.
+ * Otherwise the contract is the same as HashMap.
+ */
+public class LinkedHashMap<K, V> extends HashMap<K, V> {
+    private final boolean accessOrder;
+    private @Nullable LinkedHashMapEntry<K, V> head = null;    // eldest
+    private @Nullable LinkedHashMapEntry<K, V> tail = null;    // youngest
+
+    static final class LinkedHashMapEntry<K, V> extends HashMapEntry<K, V> {
+        @Nullable LinkedHashMapEntry<K, V> before;
+        @Nullable LinkedHashMapEntry<K, V> after;
+
+        LinkedHashMapEntry(K theKey, int hash) {
+            super(theKey, hash);
+        }
+    }
+
+    /**
+     * Constructs a new empty, insertion ordered, {@code LinkedHashMap}.
+     */
+    public LinkedHashMap() {
+        this(16, 0.75f, false);
+    }
+
+    /**
+     * Constructs a new empty, insertion ordered, {@code LinkedHashMap} with the specified capacity.
+     *
+     * @param capacity the initial capacity
+     * @throws ProgrammerError when the capacity is less than zero
+     */
+    public LinkedHashMap(int capacity) {
+        this(capacity, 0.75f, false);
+    }
+
+    /**
+     * Constructs a new empty {@code LinkedHashMap}.
+     *
+     * @param capacity    the initial capacity
+     * @param loadFactor  the load factor
+     * @param accessOrder true to order the entries by access (least recently used first), false to order them by
+     *                    insertion
+     * @throws ProgrammerError when the capacity is less than zero or the load factor is less or equal to zero
+     */
+    public LinkedHashMap(int capacity, float loadFactor, boolean accessOrder) {
+        super(capacity, loadFactor);
+        this.accessOrder = accessOrder;
+    }
+
+    /**
+     * Constructs a new insertion ordered {@code LinkedHashMap} containing the mappings from the specified map, in the
+     * map's iteration order.
+     *
+     * @param map the mappings to add
+     */
+    public LinkedHashMap(Map<K, V> map) {
+        this(map.size(), 0.75f, false);
+        putAll(map);
+    }
+
+    /**
+     * Returns whether this map iterates in access order (as opposed to insertion order).
+     *
+     * @return true if access ordered
+     */
+    public boolean isAccessOrder() {
+        return accessOrder;
+    }
+
+    /**
+     * Called by put after adding a new mapping, with the eldest entry (the least recently inserted, or for access
+     * ordered maps the least recently used).  If this returns true, the eldest entry is then removed.   The default
+     * implementation always returns false; subclasses can override it to bound the size of the map, e.g. returning
+     * {@code size() > maximumSize}.
+     *
+     * @param eldest eldest entry in the map
+     * @return true if the eldest entry should be removed
+     */
+    protected boolean removeEldestEntry(MapEntry<K, V> eldest) {
+        return false;
+    }
+
+    /**
+     * Returns the eldest entry in the map (the one iteration would return first), or null if the map is empty.  This
+     * doesn't count as an access.
+     *
+     * @return eldest entry or null
+     */
+    public @Nullable MapEntry<K, V> getEldestEntry() {
+        return head;
+    }
+
+    @Override HashMapEntry<K, V> createHashedEntry(K key, int index, int hash) {
+        LinkedHashMapEntry<K, V> entry = new LinkedHashMapEntry<K, V>(key, hash);
+        entry.next = elementData[index];
+        elementData[index] = entry;
+        linkLast(entry);
+        return entry;
+    }
+
+    @Override V putImpl(K key, V value) {
+        int hash = key.hashCode();
+        HashMapEntry<K, V> existing = findNonNullKeyEntry(key, hash & (elementData.length - 1), hash);
+        if (existing != null) {
+            if (accessOrder)
+                moveToEnd((LinkedHashMapEntry<K, V>) existing);
+            V result = existing.value;
+            existing.value = value;
+            return result;
+        }
+
+        V result = super.putImpl(key, value);
+
+        LinkedHashMapEntry<K, V> eldest = head;
+        if (eldest != null && removeEldestEntry(eldest))
+            removeLinkedEntry(eldest);
+        return result;
+    }
+
+    /**
+     * Returns the value of the mapping with the specified key.  For access ordered maps, this makes the mapping the
+     * most recently used.
+     *
+     * @param key the key
+     * @return the value of the mapping with the specified key, or {@code null} / default value for non-nullable value
+     * type if no mapping for the specified key is found
+     */
+    @Override public V get(K key) {
+        HashMapEntry<K, V> entry = getEntry(key);
+        if (entry == null)
+            return SystemUtils.<V>defaultValue();
+
+        if (accessOrder)
+            moveToEnd((LinkedHashMapEntry<K, V>) entry);
+        return entry.value;
+    }
+
+    @Override public V remove(K key) {
+        HashMapEntry<K, V> entry = removeEntry(key);
+        if (entry == null)
+            return SystemUtils.<V>defaultValue();
+
+        unlink((LinkedHashMapEntry<K, V>) entry);
+        return entry.value;
+    }
+
+    @Override public void clear() {
+        super.clear();
+        head = null;
+        tail = null;
+    }
+
+    final void removeLinkedEntry(LinkedHashMapEntry<K, V> entry) {
+        removeEntry(entry);
+        unlink(entry);
+    }
+
+    private void linkLast(LinkedHashMapEntry<K, V> entry) {
+        LinkedHashMapEntry<K, V> last = tail;
+        entry.before = last;
+        entry.after = null;
+        if (last == null)
+            head = entry;
+        else last.after = entry;
+        tail = entry;
+    }
+
+    private void unlink(LinkedHashMapEntry<K, V> entry) {
+        LinkedHashMapEntry<K, V> before = entry.before;
+        LinkedHashMapEntry<K, V> after = entry.after;
+        if (before == null)
+            head = after;
+        else before.after = after;
+        if (after == null)
+            tail = before;
+        else after.before = before;
+        entry.before = null;
+        entry.after = null;
+    }
+
+    private void moveToEnd(LinkedHashMapEntry<K, V> entry) {
+        if (entry != tail) {
+            unlink(entry);
+            linkLast(entry);
+            modCount++;
+        }
+    }
+
+    @Override public Set<MapEntry<K, V>> entrySet() {
+        return new LinkedEntrySet<K, V>(this);
+    }
+
+    @Override public Set<K> keySet() {
+        if (keysSet == null)
+            keysSet = new LinkedKeySet<K, V>(this);
+        return keysSet;
+    }
+
+    @Override public Collection<V> values() {
+        if (valuesCollection == null)
+            valuesCollection = new LinkedValuesCollection<K, V>(this);
+        return valuesCollection;
+    }
+
+    private static abstract class LinkedMapIterator<K, V, E> extends Iterator<E> {
+        final LinkedHashMap<K, V> associatedMap;
+        int expectedModCount;
+        @Nullable LinkedHashMapEntry<K, V> nextEntry;
+        @Nullable LinkedHashMapEntry<K, V> currentEntry = null;
+
+        LinkedMapIterator(LinkedHashMap<K, V> map) {
+            associatedMap = map;
+            expectedModCount = map.modCount;
+            nextEntry = map.head;
+        }
+
+        @Override public boolean hasNext() {
+            return nextEntry != null;
+        }
+
+        final void checkConcurrentMod() {
+            if (expectedModCount != associatedMap.modCount) {
+                throw new ProgrammerError(
+                        "LinkedHashMap modified outside of iterator: expected mod count is {}, actual mod count is {}",
+                        expectedModCount, associatedMap.modCount);
+            }
+        }
+
+        final LinkedHashMapEntry<K, V> makeNext() {
+            checkConcurrentMod();
+            if (nextEntry == null)
+                throw new ProgrammerError("Iterator has no more elements");
+            currentEntry = nextEntry;
+            nextEntry = nextEntry.after;
+            return currentEntry;
+        }
+
+        @Override public final void remove() {
+            checkConcurrentMod();
+            if (currentEntry == null)
+                throw new ProgrammerError("No current element to remove");
+            associatedMap.removeLinkedEntry(currentEntry);
+            currentEntry = null;
+            expectedModCount = associatedMap.modCount;
+        }
+    }
+
+    private static final class EntryIterator<K, V> extends LinkedMapIterator<K, V, MapEntry<K, V>> {
+        EntryIterator(LinkedHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public MapEntry<K, V> next() {
+            return makeNext();
+        }
+    }
+
+    private static final class KeyIterator<K, V> extends LinkedMapIterator<K, V, K> {
+        KeyIterator(LinkedHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public K next() {
+            return makeNext().key;
+        }
+    }
+
+    private static final class ValueIterator<K, V> extends LinkedMapIterator<K, V, V> {
+        ValueIterator(LinkedHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public V next() {
+            return makeNext().value;
+        }
+    }
+
+    private static final class LinkedEntrySet<K, V> extends Set<MapEntry<K, V>> {
+        private final LinkedHashMap<K, V> associatedMap;
+
+        LinkedEntrySet(LinkedHashMap<K, V> map) {
+            associatedMap = map;
+        }
+
+        @Override public int size() {
+            return associatedMap.elementCount;
+        }
+
+        @Override public void clear() {
+            associatedMap.clear();
+        }
+
+        @Override public boolean add(MapEntry<K, V> object) {
+            throw new ProgrammerError("add method not supported for LinkedHashMap entrySet");
+        }
+
+        @Override public boolean remove(MapEntry<K, V> object) {
+            if (object != null) {
+                HashMapEntry<K, V> entry = associatedMap.getEntry(object.getKey());
+                if (entry != null && SystemUtils.equals(entry.value, object.getValue())) {
+                    associatedMap.removeLinkedEntry((LinkedHashMapEntry<K, V>) entry);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override public boolean contains(MapEntry<K, V> object) {
+            if (object == null)
+                return false;
+            HashMapEntry<K, V> entry = associatedMap.getEntry(object.getKey());
+            return entry != null && SystemUtils.equals(entry.value, object.getValue());
+        }
+
+        @Override public Iterator<MapEntry<K, V>> iterator() {
+            return new EntryIterator<K, V>(associatedMap);
+        }
+    }
+
+    private static final class LinkedKeySet<K, V> extends Set<K> {
+        private final LinkedHashMap<K, V> associatedMap;
+
+        LinkedKeySet(LinkedHashMap<K, V> map) {
+            associatedMap = map;
+        }
+
+        @Override public boolean contains(K key) {
+            return associatedMap.containsKey(key);
+        }
+
+        @Override public int size() {
+            return associatedMap.size();
+        }
+
+        @Override public void clear() {
+            associatedMap.clear();
+        }
+
+        @Override public boolean add(K object) {
+            throw new ProgrammerError("add method not supported for LinkedHashMap keySet");
+        }
+
+        @Override public boolean remove(K key) {
+            HashMapEntry<K, V> entry = associatedMap.getEntry(key);
+            if (entry == null)
+                return false;
+            associatedMap.removeLinkedEntry((LinkedHashMapEntry<K, V>) entry);
+            return true;
+        }
+
+        @Override public Iterator<K> iterator() {
+            return new KeyIterator<K, V>(associatedMap);
+        }
+    }
+
+    private static final class LinkedValuesCollection<K, V> extends Collection<V> {
+        private final LinkedHashMap<K, V> associatedMap;
+
+        LinkedValuesCollection(LinkedHashMap<K, V> map) {
+            associatedMap = map;
+        }
+
+        @Override public boolean contains(V object) {
+            return associatedMap.containsValue(object);
+        }
+
+        @Override public int size() {
+            return associatedMap.size();
+        }
+
+        @Override public void clear() {
+            associatedMap.clear();
+        }
+
+        @Override public Iterator<V> iterator() {
+            return new ValueIterator<K, V>(associatedMap);
+        }
+    }
+}
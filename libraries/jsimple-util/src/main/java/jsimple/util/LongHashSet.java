@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A hash set of primitive long values.   Unlike a {@link HashSet} of boxed Longs, nothing is boxed or allocated per
+ * lookup or per element:  elements are stored in an array using open addressing (linear probing), with backward shift
+ * deletion on remove.
+ * <p/>
+ * 0 marks an empty slot in the array, so whether the set contains 0 is tracked separately.   Iterators are fail-fast,
+ * throwing a ProgrammerError if the set is structurally modified outside of the iterator.
+ */
+public class LongHashSet {
+    transient long[] elements;
+    transient boolean hasZero;
+
+    /*
+     * Actual count of elements, including 0 if present
+     */
+    transient int elementCount;
+
+    /*
+     * modification count, to keep track of structural modifications between the set and its iterators
+     */
+    transient int modCount = 0;
+
+    final float loadFactor;
+    int threshold;
+
+    private static final int DEFAULT_SIZE = 16;
+
+    /*
+     * Slots are scanned from the end of the array down to 0; elements that get shifted from the unvisited part of the
+     * array to the visited part when the probe sequence wraps around, due to a remove during iteration, are saved in
+     * wrapped and returned after the scan.  0 comes last.
+     */
+    private static final class LongHashSetIterator extends LongIterator {
+        private static final int SOURCE_NONE = 0;
+        private static final int SOURCE_TABLE = 1;
+        private static final int SOURCE_WRAPPED = 2;
+        private static final int SOURCE_ZERO = 3;
+
+        final LongHashSet associatedSet;
+        int expectedModCount;
+        int position;
+        @Nullable long[] wrapped = null;
+        int wrappedCount = 0;
+        int wrappedPosition = 0;
+        boolean zeroPending;
+
+        int currentSource = SOURCE_NONE;
+        int currentIndex = -1;
+        long current = 0;
+
+        LongHashSetIterator(LongHashSet set) {
+            associatedSet = set;
+            expectedModCount = set.modCount;
+            position = set.elements.length;
+            zeroPending = set.hasZero;
+        }
+
+        @Override public boolean hasNext() {
+            long[] elements = associatedSet.elements;
+            while (position > 0 && elements[position - 1] == 0) {
+                position--;
+            }
+            return position > 0 || wrappedPosition < wrappedCount || zeroPending;
+        }
+
+        void checkConcurrentMod() {
+            if (expectedModCount != associatedSet.modCount) {
+                throw new ProgrammerError(
+                        "LongHashSet modified outside of iterator: expected mod count is {}, actual mod count is {}",
+                        expectedModCount, associatedSet.modCount);
+            }
+        }
+
+        @Override public long next() {
+            checkConcurrentMod();
+            if (!hasNext()) {
+                throw new ProgrammerError();
+            }
+            if (position > 0) {
+                currentIndex = --position;
+                current = associatedSet.elements[currentIndex];
+                currentSource = SOURCE_TABLE;
+            } else if (wrappedPosition < wrappedCount) {
+                current = wrapped[wrappedPosition++];
+                currentSource = SOURCE_WRAPPED;
+            } else {
+                zeroPending = false;
+                current = 0;
+                currentSource = SOURCE_ZERO;
+            }
+            return current;
+        }
+
+        void addWrapped(long element) {
+            if (wrapped == null) {
+                wrapped = new long[4];
+            } else if (wrappedCount == wrapped.length) {
+                wrapped = OpenAddressing.grow(wrapped);
+            }
+            wrapped[wrappedCount++] = element;
+        }
+
+        @Override public void remove() {
+            checkConcurrentMod();
+            if (currentSource == SOURCE_NONE) {
+                throw new ProgrammerError("No current element to remove");
+            }
+            if (currentSource == SOURCE_TABLE) {
+                associatedSet.removeAt(currentIndex, this);
+            } else {
+                associatedSet.remove(current);
+            }
+            currentSource = SOURCE_NONE;
+            expectedModCount = associatedSet.modCount;
+        }
+    }
+
+    /**
+     * Constructs a new empty set.
+     */
+    public LongHashSet() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructs a new set that can hold the specified number of elements without rehashing.
+     *
+     * @param capacity the initial capacity of this set
+     * @throws ProgrammerError when the capacity is less than zero
+     */
+    public LongHashSet(int capacity) {
+        this(capacity, 0.5f);
+    }
+
+    /**
+     * Constructs a new set with the specified capacity and load factor.
+     *
+     * @param capacity   the number of elements the set can hold without rehashing
+     * @param loadFactor the load factor, which must be greater than 0 and less than 1
+     * @throws ProgrammerError when the capacity is less than zero or the load factor isn't in the range (0, 1)
+     */
+    public LongHashSet(int capacity, float loadFactor) {
+        if (capacity >= 0 && loadFactor > 0 && loadFactor < 1) {
+            this.loadFactor = loadFactor;
+            elementCount = 0;
+            allocateTable(OpenAddressing.tableLength(capacity, loadFactor));
+        } else {
+            throw new ProgrammerError("LongHashSet capacity and/or loadFactor is invalid (e.g. negative)");
+        }
+    }
+
+    /**
+     * Constructs a set, with the specified initial members.
+     *
+     * @param args elements to add initially to the set
+     */
+    public LongHashSet(long... args) {
+        this(args.length);
+        for (long arg : args) {
+            add(arg);
+        }
+    }
+
+    private void allocateTable(int length) {
+        elements = new long[length];
+        threshold = OpenAddressing.threshold(length, loadFactor);
+    }
+
+    /**
+     * Return the slot index holding the specified (non-zero) element, or -1 if the element isn't in the table.
+     */
+    final int findIndex(long element) {
+        long[] elements = this.elements;
+        int mask = elements.length - 1;
+        int index = OpenAddressing.mix(element) & mask;
+        while (true) {
+            long currElement = elements[index];
+            if (currElement == element) {
+                return index;
+            }
+            if (currElement == 0) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     *
+     * @return the number of elements in this set
+     */
+    public int size() {
+        return elementCount;
+    }
+
+    /**
+     * Returns whether this set is empty.
+     *
+     * @return {@code true} if this set has no elements, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return elementCount == 0;
+    }
+
+    /**
+     * Searches this set for the specified element.
+     *
+     * @param element the element to search for
+     * @return {@code true} if {@code element} is in this set, {@code false} otherwise
+     */
+    public boolean contains(long element) {
+        if (element == 0) {
+            return hasZero;
+        }
+        return findIndex(element) >= 0;
+    }
+
+    /**
+     * Adds the specified element to this set if not already present.
+     *
+     * @param element the element to add
+     * @return {@code true} when this set did not already contain the element, {@code false} otherwise
+     */
+    public boolean add(long element) {
+        if (element == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            elementCount++;
+            modCount++;
+            return true;
+        }
+
+        long[] elements = this.elements;
+        int mask = elements.length - 1;
+        int index = OpenAddressing.mix(element) & mask;
+        while (true) {
+            long currElement = elements[index];
+            if (currElement == element) {
+                return false;
+            }
+            if (currElement == 0) {
+                break;
+            }
+            index = (index + 1) & mask;
+        }
+
+        modCount++;
+        elements[index] = element;
+        if (++elementCount > threshold) {
+            rehash(elements.length << 1);
+        }
+        return true;
+    }
+
+    void rehash(int newLength) {
+        if (newLength > OpenAddressing.MAXIMUM_TABLE_LENGTH) {
+            throw new ProgrammerError("LongHashSet can't grow beyond {} slots", OpenAddressing.MAXIMUM_TABLE_LENGTH);
+        }
+
+        long[] oldElements = elements;
+        allocateTable(newLength);
+
+        int mask = newLength - 1;
+        for (int i = 0; i < oldElements.length; i++) {
+            long element = oldElements[i];
+            if (element != 0) {
+                int index = OpenAddressing.mix(element) & mask;
+                while (elements[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                elements[index] = element;
+            }
+        }
+    }
+
+    /**
+     * Removes the specified element from this set.
+     *
+     * @param element the element to remove
+     * @return {@code true} if the element was removed, {@code false} if it wasn't in the set
+     */
+    public boolean remove(long element) {
+        if (element == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            elementCount--;
+            modCount++;
+            return true;
+        }
+
+        int index = findIndex(element);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index, null);
+        return true;
+    }
+
+    /*
+     * Remove the element at the given slot, then shift later elements in the same probe sequence back to fill the gap.
+     */
+    final void removeAt(int index, @Nullable LongHashSetIterator iterator) {
+        long[] elements = this.elements;
+        int mask = elements.length - 1;
+
+        int gap = index;
+        int curr = index;
+        while (true) {
+            curr = (curr + 1) & mask;
+            long element = elements[curr];
+            if (element == 0) {
+                break;
+            }
+
+            if (OpenAddressing.canShift(gap, curr, OpenAddressing.mix(element) & mask)) {
+                if (iterator != null && curr < iterator.position && gap >= iterator.position) {
+                    iterator.addWrapped(element);
+                }
+
+                elements[gap] = element;
+                gap = curr;
+            }
+        }
+
+        elements[gap] = 0;
+        modCount++;
+        elementCount--;
+    }
+
+    /**
+     * Removes all elements from this set, leaving it empty.
+     */
+    public void clear() {
+        if (elementCount > 0) {
+            elementCount = 0;
+            hasZero = false;
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = 0;
+            }
+            modCount++;
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements in this set.  The iterator supports remove.
+     *
+     * @return iterator
+     */
+    public LongIterator iterator() {
+        return new LongHashSetIterator(this);
+    }
+
+    /**
+     * Returns a new array containing the elements in this set, in iteration order.
+     *
+     * @return array of elements
+     */
+    public long[] toArray() {
+        long[] result = new long[elementCount];
+        int index = 0;
+        for (int i = elements.length - 1; i >= 0; i--) {
+            if (elements[i] != 0) {
+                result[index++] = elements[i];
+            }
+        }
+        if (hasZero) {
+            result[index] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the string representation of this set, in the same format as {@link Collection#toString()}.
+     *
+     * @return the string representation of this set
+     */
+    @Override public String toString() {
+        if (isEmpty()) {
+            return "[]";
+        }
+
+        StringBuilder buffer = new StringBuilder(size() * 16);
+        buffer.append('[');
+        LongIterator it = iterator();
+        while (it.hasNext()) {
+            buffer.append(it.next());
+            if (it.hasNext()) {
+                buffer.append(", ");
+            }
+        }
+        buffer.append(']');
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+/**
+ * An iterator over primitive long values, used by the primitive collections so iterating doesn't box each element.  It
+ * follows the same conventions as {@link Iterator}: next throws a ProgrammerError if there are no more elements and
+ * iterators are typically fail-fast.
+ */
+public abstract class LongIterator {
+    /**
+     * Returns whether there are more elements to iterate.
+     *
+     * @return {@code true} if there are more elements, {@code false} otherwise
+     */
+    public abstract boolean hasNext();
+
+    /**
+     * Returns the next element in the iteration.
+     *
+     * @return the next element
+     */
+    public abstract long next();
+
+    /**
+     * Removes the last element returned by {@code next} from the collection.  This method can only be called once
+     * after {@code next} was called.
+     */
+    public abstract void remove();
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+/**
+ * Helper methods shared by the open addressing (linear probing) hash tables:  {@link OpenHashMap} and the primitive
+ * keyed maps & sets.   Table lengths are always a power of 2, so slots are computed by masking the mixed hash.
+ */
+final class OpenAddressing {
+    static final int MAXIMUM_TABLE_LENGTH = 1 << 30;
+
+    /**
+     * Calculates the table length needed to hold the given number of elements, without exceeding the load factor.
+     *
+     * @param capacity   number of elements
+     * @param loadFactor load factor
+     * @return table length, a power of 2
+     */
+    static int tableLength(int capacity, float loadFactor) {
+        long minLength = (long) (capacity / loadFactor) + 1;
+        if (minLength >= MAXIMUM_TABLE_LENGTH) {
+            return MAXIMUM_TABLE_LENGTH;
+        }
+        int length = 2;
+        while (length < minLength) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    /**
+     * Calculates the maximum number of elements a table of the given length can hold before being rehashed.  At least
+     * one slot is always left empty, so probing terminates.
+     *
+     * @param length     table length
+     * @param loadFactor load factor
+     * @return rehash threshold
+     */
+    static int threshold(int length, float loadFactor) {
+        int threshold = (int) (length * loadFactor);
+        if (threshold >= length) {
+            threshold = length - 1;
+        }
+        return threshold;
+    }
+
+    /**
+     * Spread the bits of a hash code, so values that only differ in their high bits (e.g. small floats) or that are
+     * sequential don't all cluster together.
+     *
+     * @param hash hash code
+     * @return mixed hash
+     */
+    static int mix(int hash) {
+        int h = hash * -1640531527;    // 0x9E3779B9, the golden ratio
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Spread the bits of a long value, folding the high half into the low half.
+     *
+     * @param value value to hash
+     * @return mixed hash
+     */
+    static int mix(long value) {
+        return mix((int) (value ^ (value >>> 32)));
+    }
+
+    /**
+     * With backward shift deletion, the element in slot curr can be moved back to fill the gap only if its home slot
+     * isn't cyclically between the gap and curr; otherwise it would no longer be found by a probe from its home.
+     *
+     * @param gap  empty slot being filled
+     * @param curr slot holding the candidate element
+     * @param home home slot for the candidate element
+     * @return true if the element can be moved to the gap
+     */
+    static boolean canShift(int gap, int curr, int home) {
+        if (gap <= curr)
+            return home <= gap || home > curr;
+        else return home <= gap && home > curr;
+    }
+
+    /**
+     * Returns a copy of the array with room for at least one more element, for the lists of wrapped keys kept by
+     * iterators.
+     */
+    static int[] grow(int[] array) {
+        int[] newArray = new int[array.length * 2];
+        for (int i = 0; i < array.length; i++) {
+            newArray[i] = array[i];
+        }
+        return newArray;
+    }
+
+    static long[] grow(long[] array) {
+        long[] newArray = new long[array.length * 2];
+        for (int i = 0; i < array.length; i++) {
+            newArray[i] = array[i];
+        }
+        return newArray;
+    }
+}
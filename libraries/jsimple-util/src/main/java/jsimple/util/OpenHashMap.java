@@ -0,0 +1,656 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * OpenHashMap is an implementation of Map that uses open addressing (linear probing) over parallel key and value
+ * arrays, instead of the chained entry objects used by {@link HashMap}.   Since nothing is allocated per mapping, a put
+ * of a new key doesn't create garbage (other than when the table grows) and a get is a few array reads, without
+ * chasing pointers.   That makes it a good choice for large maps and for maps on hot paths.
+ * <p/>
+ * Removal uses backward shift deletion, so there are no tombstones and lookups don't degrade over time as keys are
+ * added and removed.
+ * <p/>
+ * The contract is otherwise the same as HashMap:  all optional operations are supported, null keys aren't supported
+ * but null values are, and iterators are fail-fast, throwing a ProgrammerError if the map is structurally modified
+ * outside of the iterator.   Iterating over {@link #entrySet()} allocates an entry object per mapping; iterating over
+ * {@link #keySet()} or {@link #values()} doesn't.
+ */
+public class OpenHashMap<K, V> extends Map<K, V> {
+    // Lazily initialized key set & values collection
+    @Nullable Set<K> keysSet;
+    @Nullable Collection<V> valuesCollection;
+
+    /*
+     * Keys & values, stored in parallel arrays; a null key means the slot is empty.  The length is always a power of 2.
+     */
+    transient K[] keys;
+    transient V[] values;
+
+    /*
+     * Actual count of entries
+     */
+    transient int elementCount;
+
+    /*
+     * modification count, to keep track of structural modifications between the map and the iterator
+     */
+    transient int modCount = 0;
+
+    /*
+     * default number of mappings that a map created using the default constructor can hold without rehashing
+     */
+    private static final int DEFAULT_SIZE = 16;
+
+    /*
+     * maximum ratio of (stored elements)/(table length) which does not lead to rehash; with linear probing, probe
+     * sequences get long quickly past 0.5 or so
+     */
+    final float loadFactor;
+
+    /*
+     * maximum number of elements that can be put in this map before having to rehash
+     */
+    int threshold;
+
+    private static abstract class AbstractMapIterator<K, V, E> extends Iterator<E> {
+        final OpenHashMap<K, V> associatedMap;
+        int expectedModCount;
+
+        // Slots at position and above have already been visited; iteration proceeds from the end of the table down
+        // to 0 so that backward shift deletion (which moves keys to lower slots) doesn't move unvisited keys into the
+        // visited part of the table, except when a probe sequence wraps around.  Keys moved that way are remembered
+        // in wrapped and returned after the table scan is done.
+        int position;
+        @Nullable ArrayList<K> wrapped = null;
+        int wrappedPosition = 0;
+
+        int currentIndex = -1;
+        @Nullable K currentKey = null;
+        boolean currentIsWrapped = false;
+
+        AbstractMapIterator(OpenHashMap<K, V> map) {
+            associatedMap = map;
+            expectedModCount = map.modCount;
+            position = map.keys.length;
+        }
+
+        @Override public boolean hasNext() {
+            K[] keys = associatedMap.keys;
+            while (position > 0 && keys[position - 1] == null) {
+                position--;
+            }
+            if (position > 0) {
+                return true;
+            }
+            return wrapped != null && wrappedPosition < wrapped.size();
+        }
+
+        final void checkConcurrentMod() {
+            if (expectedModCount != associatedMap.modCount) {
+                throw new ProgrammerError(
+                        "OpenHashMap modified outside of iterator: expected mod count is {}, actual mod count is {}",
+                        expectedModCount, associatedMap.modCount);
+            }
+        }
+
+        final void makeNext() {
+            checkConcurrentMod();
+            if (!hasNext()) {
+                throw new ProgrammerError();
+            }
+            if (position > 0) {
+                currentIndex = --position;
+                currentKey = associatedMap.keys[currentIndex];
+                currentIsWrapped = false;
+            } else {
+                currentKey = wrapped.get(wrappedPosition++);
+                currentIndex = associatedMap.findIndex(currentKey);
+                currentIsWrapped = true;
+            }
+        }
+
+        final void addWrapped(K key) {
+            if (wrapped == null) {
+                wrapped = new ArrayList<K>(2);
+            }
+            wrapped.add(key);
+        }
+
+        @Override public final void remove() {
+            checkConcurrentMod();
+            if (currentKey == null) {
+                throw new ProgrammerError("No current element to remove");
+            }
+            if (currentIsWrapped) {
+                associatedMap.removeAt(associatedMap.findIndex(currentKey), null);
+            } else {
+                associatedMap.removeAt(currentIndex, this);
+            }
+            currentKey = null;
+            currentIndex = -1;
+            expectedModCount = associatedMap.modCount;
+        }
+    }
+
+    private static class EntryIterator<K, V> extends AbstractMapIterator<K, V, MapEntry<K, V>> {
+        EntryIterator(OpenHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public MapEntry<K, V> next() {
+            makeNext();
+            return new OpenHashMapEntry<K, V>(associatedMap, currentKey, associatedMap.values[currentIndex]);
+        }
+    }
+
+    private static class KeyIterator<K, V> extends AbstractMapIterator<K, V, K> {
+        KeyIterator(OpenHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public K next() {
+            makeNext();
+            return currentKey;
+        }
+    }
+
+    private static class ValueIterator<K, V> extends AbstractMapIterator<K, V, V> {
+        ValueIterator(OpenHashMap<K, V> map) {
+            super(map);
+        }
+
+        @Override public V next() {
+            makeNext();
+            return associatedMap.values[currentIndex];
+        }
+    }
+
+    /*
+     * Entries are created on the fly during entrySet iteration, as the map doesn't store them.  setValue writes
+     * through to the map.
+     */
+    private static final class OpenHashMapEntry<K, V> extends MapEntryImpl<K, V> {
+        private final OpenHashMap<K, V> associatedMap;
+
+        OpenHashMapEntry(OpenHashMap<K, V> map, K theKey, V theValue) {
+            super(theKey, theValue);
+            associatedMap = map;
+        }
+
+        @Override public V setValue(V object) {
+            V result = super.setValue(object);
+            associatedMap.put(key, object);
+            return result;
+        }
+    }
+
+    private static final class OpenHashMapEntrySet<KT, VT> extends Set<MapEntry<KT, VT>> {
+        private final OpenHashMap<KT, VT> associatedMap;
+
+        public OpenHashMapEntrySet(OpenHashMap<KT, VT> map) {
+            associatedMap = map;
+        }
+
+        @Override public int size() {
+            return associatedMap.elementCount;
+        }
+
+        @Override public void clear() {
+            associatedMap.clear();
+        }
+
+        @Override public boolean add(MapEntry<KT, VT> object) {
+            throw new ProgrammerError("add method not supported for OpenHashMap entrySet");
+        }
+
+        @Override public boolean remove(MapEntry<KT, VT> object) {
+            if (object != null) {
+                int index = associatedMap.findIndex(object.getKey());
+                if (index >= 0 && SystemUtils.equals(associatedMap.values[index], object.getValue())) {
+                    associatedMap.removeAt(index, null);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override public boolean contains(MapEntry<KT, VT> object) {
+            if (object == null)
+                return false;
+            int index = associatedMap.findIndex(object.getKey());
+            return index >= 0 && SystemUtils.equals(associatedMap.values[index], object.getValue());
+        }
+
+        @Override
+        public Iterator<MapEntry<KT, VT>> iterator() {
+            return new EntryIterator<KT, VT>(associatedMap);
+        }
+    }
+
+    /**
+     * Constructs a new empty {@code OpenHashMap} instance.
+     */
+    public OpenHashMap() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructs a new {@code OpenHashMap} instance that can hold the specified number of mappings without rehashing.
+     *
+     * @param capacity the initial capacity of this hash map.
+     * @throws ProgrammerError when the capacity is less than zero.
+     */
+    public OpenHashMap(int capacity) {
+        this(capacity, 0.5f);  // default load factor of 0.5
+    }
+
+    /**
+     * Constructs a new {@code OpenHashMap} instance with the specified capacity and load factor.
+     *
+     * @param capacity   the number of mappings the map can hold without rehashing
+     * @param loadFactor the load factor, which must be greater than 0 and less than 1
+     * @throws ProgrammerError when the capacity is less than zero or the load factor isn't in the range (0, 1)
+     */
+    public OpenHashMap(int capacity, float loadFactor) {
+        if (capacity >= 0 && loadFactor > 0 && loadFactor < 1) {
+            this.loadFactor = loadFactor;
+            elementCount = 0;
+            allocateTable(OpenAddressing.tableLength(capacity, loadFactor));
+        } else {
+            throw new ProgrammerError("OpenHashMap capacity and/or loadFactor is invalid (e.g. negative)");
+        }
+    }
+
+    /**
+     * Constructs a new {@code OpenHashMap} instance containing the mappings from the specified map.
+     *
+     * @param map the mappings to add.
+     */
+    public OpenHashMap(Map<K, V> map) {
+        this(map.size());
+        putAllImpl(map);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocateTable(int length) {
+        keys = (K[]) new Object[length];
+        values = (V[]) new Object[length];
+
+        threshold = OpenAddressing.threshold(length, loadFactor);
+    }
+
+    static int hash(Object key) {
+        return OpenAddressing.mix(key.hashCode());
+    }
+
+    /**
+     * Return the slot index holding the specified key, or -1 if the key isn't in the map.
+     */
+    final int findIndex(K key) {
+        K[] keys = this.keys;
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            K currKey = keys[index];
+            if (currKey == null) {
+                return -1;
+            }
+            if (key.equals(currKey)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes all mappings from this hash map, leaving it empty.
+     *
+     * @see #isEmpty
+     * @see #size
+     */
+    @Override
+    public void clear() {
+        if (elementCount > 0) {
+            elementCount = 0;
+
+            K defaultKey = SystemUtils.<K>defaultValue();
+            V defaultValue = SystemUtils.<V>defaultValue();
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = defaultKey;
+                values[i] = defaultValue;
+            }
+
+            modCount++;
+        }
+    }
+
+    /**
+     * Returns whether this map contains the specified key.
+     *
+     * @param key the key to search for.
+     * @return {@code true} if this map contains the specified key, {@code false} otherwise.
+     */
+    @Override
+    public boolean containsKey(K key) {
+        return findIndex(key) >= 0;
+    }
+
+    /**
+     * Returns whether this map contains the specified value.
+     *
+     * @param value the value to search for.
+     * @return {@code true} if this map contains the specified value, {@code false} otherwise.
+     */
+    @Override
+    public boolean containsValue(V value) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && SystemUtils.equals(value, values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a set containing all of the mappings in this map. Each mapping is an instance of {@link MapEntry}. As the
+     * set is backed by this map, changes in one will be reflected in the other.
+     *
+     * @return a set of the mappings.
+     */
+    @Override
+    public Set<MapEntry<K, V>> entrySet() {
+        return new OpenHashMapEntrySet<K, V>(this);
+    }
+
+    /**
+     * Returns the value of the mapping with the specified key
+     *
+     * @param key the key.
+     * @return the value of the mapping with the specified key, or {@code null} / default value for non-nullable value
+     * type if no mapping for the specified key is found.
+     */
+    @Override
+    public V get(K key) {
+        int index = findIndex(key);
+        if (index >= 0) {
+            return values[index];
+        }
+        return SystemUtils.<V>defaultValue();
+    }
+
+    /**
+     * Returns whether this map is empty.
+     *
+     * @return {@code true} if this map has no elements, {@code false} otherwise.
+     * @see #size()
+     */
+    @Override
+    public boolean isEmpty() {
+        return elementCount == 0;
+    }
+
+    /**
+     * Returns a set of the keys contained in this map. The set is backed by this map so changes to one are reflected by
+     * the other. The set does not support adding.
+     *
+     * @return a set of the keys.
+     */
+    @Override
+    public Set<K> keySet() {
+        if (keysSet == null)
+            keysSet = new KeySet<K, V>(this);
+        return keysSet;
+    }
+
+    private static class KeySet<K, V> extends Set<K> {
+        private OpenHashMap<K, V> map;
+
+        public KeySet(OpenHashMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override public boolean contains(K key) {
+            return map.containsKey(key);
+        }
+
+        @Override public int size() {
+            return map.size();
+        }
+
+        @Override public void clear() {
+            map.clear();
+        }
+
+        @Override public boolean add(K object) {
+            throw new ProgrammerError("add method not supported for OpenHashMap keySet");
+        }
+
+        @Override public boolean remove(K key) {
+            int index = map.findIndex(key);
+            if (index < 0) {
+                return false;
+            }
+            map.removeAt(index, null);
+            return true;
+        }
+
+        @Override public Iterator<K> iterator() {
+            return new KeyIterator<K, V>(map);
+        }
+    }
+
+    /**
+     * Maps the specified key to the specified value.
+     *
+     * @param key   the key.
+     * @param value the value.
+     * @return the value of any previous mapping with the specified key or {@code null} / default value for non-nullable
+     * value type if there was no such mapping
+     */
+    @Override public V put(K key, V value) {
+        return putImpl(key, value);
+    }
+
+    V putImpl(K key, V value) {
+        K[] keys = this.keys;
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            K currKey = keys[index];
+            if (currKey == null) {
+                break;
+            }
+            if (key.equals(currKey)) {
+                V result = values[index];
+                values[index] = value;
+                return result;
+            }
+            index = (index + 1) & mask;
+        }
+
+        modCount++;
+        keys[index] = key;
+        values[index] = value;
+        if (++elementCount > threshold) {
+            rehash(keys.length << 1);
+        }
+        return SystemUtils.<V>defaultValue();
+    }
+
+    /**
+     * Copies all the mappings in the specified map to this map. These mappings will replace all mappings that this map
+     * had for any of the keys currently in the given map.
+     *
+     * @param map the map to copy mappings from.
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (!map.isEmpty()) {
+            putAllImpl(map);
+        }
+    }
+
+    private <TOtherK extends K, TOtherV extends V> void putAllImpl(Map<TOtherK, TOtherV> map) {
+        int capacity = elementCount + map.size();
+        if (capacity > threshold) {
+            rehash(OpenAddressing.tableLength(capacity, loadFactor));
+        }
+
+        for (MapEntry<TOtherK, TOtherV> entry : map.entrySet()) {
+            putImpl(entry.getKey(), entry.getValue());
+        }
+    }
+
+    void rehash(int newLength) {
+        if (newLength > OpenAddressing.MAXIMUM_TABLE_LENGTH) {
+            throw new ProgrammerError("OpenHashMap can't grow beyond {} slots", OpenAddressing.MAXIMUM_TABLE_LENGTH);
+        }
+
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+        allocateTable(newLength);
+
+        int mask = newLength - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            K key = oldKeys[i];
+            if (key != null) {
+                int index = hash(key) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping with the specified key from this map.
+     *
+     * @param key the key of the mapping to remove.
+     * @return the value of the removed mapping or {@code null} / default value for non-nullable value type if no
+     * mapping for the specified key was found
+     */
+    @Override
+    public V remove(K key) {
+        int index = findIndex(key);
+        if (index < 0) {
+            return SystemUtils.<V>defaultValue();
+        }
+        V result = values[index];
+        removeAt(index, null);
+        return result;
+    }
+
+    /*
+     * Remove the mapping at the given slot, then shift later keys in the same probe sequence back to fill the gap.  If
+     * an iterator is doing the removal, it's told about keys that wrap around from the unvisited start of the table
+     * into the part it has already visited.
+     */
+    final void removeAt(int index, @Nullable AbstractMapIterator<K, V, ?> iterator) {
+        K[] keys = this.keys;
+        V[] values = this.values;
+        int mask = keys.length - 1;
+
+        int gap = index;
+        int curr = index;
+        while (true) {
+            curr = (curr + 1) & mask;
+            K key = keys[curr];
+            if (key == null) {
+                break;
+            }
+
+            if (OpenAddressing.canShift(gap, curr, hash(key) & mask)) {
+                if (iterator != null && curr < iterator.position && gap >= iterator.position) {
+                    iterator.addWrapped(key);
+                }
+
+                keys[gap] = key;
+                values[gap] = values[curr];
+                gap = curr;
+            }
+        }
+
+        keys[gap] = SystemUtils.<K>defaultValue();
+        values[gap] = SystemUtils.<V>defaultValue();
+        modCount++;
+        elementCount--;
+    }
+
+    /**
+     * Returns the number of elements in this map.
+     *
+     * @return the number of elements in this map.
+     */
+    @Override
+    public int size() {
+        return elementCount;
+    }
+
+    /**
+     * Returns a collection of the values contained in this map. The collection is backed by this map so changes to one
+     * are reflected by the other. The collection supports remove, removeAll, retainAll and clear operations, and it
+     * does not support add or addAll operations.
+     *
+     * @return a collection of the values contained in this map.
+     */
+    @Override
+    public Collection<V> values() {
+        if (valuesCollection == null)
+            valuesCollection = new ValuesCollection<K, V>(this);
+        return valuesCollection;
+    }
+
+    private static class ValuesCollection<K, V> extends Collection<V> {
+        private OpenHashMap<K, V> map;
+
+        ValuesCollection(OpenHashMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override public boolean contains(V object) {
+            return map.containsValue(object);
+        }
+
+        @Override public int size() {
+            return map.size();
+        }
+
+        @Override public void clear() {
+            map.clear();
+        }
+
+        @Override public Iterator<V> iterator() {
+            return new ValueIterator<K, V>(map);
+        }
+
+        @Override public boolean add(V object) {
+            throw new ProgrammerError("add method not supported for OpenHashMap.values collection");
+        }
+    }
+}
@@ -103,6 +103,25 @@ public class SystemUtilsBase {
      */
     //public static void sleep(int sleepTimeInMilliseconds);
 
+    /**
+     * Wait until another thread calls notifyWaiters for the lock, or the timeout expires.  The caller must hold the
+     * lock, via a synchronized block; it's released while waiting and reacquired before returning.  This can also
+     * return early for no reason (a "spurious wakeup"), so callers should wait in a loop that checks what they're
+     * waiting for.
+     *
+     * @param lock            object to wait on, locked by the caller
+     * @param timeoutInMillis maximum time to wait, in milliseconds, or 0 to wait without a timeout
+     */
+    //public static void waitForNotify(Object lock, int timeoutInMillis);
+
+    /**
+     * Wake up all threads waiting on the lock in waitForNotify.  The caller must hold the lock, via a synchronized
+     * block.
+     *
+     * @param lock object that threads are waiting on, locked by the caller
+     */
+    //public static void notifyWaiters(Object lock);
+
     /**
      * Copy data from source byte array to destination byte array.
      *
@@ -206,4 +225,23 @@ public class SystemUtilsBase {
      * @return true if both objects are equal or both are null, false otherwise
      */
     //public static <T> boolean equals(@Nullable T object1, @Nullable T object2);
+
+    /**
+     * Get the number of processors available to run threads on.
+     *
+     * @return number of available processors, always at least 1
+     */
+    //public static int getAvailableProcessors();
+
+    /**
+     * Stably sort the range [start, end) of the array, splitting the work across multiple threads.  Callers should
+     * normally use Arrays.parallelSort instead, which checks the bounds and avoids the overhead for small ranges.
+     * Platforms without a thread pool can just sort on the calling thread.
+     *
+     * @param array      array to sort
+     * @param start      start index to sort
+     * @param end        last + 1 index to sort
+     * @param comparator comparator to order the elements; it may be called concurrently from multiple threads
+     */
+    //public static <T> void parallelSort(T[] array, int start, int end, Comparator<T> comparator);
 }
@@ -311,4 +311,181 @@ public class ArraysTest extends UnitTest {
         }
 */
     }
+
+    @Test public void testSortInt() {
+        Random random = new Random(1);
+        int[] sizes = {0, 1, 2, 10, 27, 28, 100, 1000, 50000};
+        for (int size : sizes) {
+            for (int range : new int[]{2, 100, Integer.MAX_VALUE}) {
+                int[] array = new int[size];
+                IntIntHashMap counts = new IntIntHashMap();
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt(range) - range / 2;
+                    counts.addTo(array[i], 1);
+                }
+
+                Arrays.sort(array, 0, size);
+                for (int i = 0; i < size; i++) {
+                    if (i > 0)
+                        assertTrue("Array not sorted at index " + i, array[i - 1] <= array[i]);
+                    counts.addTo(array[i], -1);
+                }
+                IntIterator values = counts.valueIterator();
+                while (values.hasNext()) {
+                    assertEquals(0, values.next());
+                }
+            }
+        }
+
+        // Already sorted, reversed, and sub-range input
+        int[] array = new int[1000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = array.length - i;
+        }
+        Arrays.sort(array, 10, 990);
+        assertEquals(1000, array[0]);
+        assertEquals(11, array[10]);
+        assertEquals(990, array[989]);
+        assertEquals(10, array[990]);
+        Arrays.sort(array, 0, array.length);
+        for (int i = 0; i < array.length; i++) {
+            assertEquals(i + 1, array[i]);
+        }
+    }
+
+    @Test public void testSortLong() {
+        Random random = new Random(2);
+        long[] array = new long[10000];
+        long sum = 0;
+        for (int i = 0; i < array.length; i++) {
+            array[i] = random.nextLong();
+            sum += array[i];
+        }
+
+        Arrays.sort(array, 0, array.length);
+        long sortedSum = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0)
+                assertTrue(array[i - 1] <= array[i]);
+            sortedSum += array[i];
+        }
+        assertEquals(sum, sortedSum);
+    }
+
+    @Test public void testSortDouble() {
+        double[] array = {3.5, Double.NaN, -0.0, 0.0, -1.0, 0.0, -0.0, Double.NEGATIVE_INFINITY, 2.0, Double.NaN};
+        Arrays.sort(array, 0, array.length);
+
+        assertTrue(array[0] == Double.NEGATIVE_INFINITY);
+        assertTrue(array[1] == -1.0);
+        for (int i = 2; i < 4; i++) {
+            assertTrue(SystemUtils.doubleToRawLongBits(array[i]) == SystemUtils.doubleToRawLongBits(-0.0));
+        }
+        for (int i = 4; i < 6; i++) {
+            assertTrue(SystemUtils.doubleToRawLongBits(array[i]) == SystemUtils.doubleToRawLongBits(0.0));
+        }
+        assertTrue(array[6] == 2.0);
+        assertTrue(array[7] == 3.5);
+        assertTrue(array[8] != array[8]);
+        assertTrue(array[9] != array[9]);
+
+        assertEquals(6, Arrays.binarySearch(array, 0, array.length, 2.0));
+        assertEquals(-8, Arrays.binarySearch(array, 0, array.length, 2.5));
+        assertTrue(Arrays.binarySearch(array, 0, array.length, 0.0) >= 4);
+        assertTrue(Arrays.binarySearch(array, 0, array.length, -0.0) < 4);
+    }
+
+    @Test public void testBinarySearchInt() {
+        int[] array = {1, 3, 5, 7, 9};
+        assertEquals(0, Arrays.binarySearch(array, 0, array.length, 1));
+        assertEquals(4, Arrays.binarySearch(array, 0, array.length, 9));
+        assertEquals(-1, Arrays.binarySearch(array, 0, array.length, 0));
+        assertEquals(-3, Arrays.binarySearch(array, 0, array.length, 4));
+        assertEquals(-6, Arrays.binarySearch(array, 0, array.length, 10));
+        assertEquals(-3, Arrays.binarySearch(array, 2, 4, 4));
+    }
+
+    @Test public void testSortWithScratch() {
+        BoxedInteger[] array = new BoxedInteger[100];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = BoxedInteger.valueOf((i * 37) % 100);
+        }
+        BoxedInteger[] scratch = new BoxedInteger[50];
+
+        Arrays.sort(array, 25, 75, reversedIntegerComparator, scratch);
+        for (int i = 0; i < 25; i++) {
+            assertEquals((i * 37) % 100, array[i].intValue());
+            assertEquals(((i + 75) * 37) % 100, array[i + 75].intValue());
+        }
+        for (int i = 26; i < 75; i++) {
+            assertTrue(array[i - 1].intValue() > array[i].intValue());
+        }
+
+        try {
+            Arrays.sort(new BoxedInteger[10], 0, 10, reversedIntegerComparator, new BoxedInteger[9]);
+            fail("should throw ProgrammerError");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+    }
+
+    @Test public void testParallelSortStable() {
+        Element[] array = new Element[Arrays.PARALLEL_SORT_THRESHOLD * 5 + 3];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = new Element((i * 7919) % 1000);
+        }
+
+        Comparator<Element> comparator = new Comparator<Element>() {
+            public int compare(Element object1, Element object2) {
+                return object1.value - object2.value;
+            }
+        };
+
+        Arrays.parallelSort(array, comparator);
+
+        for (int i = 1; i < array.length; i++) {
+            assertTrue(comparator.compare(array[i - 1], array[i]) <= 0);
+            if (comparator.compare(array[i - 1], array[i]) == 0) {
+                assertTrue(array[i - 1].index < array[i].index);
+            }
+        }
+    }
+
+    @Test public void testSortInPlaceLargeList() {
+        ArrayList<BoxedInteger> list = new ArrayList<BoxedInteger>();
+        int size = Arrays.PARALLEL_SORT_THRESHOLD * 3;
+        for (int i = 0; i < size; i++) {
+            list.add(BoxedInteger.valueOf((i * 7919) % size));
+        }
+
+        list.sortInPlace(reversedIntegerComparator);
+        for (int i = 0; i < size; i++) {
+            assertEquals(size - 1 - i, list.get(i).intValue());
+        }
+    }
+
+    @Test public void testSortWholePrimitiveArrays() {
+        int[] ints = {5, -1, 3, 0, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        Arrays.sort(ints);
+        assertEquals(Integer.MIN_VALUE, ints[0]);
+        assertEquals(-1, ints[1]);
+        assertEquals(5, ints[4]);
+        assertEquals(Integer.MAX_VALUE, ints[5]);
+
+        long[] longs = {3L, Long.MIN_VALUE, 1L << 40, -7L};
+        Arrays.sort(longs);
+        assertEquals(Long.MIN_VALUE, longs[0]);
+        assertEquals(-7L, longs[1]);
+        assertEquals(3L, longs[2]);
+        assertEquals(1L << 40, longs[3]);
+
+        double[] doubles = {2.5, Double.NaN, -3.0, 0.0};
+        Arrays.sort(doubles);
+        assertTrue(doubles[0] == -3.0);
+        assertTrue(doubles[1] == 0.0);
+        assertTrue(doubles[2] == 2.5);
+        assertTrue(doubles[3] != doubles[3]);
+
+        Arrays.sort(new int[0]);
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import jsimple.util.function.Function;
+import org.junit.Test;
+
+public class CacheTest extends UnitTest {
+    private static class RecordingListener implements RemovalListener<String, String> {
+        StringBuilder removals = new StringBuilder();
+
+        @Override public void onRemoval(String key, String value, RemovalCause cause) {
+            removals.append(key).append("=").append(value).append(":").append(cause.toString()).append(" ");
+        }
+    }
+
+    @Override public void tearDown() {
+        SystemUtils.setCurrentTimeOverride(DateTime.NULL_DATE);
+        super.tearDown();
+    }
+
+    @Test public void testMaximumSize() {
+        Cache<String, String> cache = new Cache<String, String>();
+        RecordingListener listener = new RecordingListener();
+        cache.setMaximumSize(2);
+        cache.setRemovalListener(listener);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals("b=2:SIZE ", listener.removals.toString());
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test public void testMaximumWeight() {
+        Cache<String, String> cache = new Cache<String, String>();
+        cache.setMaximumWeight(10, new Weigher<String, String>() {
+            @Override public int weigh(String key, String value) {
+                return value.length();
+            }
+        });
+
+        cache.put("a", "1234");
+        cache.put("b", "1234");
+        assertEquals(8, cache.getTotalWeight());
+        cache.put("c", "123");
+        assertFalse(cache.containsKey("a"));
+        assertEquals(7, cache.getTotalWeight());
+
+        cache.put("b", "1");
+        assertEquals(4, cache.getTotalWeight());
+        cache.put("d", "12345678901");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getTotalWeight());
+    }
+
+    @Test public void testExpireAfterWrite() {
+        SystemUtils.setCurrentTimeOverride(1000);
+        Cache<String, String> cache = new Cache<String, String>();
+        RecordingListener listener = new RecordingListener();
+        cache.setExpireAfterWrite(100);
+        cache.setRemovalListener(listener);
+
+        cache.put("a", "1");
+        SystemUtils.setCurrentTimeOverride(1050);
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+
+        SystemUtils.setCurrentTimeOverride(1100);
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals("a=1:EXPIRED ", listener.removals.toString());
+
+        SystemUtils.setCurrentTimeOverride(1200);
+        assertFalse(cache.containsKey("b"));
+        assertEquals(1, cache.size());
+        cache.cleanUp();
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test public void testExpireAfterAccess() {
+        SystemUtils.setCurrentTimeOverride(1000);
+        Cache<String, String> cache = new Cache<String, String>();
+        cache.setExpireAfterAccess(100);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        SystemUtils.setCurrentTimeOverride(1090);
+        assertEquals("1", cache.get("a"));
+
+        // b is now the least recently used and expired, so the next write removes it
+        SystemUtils.setCurrentTimeOverride(1150);
+        cache.put("c", "3");
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test public void testLoaderReplaceAndRemove() {
+        Cache<String, String> cache = new Cache<String, String>();
+        RecordingListener listener = new RecordingListener();
+        cache.setRemovalListener(listener);
+
+        final int[] loads = new int[1];
+        Function<String, String> loader = new Function<String, String>() {
+            @Override public String apply(String key) {
+                loads[0]++;
+                return key + "!";
+            }
+        };
+
+        assertEquals("a!", cache.get("a", loader));
+        assertEquals("a!", cache.get("a", loader));
+        assertEquals(1, loads[0]);
+
+        cache.put("a", "x");
+        assertEquals("x", cache.remove("a"));
+        assertNull(cache.remove("a"));
+        cache.put("b", "y");
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals("a=a!:REPLACED a=x:EXPLICIT b=y:EXPLICIT ", listener.removals.toString());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import jsimple.util.function.Function;
+import org.junit.Test;
+
+public class ConcurrentHashMapTest extends UnitTest {
+    @Test public void testConstructor() {
+        ConcurrentHashMap<String, String> map = new ConcurrentHashMap<String, String>();
+        assertEquals(0, map.size());
+        assertTrue(map.isEmpty());
+        assertNull(map.get("nothing"));
+
+        try {
+            new ConcurrentHashMap<String, String>(-1);
+            fail("Failed to throw ProgrammerError for initial capacity < 0");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+
+        try {
+            new ConcurrentHashMap<String, String>(10, 0.75f, 0);
+            fail("Failed to throw ProgrammerError for concurrency level <= 0");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+
+        ConcurrentHashMap<String, String> single = new ConcurrentHashMap<String, String>(0, 0.75f, 1);
+        single.put("something", "here");
+        assertEquals("here", single.get("something"));
+    }
+
+    @Test public void testPutGetRemove() {
+        ConcurrentHashMap<BoxedInteger, String> map = new ConcurrentHashMap<BoxedInteger, String>(4, 0.75f, 2);
+        for (int i = 0; i < 1000; i++) {
+            assertNull(map.put(BoxedInteger.valueOf(i), "v" + i));
+        }
+        assertEquals(1000, map.size());
+        assertEquals("v10", map.put(BoxedInteger.valueOf(10), "ten"));
+        assertEquals(1000, map.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i == 10 ? "ten" : "v" + i, map.get(BoxedInteger.valueOf(i)));
+        }
+        assertTrue(map.containsValue("v999"));
+        assertFalse(map.containsValue("v10"));
+
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(i == 10 ? "ten" : "v" + i, map.remove(BoxedInteger.valueOf(i)));
+        }
+        assertNull(map.remove(BoxedInteger.valueOf(0)));
+        assertEquals(500, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 1, map.containsKey(BoxedInteger.valueOf(i)));
+        }
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(BoxedInteger.valueOf(1)));
+    }
+
+    @Test public void testPutIfAbsent() {
+        ConcurrentHashMap<String, String> map = new ConcurrentHashMap<String, String>();
+        assertNull(map.putIfAbsent("a", "1"));
+        assertEquals("1", map.putIfAbsent("a", "2"));
+        assertEquals("1", map.get("a"));
+
+        assertFalse(map.remove("a", "2"));
+        assertTrue(map.remove("a", "1"));
+        assertFalse(map.containsKey("a"));
+    }
+
+    @Test public void testComputeIfAbsent() {
+        final int[] calls = new int[1];
+        Function<String, String> upperCase = new Function<String, String>() {
+            @Override public String apply(String s) {
+                calls[0]++;
+                return s.toUpperCase();
+            }
+        };
+
+        ConcurrentHashMap<String, String> map = new ConcurrentHashMap<String, String>();
+        assertEquals("ABC", map.computeIfAbsent("abc", upperCase));
+        assertEquals("ABC", map.computeIfAbsent("abc", upperCase));
+        assertEquals(1, calls[0]);
+        assertEquals(1, map.size());
+    }
+
+    @Test public void testIterators() {
+        ConcurrentHashMap<BoxedInteger, BoxedInteger> map = new ConcurrentHashMap<BoxedInteger, BoxedInteger>();
+        for (int i = 0; i < 100; i++) {
+            map.put(BoxedInteger.valueOf(i), BoxedInteger.valueOf(i * 2));
+        }
+
+        boolean[] seen = new boolean[100];
+        for (MapEntry<BoxedInteger, BoxedInteger> entry : map.entrySet()) {
+            int key = entry.getKey().intValue();
+            assertFalse(seen[key]);
+            seen[key] = true;
+            assertEquals(key * 2, entry.getValue().intValue());
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(seen[i]);
+        }
+
+        int valueSum = 0;
+        for (BoxedInteger value : map.values()) {
+            valueSum += value.intValue();
+        }
+        assertEquals(9900, valueSum);
+
+        // Modifying the map while iterating is allowed.  Each key is returned at most once; a key removed before the
+        // iterator gets to it is skipped, unless the iterator already fetched it as its next element
+        Iterator<BoxedInteger> iterator = map.keySet().iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            BoxedInteger key = iterator.next();
+            iterator.remove();
+            map.remove(BoxedInteger.valueOf(99 - key.intValue()));
+            count++;
+        }
+        assertTrue(count >= 50 && count < 100);
+        assertTrue(map.isEmpty());
+    }
+
+    @Test public void testEntrySetValue() {
+        ConcurrentHashMap<String, String> map = new ConcurrentHashMap<String, String>();
+        map.put("a", "1");
+        for (MapEntry<String, String> entry : map.entrySet()) {
+            entry.setValue("2");
+        }
+        assertEquals("2", map.get("a"));
+        assertTrue(map.equalTo(new ConcurrentHashMap<String, String>(map)));
+    }
+}
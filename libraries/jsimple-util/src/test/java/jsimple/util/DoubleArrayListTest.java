@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import org.junit.Test;
+
+public class DoubleArrayListTest extends UnitTest {
+    @Test public void testAddGetSet() {
+        DoubleArrayList list = new DoubleArrayList(0);
+        for (int i = 0; i < 100; i++) {
+            list.add(i + 0.5);
+        }
+        assertEquals(100, list.size());
+        assertTrue(list.get(42) == 42.5);
+        assertTrue(list.set(42, -42.5) == 42.5);
+        assertTrue(list.get(42) == -42.5);
+
+        list.add(0, 1000.5);
+        list.add(list.size(), 2000.5);
+        assertEquals(102, list.size());
+        assertTrue(list.get(0) == 1000.5);
+        assertTrue(list.get(1) == 0.5);
+        assertTrue(list.get(101) == 2000.5);
+
+        try {
+            list.get(102);
+            fail("Failed to throw ProgrammerError for out of bounds index");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+    }
+
+    @Test public void testAddAll() {
+        DoubleArrayList list = new DoubleArrayList(1, 2, 3);
+        list.addAll(new double[]{4, 5, 6, 7}, 1, 2);
+        list.addAll(new DoubleArrayList(8, 9.5));
+        assertDoublesEqual(new double[]{1, 2, 3, 5, 6, 8, 9.5}, list.toArray());
+
+        double[] big = new double[1000];
+        for (int i = 0; i < big.length; i++) {
+            big[i] = i * 0.25;
+        }
+        list.addAll(big);
+        assertEquals(1007, list.size());
+        assertTrue(list.get(1006) == 249.75);
+    }
+
+    @Test public void testRemove() {
+        DoubleArrayList list = new DoubleArrayList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertTrue(list.removeAt(3) == 3);
+        assertDoublesEqual(new double[]{0, 1, 2, 4, 5, 6, 7, 8, 9}, list.toArray());
+
+        list.removeRange(1, 4);
+        assertDoublesEqual(new double[]{0, 5, 6, 7, 8, 9}, list.toArray());
+        list.removeRange(2, 2);
+        assertEquals(6, list.size());
+
+        DoubleIterator iterator = list.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertDoublesEqual(new double[]{5, 7, 9}, list.toArray());
+
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test public void testSearch() {
+        DoubleArrayList list = new DoubleArrayList(5, 3.5, 9, 3.5, -1);
+        assertEquals(1, list.indexOf(3.5));
+        assertEquals(3, list.lastIndexOf(3.5));
+        assertFalse(list.contains(4));
+
+        list.sortInPlace();
+        assertDoublesEqual(new double[]{-1, 3.5, 3.5, 5, 9}, list.toArray());
+        assertEquals(4, list.binarySearch(9));
+        assertEquals(-4, list.binarySearch(4));
+    }
+
+    @Test public void testCapacity() {
+        DoubleArrayList list = new DoubleArrayList(2);
+        list.ensureCapacity(100);
+        assertTrue(list.getBackingArray().length >= 100);
+        double[] backingArray = list.getBackingArray();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        assertTrue(backingArray == list.getBackingArray());
+
+        list.trimToSize();
+        assertEquals(100, list.getBackingArray().length);
+    }
+
+    @Test public void testEquality() {
+        DoubleArrayList list1 = new DoubleArrayList(1.5, 2.5, 3.5);
+        DoubleArrayList list2 = new DoubleArrayList(1.5, 2.5, 3.5);
+        assertTrue(list1.equalTo(list2));
+        assertEquals(list1.hashCode(), list2.hashCode());
+        list2.add(4.5);
+        assertFalse(list1.equalTo(list2));
+        assertEquals("[1.5, 2.5, 3.5, 4.5]", list2.toString());
+    }
+
+    private void assertDoublesEqual(double[] expected, double[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue(expected[i] == actual[i]);
+        }
+    }
+}
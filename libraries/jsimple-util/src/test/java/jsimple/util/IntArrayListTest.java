@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import org.junit.Test;
+
+public class IntArrayListTest extends UnitTest {
+    @Test public void testAddGetSet() {
+        IntArrayList list = new IntArrayList(0);
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        assertEquals(100, list.size());
+        assertEquals(42, list.get(42));
+        assertEquals(42, list.set(42, -42));
+        assertEquals(-42, list.get(42));
+
+        list.add(0, 1000);
+        list.add(list.size(), 2000);
+        assertEquals(102, list.size());
+        assertEquals(1000, list.get(0));
+        assertEquals(0, list.get(1));
+        assertEquals(2000, list.get(101));
+
+        try {
+            list.get(102);
+            fail("Failed to throw ProgrammerError for out of bounds index");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+    }
+
+    @Test public void testAddAll() {
+        IntArrayList list = new IntArrayList(1, 2, 3);
+        list.addAll(new int[]{4, 5, 6, 7}, 1, 2);
+        list.addAll(new IntArrayList(8, 9));
+        assertArrayEquals(new int[]{1, 2, 3, 5, 6, 8, 9}, list.toArray());
+
+        int[] big = new int[1000];
+        for (int i = 0; i < big.length; i++) {
+            big[i] = i;
+        }
+        list.addAll(big);
+        assertEquals(1007, list.size());
+        assertEquals(999, list.get(1006));
+    }
+
+    @Test public void testRemove() {
+        IntArrayList list = new IntArrayList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertEquals(3, list.removeAt(3));
+        assertArrayEquals(new int[]{0, 1, 2, 4, 5, 6, 7, 8, 9}, list.toArray());
+
+        list.removeRange(1, 4);
+        assertArrayEquals(new int[]{0, 5, 6, 7, 8, 9}, list.toArray());
+        list.removeRange(2, 2);
+        assertEquals(6, list.size());
+
+        IntIterator iterator = list.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertArrayEquals(new int[]{5, 7, 9}, list.toArray());
+
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test public void testSearch() {
+        IntArrayList list = new IntArrayList(5, 3, 9, 3, 1);
+        assertEquals(1, list.indexOf(3));
+        assertEquals(3, list.lastIndexOf(3));
+        assertFalse(list.contains(4));
+
+        list.sortInPlace();
+        assertArrayEquals(new int[]{1, 3, 3, 5, 9}, list.toArray());
+        assertEquals(4, list.binarySearch(9));
+        assertEquals(-4, list.binarySearch(4));
+    }
+
+    @Test public void testCapacity() {
+        IntArrayList list = new IntArrayList(2);
+        list.ensureCapacity(100);
+        assertTrue(list.getBackingArray().length >= 100);
+        int[] backingArray = list.getBackingArray();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        assertTrue(backingArray == list.getBackingArray());
+
+        list.trimToSize();
+        assertEquals(100, list.getBackingArray().length);
+    }
+
+    @Test public void testEquality() {
+        IntArrayList list1 = new IntArrayList(1, 2, 3);
+        IntArrayList list2 = new IntArrayList(1, 2, 3);
+        assertTrue(list1.equalTo(list2));
+        assertEquals(list1.hashCode(), list2.hashCode());
+        list2.add(4);
+        assertFalse(list1.equalTo(list2));
+        assertEquals("[1, 2, 3, 4]", list2.toString());
+    }
+
+    @Test public void testOtherTypes() {
+        LongArrayList longs = new LongArrayList(3L << 40, 1L, 2L << 40);
+        longs.sortInPlace();
+        assertArrayEquals(new long[]{1L, 2L << 40, 3L << 40}, longs.toArray());
+        assertEquals(2, longs.binarySearch(3L << 40));
+
+        DoubleArrayList doubles = new DoubleArrayList(2.5, -1.0, 0.5);
+        doubles.sortInPlace();
+        assertTrue(doubles.get(0) == -1.0);
+        assertTrue(doubles.get(2) == 2.5);
+        assertEquals(1, doubles.indexOf(0.5));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import org.junit.Test;
+
+public class IntIntHashMapTest extends UnitTest {
+    @Test public void testPutGetRemove() {
+        IntIntHashMap map = new IntIntHashMap();
+        assertEquals(0, map.put(5, 50));
+        assertEquals(0, map.put(0, 7));
+        assertEquals(50, map.put(5, 55));
+
+        assertEquals(2, map.size());
+        assertEquals(55, map.get(5));
+        assertEquals(7, map.get(0));
+        assertEquals(0, map.get(6));
+        assertEquals(-1, map.getOrDefault(6, -1));
+        assertFalse(map.containsKey(6));
+
+        assertEquals(7, map.remove(0));
+        assertEquals(0, map.remove(0));
+        assertEquals(1, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.get(5));
+    }
+
+    @Test public void testAddTo() {
+        IntIntHashMap counts = new IntIntHashMap(4);
+        Random random = new Random(3);
+        int[] expected = new int[50];
+        for (int i = 0; i < 10000; i++) {
+            int key = random.nextInt(50);
+            expected[key]++;
+            assertEquals(expected[key], counts.addTo(key, 1));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(expected[i], counts.get(i));
+        }
+    }
+
+    @Test public void testIterators() {
+        IntIntHashMap map = new IntIntHashMap();
+        for (int i = 0; i < 200; i++) {
+            map.put(i, i * 2);
+        }
+
+        IntIterator keys = map.keyIterator();
+        IntIterator values = map.valueIterator();
+        int count = 0;
+        while (keys.hasNext()) {
+            int key = keys.next();
+            assertEquals(key * 2, values.next());
+            count++;
+        }
+        assertFalse(values.hasNext());
+        assertEquals(200, count);
+
+        IntIterator iterator = map.valueIterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 4 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(100, map.size());
+        assertTrue(map.containsKey(1));
+        assertFalse(map.containsKey(2));
+    }
+}
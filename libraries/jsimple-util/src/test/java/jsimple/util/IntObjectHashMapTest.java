@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import org.junit.Test;
+
+public class IntObjectHashMapTest extends UnitTest {
+    @Test public void testPutGetRemove() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<String>();
+        for (int i = -500; i < 500; i++) {
+            assertNull(map.put(i, "v" + i));
+        }
+        assertEquals(1000, map.size());
+        assertTrue(map.containsKey(0));
+        assertEquals("v0", map.get(0));
+        assertEquals("v-17", map.get(-17));
+        assertNull(map.get(500));
+
+        assertEquals("v42", map.put(42, "x"));
+        assertEquals("x", map.get(42));
+        assertEquals(1000, map.size());
+
+        assertEquals("v0", map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertNull(map.remove(0));
+        for (int i = 1; i < 500; i++) {
+            map.remove(i);
+        }
+        assertEquals(500, map.size());
+        assertTrue(map.containsValue("v-500"));
+        assertFalse(map.containsValue("x"));
+    }
+
+    @Test public void testRandomized() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<Integer>(4);
+        HashMap<Integer, Integer> expected = new HashMap<Integer, Integer>();
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            // Multiples of 1024 collide in the low bits, exercising the hash mixing
+            int key = random.nextInt(300) * 1024;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (MapEntry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test public void testIterators() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<String>(100);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, Integer.toString(i));
+        }
+
+        boolean[] seen = new boolean[100];
+        IntIterator keys = map.keyIterator();
+        while (keys.hasNext()) {
+            int key = keys.next();
+            assertFalse(seen[key]);
+            seen[key] = true;
+            if (key % 3 == 0) {
+                keys.remove();
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(seen[i]);
+            assertEquals(i % 3 != 0, map.containsKey(i));
+        }
+        assertEquals(66, map.size());
+        assertEquals(66, map.keysToArray().length);
+
+        int valueCount = 0;
+        for (String value : map.values()) {
+            assertEquals(value, map.get(Integer.parseInt(value)));
+            valueCount++;
+        }
+        assertEquals(66, valueCount);
+
+        map.values().clear();
+        assertTrue(map.isEmpty());
+        assertEquals("{}", map.toString());
+    }
+
+    @Test public void testConcurrentModification() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<String>();
+        map.put(1, "a");
+        map.put(2, "b");
+
+        IntIterator iterator = map.keyIterator();
+        iterator.next();
+        map.put(3, "c");
+        try {
+            iterator.next();
+            fail("Failed to detect modification outside of iterator");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+    }
+
+    @Test public void testLongKeys() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<String>();
+        long big = 1L << 40;
+        map.put(big, "big");
+        map.put(big + 1, "big+1");
+        map.put(0, "zero");
+        map.put(-1, "minus one");
+
+        assertEquals(4, map.size());
+        assertEquals("big", map.get(big));
+        assertEquals("big+1", map.get(big + 1));
+        assertEquals("zero", map.get(0));
+        assertNull(map.get(1));
+        assertEquals("big", map.remove(big));
+        assertFalse(map.containsKey(big));
+        assertTrue(map.containsKey(big + 1));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import org.junit.Test;
+
+public class LinkedHashMapTest extends UnitTest {
+    private static String keysToString(LinkedHashMap<String, BoxedInteger> map) {
+        StringBuilder builder = new StringBuilder();
+        for (String key : map.keySet()) {
+            builder.append(key);
+        }
+        return builder.toString();
+    }
+
+    @Test public void testInsertionOrder() {
+        LinkedHashMap<String, BoxedInteger> map = new LinkedHashMap<String, BoxedInteger>();
+        map.put("c", BoxedInteger.valueOf(3));
+        map.put("a", BoxedInteger.valueOf(1));
+        map.put("b", BoxedInteger.valueOf(2));
+        assertEquals("cab", keysToString(map));
+
+        // Replacing a value or reading doesn't change insertion order
+        map.put("c", BoxedInteger.valueOf(30));
+        assertEquals(1, map.get("a").intValue());
+        assertEquals("cab", keysToString(map));
+
+        map.remove("a");
+        map.put("a", BoxedInteger.valueOf(1));
+        assertEquals("cba", keysToString(map));
+
+        int sum = 0;
+        for (BoxedInteger value : map.values()) {
+            sum += value.intValue();
+        }
+        assertEquals(33, sum);
+        assertEquals("c", map.getEldestEntry().getKey());
+
+        map.clear();
+        assertEquals("", keysToString(map));
+        assertNull(map.getEldestEntry());
+    }
+
+    @Test public void testAccessOrder() {
+        LinkedHashMap<String, BoxedInteger> map = new LinkedHashMap<String, BoxedInteger>(16, 0.75f, true);
+        map.put("a", BoxedInteger.valueOf(1));
+        map.put("b", BoxedInteger.valueOf(2));
+        map.put("c", BoxedInteger.valueOf(3));
+
+        map.get("a");
+        assertEquals("bca", keysToString(map));
+        map.put("b", BoxedInteger.valueOf(20));
+        assertEquals("cab", keysToString(map));
+        map.containsKey("c");
+        assertEquals("cab", keysToString(map));
+    }
+
+    @Test public void testRemoveEldestEntry() {
+        LinkedHashMap<String, BoxedInteger> map = new LinkedHashMap<String, BoxedInteger>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(MapEntry<String, BoxedInteger> eldest) {
+                return size() > 2;
+            }
+        };
+        map.put("a", BoxedInteger.valueOf(1));
+        map.put("b", BoxedInteger.valueOf(2));
+        map.get("a");
+        map.put("c", BoxedInteger.valueOf(3));
+        assertEquals("ac", keysToString(map));
+        assertFalse(map.containsKey("b"));
+    }
+
+    @Test public void testIteratorRemoveAndRehash() {
+        LinkedHashMap<String, BoxedInteger> map = new LinkedHashMap<String, BoxedInteger>(2);
+        for (int i = 0; i < 100; i++) {
+            map.put("k" + i, BoxedInteger.valueOf(i));
+        }
+
+        Iterator<MapEntry<String, BoxedInteger>> iterator = map.entrySet().iterator();
+        int expected = 0;
+        while (iterator.hasNext()) {
+            MapEntry<String, BoxedInteger> entry = iterator.next();
+            assertEquals(expected, entry.getValue().intValue());
+            if (expected % 2 == 0)
+                iterator.remove();
+            expected++;
+        }
+        assertEquals(100, expected);
+        assertEquals(50, map.size());
+        assertEquals("k1", map.getEldestEntry().getKey());
+
+        LinkedHashMap<String, BoxedInteger> copy = new LinkedHashMap<String, BoxedInteger>(map);
+        assertEquals(keysToString(map), keysToString(copy));
+    }
+
+    @Test public void testConcurrentModification() {
+        LinkedHashMap<String, BoxedInteger> map = new LinkedHashMap<String, BoxedInteger>(16, 0.75f, true);
+        map.put("a", BoxedInteger.valueOf(1));
+        map.put("b", BoxedInteger.valueOf(2));
+
+        Iterator<String> iterator = map.keySet().iterator();
+        iterator.next();
+        map.get("a");
+        try {
+            iterator.next();
+            fail("Access in access ordered map should be a modification");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+    }
+}
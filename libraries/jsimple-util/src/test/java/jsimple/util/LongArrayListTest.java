@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import org.junit.Test;
+
+public class LongArrayListTest extends UnitTest {
+    private static final long BIG = 1L << 40;    // Doesn't fit in an int
+
+    @Test public void testAddGetSet() {
+        LongArrayList list = new LongArrayList(0);
+        for (int i = 0; i < 100; i++) {
+            list.add(BIG + i);
+        }
+        assertEquals(100, list.size());
+        assertEquals(BIG + 42, list.get(42));
+        assertEquals(BIG + 42, list.set(42, -BIG));
+        assertEquals(-BIG, list.get(42));
+
+        list.add(0, 1000);
+        list.add(list.size(), 2000);
+        assertEquals(102, list.size());
+        assertEquals(1000, list.get(0));
+        assertEquals(BIG, list.get(1));
+        assertEquals(2000, list.get(101));
+
+        try {
+            list.get(102);
+            fail("Failed to throw ProgrammerError for out of bounds index");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+    }
+
+    @Test public void testAddAll() {
+        LongArrayList list = new LongArrayList(1, 2, 3);
+        list.addAll(new long[]{4, 5, 6, 7}, 1, 2);
+        list.addAll(new LongArrayList(8, BIG));
+        assertArrayEquals(new long[]{1, 2, 3, 5, 6, 8, BIG}, list.toArray());
+
+        long[] big = new long[1000];
+        for (int i = 0; i < big.length; i++) {
+            big[i] = BIG + i;
+        }
+        list.addAll(big);
+        assertEquals(1007, list.size());
+        assertEquals(BIG + 999, list.get(1006));
+    }
+
+    @Test public void testRemove() {
+        LongArrayList list = new LongArrayList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertEquals(3, list.removeAt(3));
+        assertArrayEquals(new long[]{0, 1, 2, 4, 5, 6, 7, 8, 9}, list.toArray());
+
+        list.removeRange(1, 4);
+        assertArrayEquals(new long[]{0, 5, 6, 7, 8, 9}, list.toArray());
+        list.removeRange(2, 2);
+        assertEquals(6, list.size());
+
+        LongIterator iterator = list.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertArrayEquals(new long[]{5, 7, 9}, list.toArray());
+
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test public void testSearch() {
+        LongArrayList list = new LongArrayList(5, BIG, 9, BIG, 1);
+        assertEquals(1, list.indexOf(BIG));
+        assertEquals(3, list.lastIndexOf(BIG));
+        assertFalse(list.contains(4));
+
+        list.sortInPlace();
+        assertArrayEquals(new long[]{1, 5, 9, BIG, BIG}, list.toArray());
+        assertEquals(2, list.binarySearch(9));
+        assertEquals(-3, list.binarySearch(6));
+    }
+
+    @Test public void testCapacity() {
+        LongArrayList list = new LongArrayList(2);
+        list.ensureCapacity(100);
+        assertTrue(list.getBackingArray().length >= 100);
+        long[] backingArray = list.getBackingArray();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        assertTrue(backingArray == list.getBackingArray());
+
+        list.trimToSize();
+        assertEquals(100, list.getBackingArray().length);
+    }
+
+    @Test public void testEquality() {
+        LongArrayList list1 = new LongArrayList(1, 2, BIG);
+        LongArrayList list2 = new LongArrayList(1, 2, BIG);
+        assertTrue(list1.equalTo(list2));
+        assertEquals(list1.hashCode(), list2.hashCode());
+        list2.add(4);
+        assertFalse(list1.equalTo(list2));
+        assertEquals("[1, 2, 1099511627776, 4]", list2.toString());
+    }
+}
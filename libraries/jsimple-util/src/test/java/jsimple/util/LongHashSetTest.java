@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import org.junit.Test;
+
+public class LongHashSetTest extends UnitTest {
+    @Test public void testAddContainsRemove() {
+        LongHashSet set = new LongHashSet(0L, 1L, Long.MAX_VALUE, Long.MIN_VALUE);
+        assertEquals(4, set.size());
+        assertFalse(set.add(1L));
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertFalse(set.contains(2L));
+
+        assertTrue(set.remove(0L));
+        assertFalse(set.remove(0L));
+        assertFalse(set.contains(0L));
+        assertEquals(3, set.size());
+    }
+
+    @Test public void testRandomized() {
+        LongHashSet set = new LongHashSet(4);
+        HashSet<Long> expected = new HashSet<Long>();
+
+        Random random = new Random(11);
+        for (int i = 0; i < 20000; i++) {
+            long element = (long) random.nextInt(400) << 32;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(element), set.remove(element));
+            } else {
+                assertEquals(expected.add(element), set.add(element));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        long[] elements = set.toArray();
+        assertEquals(expected.size(), elements.length);
+        for (long element : elements) {
+            assertTrue(expected.contains(element));
+        }
+    }
+
+    @Test public void testIteratorRemove() {
+        LongHashSet set = new LongHashSet();
+        for (long i = 0; i < 1000; i++) {
+            set.add(i * 31);
+        }
+
+        LongIterator iterator = set.iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            long element = iterator.next();
+            if (element % 2 == 0) {
+                iterator.remove();
+            }
+            count++;
+        }
+        assertEquals(1000, count);
+        assertEquals(500, set.size());
+        assertTrue(set.contains(31));
+        assertFalse(set.contains(62));
+    }
+}
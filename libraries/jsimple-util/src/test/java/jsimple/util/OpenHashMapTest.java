@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2012-2015, Microsoft Mobile
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jsimple.util;
+
+import jsimple.unit.UnitTest;
+import org.junit.Test;
+
+public class OpenHashMapTest extends UnitTest {
+    /**
+     * Key whose hash code is chosen by the test, to force collisions and probe sequences that wrap around the table.
+     */
+    private static class CollidingKey {
+        private final int id;
+        private final int hash;
+
+        CollidingKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override public int hashCode() {
+            return hash;
+        }
+
+        @Override public String toString() {
+            return "key" + id;
+        }
+    }
+
+    @Test public void testConstructor() {
+        OpenHashMap<String, String> map = new OpenHashMap<String, String>();
+        assertEquals(0, map.size());
+        assertTrue(map.isEmpty());
+        assertNull(map.get("nothing"));
+
+        try {
+            new OpenHashMap<String, String>(-1);
+            fail("Failed to throw ProgrammerError for initial capacity < 0");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+
+        try {
+            new OpenHashMap<String, String>(10, 1.0f);
+            fail("Failed to throw ProgrammerError for load factor >= 1");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+
+        OpenHashMap<String, String> empty = new OpenHashMap<String, String>(0);
+        empty.put("something", "here");
+        assertEquals("here", empty.get("something"));
+    }
+
+    @Test public void testPutGetRemove() {
+        OpenHashMap<String, Integer> map = new OpenHashMap<String, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            assertNull(map.put(Integer.toString(i), i));
+        }
+        assertEquals(1000, map.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) map.get(Integer.toString(i)));
+        }
+        assertEquals(5, (int) map.put("5", 55));
+        assertEquals(55, (int) map.get("5"));
+        assertEquals(1000, map.size());
+
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(i == 4 ? 4 : i, (int) map.remove(Integer.toString(i)));
+        }
+        assertEquals(500, map.size());
+        assertNull(map.remove("0"));
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 1, map.containsKey(Integer.toString(i)));
+        }
+    }
+
+    @Test public void testNullValue() {
+        OpenHashMap<String, String> map = new OpenHashMap<String, String>();
+        map.put("a", null);
+        assertTrue(map.containsKey("a"));
+        assertTrue(map.containsValue(null));
+        assertFalse(map.containsValue("b"));
+        assertNull(map.get("a"));
+        assertEquals(1, map.size());
+    }
+
+    @Test public void testCollisions() {
+        OpenHashMap<CollidingKey, Integer> map = new OpenHashMap<CollidingKey, Integer>(4);
+        HashMap<CollidingKey, Integer> expected = new HashMap<CollidingKey, Integer>();
+
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(200);
+            CollidingKey key = new CollidingKey(id, id % 8);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (MapEntry<CollidingKey, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertTrue(map.equalTo(expected));
+    }
+
+    @Test public void testIteratorRemove() {
+        // With every key hashing to a slot near the end of the table, probe sequences wrap around to the start, so
+        // removing during iteration shifts keys from the unvisited part of the table into the visited part
+        for (int hash = 0; hash < 64; hash++) {
+            OpenHashMap<CollidingKey, Integer> map = new OpenHashMap<CollidingKey, Integer>(30);
+            for (int i = 0; i < 30; i++) {
+                map.put(new CollidingKey(i, hash + (i % 3)), i);
+            }
+
+            boolean[] seen = new boolean[30];
+            Iterator<CollidingKey> iterator = map.keySet().iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                CollidingKey key = iterator.next();
+                assertFalse("Key returned twice: " + key, seen[key.id]);
+                seen[key.id] = true;
+                if (key.id % 2 == 0) {
+                    iterator.remove();
+                }
+                count++;
+            }
+
+            assertEquals(30, count);
+            assertEquals(15, map.size());
+            for (int i = 0; i < 30; i++) {
+                assertEquals(i % 2 == 1, map.containsKey(new CollidingKey(i, hash + (i % 3))));
+            }
+        }
+    }
+
+    @Test public void testIteratorRemoveAll() {
+        OpenHashMap<CollidingKey, Integer> map = new OpenHashMap<CollidingKey, Integer>(100);
+        for (int i = 0; i < 100; i++) {
+            map.put(new CollidingKey(i, -i), i);
+        }
+
+        int count = 0;
+        Iterator<Integer> iterator = map.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            count++;
+        }
+        assertEquals(100, count);
+        assertTrue(map.isEmpty());
+    }
+
+    @Test public void testConcurrentModification() {
+        OpenHashMap<String, String> map = new OpenHashMap<String, String>();
+        map.put("a", "1");
+        map.put("b", "2");
+
+        Iterator<String> iterator = map.keySet().iterator();
+        iterator.next();
+        map.put("c", "3");
+        try {
+            iterator.next();
+            fail("Failed to detect modification outside of iterator");
+        } catch (ProgrammerError e) {
+            // expected
+        }
+    }
+
+    @Test public void testEntrySet() {
+        OpenHashMap<String, Integer> map = new OpenHashMap<String, Integer>();
+        for (int i = 0; i < 100; i++) {
+            map.put(Integer.toString(i), i);
+        }
+
+        Set<MapEntry<String, Integer>> entries = map.entrySet();
+        assertEquals(100, entries.size());
+
+        int sum = 0;
+        for (MapEntry<String, Integer> entry : entries) {
+            assertEquals(entry.getKey(), Integer.toString(entry.getValue()));
+            sum += entry.getValue();
+            entry.setValue(entry.getValue() * 2);
+        }
+        assertEquals(4950, sum);
+        assertEquals(20, (int) map.get("10"));
+
+        HashMap<String, Integer> other = new HashMap<String, Integer>();
+        other.put("3", 6);
+        assertTrue(entries.contains(other.entrySet().iterator().next()));
+        assertTrue(entries.remove(other.entrySet().iterator().next()));
+        assertFalse(map.containsKey("3"));
+        assertEquals(99, map.size());
+    }
+
+    @Test public void testConstructorMap() {
+        HashMap<String, String> source = new HashMap<String, String>();
+        for (int i = 0; i < 100; i++) {
+            source.put("key" + i, "value" + i);
+        }
+
+        OpenHashMap<String, String> map = new OpenHashMap<String, String>(source);
+        assertTrue(map.equalTo(source));
+        assertTrue(source.equalTo(map));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get("key1"));
+        map.putAll(source);
+        assertEquals(100, map.size());
+    }
+}